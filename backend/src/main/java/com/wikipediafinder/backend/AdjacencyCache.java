@@ -0,0 +1,157 @@
+package com.wikipediafinder.backend;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Process-wide cache of fetched link lists, keyed by the {@link TitleRegistry} ID of the page.
+ *
+ * <p>Values are {@link CompressedAdjacency} instances and the cache is bounded by their encoded
+ * size in bytes rather than by entry count, so pages with many links do not crowd out the budget
+ * unnoticed. Entries expire a fixed time after they were fetched. An expired entry is retained for
+ * a further period, during which {@link #getStale} still returns it, so that it can be kept if the
+ * page has not changed since (see {@link CompressedAdjacency#getRevision()}).
+ */
+public final class AdjacencyCache {
+  // Rough per-entry overhead (key, node, object headers) added to the encoded size
+  private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+  private static final AdjacencyCache SHARED =
+      new AdjacencyCache(256L * 1024 * 1024, Duration.ofHours(1), Duration.ofDays(1));
+
+  private final Cache<Integer, Entry> cache;
+  private final Duration staleRetention;
+  private volatile Duration ttl;
+
+  /**
+   * Create a cache that drops entries as soon as they expire.
+   *
+   * @param maxBytes approximate upper bound on the memory used by cached link lists
+   * @param ttl how long a link list is kept after it was fetched
+   */
+  public AdjacencyCache(long maxBytes, Duration ttl) {
+    this(maxBytes, ttl, Duration.ZERO);
+  }
+
+  /**
+   * Create a cache.
+   *
+   * @param maxBytes approximate upper bound on the memory used by cached link lists
+   * @param ttl how long a link list is used after it was fetched
+   * @param staleRetention how long an expired link list is retained for revalidation
+   */
+  public AdjacencyCache(long maxBytes, Duration ttl, Duration staleRetention) {
+    this.ttl = ttl;
+    this.staleRetention = staleRetention;
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .<Integer, Entry>weigher((id, entry) -> entry.links.byteSize() + ENTRY_OVERHEAD_BYTES)
+            .expireAfterWrite(ttl.plus(staleRetention))
+            .build();
+  }
+
+  /** Returns the process-wide instance. */
+  public static AdjacencyCache shared() {
+    return SHARED;
+  }
+
+  /** Returns the cached link list for page {@code id}, or {@code null} if it is not cached. */
+  public CompressedAdjacency get(int id) {
+    Entry entry = cache.getIfPresent(id);
+    return entry == null || entry.isExpired(ttl) ? null : entry.links;
+  }
+
+  /**
+   * Returns the cached link list for page {@code id} even if it has expired, or {@code null} if it
+   * is not retained.
+   */
+  public CompressedAdjacency getStale(int id) {
+    Entry entry = cache.getIfPresent(id);
+    return entry == null ? null : entry.links;
+  }
+
+  /** Returns true if the link list for page {@code id} is cached. */
+  public boolean contains(int id) {
+    return get(id) != null;
+  }
+
+  /** Caches the link list for page {@code id}, fetched now. */
+  public void put(int id, CompressedAdjacency adjacency) {
+    put(id, adjacency, System.currentTimeMillis());
+  }
+
+  /** Caches the link list for page {@code id}, fetched at {@code fetchedAt} (epoch millis). */
+  void put(int id, CompressedAdjacency adjacency, long fetchedAt) {
+    cache.put(id, new Entry(adjacency, fetchedAt));
+  }
+
+  /** Removes the link list for page {@code id}, if cached. */
+  public void invalidate(int id) {
+    cache.invalidate(id);
+  }
+
+  /**
+   * Changes how long link lists are kept after they were fetched, including those already cached.
+   */
+  public void setTtl(Duration ttl) {
+    this.ttl = ttl;
+    cache
+        .policy()
+        .expireAfterWrite()
+        .ifPresent(expiration -> expiration.setExpiresAfter(ttl.plus(staleRetention)));
+  }
+
+  /** Returns how long link lists are kept after they were fetched. */
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  /** Calls {@code action} with every unexpired link list and the ID of its page. */
+  public void forEach(ObjIntConsumer<CompressedAdjacency> action) {
+    cache
+        .asMap()
+        .forEach(
+            (id, entry) -> {
+              if (!entry.isExpired(ttl)) {
+                action.accept(entry.links, id);
+              }
+            });
+  }
+
+  /**
+   * Calls {@code action} with the ID of every page whose link list is cached or retained and of
+   * every page those lists link to, so that the {@link TitleRegistry} keeps them.
+   */
+  public void forEachId(IntConsumer action) {
+    cache
+        .asMap()
+        .forEach(
+            (id, entry) -> {
+              action.accept(id);
+              entry.links.forEach(action);
+            });
+  }
+
+  /** Returns the approximate number of cached link lists, including expired ones retained. */
+  public long size() {
+    return cache.estimatedSize();
+  }
+
+  private static final class Entry {
+    final CompressedAdjacency links;
+    final long fetchedAt;
+
+    Entry(CompressedAdjacency links, long fetchedAt) {
+      this.links = links;
+      this.fetchedAt = fetchedAt;
+    }
+
+    boolean isExpired(Duration ttl) {
+      return System.currentTimeMillis() - fetchedAt > ttl.toMillis();
+    }
+  }
+}
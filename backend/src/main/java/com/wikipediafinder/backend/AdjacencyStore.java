@@ -0,0 +1,795 @@
+package com.wikipediafinder.backend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent, append-only store of link lists on local disk, so that links fetched before a
+ * restart need not be downloaded again.
+ *
+ * <p>Records are appended to a log of fixed-size segment files, each memory-mapped in full; a
+ * record never spans two segments. A record holds a page URL, the time its links were fetched, the
+ * link URLs (sorted and front-coded) and the revision of the page they were read from, protected
+ * by a CRC-32. Pages and links are stored as
+ * URLs because {@link TitleRegistry} IDs only hold within one process. A memory-mapped
+ * open-addressing hash table maps the 64-bit hash of a page URL to the location of its latest
+ * record, so neither the index nor the data occupy the heap, and a lookup costs one probe sequence
+ * and one record read.
+ *
+ * <p>Records older than the TTL read as absent, except through {@link #getStale}, which lets a
+ * caller check whether the page has changed since. {@link #compact()} copies the live records of
+ * mostly dead segments to the end of the log and deletes them, and drops the oldest segments once
+ * the log exceeds its disk budget. The index notes how far into the log it is up to date; when the
+ * store is opened the log is scanned from there, so records appended just before a crash are
+ * indexed and a torn last record is discarded. A missing or damaged index is rebuilt from the
+ * whole log. The store is thread-safe. Compaction reads sealed segments, which no longer change,
+ * without holding the store's lock and takes it only to move one record at a time, so lookups and
+ * stores carry on meanwhile; deleted segments and replaced index files are unmapped at once.
+ */
+public final class AdjacencyStore implements Closeable {
+  private static final String WIKI_PREFIX = "https://en.wikipedia.org/wiki/";
+  private static final String SEGMENT_PREFIX = "links-";
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String INDEX_FILE = "links.idx";
+
+  // Index file: a 64-byte header followed by slots of (key hash, record location)
+  private static final int INDEX_MAGIC = 0x57464958; // "WFIX"
+  private static final int INDEX_VERSION = 1;
+  private static final int INDEX_HEADER_BYTES = 64;
+  private static final int SLOT_BYTES = 16;
+  private static final int SLOTS_SHIFT = 20;
+  private static final int SLOTS_PER_MAP = 1 << SLOTS_SHIFT;
+  private static final long MIN_SLOTS = 1 << 16;
+  private static final long EMPTY = 0;
+  private static final long TOMBSTONE = -1;
+
+  // Record: payload length, CRC-32 of the payload, payload
+  private static final int RECORD_HEADER_BYTES = 8;
+
+  private final Path directory;
+  private final TitleRegistry registry;
+  private final long ttlMillis;
+  private final int segmentBytes;
+  private final long maxBytes;
+  private final TreeMap<Integer, MappedByteBuffer> segments = new TreeMap<>();
+  private final Map<Integer, Long> liveBytes = new HashMap<>();
+  // Held by compact() throughout, so that one compaction runs at a time
+  private final Object compaction = new Object();
+  private int activeSegment;
+  private int writeOffset;
+  private MappedByteBuffer indexHeader;
+  private MappedByteBuffer[] indexSlots;
+  private long slotCount;
+  private long usedSlots;
+  private boolean closed;
+
+  /**
+   * Opens the store in {@code directory}, creating it if needed, and recovers records appended
+   * after the index was last updated.
+   *
+   * @param directory directory holding the segment and index files
+   * @param registry registry mapping stored URLs to IDs
+   * @param ttl how long stored links are used after they were fetched
+   * @param segmentBytes size of each segment file; also bounds the size of a record
+   * @param maxBytes disk budget beyond which the oldest segments are dropped by {@link #compact()}
+   * @throws IOException if the files cannot be created, mapped or read
+   */
+  public AdjacencyStore(
+      Path directory, TitleRegistry registry, Duration ttl, int segmentBytes, long maxBytes)
+      throws IOException {
+    if (segmentBytes < 4096 || maxBytes < 2L * segmentBytes) {
+      throw new IllegalArgumentException(
+          "Segments must hold at least 4 KB and the budget at least two segments.");
+    }
+    this.directory = directory;
+    this.registry = registry;
+    this.ttlMillis = ttl.toMillis();
+    this.segmentBytes = segmentBytes;
+    this.maxBytes = maxBytes;
+    Files.createDirectories(directory);
+    try (DirectoryStream<Path> files =
+        Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        int number;
+        try {
+          number =
+              Integer.parseInt(
+                  name.substring(
+                      SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+          // Not one of ours, e.g. a copy made by hand
+          continue;
+        }
+        if (number > 0) {
+          segments.put(number, mapSegment(file, Files.size(file)));
+        }
+      }
+    }
+    if (segments.isEmpty()) {
+      segments.put(1, mapSegment(segmentFile(1), segmentBytes));
+    }
+    int fromSegment;
+    int fromOffset;
+    if (openIndex()) {
+      fromSegment = indexHeader.getInt(32);
+      fromOffset = indexHeader.getInt(36);
+    } else {
+      createIndex(MIN_SLOTS);
+      installIndex();
+      fromSegment = segments.firstKey();
+      fromOffset = 0;
+    }
+    recover(fromSegment, fromOffset);
+  }
+
+  /**
+   * Returns the stored links of the page at {@code url}, or null if none are stored or they are
+   * older than the TTL.
+   */
+  public synchronized CompressedAdjacency get(String url) {
+    return read(url, false);
+  }
+
+  /**
+   * Returns the stored links of the page at {@code url} even if they are older than the TTL, or
+   * null if none are stored. Expired links are only still current if their {@link
+   * CompressedAdjacency#getRevision() revision} is still the page's latest.
+   */
+  public synchronized CompressedAdjacency getStale(String url) {
+    return read(url, true);
+  }
+
+  private CompressedAdjacency read(String url, boolean includeExpired) {
+    if (closed) {
+      return null;
+    }
+    long slot = findSlot(hashOf(url));
+    long location = slotLocation(slot);
+    if (slotHash(slot) == EMPTY || location == TOMBSTONE) {
+      return null;
+    }
+    byte[] payload = readPayload(location);
+    if (payload == null) {
+      return null;
+    }
+    Record record = Record.decode(payload);
+    if ((!includeExpired && isExpired(record.fetchedAt)) || !record.url.equals(url)) {
+      return null;
+    }
+    return CompressedAdjacency.fromUrls(record.links(), registry).withRevision(record.revision());
+  }
+
+  /** Stores the links of the page at {@code url}, fetched now, with their revision. */
+  public void put(String url, CompressedAdjacency links) {
+    put(url, links, System.currentTimeMillis());
+  }
+
+  /**
+   * Stores the links of the page at {@code url}, fetched at {@code fetchedAt} (epoch millis). A
+   * link list too large for one segment is not stored.
+   */
+  synchronized void put(String url, CompressedAdjacency links, long fetchedAt) {
+    if (closed) {
+      return;
+    }
+    List<String> urls = new ArrayList<>(links.size());
+    links.forEach(id -> urls.add(registry.urlOf(id)));
+    byte[] payload = Record.encode(url, fetchedAt, urls, links.getRevision());
+    if (RECORD_HEADER_BYTES + payload.length > segmentBytes) {
+      return;
+    }
+    index(hashOf(url), append(payload));
+    writeCheckpoint();
+  }
+
+  /** Forgets the stored links of the page at {@code url}, e.g. because the page was edited. */
+  public synchronized void remove(String url) {
+    if (closed) {
+      return;
+    }
+    long slot = findSlot(hashOf(url));
+    long location = slotLocation(slot);
+    if (slotHash(slot) == EMPTY || location == TOMBSTONE) {
+      return;
+    }
+    byte[] payload = readPayload(location);
+    if (payload != null) {
+      liveBytes.merge(
+          (int) (location >>> 32), -(long) (RECORD_HEADER_BYTES + payload.length), Long::sum);
+    }
+    removeSlot(slot);
+  }
+
+  /**
+   * Drops the oldest segments while the log exceeds its disk budget, then rewrites every other
+   * sealed segment that is more than half dead: its live records are appended to the end of the
+   * log and the segment file is deleted. Expired records are only kept if their revision is known,
+   * since only those can still be revalidated; the disk budget bounds how long.
+   *
+   * @return the number of segment files deleted
+   */
+  public int compact() {
+    synchronized (compaction) {
+      int deleted = 0;
+      while (true) {
+        int oldest;
+        synchronized (this) {
+          if (closed || segments.size() <= 1 || totalBytes() <= maxBytes) {
+            break;
+          }
+          oldest = segments.firstKey();
+        }
+        if (!dropSegment(oldest, false)) {
+          return deleted;
+        }
+        deleted++;
+      }
+      List<Integer> halfDead = new ArrayList<>();
+      synchronized (this) {
+        if (closed) {
+          return deleted;
+        }
+        for (Map.Entry<Integer, MappedByteBuffer> entry :
+            segments.headMap(activeSegment).entrySet()) {
+          if (liveBytes.getOrDefault(entry.getKey(), 0L) < entry.getValue().capacity() / 2) {
+            halfDead.add(entry.getKey());
+          }
+        }
+      }
+      for (int segment : halfDead) {
+        if (!dropSegment(segment, true)) {
+          return deleted;
+        }
+        deleted++;
+      }
+      synchronized (this) {
+        if (!closed) {
+          writeCheckpoint();
+        }
+      }
+      return deleted;
+    }
+  }
+
+  /** Returns the number of pages with stored links, including expired ones. */
+  public synchronized long size() {
+    return closed ? 0 : indexHeader.getLong(24);
+  }
+
+  /** Returns the size of all segment files in bytes. */
+  public synchronized long totalBytes() {
+    long total = 0;
+    for (MappedByteBuffer segment : segments.values()) {
+      total += segment.capacity();
+    }
+    return total;
+  }
+
+  /** Flushes all files to disk; later calls on the store do nothing. */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    for (MappedByteBuffer segment : segments.values()) {
+      segment.force();
+    }
+    for (MappedByteBuffer slots : indexSlots) {
+      slots.force();
+    }
+    indexHeader.force();
+    segments.clear();
+    closed = true;
+  }
+
+  // ---- log ----
+
+  /** Appends a record and returns its location: segment number in the high half, offset low. */
+  private long append(byte[] payload) {
+    int recordBytes = RECORD_HEADER_BYTES + payload.length;
+    MappedByteBuffer segment = segments.get(activeSegment);
+    if (writeOffset + recordBytes > segment.capacity()) {
+      segment.force();
+      activeSegment++;
+      writeOffset = 0;
+      segment = mapSegment(segmentFile(activeSegment), segmentBytes);
+      segments.put(activeSegment, segment);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    segment.put(writeOffset + RECORD_HEADER_BYTES, payload);
+    segment.putInt(writeOffset + 4, (int) crc.getValue());
+    // The length goes last: a record is only complete once its length is written
+    segment.putInt(writeOffset, payload.length);
+    long location = locationOf(activeSegment, writeOffset);
+    writeOffset += recordBytes;
+    liveBytes.merge(activeSegment, (long) recordBytes, Long::sum);
+    return location;
+  }
+
+  /** Returns the payload of the record at {@code location}, or null if it is not intact. */
+  private byte[] readPayload(long location) {
+    MappedByteBuffer segment = segments.get((int) (location >>> 32));
+    return segment == null ? null : readPayload(segment, (int) location);
+  }
+
+  private static byte[] readPayload(MappedByteBuffer segment, int offset) {
+    if (offset < 0 || offset + RECORD_HEADER_BYTES > segment.capacity()) {
+      return null;
+    }
+    int length = segment.getInt(offset);
+    if (length <= 0 || length > segment.capacity() - offset - RECORD_HEADER_BYTES) {
+      return null;
+    }
+    byte[] payload = new byte[length];
+    segment.get(offset + RECORD_HEADER_BYTES, payload);
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    return (int) crc.getValue() == segment.getInt(offset + 4) ? payload : null;
+  }
+
+  /**
+   * Indexes every intact record from {@code (fromSegment, fromOffset)} to the end of the log,
+   * discards a torn record at the end, and recomputes the live bytes of every segment.
+   */
+  private void recover(int fromSegment, int fromOffset) {
+    activeSegment = segments.lastKey();
+    writeOffset = 0;
+    for (Map.Entry<Integer, MappedByteBuffer> entry : segments.tailMap(fromSegment).entrySet()) {
+      int segmentNumber = entry.getKey();
+      MappedByteBuffer segment = entry.getValue();
+      int offset = segmentNumber == fromSegment ? fromOffset : 0;
+      byte[] payload;
+      while ((payload = readPayload(segment, offset)) != null) {
+        index(hashOf(Record.decode(payload).url), locationOf(segmentNumber, offset));
+        offset += RECORD_HEADER_BYTES + payload.length;
+      }
+      if (segmentNumber == activeSegment) {
+        writeOffset = offset;
+        // Zero what a torn record left behind, so it cannot be mistaken for the next record
+        for (int i = offset; i < Math.min(segment.capacity(), offset + RECORD_HEADER_BYTES); i++) {
+          segment.put(i, (byte) 0);
+        }
+      }
+    }
+    liveBytes.clear();
+    for (long slot = 0; slot < slotCount; slot++) {
+      long location = slotLocation(slot);
+      if (slotHash(slot) == EMPTY || location == TOMBSTONE) {
+        continue;
+      }
+      byte[] payload = readPayload(location);
+      if (payload == null) {
+        // Points into a deleted segment or at a record lost before it reached the disk
+        removeSlot(slot);
+      } else {
+        liveBytes.merge(
+            (int) (location >>> 32), (long) RECORD_HEADER_BYTES + payload.length, Long::sum);
+      }
+    }
+    writeCheckpoint();
+  }
+
+  /**
+   * Deletes a sealed segment. Its records that are still indexed are appended to the end of the log
+   * if {@code keepLive} is set and they have not expired or can be revalidated, and removed from
+   * the index otherwise. The segment is read without holding the lock, which is only taken to move
+   * each record. Returns false if the store was closed first.
+   */
+  private boolean dropSegment(int segmentNumber, boolean keepLive) {
+    MappedByteBuffer segment;
+    synchronized (this) {
+      segment = closed ? null : segments.get(segmentNumber);
+    }
+    if (segment == null) {
+      return false;
+    }
+    int offset = 0;
+    byte[] payload;
+    while ((payload = readPayload(segment, offset)) != null) {
+      Record record = Record.decode(payload);
+      long hash = hashOf(record.url);
+      boolean keep = keepLive && (!isExpired(record.fetchedAt) || record.revision() != 0);
+      synchronized (this) {
+        if (closed) {
+          return false;
+        }
+        long slot = findSlot(hash);
+        // A record stored or removed since has replaced this one
+        if (slotHash(slot) != EMPTY && slotLocation(slot) == locationOf(segmentNumber, offset)) {
+          if (keep) {
+            index(hash, append(payload));
+          } else {
+            removeSlot(slot);
+          }
+        }
+      }
+      offset += RECORD_HEADER_BYTES + payload.length;
+    }
+    synchronized (this) {
+      if (closed) {
+        return false;
+      }
+      if (segmentNumber == activeSegment) {
+        // Only when the budget is smaller than the live data: start a fresh segment
+        activeSegment++;
+        writeOffset = 0;
+        segments.put(activeSegment, mapSegment(segmentFile(activeSegment), segmentBytes));
+      }
+      segments.remove(segmentNumber);
+      liveBytes.remove(segmentNumber);
+      // Nothing reads the segment any more: the index no longer points into it
+      MappedBuffers.unmap(segment);
+      try {
+        Files.deleteIfExists(segmentFile(segmentNumber));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return true;
+  }
+
+  private boolean isExpired(long fetchedAt) {
+    return System.currentTimeMillis() - fetchedAt > ttlMillis;
+  }
+
+  private Path segmentFile(int number) {
+    return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+  }
+
+  private static MappedByteBuffer mapSegment(Path file, long bytes) {
+    try (FileChannel channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static long locationOf(int segment, int offset) {
+    return ((long) segment << 32) | offset;
+  }
+
+  // ---- index ----
+
+  /** Points the index entry for {@code hash} at {@code location}, replacing an older record. */
+  private void index(long hash, long location) {
+    long slot = findSlot(hash);
+    long previous = slotLocation(slot);
+    if (slotHash(slot) == EMPTY) {
+      usedSlots++;
+      indexHeader.putLong(16, usedSlots);
+      indexHeader.putLong(24, indexHeader.getLong(24) + 1);
+    } else if (previous == TOMBSTONE) {
+      indexHeader.putLong(24, indexHeader.getLong(24) + 1);
+    } else {
+      byte[] payload = readPayload(previous);
+      if (payload != null) {
+        liveBytes.merge(
+            (int) (previous >>> 32), -(long) (RECORD_HEADER_BYTES + payload.length), Long::sum);
+      }
+    }
+    writeSlot(slot, hash, location);
+    if (usedSlots > slotCount / 2) {
+      resizeIndex();
+    }
+  }
+
+  private void removeSlot(long slot) {
+    writeSlot(slot, slotHash(slot), TOMBSTONE);
+    indexHeader.putLong(24, indexHeader.getLong(24) - 1);
+  }
+
+  /** Records that the index covers the log up to the current write position. */
+  private void writeCheckpoint() {
+    indexHeader.putInt(32, activeSegment);
+    indexHeader.putInt(36, writeOffset);
+  }
+
+  /** Returns the slot holding {@code hash}, or the empty slot where it would be inserted. */
+  private long findSlot(long hash) {
+    long mask = slotCount - 1;
+    long slot = mix(hash) & mask;
+    while (true) {
+      long stored = slotHash(slot);
+      if (stored == EMPTY || stored == hash) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /** Opens the existing index; returns false if there is none or it is not valid. */
+  private boolean openIndex() throws IOException {
+    Path file = directory.resolve(INDEX_FILE);
+    if (!Files.exists(file) || Files.size(file) < INDEX_HEADER_BYTES) {
+      return false;
+    }
+    try (FileChannel channel =
+        FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_BYTES);
+      long slots = header.getLong(8);
+      if (header.getInt(0) != INDEX_MAGIC
+          || header.getInt(4) != INDEX_VERSION
+          || slots < MIN_SLOTS
+          || Long.bitCount(slots) != 1
+          || channel.size() != INDEX_HEADER_BYTES + slots * SLOT_BYTES
+          || !segments.containsKey(header.getInt(32))) {
+        return false;
+      }
+      indexHeader = header;
+      indexSlots = mapSlots(channel, slots);
+      slotCount = slots;
+      usedSlots = header.getLong(16);
+      return true;
+    }
+  }
+
+  /**
+   * Switches to a new, empty index of {@code slots} slots, written to a temporary file until
+   * {@link #installIndex()}.
+   */
+  private void createIndex(long slots) throws IOException {
+    Path temp = directory.resolve(INDEX_FILE + ".tmp");
+    Files.deleteIfExists(temp);
+    try (FileChannel channel =
+        FileChannel.open(
+            temp,
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_BYTES);
+      MappedByteBuffer[] newSlots = mapSlots(channel, slots);
+      header.putInt(0, INDEX_MAGIC);
+      header.putInt(4, INDEX_VERSION);
+      header.putLong(8, slots);
+      indexHeader = header;
+      indexSlots = newSlots;
+      slotCount = slots;
+      usedSlots = 0;
+    }
+  }
+
+  /** Rebuilds the index with room for twice its live entries, dropping tombstones. */
+  private void resizeIndex() {
+    MappedByteBuffer oldHeader = indexHeader;
+    MappedByteBuffer[] oldSlots = indexSlots;
+    long oldCount = slotCount;
+    long live = indexHeader.getLong(24);
+    int checkpointSegment = indexHeader.getInt(32);
+    int checkpointOffset = indexHeader.getInt(36);
+    try {
+      createIndex(Math.max(MIN_SLOTS, Long.highestOneBit(live * 4)));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    for (long slot = 0; slot < oldCount; slot++) {
+      MappedByteBuffer buffer = oldSlots[(int) (slot >>> SLOTS_SHIFT)];
+      int offset = (int) (slot & (SLOTS_PER_MAP - 1)) * SLOT_BYTES;
+      long hash = buffer.getLong(offset);
+      long location = buffer.getLong(offset + 8);
+      if (hash != EMPTY && location != TOMBSTONE) {
+        writeSlot(findSlot(hash), hash, location);
+        usedSlots++;
+      }
+    }
+    indexHeader.putLong(16, usedSlots);
+    indexHeader.putLong(24, usedSlots);
+    // Keep the old checkpoint: during recovery the log is only indexed up to the scan position
+    indexHeader.putInt(32, checkpointSegment);
+    indexHeader.putInt(36, checkpointOffset);
+    for (MappedByteBuffer buffer : indexSlots) {
+      buffer.force();
+    }
+    indexHeader.force();
+    try {
+      installIndex();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    // The old index file is gone; release its disk space now rather than when collected
+    MappedBuffers.unmap(oldHeader);
+    for (MappedByteBuffer buffer : oldSlots) {
+      MappedBuffers.unmap(buffer);
+    }
+  }
+
+  /** Replaces the index file with the one written by {@link #createIndex}. */
+  private void installIndex() throws IOException {
+    Files.move(
+        directory.resolve(INDEX_FILE + ".tmp"),
+        directory.resolve(INDEX_FILE),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static MappedByteBuffer[] mapSlots(FileChannel channel, long slots) throws IOException {
+    int mapCount = (int) ((slots + SLOTS_PER_MAP - 1) >>> SLOTS_SHIFT);
+    MappedByteBuffer[] maps = new MappedByteBuffer[mapCount];
+    for (int i = 0; i < maps.length; i++) {
+      long first = (long) i * SLOTS_PER_MAP;
+      long count = Math.min(SLOTS_PER_MAP, slots - first);
+      maps[i] =
+          channel.map(
+              FileChannel.MapMode.READ_WRITE,
+              INDEX_HEADER_BYTES + first * SLOT_BYTES,
+              count * SLOT_BYTES);
+    }
+    return maps;
+  }
+
+  private long slotHash(long slot) {
+    return indexSlots[(int) (slot >>> SLOTS_SHIFT)].getLong(slotOffset(slot));
+  }
+
+  private long slotLocation(long slot) {
+    return indexSlots[(int) (slot >>> SLOTS_SHIFT)].getLong(slotOffset(slot) + 8);
+  }
+
+  private void writeSlot(long slot, long hash, long location) {
+    MappedByteBuffer buffer = indexSlots[(int) (slot >>> SLOTS_SHIFT)];
+    buffer.putLong(slotOffset(slot) + 8, location);
+    buffer.putLong(slotOffset(slot), hash);
+  }
+
+  private static int slotOffset(long slot) {
+    return (int) (slot & (SLOTS_PER_MAP - 1)) * SLOT_BYTES;
+  }
+
+  /** Returns the non-zero 64-bit hash identifying {@code url} in the index. */
+  private static long hashOf(String url) {
+    long hash = Hashing.hash64(url);
+    return hash == EMPTY ? 1 : hash;
+  }
+
+  private static long mix(long hash) {
+    return hash ^ (hash >>> 32);
+  }
+
+  /**
+   * A decoded record payload: fetch time, page URL and link count, followed by the links sorted
+   * and front-coded (bytes shared with the previous link, then the remaining bytes) and, if known,
+   * the page revision. Links under {@code /wiki/} are stored without that prefix.
+   */
+  private static final class Record {
+    final long fetchedAt;
+    final String url;
+    final byte[] payload;
+    final int linksStart;
+
+    private Record(long fetchedAt, String url, byte[] payload, int linksStart) {
+      this.fetchedAt = fetchedAt;
+      this.url = url;
+      this.payload = payload;
+      this.linksStart = linksStart;
+    }
+
+    static byte[] encode(String url, long fetchedAt, List<String> links, long revision) {
+      byte[][] encoded = new byte[links.size()][];
+      for (int i = 0; i < encoded.length; i++) {
+        String link = links.get(i);
+        encoded[i] =
+            (link.startsWith(WIKI_PREFIX) ? link.substring(WIKI_PREFIX.length()) : link)
+                .getBytes(StandardCharsets.UTF_8);
+      }
+      Arrays.sort(encoded, Arrays::compare);
+      ByteArrayOutputStream out = new ByteArrayOutputStream(64 + 16 * encoded.length);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        out.write((int) (fetchedAt >>> shift));
+      }
+      byte[] urlBytes = url.getBytes(StandardCharsets.UTF_8);
+      writeVarint(out, urlBytes.length);
+      out.write(urlBytes, 0, urlBytes.length);
+      writeVarint(out, encoded.length);
+      byte[] previous = new byte[0];
+      for (byte[] link : encoded) {
+        int shared = Arrays.mismatch(previous, link);
+        if (shared < 0) {
+          shared = link.length;
+        }
+        writeVarint(out, shared);
+        writeVarint(out, link.length - shared);
+        out.write(link, shared, link.length - shared);
+        previous = link;
+      }
+      if (revision != 0) {
+        writeVarlong(out, revision);
+      }
+      return out.toByteArray();
+    }
+
+    static Record decode(byte[] payload) {
+      long fetchedAt = 0;
+      for (int i = 0; i < 8; i++) {
+        fetchedAt = (fetchedAt << 8) | (payload[i] & 0xff);
+      }
+      int[] pos = {8};
+      int urlLength = readVarint(payload, pos);
+      String url = new String(payload, pos[0], urlLength, StandardCharsets.UTF_8);
+      return new Record(fetchedAt, url, payload, pos[0] + urlLength);
+    }
+
+    List<String> links() {
+      int[] pos = {linksStart};
+      int count = readVarint(payload, pos);
+      List<String> links = new ArrayList<>(count);
+      byte[] previous = new byte[0];
+      for (int i = 0; i < count; i++) {
+        int shared = readVarint(payload, pos);
+        int rest = readVarint(payload, pos);
+        byte[] link = Arrays.copyOf(previous, shared + rest);
+        System.arraycopy(payload, pos[0], link, shared, rest);
+        pos[0] += rest;
+        String decoded = new String(link, StandardCharsets.UTF_8);
+        links.add(decoded.startsWith("https://") ? decoded : WIKI_PREFIX + decoded);
+        previous = link;
+      }
+      return links;
+    }
+
+    /** Returns the revision the links were read from, or 0 if unknown (as in older records). */
+    long revision() {
+      int[] pos = {linksStart};
+      int count = readVarint(payload, pos);
+      for (int i = 0; i < count; i++) {
+        readVarint(payload, pos);
+        int rest = readVarint(payload, pos);
+        pos[0] += rest;
+      }
+      if (pos[0] == payload.length) {
+        return 0;
+      }
+      long revision = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = payload[pos[0]++];
+        revision |= (long) (b & 0x7f) << shift;
+        if (b >= 0) {
+          return revision;
+        }
+      }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+      writeVarlong(out, value & 0xffffffffL);
+    }
+
+    private static void writeVarlong(ByteArrayOutputStream out, long value) {
+      while ((value & ~0x7fL) != 0) {
+        out.write((int) (value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      out.write((int) value);
+    }
+
+    private static int readVarint(byte[] data, int[] pos) {
+      int value = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = data[pos[0]++];
+        value |= (b & 0x7f) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+    }
+  }
+}
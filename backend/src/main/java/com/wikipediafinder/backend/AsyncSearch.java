@@ -0,0 +1,245 @@
+package com.wikipediafinder.backend;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.IntFunction;
+
+/**
+ * A shortest-path search that runs without blocking any thread, returned by {@link
+ * BFS#searchAsync}.
+ *
+ * <p>The search is itself the {@link CompletableFuture} of its {@link BFSResult}. It is
+ * level-synchronous: the links of up to {@code maxInFlight} nodes of the current level are
+ * requested at once, and every completed request is expanded on the callback executor, after which
+ * the next request is issued. No thread waits for a response, so a small executor can drive
+ * thousands of searches. Every node of level {@code d} is {@code d} hops from the start, so the
+ * first discovery of the target yields a shortest path.
+ *
+ * <p>The explored-node count is published to {@link #getProgress()} after every expansion. It is
+ * delivered on a separate executor, so subscribers writing to slow clients never hold up the
+ * callback executor, and items are dropped for subscribers that fall behind. {@link
+ * #cancel(boolean)} aborts every in-flight request and closes the progress publisher. The result
+ * carries the search's {@link SearchMetrics}, and the search and each of its levels are recorded
+ * as flight recorder events. While it runs the search counts as live traffic in {@link
+ * SearchActivity}.
+ */
+public class AsyncSearch extends CompletableFuture<BFSResult> {
+  private final IntFunction<CompletableFuture<CompressedAdjacency>> linkLoader;
+  private final Executor executor;
+  private final int startId;
+  private final int endId;
+  private final int nodeCap;
+  private final int maxInFlight;
+  private final SubmissionPublisher<Integer> progress;
+  private final FlightEvents.SearchEvent event = new FlightEvents.SearchEvent();
+  private final SearchMetrics metrics = new SearchMetrics();
+
+  // Search state, guarded by this
+  private final BitSet discovered = new BitSet();
+  private final IntIntHashMap parents = new IntIntHashMap();
+  private final CompressedAdjacency.Cursor cursor = new CompressedAdjacency.Cursor();
+  private final Set<CompletableFuture<CompressedAdjacency>> inFlight = new HashSet<>();
+  private IntQueue level = new IntQueue();
+  private IntQueue next = new IntQueue();
+  private FlightEvents.LevelTracker levels;
+  private SearchActivity.Scope activity;
+  private int nodeCnt;
+  private int depth;
+
+  /**
+   * Create a search; it starts when {@link #start()} is called.
+   *
+   * @param startId {@link TitleRegistry} ID of the start page
+   * @param endId {@link TitleRegistry} ID of the target page
+   * @param linkLoader returns the future links of the page with the given ID
+   * @param executor executor running completion callbacks
+   * @param progressExecutor executor delivering progress to subscribers, which may block
+   * @param nodeCap maximum number of nodes to expand
+   * @param maxInFlight maximum number of link requests outstanding at once
+   */
+  AsyncSearch(
+      int startId,
+      int endId,
+      IntFunction<CompletableFuture<CompressedAdjacency>> linkLoader,
+      Executor executor,
+      Executor progressExecutor,
+      int nodeCap,
+      int maxInFlight) {
+    this.startId = startId;
+    this.endId = endId;
+    this.linkLoader = linkLoader;
+    this.executor = executor;
+    this.nodeCap = nodeCap;
+    this.maxInFlight = maxInFlight;
+    this.progress = new SubmissionPublisher<>(progressExecutor, Flow.defaultBufferSize());
+  }
+
+  /** Returns the publisher of explored-node counts, closed when the search ends. */
+  public Flow.Publisher<Integer> getProgress() {
+    return progress;
+  }
+
+  /** Aborts all in-flight link requests and cancels the search. */
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    boolean cancelled = super.cancel(mayInterruptIfRunning);
+    if (cancelled) {
+      trace(null);
+    }
+    finish();
+    return cancelled;
+  }
+
+  @Override
+  public boolean complete(BFSResult result) {
+    boolean completed = super.complete(result);
+    if (completed) {
+      trace(result);
+    }
+    finish();
+    return completed;
+  }
+
+  @Override
+  public boolean completeExceptionally(Throwable error) {
+    boolean completed = super.completeExceptionally(error);
+    if (completed) {
+      trace(null);
+    }
+    finish();
+    return completed;
+  }
+
+  /** Starts the search from the start page. */
+  synchronized void start() {
+    event.begin();
+    activity = SearchActivity.shared().begin();
+    levels = new FlightEvents.LevelTracker("async");
+    if (startId == endId) {
+      complete(result(List.of(TitleRegistry.shared().urlOf(startId)), 1));
+      return;
+    }
+    discovered.set(startId);
+    level.add(startId);
+    try (SearchMetrics.Scope ignored = metrics.enter()) {
+      pump();
+    }
+  }
+
+  /** Issues requests for the current level, or moves on to the next level once it is done. */
+  private synchronized void pump() {
+    while (!isDone()) {
+      while (!level.isEmpty()
+          && inFlight.size() < maxInFlight
+          && nodeCnt + inFlight.size() < nodeCap) {
+        int id = level.poll();
+        CompletableFuture<CompressedAdjacency> request = linkLoader.apply(id);
+        inFlight.add(request);
+        request.whenCompleteAsync((links, error) -> onLoaded(id, request, links), executor);
+      }
+      if (!inFlight.isEmpty()) {
+        return;
+      }
+      if (next.isEmpty() || nodeCnt >= nodeCap) {
+        // Not found or cap reached
+        complete(result(null, nodeCnt));
+        return;
+      }
+      levels.nextLevel(next.size());
+      metrics.recordDepth(++depth);
+      metrics.recordFrontier(next.size());
+      IntQueue swap = level;
+      level = next;
+      next = swap;
+      next.clear();
+    }
+  }
+
+  /** Expands a node whose links arrived; a failed request leaves the node without links. */
+  private synchronized void onLoaded(
+      int id, CompletableFuture<CompressedAdjacency> request, CompressedAdjacency links) {
+    if (!inFlight.remove(request) || isDone()) {
+      return;
+    }
+    try (SearchMetrics.Scope ignored = metrics.enter()) {
+      nodeCnt++;
+      levels.expanded();
+      progress.offer(nodeCnt, (subscriber, dropped) -> false);
+      if (links != null) {
+        cursor.reset(links);
+        while (cursor.hasNext()) {
+          int neighborId = cursor.nextInt();
+          if (!discovered.get(neighborId)) {
+            discovered.set(neighborId);
+            parents.put(neighborId, id);
+            next.add(neighborId);
+            if (neighborId == endId) {
+              complete(result(reconstructPath(), nodeCnt));
+              return;
+            }
+          }
+        }
+      }
+      pump();
+    } catch (RuntimeException e) {
+      completeExceptionally(e);
+    }
+  }
+
+  /** Returns the result of the search, which ends now. */
+  private BFSResult result(List<String> path, int nodesExplored) {
+    metrics.finish();
+    return new BFSResult(path, nodesExplored, List.of(), metrics);
+  }
+
+  private List<String> reconstructPath() {
+    TitleRegistry registry = TitleRegistry.shared();
+    List<String> path = new ArrayList<>();
+    for (int id = endId; id != startId; id = parents.get(id, startId)) {
+      path.add(registry.urlOf(id));
+    }
+    path.add(registry.urlOf(startId));
+    Collections.reverse(path);
+    return path;
+  }
+
+  /** Records the search, which ended with {@code result} or without one if null. */
+  private synchronized void trace(BFSResult result) {
+    if (levels == null) {
+      // Never started
+      return;
+    }
+    levels.finish(next.size());
+    activity.close();
+    TitleRegistry registry = TitleRegistry.shared();
+    String startUrl = registry.urlOf(startId);
+    String endUrl = registry.urlOf(endId);
+    event.end("async", startUrl, endUrl, nodeCap, result);
+    SearchActivity.shared()
+        .recordPages(
+            result != null && result.getPath() != null
+                ? result.getPath()
+                : List.of(startUrl, endUrl));
+  }
+
+  /** Cancels outstanding requests and closes the progress publisher. */
+  private void finish() {
+    List<CompletableFuture<CompressedAdjacency>> outstanding;
+    synchronized (this) {
+      outstanding = new ArrayList<>(inFlight);
+      inFlight.clear();
+    }
+    for (CompletableFuture<CompressedAdjacency> request : outstanding) {
+      request.cancel(true);
+    }
+    progress.close();
+  }
+}
@@ -1,9 +1,32 @@
 package com.wikipediafinder.backend;
 
 import com.wikipediafinder.backend.interfaces.BFSInterface;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
@@ -17,8 +40,78 @@ import org.springframework.stereotype.Service;
 @Service
 public class BFS implements BFSInterface {
 
-  // Default factory for production
-  private static final Function<String, PageNode> DEFAULT_FACTORY = PageNode::new;
+  /**
+   * Default factory for production. Passing this very instance enables the {@link
+   * SourceTreeCache}, which relies on links landing in the shared caches.
+   */
+  public static final Function<String, PageNode> DEFAULT_FACTORY = PageNode::new;
+
+  /** Maximum number of nodes expanded by a single search. */
+  public static final int NODE_CAP = 10000;
+
+  // Bounds of the adaptive window of queued nodes whose links are fetched ahead of the search
+  private static final int MIN_LOOKAHEAD = 1;
+  private static final int MAX_LOOKAHEAD = 16;
+
+  // Visited entries kept on the heap by the external-memory search before spilling to disk
+  private static final int DISK_HOT_ENTRIES = 1 << 16;
+
+  // Link requests kept outstanding by one asynchronous search
+  private static final int ASYNC_IN_FLIGHT = 8;
+
+  // Cold pages one level-aware search fetches at once on the shared fetch pool
+  private static final int LEVEL_IN_FLIGHT = 4;
+
+  // Daemon threads running background link fetches (lookahead and cold nodes), shared by searches
+  private final ExecutorService fetchExecutor =
+      Executors.newFixedThreadPool(MAX_LOOKAHEAD, daemonThreads("bfs-fetch"));
+
+  // Daemon threads running the (never blocking) callbacks of all asynchronous searches
+  private final ExecutorService asyncExecutor =
+      Executors.newFixedThreadPool(
+          Math.max(2, Runtime.getRuntime().availableProcessors()), daemonThreads("bfs-async"));
+
+  // Delivers the progress of asynchronous searches, whose subscribers may block on slow clients
+  private final ExecutorService progressExecutor =
+      Executors.newCachedThreadPool(daemonThreads("bfs-progress"));
+
+  // Runs the parallel levels of snapshot searches on all cores
+  private final ForkJoinPool snapshotPool =
+      new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+  // Whether searches fetch the links of queued nodes ahead of expanding them
+  private final boolean prefetch;
+
+  /** Create a service that fetches the links of every node only when it is expanded. */
+  public BFS() {
+    this(false);
+  }
+
+  /**
+   * Create a service.
+   *
+   * @param prefetch whether searches fetch the links of queued nodes ahead of expanding them
+   */
+  @Autowired
+  public BFS(@Value("${wikipediafinder.search.prefetch:true}") boolean prefetch) {
+    this.prefetch = prefetch;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    fetchExecutor.shutdownNow();
+    asyncExecutor.shutdownNow();
+    progressExecutor.shutdownNow();
+    snapshotPool.shutdownNow();
+  }
+
+  private static ThreadFactory daemonThreads(String name) {
+    return runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
 
   /**
    * Instance method: find the shortest path (list of URLs) from {@code start} to {@code end}.
@@ -36,7 +129,7 @@ public class BFS implements BFSInterface {
   @Override
   @Cacheable(value = "pathCache", key = "#start.getURL() + '->' + #end.getURL()")
   public List<String> getPath(PageNode start, PageNode end) {
-    return getPath(start, end, DEFAULT_FACTORY);
+    return search(start, end, DEFAULT_FACTORY, null, "bfs", true).getPath();
   }
 
   /**
@@ -53,87 +146,879 @@ public class BFS implements BFSInterface {
   @Override
   public List<String> getPath(
       PageNode start, PageNode end, Function<String, PageNode> nodeFactory) {
+    return search(start, end, nodeFactory, null, "bfs", false).getPath();
+  }
+
+  // ---- getPathWithStats counterpart methods ----
+
+  /**
+   * Instance method: find the shortest path and return a {@link BFSResult} that includes stats
+   * (number of nodes explored).
+   *
+   * @param start starting PageNode (must be non-null)
+   * @param end ending PageNode (must be non-null)
+   * @return {@link BFSResult} containing the path (or null) and nodes explored count
+   * @throws IllegalArgumentException if {@code start} or {@code end} is null
+   */
+  @Override
+  @Cacheable(value = "pathStatsCache", key = "#start.getURL() + '->' + #end.getURL()")
+  public BFSResult getPathWithStats(PageNode start, PageNode end) {
+    return getPathWithStats(start, end, DEFAULT_FACTORY, null, true);
+  }
+
+  @Override
+  public BFSResult getPathWithStats(
+      PageNode start, PageNode end, Function<String, PageNode> nodeFactory) {
+    return getPathWithStats(start, end, nodeFactory, null);
+  }
+
+  @Override
+  public BFSResult getPathWithStats(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      Consumer<Integer> progressCallback) {
+    return getPathWithStats(start, end, nodeFactory, progressCallback, false);
+  }
+
+  @Override
+  public BFSResult getPathWithStats(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      Consumer<Integer> progressCallback,
+      boolean useTrees) {
+    return search(start, end, nodeFactory, progressCallback, "bfs", useTrees);
+  }
+
+  /**
+   * Shared implementation of {@link #getPath} and {@link #getPathWithStats}.
+   *
+   * <p>The traversal works entirely on {@link TitleRegistry} IDs: the queue is an {@link IntQueue},
+   * the visited set a {@link BitSet} and parent pointers an {@link IntIntHashMap}. Neighbors are
+   * read straight from each node's compact link list with a reusable cursor, so no per-link
+   * PageNode or URL string is created; URLs are only looked up for expanded nodes and the final
+   * path. While a node is being expanded, the links of the next queued nodes are already being
+   * fetched by a {@link LookaheadPrefetcher}; outstanding fetches are cancelled when the search
+   * ends. The search and each of its levels are recorded as flight recorder events.
+   *
+   * <p>With {@code useTrees}, the search resumes cached BFS trees instead (see {@link
+   * #searchTrees}).
+   */
+  private BFSResult search(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      Consumer<Integer> progressCallback,
+      String mode,
+      boolean useTrees) {
+    if (useTrees) {
+      SourceTreeCache trees = sourceTrees();
+      return traced(
+          "tree",
+          start,
+          end,
+          NODE_CAP,
+          () -> searchTrees(trees, start, end, nodeFactory, progressCallback));
+    }
+    return traced(
+        mode,
+        start,
+        end,
+        NODE_CAP,
+        () -> expandQueue(start, end, nodeFactory, progressCallback, mode));
+  }
+
+  /** The traversal of {@link #search}; {@code mode} labels its flight recorder events. */
+  private BFSResult expandQueue(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      Consumer<Integer> progressCallback,
+      String mode) {
     if (start == null || end == null) {
       throw new IllegalArgumentException("Start and end nodes cannot be null.");
     }
     String startUrl = start.getURL();
     String endUrl = end.getURL();
     if (startUrl.equals(endUrl)) {
-      return Collections.singletonList(startUrl);
+      return new BFSResult(Collections.singletonList(startUrl), 1);
     }
-
-    Queue<String> queue = new LinkedList<>();
-    Set<String> discovered = new HashSet<>();
-    Map<String, String> parents = new HashMap<>();
-    Map<String, Set<String>> linkCache = new HashMap<>();
-    queue.add(startUrl);
-    discovered.add(startUrl);
+    TitleRegistry registry = TitleRegistry.shared();
+    int startId = registry.idOf(startUrl);
+    int endId = registry.idOf(endUrl);
+    IntQueue queue = new IntQueue();
+    BitSet discovered = new BitSet();
+    IntIntHashMap parents = new IntIntHashMap();
+    CompressedAdjacency.Cursor cursor = new CompressedAdjacency.Cursor();
+    LookaheadPrefetcher prefetcher = createPrefetcher(nodeFactory);
+    FlightEvents.LevelTracker levels = new FlightEvents.LevelTracker(mode);
+    SearchMetrics metrics = SearchMetrics.current();
+    queue.add(startId);
+    discovered.set(startId);
     int nodeCnt = 0;
-    while (!queue.isEmpty() && nodeCnt < 10000) {
-      String currentUrl = queue.poll();
-      nodeCnt++;
-      // Fetch outgoing links (cache per URL)
-      Set<String> neighbors = linkCache.get(currentUrl);
-      if (neighbors == null) {
-        PageNode node = nodeFactory.apply(currentUrl);
+    int depth = 0;
+    int levelRemaining = 1;
+    try {
+      while (!queue.isEmpty() && nodeCnt < NODE_CAP) {
+        if (levelRemaining == 0) {
+          // The level is done, so the queue holds exactly the next one
+          levels.nextLevel(queue.size());
+          metrics.recordDepth(++depth);
+          levelRemaining = queue.size();
+        }
+        if (prefetcher != null) {
+          prefetcher.advance(queue);
+        }
+        int currentId = queue.poll();
+        levelRemaining--;
+        levels.expanded();
+        nodeCnt++;
+        if (progressCallback != null) {
+          progressCallback.accept(nodeCnt);
+        }
+        long waitStart = SearchMetrics.startWait();
+        if (prefetcher != null) {
+          prefetcher.await(currentId);
+        }
+        PageNode node = nodeFactory.apply(registry.urlOf(currentId));
         node.findOutgoingLinks();
-        neighbors = new HashSet<>();
-        for (PageNode n : node.getOutNodes()) {
-          neighbors.add(n.getURL());
-        }
-        linkCache.put(currentUrl, neighbors);
-      }
-      for (String neighborUrl : neighbors) {
-        if (!discovered.contains(neighborUrl)) {
-          discovered.add(neighborUrl);
-          parents.put(neighborUrl, currentUrl);
-          queue.add(neighborUrl);
-          if (neighborUrl.equals(endUrl)) {
-            // Early exit: reconstruct path
-            List<String> result = new LinkedList<>();
-            String temp = endUrl;
-            while (!temp.equals(startUrl)) {
-              result.add(temp);
-              temp = parents.get(temp);
+        metrics.recordFetchWaitSince(waitStart);
+        cursor.reset(node.getOutLinkIds());
+        while (cursor.hasNext()) {
+          int neighborId = cursor.nextInt();
+          if (!discovered.get(neighborId)) {
+            discovered.set(neighborId);
+            parents.put(neighborId, currentId);
+            queue.add(neighborId);
+            if (neighborId == endId) {
+              // Early exit: reconstruct path
+              return new BFSResult(
+                  reconstructPath(id -> parents.get(id, startId), startId, endId), nodeCnt);
             }
-            result.add(startUrl);
-            Collections.reverse(result);
-            return result;
           }
         }
+        metrics.recordFrontier(queue.size());
+      }
+      // Not found or cap reached
+      return new BFSResult(null, nodeCnt);
+    } finally {
+      levels.finish(queue.size() - levelRemaining);
+      if (prefetcher != null) {
+        prefetcher.cancel();
       }
     }
-    return null;
   }
 
-  // ---- getPathWithStats counterpart methods ----
+  /**
+   * Runs {@code search} with fresh {@link SearchMetrics}, which are attached to its result, and
+   * records it as a {@link FlightEvents.SearchEvent}. The search counts as live traffic in {@link
+   * SearchActivity} while it runs, and its path (or endpoints) as recently seen pages. Searches
+   * that throw are not recorded.
+   */
+  private static BFSResult traced(
+      String mode, PageNode start, PageNode end, int nodeCap, Supplier<BFSResult> search) {
+    FlightEvents.SearchEvent event = new FlightEvents.SearchEvent();
+    event.begin();
+    SearchMetrics metrics = new SearchMetrics();
+    BFSResult result;
+    try (SearchActivity.Scope active = SearchActivity.shared().begin();
+        SearchMetrics.Scope ignored = metrics.enter()) {
+      result = search.get();
+    }
+    metrics.finish();
+    event.end(mode, start.getURL(), end.getURL(), nodeCap, result);
+    SearchActivity.shared()
+        .recordPages(
+            result.getPath() != null ? result.getPath() : List.of(start.getURL(), end.getURL()));
+    return new BFSResult(
+        result.getPath(), result.getNodesExplored(), result.getFiltersApplied(), metrics);
+  }
 
   /**
-   * Instance method: find the shortest path and return a {@link BFSResult} that includes stats
-   * (number of nodes explored).
+   * Finds a path by resuming a cached {@link SourceTree}, so that repeated searches from the same
+   * start page (or to the same popular target) do not rebuild the same BFS tree.
+   *
+   * <p>If a reverse tree of {@code end} already contains {@code start}, or the forward tree of
+   * {@code start} already contains {@code end}, the path is read from the tree without expanding
+   * anything. Otherwise the forward tree of {@code start} is resumed, or created; a target queried
+   * often enough gets a reverse tree over backlinks instead, which then serves searches from every
+   * start page. Backlinks are cut off at 500 per page, so a reverse tree may never reach {@code
+   * start}: if it does not within the budget, the forward tree is expanded as well. For the same
+   * reason a reverse tree's path is only returned as is when {@link SourceTree#isExact} confirms it
+   * is a shortest one; otherwise the forward tree is expanded too and the path is kept only if the
+   * forward tree finds none shorter. Each tree is expanded by at most the usual 10000 pages per
+   * search. A new tree is cached once its expansion completes; a resumed one stays cached, so it
+   * still expires when it would have. The reported node count covers this search's expansions only.
+   */
+  private BFSResult searchTrees(
+      SourceTreeCache trees,
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      Consumer<Integer> progressCallback) {
+    if (start == null || end == null) {
+      throw new IllegalArgumentException("Start and end nodes cannot be null.");
+    }
+    String startUrl = start.getURL();
+    String endUrl = end.getURL();
+    if (startUrl.equals(endUrl)) {
+      return new BFSResult(Collections.singletonList(startUrl), 1);
+    }
+    TitleRegistry registry = TitleRegistry.shared();
+    int startId = registry.idOf(startUrl);
+    int endId = registry.idOf(endUrl);
+    boolean popularTarget = trees.recordTargetQuery(endId);
+    SourceTree reverseTree = trees.getReverse(endId);
+    // A reverse tree's path that may not be a shortest one is only a hint for the forward tree
+    List<String> hint = null;
+    if (reverseTree != null) {
+      hint = reverseTree.pathTo(startId);
+      if (hint != null && reverseTree.isExact(startId)) {
+        return new BFSResult(hint, 0);
+      }
+    }
+    SourceTree forwardTree = trees.getForward(startId);
+    int expanded = 0;
+    if (hint == null && forwardTree == null && popularTarget) {
+      boolean created = reverseTree == null;
+      SourceTree tree = created ? new SourceTree(endId, true) : reverseTree;
+      expanded = expandTree(trees, tree, created, startId, nodeFactory, progressCallback, 0);
+      hint = tree.pathTo(startId);
+      if (hint != null && tree.isExact(startId)) {
+        return new BFSResult(hint, expanded);
+      }
+    }
+    boolean created = forwardTree == null;
+    SourceTree tree = created ? new SourceTree(startId, false) : forwardTree;
+    expanded += expandTree(trees, tree, created, endId, nodeFactory, progressCallback, expanded);
+    List<String> path = tree.pathTo(endId);
+    if (hint != null && (path == null || hint.size() < path.size())) {
+      path = hint;
+    }
+    return new BFSResult(path, expanded);
+  }
+
+  /**
+   * Expands {@code tree} towards {@code targetId} by at most {@link #NODE_CAP} pages and caches it
+   * if the expansion completes: {@code created} trees are added, resumed ones re-weighed. Progress
+   * is reported after the {@code reported} pages expanded earlier by the same search.
+   */
+  private int expandTree(
+      SourceTreeCache trees,
+      SourceTree tree,
+      boolean created,
+      int targetId,
+      Function<String, PageNode> nodeFactory,
+      Consumer<Integer> progressCallback,
+      int reported) {
+    IntFunction<CompressedAdjacency> loader =
+        tree.isReverse() ? this::loadBacklinks : id -> loadLinks(nodeFactory, id);
+    LookaheadPrefetcher prefetcher = prefetch ? newPrefetcher(loader::apply) : null;
+    Consumer<Integer> progress =
+        progressCallback == null || reported == 0
+            ? progressCallback
+            : count -> progressCallback.accept(reported + count);
+    int expanded;
+    try {
+      expanded = tree.expand(targetId, NODE_CAP, loader, prefetcher, progress);
+    } finally {
+      if (prefetcher != null) {
+        prefetcher.cancel();
+      }
+    }
+    if (created) {
+      trees.put(tree);
+    } else {
+      trees.update(tree);
+    }
+    return expanded;
+  }
+
+  /** Returns the cache of BFS trees resumed by searches that use trees (overridable in tests). */
+  protected SourceTreeCache sourceTrees() {
+    return SourceTreeCache.shared();
+  }
+
+  /**
+   * Returns the pages linking to page {@code id}, or null if they cannot be loaded (overridable in
+   * tests).
+   */
+  protected CompressedAdjacency loadBacklinks(int id) {
+    String title = WikipediaApiClient.urlToTitle(TitleRegistry.shared().urlOf(id));
+    try {
+      return LinkFetcher.shared().fetchBacklinks(title);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the links of page {@code id}, or null if they could not be loaded. A page known not to
+   * exist simply has no links.
+   */
+  static CompressedAdjacency loadLinks(Function<String, PageNode> nodeFactory, int id) {
+    PageNode node = nodeFactory.apply(TitleRegistry.shared().urlOf(id));
+    node.findOutgoingLinks();
+    if (!node.isValidPage()) {
+      String title = WikipediaApiClient.urlToTitle(node.getURL());
+      return title != null && PageExistenceCache.shared().isKnownMissing(title)
+          ? CompressedAdjacency.EMPTY
+          : null;
+    }
+    return node.getOutLinkIds();
+  }
+
+  /**
+   * Returns the prefetcher that fetches links of queued nodes ahead of the search, or null to fetch
+   * every node only when it is expanded.
+   *
+   * <p>Unless prefetching was disabled in the constructor, queued nodes are loaded through {@code
+   * nodeFactory} on the fetch pool. This pays off for factories whose nodes share their links
+   * through a cache, as {@link PageNode}s do through the {@link AdjacencyCache}.
+   */
+  protected LookaheadPrefetcher createPrefetcher(Function<String, PageNode> nodeFactory) {
+    if (!prefetch) {
+      return null;
+    }
+    return newPrefetcher(
+        id -> nodeFactory.apply(TitleRegistry.shared().urlOf(id)).findOutgoingLinks());
+  }
+
+  /**
+   * Returns a prefetcher running {@code load} under the calling search's {@link SearchMetrics},
+   * without counting its cache lookups (see {@link SearchMetrics#enterPrefetch()}).
+   */
+  private LookaheadPrefetcher newPrefetcher(IntConsumer load) {
+    SearchMetrics metrics = SearchMetrics.current();
+    return new LookaheadPrefetcher(
+        fetchExecutor,
+        id -> {
+          try (SearchMetrics.Scope ignored = metrics.enterPrefetch()) {
+            load.accept(id);
+          }
+        },
+        MIN_LOOKAHEAD,
+        MAX_LOOKAHEAD);
+  }
+
+  // ---- external-memory search ----
+
+  /**
+   * Instance method: find the shortest path with the frontier, visited set and parent pointers kept
+   * on disk, for node budgets far beyond what fits on the heap.
+   *
+   * <p>Discovered pages are appended, as URLs, to a {@link DiskPageLog}, which serves as both the
+   * frontier (levels are read back in order) and the parent table (the path is read back from it).
+   * The visited set is a {@link DiskLongIntMap} from URL hashes to log indices, of which at most
+   * 65536 entries are held on the heap. No {@link TitleRegistry} ID is kept beyond the expansion
+   * that read it, so the registry can still be trimmed while a long search runs. The links of the
+   * next pages are prefetched as in {@link #getPathWithStats}. All files live in a fresh directory
+   * under {@code workDir} that is deleted when the search ends.
+   *
+   * <p>The search runs under the caller's {@link SearchMetrics} and, since it may run for hours in
+   * the background, is not counted as live traffic in {@link SearchActivity}.
    *
    * @param start starting PageNode (must be non-null)
    * @param end ending PageNode (must be non-null)
+   * @param nodeFactory function that, given a URL string, returns a {@link PageNode} instance used
+   *     during expansion
+   * @param nodeCap maximum number of nodes to expand (must be positive)
+   * @param workDir directory under which the search's files are created
+   * @param progressCallback invoked with the explored-node count after each expansion (nullable)
+   * @param stop checked before each expansion; the search ends without a path once it returns true
+   *     (nullable)
    * @return {@link BFSResult} containing the path (or null) and nodes explored count
+   * @throws IllegalArgumentException if {@code start} or {@code end} is null or {@code nodeCap} is
+   *     not positive
+   * @throws UncheckedIOException if the search's files cannot be created or written
+   */
+  @Override
+  public BFSResult getPathWithStatsOnDisk(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      int nodeCap,
+      Path workDir,
+      Consumer<Integer> progressCallback,
+      BooleanSupplier stop) {
+    if (start == null || end == null) {
+      throw new IllegalArgumentException("Start and end nodes cannot be null.");
+    }
+    if (nodeCap <= 0) {
+      throw new IllegalArgumentException("Node cap must be positive.");
+    }
+    String startUrl = start.getURL();
+    String endUrl = end.getURL();
+    if (startUrl.equals(endUrl)) {
+      return new BFSResult(Collections.singletonList(startUrl), 1);
+    }
+    Path searchDir;
+    try {
+      Files.createDirectories(workDir);
+      searchDir = Files.createTempDirectory(workDir, "bfs-");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    try (DiskPageLog pages = new DiskPageLog(searchDir);
+        DiskLongIntMap visited = new DiskLongIntMap(searchDir, DISK_HOT_ENTRIES)) {
+      return expandOnDisk(
+          pages, visited, startUrl, endUrl, nodeFactory, nodeCap, progressCallback, stop);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      try {
+        Files.deleteIfExists(searchDir);
+      } catch (IOException ignored) {
+        // Best effort: the directory only held this search's files
+      }
+    }
+  }
+
+  /** The traversal of {@link #getPathWithStatsOnDisk}. */
+  private BFSResult expandOnDisk(
+      DiskPageLog pages,
+      DiskLongIntMap visited,
+      String startUrl,
+      String endUrl,
+      Function<String, PageNode> nodeFactory,
+      int nodeCap,
+      Consumer<Integer> progressCallback,
+      BooleanSupplier stop) {
+    TitleRegistry registry = TitleRegistry.shared();
+    CompressedAdjacency.Cursor cursor = new CompressedAdjacency.Cursor();
+    LookaheadPrefetcher prefetcher = createPrefetcher(nodeFactory);
+    // Registry IDs of the pages from index next on, for the prefetcher
+    IntQueue ahead = new IntQueue();
+    FlightEvents.LevelTracker levels = new FlightEvents.LevelTracker("disk");
+    SearchMetrics metrics = SearchMetrics.current();
+    visited.putIfAbsent(Hashing.hash64(startUrl), pages.append(-1, startUrl));
+    int next = 0;
+    int levelEnd = 1;
+    int nodeCnt = 0;
+    int depth = 0;
+    try {
+      while (nodeCnt < nodeCap && (stop == null || !stop.getAsBoolean())) {
+        if (next == levelEnd) {
+          if (pages.size() == levelEnd) {
+            break;
+          }
+          // The level is done, so the pages after it are exactly the next one
+          levels.nextLevel(pages.size() - levelEnd);
+          metrics.recordDepth(++depth);
+          levelEnd = pages.size();
+        }
+        String url = pages.urlOf(next);
+        int currentId = -1;
+        if (prefetcher != null) {
+          while (ahead.size() < MAX_LOOKAHEAD && next + ahead.size() < pages.size()) {
+            ahead.add(registry.idOf(pages.urlOf(next + ahead.size())));
+          }
+          prefetcher.advance(ahead);
+          currentId = ahead.poll();
+        }
+        int current = next++;
+        levels.expanded();
+        nodeCnt++;
+        if (progressCallback != null) {
+          progressCallback.accept(nodeCnt);
+        }
+        long waitStart = SearchMetrics.startWait();
+        if (prefetcher != null) {
+          prefetcher.await(currentId);
+        }
+        PageNode node = nodeFactory.apply(url);
+        node.findOutgoingLinks();
+        metrics.recordFetchWaitSince(waitStart);
+        cursor.reset(node.getOutLinkIds());
+        while (cursor.hasNext()) {
+          String neighbor = registry.urlOf(cursor.nextInt());
+          if (visited.putIfAbsent(Hashing.hash64(neighbor), pages.size())) {
+            int index = pages.append(current, neighbor);
+            if (neighbor.equals(endUrl)) {
+              return new BFSResult(pages.pathTo(index), nodeCnt);
+            }
+          }
+        }
+        metrics.recordFrontier(pages.size() - next);
+      }
+      // Not found, cap reached or stopped
+      return new BFSResult(null, nodeCnt);
+    } finally {
+      levels.finish(pages.size() - levelEnd);
+      if (prefetcher != null) {
+        prefetcher.cancel();
+      }
+    }
+  }
+
+  // ---- asynchronous search ----
+
+  /**
+   * Instance method: start a non-blocking shortest-path search whose link requests are sent with
+   * {@link LinkFetcher#fetchAsync}.
+   *
+   * @see #searchAsync(PageNode, PageNode, Function)
+   */
+  @Override
+  public AsyncSearch searchAsync(PageNode start, PageNode end) {
+    return searchAsync(
+        start, end, url -> LinkFetcher.shared().fetchAsync(WikipediaApiClient.urlToTitle(url)));
+  }
+
+  /**
+   * Instance method: start a shortest-path search that never blocks the calling thread or any
+   * other.
+   *
+   * <p>The returned {@link AsyncSearch} is the future of the {@link BFSResult} and publishes the
+   * explored-node count as the search progresses; cancelling it aborts all of its outstanding link
+   * requests. Up to 8 requests per search are outstanding at once, and all searches share one
+   * small callback pool. The same 10000 expanded-node cap as {@link #getPath} applies. A request
+   * that fails leaves its page without links, as in the synchronous search.
+   *
+   * @param start starting PageNode (must be non-null)
+   * @param end ending PageNode (must be non-null)
+   * @param linkLoader returns the future links, as {@link TitleRegistry} IDs, of the page with the
+   *     given URL
+   * @return the running search
    * @throws IllegalArgumentException if {@code start} or {@code end} is null
    */
   @Override
-  @Cacheable(value = "pathStatsCache", key = "#start.getURL() + '->' + #end.getURL()")
-  public BFSResult getPathWithStats(PageNode start, PageNode end) {
-    return getPathWithStats(start, end, DEFAULT_FACTORY, null);
+  public AsyncSearch searchAsync(
+      PageNode start,
+      PageNode end,
+      Function<String, CompletableFuture<CompressedAdjacency>> linkLoader) {
+    if (start == null || end == null) {
+      throw new IllegalArgumentException("Start and end nodes cannot be null.");
+    }
+    TitleRegistry registry = TitleRegistry.shared();
+    AsyncSearch search =
+        new AsyncSearch(
+            registry.idOf(start.getURL()),
+            registry.idOf(end.getURL()),
+            id -> linkLoader.apply(registry.urlOf(id)),
+            asyncExecutor,
+            progressExecutor,
+            NODE_CAP,
+            ASYNC_IN_FLIGHT);
+    try {
+      search.start();
+    } catch (RuntimeException e) {
+      search.completeExceptionally(e);
+    }
+    return search;
   }
 
+  // ---- pruned search ----
+
+  /**
+   * Instance method: find a path while not expanding pages pruned by {@code filter} (lists, years,
+   * disambiguation pages, hubs, ...).
+   *
+   * <p>Pruned pages are still discovered, so one of them can be the target, but their links are
+   * not followed; the start page is always expanded. Because fewer pages are expanded and hubs are
+   * never downloaded in full, this is usually much cheaper than {@link #getPathWithStats}, at the
+   * price of possibly missing the shortest path when it runs through a pruned page.
+   *
+   * @param start starting PageNode (must be non-null)
+   * @param end ending PageNode (must be non-null)
+   * @param filter rules deciding which pages are not expanded (must be non-null)
+   * @param progressCallback invoked with the explored-node count after each expansion (nullable)
+   * @return {@link BFSResult} with the path (or null), nodes explored and the filters applied
+   * @throws IllegalArgumentException if {@code start}, {@code end} or {@code filter} is null
+   */
   @Override
-  public BFSResult getPathWithStats(
-      PageNode start, PageNode end, Function<String, PageNode> nodeFactory) {
-    return getPathWithStats(start, end, nodeFactory, null);
+  public BFSResult getPathWithStatsPruned(
+      PageNode start, PageNode end, LinkFilter filter, Consumer<Integer> progressCallback) {
+    if (filter == null) {
+      throw new IllegalArgumentException("Link filter cannot be null.");
+    }
+    if (start == null || end == null) {
+      throw new IllegalArgumentException("Start and end nodes cannot be null.");
+    }
+    String startUrl = start.getURL();
+    BFSResult result =
+        search(
+            start,
+            end,
+            url -> url.equals(startUrl) ? new PageNode(url) : new PageNode(url, filter),
+            progressCallback,
+            "pruned",
+            false);
+    return new BFSResult(
+        result.getPath(), result.getNodesExplored(), filter.describe(), result.getMetrics());
+  }
+
+  // ---- heuristic search ----
+
+  /**
+   * Instance method: find a short path quickly with the default factory.
+   *
+   * @see #getPathWithStatsHeuristic(PageNode, PageNode, Function, int, Consumer)
+   */
+  @Override
+  public HeuristicResult getPathWithStatsHeuristic(
+      PageNode start, PageNode end, int beamWidth, Consumer<Integer> progressCallback) {
+    return getPathWithStatsHeuristic(start, end, DEFAULT_FACTORY, beamWidth, progressCallback);
   }
 
+  /**
+   * Instance method: find a short, not necessarily shortest, path with a beam search ranked by
+   * {@link PathHeuristic}.
+   *
+   * <p>The search proceeds level by level like BFS, but of the pages discovered on each level only
+   * the {@code beamWidth} that look closest to the target are expanded next. The target's
+   * backlinks are loaded first; once a discovered page is known to link to the target, the level
+   * is finished and the path through that page returned, unless the target itself is discovered on
+   * the same level. Far-apart pages are therefore usually connected after a few beams instead of
+   * entire levels. The same 10000 expanded-node cap applies.
+   *
+   * <p>The result carries a lower bound on the shortest path's length: as long as no level has been
+   * pruned, the search has seen every page within its depth, and a complete backlink list proves
+   * one hop more. The difference to the returned path's length is its optimality gap.
+   *
+   * @param start starting PageNode (must be non-null)
+   * @param end ending PageNode (must be non-null)
+   * @param nodeFactory function that, given a URL string, returns a {@link PageNode} instance used
+   *     during expansion
+   * @param beamWidth most pages expanded per level (must be positive)
+   * @param progressCallback invoked with the explored-node count after each expansion (nullable)
+   * @return {@link HeuristicResult} with the path (or null), nodes explored and optimality gap
+   * @throws IllegalArgumentException if {@code start} or {@code end} is null or {@code beamWidth}
+   *     is not positive
+   */
   @Override
-  public BFSResult getPathWithStats(
+  public HeuristicResult getPathWithStatsHeuristic(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      int beamWidth,
+      Consumer<Integer> progressCallback) {
+    if (beamWidth < 1) {
+      throw new IllegalArgumentException("Beam width must be positive.");
+    }
+    AtomicReference<HeuristicResult> found = new AtomicReference<>();
+    BFSResult result =
+        traced(
+            "heuristic",
+            start,
+            end,
+            NODE_CAP,
+            () -> {
+              HeuristicResult beamResult =
+                  expandBeams(start, end, nodeFactory, beamWidth, progressCallback);
+              found.set(beamResult);
+              return beamResult;
+            });
+    return new HeuristicResult(
+        result.getPath(),
+        result.getNodesExplored(),
+        found.get().getLowerBound(),
+        beamWidth,
+        result.getMetrics());
+  }
+
+  /** The traversal of {@link #getPathWithStatsHeuristic}. */
+  private HeuristicResult expandBeams(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      int beamWidth,
+      Consumer<Integer> progressCallback) {
+    if (start == null || end == null) {
+      throw new IllegalArgumentException("Start and end nodes cannot be null.");
+    }
+    String startUrl = start.getURL();
+    String endUrl = end.getURL();
+    if (startUrl.equals(endUrl)) {
+      return new HeuristicResult(
+          Collections.singletonList(startUrl), 1, 0, beamWidth, SearchMetrics.empty());
+    }
+    TitleRegistry registry = TitleRegistry.shared();
+    int startId = registry.idOf(startUrl);
+    int endId = registry.idOf(endUrl);
+    CompressedAdjacency targetBacklinks = loadBacklinks(endId);
+    PathHeuristic heuristic = new PathHeuristic(endUrl, targetBacklinks, registry);
+    // A backlink list shorter than the request limit names every page linking to the target
+    boolean backlinksComplete =
+        targetBacklinks != null && targetBacklinks.size() < LinkFetcher.LINK_LIMIT;
+    BitSet discovered = new BitSet();
+    IntIntHashMap parents = new IntIntHashMap();
+    CompressedAdjacency.Cursor cursor = new CompressedAdjacency.Cursor();
+    IntQueue beam = new IntQueue();
+    IntQueue candidates = new IntQueue();
+    LookaheadPrefetcher prefetcher = createPrefetcher(nodeFactory);
+    FlightEvents.LevelTracker levels = new FlightEvents.LevelTracker("heuristic");
+    SearchMetrics metrics = SearchMetrics.current();
+    beam.add(startId);
+    discovered.set(startId);
+    int nodeCnt = 0;
+    int depth = 0;
+    int lowerBound = 1;
+    boolean pruned = false;
+    try {
+      while (!beam.isEmpty() && nodeCnt < NODE_CAP) {
+        metrics.recordDepth(depth);
+        metrics.recordFrontier(beam.size());
+        candidates.clear();
+        int viaBacklink = -1;
+        while (!beam.isEmpty() && nodeCnt < NODE_CAP) {
+          if (prefetcher != null) {
+            prefetcher.advance(beam);
+          }
+          int currentId = beam.poll();
+          levels.expanded();
+          nodeCnt++;
+          if (progressCallback != null) {
+            progressCallback.accept(nodeCnt);
+          }
+          long waitStart = SearchMetrics.startWait();
+          if (prefetcher != null) {
+            prefetcher.await(currentId);
+          }
+          PageNode node = nodeFactory.apply(registry.urlOf(currentId));
+          node.findOutgoingLinks();
+          metrics.recordFetchWaitSince(waitStart);
+          cursor.reset(node.getOutLinkIds());
+          while (cursor.hasNext()) {
+            int neighborId = cursor.nextInt();
+            if (discovered.get(neighborId)) {
+              continue;
+            }
+            discovered.set(neighborId);
+            parents.put(neighborId, currentId);
+            if (neighborId == endId) {
+              // Without pruning so far, this level is exactly the target's BFS level
+              return new HeuristicResult(
+                  reconstructPath(id -> parents.get(id, startId), startId, endId),
+                  nodeCnt,
+                  pruned ? lowerBound : depth + 1,
+                  beamWidth,
+                  SearchMetrics.empty());
+            }
+            if (viaBacklink < 0 && heuristic.linksToTarget(neighborId)) {
+              viaBacklink = neighborId;
+            }
+            candidates.add(neighborId);
+          }
+        }
+        boolean levelFinished = beam.isEmpty();
+        if (levelFinished && !pruned) {
+          // Every page within depth + 1 hops has been seen, and none is the target
+          lowerBound = backlinksComplete && viaBacklink < 0 ? depth + 3 : depth + 2;
+        }
+        if (viaBacklink >= 0) {
+          parents.put(endId, viaBacklink);
+          return new HeuristicResult(
+              reconstructPath(id -> parents.get(id, startId), startId, endId),
+              nodeCnt,
+              lowerBound,
+              beamWidth,
+              SearchMetrics.empty());
+        }
+        if (!levelFinished) {
+          break;
+        }
+        pruned |= selectBeam(candidates, beam, heuristic, beamWidth);
+        levels.nextLevel(beam.size());
+        depth++;
+      }
+      // Not found or cap reached
+      return new HeuristicResult(null, nodeCnt, lowerBound, beamWidth, SearchMetrics.empty());
+    } finally {
+      levels.finish(beam.size());
+      if (prefetcher != null) {
+        prefetcher.cancel();
+      }
+    }
+  }
+
+  /**
+   * Moves the {@code beamWidth} best-scoring pages of {@code candidates} to {@code beam}, best
+   * first. Returns whether any candidate was dropped.
+   */
+  private static boolean selectBeam(
+      IntQueue candidates, IntQueue beam, PathHeuristic heuristic, int beamWidth) {
+    long[] ranked = new long[candidates.size()];
+    for (int i = 0; i < ranked.length; i++) {
+      int id = candidates.poll();
+      // Non-negative floats order like their bits, so sorting the longs sorts by score
+      ranked[i] = ((long) Float.floatToIntBits(heuristic.score(id)) << 32) | id;
+    }
+    Arrays.sort(ranked);
+    int keep = Math.min(beamWidth, ranked.length);
+    for (int i = ranked.length - 1; i >= ranked.length - keep; i--) {
+      beam.add((int) ranked[i]);
+    }
+    return keep < ranked.length;
+  }
+
+  // ---- level-aware search ----
+
+  /**
+   * Instance method: find a shortest path with level-aware expansion, treating pages whose links
+   * are in the shared {@link AdjacencyCache} as cached.
+   *
+   * @see #getPathWithStatsLevelAware(PageNode, PageNode, Function, Predicate, Consumer)
+   */
+  @Override
+  public BFSResult getPathWithStatsLevelAware(
+      PageNode start, PageNode end, Consumer<Integer> progressCallback) {
+    return getPathWithStatsLevelAware(
+        start,
+        end,
+        DEFAULT_FACTORY,
+        url -> AdjacencyCache.shared().contains(TitleRegistry.shared().idOf(url)),
+        progressCallback);
+  }
+
+  /**
+   * Instance method: find a shortest path, expanding the cheap nodes of each BFS level first.
+   *
+   * <p>The search is level-synchronous. For every level, the links of nodes that are not cached
+   * are requested on background threads, at most four at a time per search so that one wide level
+   * cannot take over the fetch pool shared with other searches; cached nodes are then expanded
+   * right away, and cold nodes are expanded one by one as their fetches complete. The target is
+   * checked as every node is expanded, so an answer in a warm part of the graph is returned without
+   * waiting for the cold fetches of the same level, which are then cancelled.
+   *
+   * <p>Every node of level {@code d} is {@code d} hops from the start, so the order of expansion
+   * within a level does not matter: the first time the target is discovered, its path has {@code d
+   * + 1} hops, which is the shortest possible. The returned path may differ from that of {@link
+   * #getPathWithStats} when several shortest paths exist. The same 10000 expanded-node cap
+   * applies.
+   *
+   * @param start starting PageNode (must be non-null)
+   * @param end ending PageNode (must be non-null)
+   * @param nodeFactory function that, given a URL string, returns a {@link PageNode} instance used
+   *     during expansion
+   * @param isCached tells whether the links of the page with the given URL can be loaded without a
+   *     network call
+   * @param progressCallback invoked with the explored-node count after each expansion (nullable)
+   * @return {@link BFSResult} containing the path (or null) and nodes explored count
+   * @throws IllegalArgumentException if {@code start} or {@code end} is null
+   */
+  @Override
+  public BFSResult getPathWithStatsLevelAware(
       PageNode start,
       PageNode end,
       Function<String, PageNode> nodeFactory,
+      Predicate<String> isCached,
+      Consumer<Integer> progressCallback) {
+    return traced(
+        "level-aware",
+        start,
+        end,
+        NODE_CAP,
+        () -> expandLevels(start, end, nodeFactory, isCached, progressCallback));
+  }
+
+  /** The traversal of {@link #getPathWithStatsLevelAware}. */
+  private BFSResult expandLevels(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      Predicate<String> isCached,
       Consumer<Integer> progressCallback) {
     if (start == null || end == null) {
       throw new IllegalArgumentException("Start and end nodes cannot be null.");
@@ -143,50 +1028,521 @@ public class BFS implements BFSInterface {
     if (startUrl.equals(endUrl)) {
       return new BFSResult(Collections.singletonList(startUrl), 1);
     }
-    Queue<String> queue = new LinkedList<>();
-    Set<String> discovered = new HashSet<>();
-    Map<String, String> parents = new HashMap<>();
-    Map<String, Set<String>> linkCache = new HashMap<>();
-    queue.add(startUrl);
-    discovered.add(startUrl);
+    TitleRegistry registry = TitleRegistry.shared();
+    int startId = registry.idOf(startUrl);
+    int endId = registry.idOf(endUrl);
+    BitSet discovered = new BitSet();
+    IntIntHashMap parents = new IntIntHashMap();
+    CompressedAdjacency.Cursor cursor = new CompressedAdjacency.Cursor();
+    IntQueue level = new IntQueue();
+    IntQueue next = new IntQueue();
+    IntQueue warm = new IntQueue();
+    IntQueue coldQueue = new IntQueue();
+    List<Future<PageNode>> coldFetches = new ArrayList<>();
+    FlightEvents.LevelTracker levels = new FlightEvents.LevelTracker("level-aware");
+    SearchMetrics metrics = SearchMetrics.current();
+    level.add(startId);
+    discovered.set(startId);
     int nodeCnt = 0;
-    while (!queue.isEmpty() && nodeCnt < 10000) {
-      String currentUrl = queue.poll();
-      nodeCnt++;
-      if (progressCallback != null) {
-        progressCallback.accept(nodeCnt);
-      }
-      Set<String> neighbors = linkCache.get(currentUrl);
-      if (neighbors == null) {
-        PageNode node = nodeFactory.apply(currentUrl);
+    int depth = 0;
+    try {
+      while (!level.isEmpty() && nodeCnt < NODE_CAP) {
+        metrics.recordDepth(depth++);
+        metrics.recordFrontier(level.size());
+        // Start fetching the cold nodes of this level, then expand the warm ones meanwhile
+        CompletionService<PageNode> cold = new ExecutorCompletionService<>(fetchExecutor);
+        coldFetches.clear();
+        while (!level.isEmpty() && nodeCnt + warm.size() + coldQueue.size() < NODE_CAP) {
+          int id = level.poll();
+          if (isCached.test(registry.urlOf(id))) {
+            warm.add(id);
+          } else {
+            coldQueue.add(id);
+          }
+        }
+        while (coldFetches.size() < LEVEL_IN_FLIGHT && !coldQueue.isEmpty()) {
+          coldFetches.add(fetchCold(cold, nodeFactory.apply(registry.urlOf(coldQueue.poll()))));
+        }
+        while (!warm.isEmpty()) {
+          int id = warm.poll();
+          PageNode node = nodeFactory.apply(registry.urlOf(id));
+          long waitStart = SearchMetrics.startWait();
+          node.findOutgoingLinks();
+          metrics.recordFetchWaitSince(waitStart);
+          levels.expanded();
+          nodeCnt++;
+          if (progressCallback != null) {
+            progressCallback.accept(nodeCnt);
+          }
+          if (expandLevelNode(node, id, endId, cursor, discovered, parents, next)) {
+            return new BFSResult(
+                reconstructPath(child -> parents.get(child, startId), startId, endId), nodeCnt);
+          }
+        }
+        for (int remaining = coldFetches.size(); remaining > 0; remaining--) {
+          long waitStart = SearchMetrics.startWait();
+          PageNode node = takeFetched(cold);
+          metrics.recordFetchWaitSince(waitStart);
+          if (!coldQueue.isEmpty()) {
+            coldFetches.add(fetchCold(cold, nodeFactory.apply(registry.urlOf(coldQueue.poll()))));
+            remaining++;
+          }
+          levels.expanded();
+          nodeCnt++;
+          if (progressCallback != null) {
+            progressCallback.accept(nodeCnt);
+          }
+          if (node != null) {
+            int id = registry.idOf(node.getURL());
+            if (expandLevelNode(node, id, endId, cursor, discovered, parents, next)) {
+              return new BFSResult(
+                  reconstructPath(child -> parents.get(child, startId), startId, endId), nodeCnt);
+            }
+          }
+        }
+        levels.nextLevel(next.size());
+        IntQueue swap = level;
+        level = next;
+        next = swap;
+        next.clear();
+      }
+      // Not found or cap reached
+      return new BFSResult(null, nodeCnt);
+    } finally {
+      levels.finish(next.size());
+      for (Future<PageNode> fetch : coldFetches) {
+        fetch.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Queues the undiscovered neighbors of {@code node} on {@code next}, recording {@code id} as
+   * their parent. Returns true as soon as {@code endId} is discovered.
+   */
+  private static boolean expandLevelNode(
+      PageNode node,
+      int id,
+      int endId,
+      CompressedAdjacency.Cursor cursor,
+      BitSet discovered,
+      IntIntHashMap parents,
+      IntQueue next) {
+    cursor.reset(node.getOutLinkIds());
+    while (cursor.hasNext()) {
+      int neighborId = cursor.nextInt();
+      if (!discovered.get(neighborId)) {
+        discovered.set(neighborId);
+        parents.put(neighborId, id);
+        next.add(neighborId);
+        if (neighborId == endId) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Starts loading the links of the cold {@code node} on the fetch pool, under the calling search's
+   * {@link SearchMetrics}.
+   */
+  private static Future<PageNode> fetchCold(CompletionService<PageNode> cold, PageNode node) {
+    SearchMetrics metrics = SearchMetrics.current();
+    return cold.submit(
+        () -> {
+          try (SearchMetrics.Scope ignored = metrics.enter()) {
+            node.findOutgoingLinks();
+          }
+          return node;
+        });
+  }
+
+  /**
+   * Waits for the next completed cold fetch and returns its node, or null if the fetch failed. An
+   * interrupt is turned into an {@link IllegalStateException} after restoring the interrupt flag.
+   */
+  private static PageNode takeFetched(CompletionService<PageNode> cold) {
+    try {
+      return cold.take().get();
+    } catch (ExecutionException e) {
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Search interrupted.", e);
+    }
+  }
+
+  // ---- all shortest paths ----
+
+  /**
+   * Instance method: find every shortest path using the default factory.
+   *
+   * @see #getAllShortestPaths(PageNode, PageNode, Function, Consumer)
+   */
+  @Override
+  public ShortestPaths getAllShortestPaths(PageNode start, PageNode end) {
+    return getAllShortestPaths(start, end, DEFAULT_FACTORY, null);
+  }
+
+  /**
+   * Instance method: find every shortest path from {@code start} to {@code end} in one traversal.
+   *
+   * <p>Unlike {@link #getPathWithStats}, the search does not stop when the target is first
+   * discovered: it finishes expanding the level that links to the target, and records every page
+   * of the previous level linking to a discovered page instead of only the first. The result is
+   * the predecessor DAG of the target, from which {@link ShortestPaths#paths()} streams the paths
+   * lazily, so any number of alternatives costs a single search. Once the target is discovered,
+   * links to other pages are no longer recorded. The same 10000 expanded-node cap applies; if it
+   * is reached before the level is finished, the result is marked incomplete. Cached BFS trees are
+   * not used, as they keep one parent per page.
+   *
+   * @param start starting PageNode (must be non-null)
+   * @param end ending PageNode (must be non-null)
+   * @param nodeFactory function that, given a URL string, returns a {@link PageNode} instance used
+   *     during expansion
+   * @param progressCallback invoked with the explored-node count after each expansion (nullable)
+   * @return {@link ShortestPaths} with the predecessor DAG and nodes explored count
+   * @throws IllegalArgumentException if {@code start} or {@code end} is null
+   */
+  @Override
+  public ShortestPaths getAllShortestPaths(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      Consumer<Integer> progressCallback) {
+    AtomicReference<ShortestPaths> paths = new AtomicReference<>();
+    BFSResult result =
+        traced(
+            "all-paths",
+            start,
+            end,
+            NODE_CAP,
+            () -> {
+              ShortestPaths found = expandAllPaths(start, end, nodeFactory, progressCallback);
+              paths.set(found);
+              return new BFSResult(
+                  found.paths().findFirst().orElse(null), found.getNodesExplored());
+            });
+    return paths.get().withMetrics(result.getMetrics());
+  }
+
+  /** The traversal of {@link #getAllShortestPaths}. */
+  private ShortestPaths expandAllPaths(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      Consumer<Integer> progressCallback) {
+    if (start == null || end == null) {
+      throw new IllegalArgumentException("Start and end nodes cannot be null.");
+    }
+    TitleRegistry registry = TitleRegistry.shared();
+    int startId = registry.idOf(start.getURL());
+    int endId = registry.idOf(end.getURL());
+    ShortestPaths.Predecessors predecessors = new ShortestPaths.Predecessors();
+    if (startId == endId) {
+      return new ShortestPaths(startId, endId, 0, predecessors, true, 1, SearchMetrics.empty());
+    }
+    IntQueue queue = new IntQueue();
+    BitSet discovered = new BitSet();
+    // Pages discovered while expanding the current level, i.e. one hop further from the start
+    BitSet nextLevel = new BitSet();
+    CompressedAdjacency.Cursor cursor = new CompressedAdjacency.Cursor();
+    LookaheadPrefetcher prefetcher = createPrefetcher(nodeFactory);
+    FlightEvents.LevelTracker levels = new FlightEvents.LevelTracker("all-paths");
+    SearchMetrics metrics = SearchMetrics.current();
+    queue.add(startId);
+    discovered.set(startId);
+    int nodeCnt = 0;
+    int depth = 0;
+    int levelRemaining = 1;
+    boolean found = false;
+    try {
+      while (!queue.isEmpty() && nodeCnt < NODE_CAP) {
+        if (levelRemaining == 0) {
+          if (found) {
+            break;
+          }
+          levels.nextLevel(queue.size());
+          metrics.recordDepth(++depth);
+          levelRemaining = queue.size();
+          nextLevel.clear();
+        }
+        if (prefetcher != null) {
+          prefetcher.advance(queue);
+        }
+        int currentId = queue.poll();
+        levelRemaining--;
+        levels.expanded();
+        nodeCnt++;
+        if (progressCallback != null) {
+          progressCallback.accept(nodeCnt);
+        }
+        long waitStart = SearchMetrics.startWait();
+        if (prefetcher != null) {
+          prefetcher.await(currentId);
+        }
+        PageNode node = nodeFactory.apply(registry.urlOf(currentId));
         node.findOutgoingLinks();
-        neighbors = new HashSet<>();
-        for (PageNode n : node.getOutNodes()) {
-          neighbors.add(n.getURL());
-        }
-        linkCache.put(currentUrl, neighbors);
-      }
-      for (String neighborUrl : neighbors) {
-        if (!discovered.contains(neighborUrl)) {
-          discovered.add(neighborUrl);
-          parents.put(neighborUrl, currentUrl);
-          queue.add(neighborUrl);
-          if (neighborUrl.equals(endUrl)) {
-            // Early exit: reconstruct path
-            List<String> result = new LinkedList<>();
-            String temp = endUrl;
-            while (!temp.equals(startUrl)) {
-              result.add(temp);
-              temp = parents.get(temp);
+        metrics.recordFetchWaitSince(waitStart);
+        cursor.reset(node.getOutLinkIds());
+        while (cursor.hasNext()) {
+          int neighborId = cursor.nextInt();
+          if (found && neighborId != endId) {
+            continue;
+          }
+          if (!discovered.get(neighborId)) {
+            discovered.set(neighborId);
+            nextLevel.set(neighborId);
+            queue.add(neighborId);
+            predecessors.add(neighborId, currentId);
+            if (neighborId == endId) {
+              found = true;
             }
-            result.add(startUrl);
-            Collections.reverse(result);
-            return new BFSResult(result, nodeCnt);
+          } else if (nextLevel.get(neighborId)) {
+            predecessors.add(neighborId, currentId);
           }
         }
+        metrics.recordFrontier(queue.size());
+      }
+      boolean complete = found ? levelRemaining == 0 : queue.isEmpty();
+      return new ShortestPaths(
+          startId,
+          endId,
+          found ? depth + 1 : -1,
+          predecessors,
+          complete,
+          nodeCnt,
+          SearchMetrics.empty());
+    } finally {
+      levels.finish(queue.size() - levelRemaining);
+      if (prefetcher != null) {
+        prefetcher.cancel();
       }
     }
-    // Not found or cap reached
-    return new BFSResult(null, nodeCnt);
+  }
+
+  // ---- one-to-many reachability ----
+
+  /**
+   * Instance method: compute distances from {@code start} to many pages using the default factory.
+   *
+   * @see #getDistances(PageNode, Collection, int, boolean, Function)
+   */
+  @Override
+  public ReachabilityResult getDistances(
+      PageNode start, Collection<String> targetUrls, int maxDepth, boolean includePaths) {
+    return getDistances(start, targetUrls, maxDepth, includePaths, DEFAULT_FACTORY);
+  }
+
+  /**
+   * Instance method: compute hop distances (and optionally paths) from {@code start} to many pages
+   * in a single level-by-level traversal.
+   *
+   * <p>If {@code targetUrls} is null or empty, every page within {@code maxDepth} hops is reported
+   * and {@code maxDepth} must be non-negative. Otherwise only the listed targets are reported and
+   * the traversal stops as soon as all of them have been reached; a negative {@code maxDepth} means
+   * no depth limit. The same 10000 expanded-node cap as {@link #getPath} applies.
+   *
+   * <p>When {@code includePaths} is false the search keeps only the current and next frontier
+   * levels and the visited set; no parent pointers are stored.
+   *
+   * @param start starting PageNode (must be non-null)
+   * @param targetUrls URLs whose distance is wanted, or null/empty for all pages within range
+   * @param maxDepth maximum number of hops to explore, or negative for no limit
+   * @param includePaths whether to reconstruct a path to every reached page
+   * @param nodeFactory function that, given a URL string, returns a {@link PageNode} instance used
+   *     during expansion
+   * @return {@link ReachabilityResult} with distances, optional paths and unreached targets
+   * @throws IllegalArgumentException if {@code start} is null, or if no targets and no depth limit
+   *     are given
+   */
+  @Override
+  public ReachabilityResult getDistances(
+      PageNode start,
+      Collection<String> targetUrls,
+      int maxDepth,
+      boolean includePaths,
+      Function<String, PageNode> nodeFactory) {
+    if (start == null) {
+      throw new IllegalArgumentException("Start node cannot be null.");
+    }
+    boolean allWithinDepth = targetUrls == null || targetUrls.isEmpty();
+    if (allWithinDepth && maxDepth < 0) {
+      throw new IllegalArgumentException("A maximum depth is required when no targets are given.");
+    }
+    FlightEvents.SearchEvent event = new FlightEvents.SearchEvent();
+    event.begin();
+    FlightEvents.LevelTracker levels = new FlightEvents.LevelTracker("reachability");
+    TitleRegistry registry = TitleRegistry.shared();
+    int startId = registry.idOf(start.getURL());
+    BitSet remaining = new BitSet();
+    Set<String> remainingUrls = new LinkedHashSet<>();
+    if (!allWithinDepth) {
+      for (String targetUrl : targetUrls) {
+        remaining.set(registry.idOf(targetUrl));
+        remainingUrls.add(targetUrl);
+      }
+    }
+    Map<String, Integer> distances = new LinkedHashMap<>();
+    IntIntHashMap parents = includePaths ? new IntIntHashMap() : null;
+    BitSet discovered = new BitSet();
+    CompressedAdjacency.Cursor cursor = new CompressedAdjacency.Cursor();
+    IntQueue frontier = new IntQueue();
+    IntQueue next = new IntQueue();
+    frontier.add(startId);
+    discovered.set(startId);
+    recordIfWanted(startId, 0, allWithinDepth, remaining, remainingUrls, distances);
+    int depth = 0;
+    int nodeCnt = 0;
+    while (!frontier.isEmpty()
+        && (allWithinDepth || !remaining.isEmpty())
+        && (maxDepth < 0 || depth < maxDepth)
+        && nodeCnt < NODE_CAP) {
+      while (!frontier.isEmpty()
+          && nodeCnt < NODE_CAP
+          && (allWithinDepth || !remaining.isEmpty())) {
+        int currentId = frontier.poll();
+        levels.expanded();
+        nodeCnt++;
+        PageNode node = nodeFactory.apply(registry.urlOf(currentId));
+        node.findOutgoingLinks();
+        cursor.reset(node.getOutLinkIds());
+        while (cursor.hasNext()) {
+          int neighborId = cursor.nextInt();
+          if (!discovered.get(neighborId)) {
+            discovered.set(neighborId);
+            if (parents != null) {
+              parents.put(neighborId, currentId);
+            }
+            next.add(neighborId);
+            recordIfWanted(
+                neighborId, depth + 1, allWithinDepth, remaining, remainingUrls, distances);
+          }
+        }
+      }
+      levels.nextLevel(next.size());
+      IntQueue swap = frontier;
+      frontier = next;
+      next = swap;
+      next.clear();
+      depth++;
+    }
+
+    Map<String, List<String>> paths = null;
+    if (parents != null) {
+      paths = new LinkedHashMap<>();
+      for (String reachedUrl : distances.keySet()) {
+        int reachedId = registry.idOf(reachedUrl);
+        paths.put(reachedUrl, reconstructPath(id -> parents.get(id, startId), startId, reachedId));
+      }
+    }
+    event.end("reachability", start.getURL(), null, NODE_CAP, nodeCnt, 0);
+    return new ReachabilityResult(distances, paths, remainingUrls, nodeCnt);
+  }
+
+  /**
+   * Records the distance of {@code id} if it is a page of interest: any page when reporting all
+   * pages within range, otherwise only a still-unreached target.
+   */
+  private static void recordIfWanted(
+      int id,
+      int distance,
+      boolean allWithinDepth,
+      BitSet remaining,
+      Set<String> remainingUrls,
+      Map<String, Integer> distances) {
+    if (allWithinDepth || remaining.get(id)) {
+      String url = TitleRegistry.shared().urlOf(id);
+      remaining.clear(id);
+      remainingUrls.remove(url);
+      distances.put(url, distance);
+    }
+  }
+
+  // ---- snapshot search ----
+
+  /**
+   * Instance method: find a shortest path over the {@link GraphSnapshot#shared() shared snapshot},
+   * requesting the links of pages it does not know with {@link LinkFetcher#fetchAsync}.
+   *
+   * @see #getPathWithStatsSnapshot(PageNode, PageNode, GraphSnapshot, Function, Consumer)
+   */
+  @Override
+  public BFSResult getPathWithStatsSnapshot(
+      PageNode start, PageNode end, Consumer<Integer> progressCallback) {
+    return getPathWithStatsSnapshot(
+        start,
+        end,
+        GraphSnapshot.shared(),
+        url -> LinkFetcher.shared().fetchAsync(WikipediaApiClient.urlToTitle(url)),
+        progressCallback);
+  }
+
+  /**
+   * Instance method: find a shortest path with a parallel, direction-optimizing BFS over {@code
+   * snapshot} (see {@link SnapshotSearch}).
+   *
+   * <p>Pages in the snapshot are expanded from its arrays on all cores, without the node cap of
+   * {@link #getPath}; a search within the known part of the graph typically takes milliseconds.
+   * Pages it does not know are expanded from links requested with {@code linkLoader}, all of a
+   * level's at once, and the 10000 node cap applies to those. The path is a shortest one in the
+   * graph as the snapshot saw it, patched with the live links.
+   *
+   * @param start starting PageNode (must be non-null)
+   * @param end ending PageNode (must be non-null)
+   * @param snapshot frozen links searched
+   * @param linkLoader returns the future links, as {@link TitleRegistry} IDs, of the page with the
+   *     given URL
+   * @param progressCallback invoked with the explored-node count after each level (nullable)
+   * @return {@link BFSResult} with the path (or null) and the number of pages expanded
+   * @throws IllegalArgumentException if {@code start} or {@code end} is null
+   */
+  @Override
+  public BFSResult getPathWithStatsSnapshot(
+      PageNode start,
+      PageNode end,
+      GraphSnapshot snapshot,
+      Function<String, CompletableFuture<CompressedAdjacency>> linkLoader,
+      Consumer<Integer> progressCallback) {
+    if (start == null || end == null) {
+      throw new IllegalArgumentException("Start and end nodes cannot be null.");
+    }
+    return traced(
+        "snapshot",
+        start,
+        end,
+        NODE_CAP,
+        () -> {
+          String startUrl = start.getURL();
+          String endUrl = end.getURL();
+          if (startUrl.equals(endUrl)) {
+            return new BFSResult(Collections.singletonList(startUrl), 1);
+          }
+          TitleRegistry registry = TitleRegistry.shared();
+          int startId = registry.idOf(startUrl);
+          int endId = registry.idOf(endUrl);
+          SnapshotSearch search =
+              new SnapshotSearch(
+                  snapshot, id -> linkLoader.apply(registry.urlOf(id)), snapshotPool, NODE_CAP);
+          boolean found = search.run(startId, endId, progressCallback);
+          int explored = (int) Math.min(Integer.MAX_VALUE, search.getExplored());
+          return new BFSResult(
+              found ? reconstructPath(search::parentOf, startId, endId) : null, explored);
+        });
+  }
+
+  /** Walks parent pointers back from {@code endId} and returns the path of URLs from the start. */
+  private static List<String> reconstructPath(IntUnaryOperator parentOf, int startId, int endId) {
+    TitleRegistry registry = TitleRegistry.shared();
+    List<String> result = new ArrayList<>();
+    int temp = endId;
+    while (temp != startId) {
+      result.add(registry.urlOf(temp));
+      temp = parentOf.applyAsInt(temp);
+    }
+    result.add(registry.urlOf(startId));
+    Collections.reverse(result);
+    return result;
   }
 }
@@ -9,12 +9,14 @@ import java.util.List;
  * Immutable result returned by a BFS search.
  *
  * <p>The result contains an ordered list of page URLs representing the discovered path (or {@code
- * null} if no path was found) and the number of nodes explored during the search. The path list,
- * when present, is unmodifiable.
+ * null} if no path was found), the number of nodes explored during the search and its {@link
+ * SearchMetrics}. The path list, when present, is unmodifiable.
  */
 public class BFSResult implements BFSResultInterface {
   private final List<String> path;
   private final int nodesExplored;
+  private final List<String> filtersApplied;
+  private final SearchMetrics metrics;
 
   /**
    * Create a new BFSResult.
@@ -23,12 +25,38 @@ public class BFSResult implements BFSResultInterface {
    * @param nodesExplored number of nodes expanded during the search
    */
   public BFSResult(List<String> path, int nodesExplored) {
+    this(path, nodesExplored, Collections.emptyList());
+  }
+
+  /**
+   * Create a new BFSResult for a pruned search.
+   *
+   * @param path ordered list of URLs from start to end (or {@code null} if no path)
+   * @param nodesExplored number of nodes expanded during the search
+   * @param filtersApplied descriptions of the {@link LinkFilter} rules the search applied
+   */
+  public BFSResult(List<String> path, int nodesExplored, List<String> filtersApplied) {
+    this(path, nodesExplored, filtersApplied, SearchMetrics.empty());
+  }
+
+  /**
+   * Create a new BFSResult with the timing breakdown of the search that produced it.
+   *
+   * @param path ordered list of URLs from start to end (or {@code null} if no path)
+   * @param nodesExplored number of nodes expanded during the search
+   * @param filtersApplied descriptions of the {@link LinkFilter} rules the search applied
+   * @param metrics metrics of the finished search
+   */
+  public BFSResult(
+      List<String> path, int nodesExplored, List<String> filtersApplied, SearchMetrics metrics) {
     if (path == null) {
       this.path = null;
     } else {
       this.path = Collections.unmodifiableList(new ArrayList<>(path));
     }
     this.nodesExplored = nodesExplored;
+    this.filtersApplied = Collections.unmodifiableList(new ArrayList<>(filtersApplied));
+    this.metrics = metrics;
   }
 
   /** Returns the discovered path or {@code null} if no path was found. */
@@ -42,4 +70,21 @@ public class BFSResult implements BFSResultInterface {
   public int getNodesExplored() {
     return nodesExplored;
   }
+
+  /** Returns the link filters applied by a pruned search (empty for an unpruned search). */
+  @Override
+  public List<String> getFiltersApplied() {
+    return filtersApplied;
+  }
+
+  /** Returns the timing breakdown of the search (all zero if it was not measured). */
+  @Override
+  public SearchMetrics getMetrics() {
+    return metrics;
+  }
+
+  /** Returns a copy of this result with {@code metrics} in place of the search's. */
+  public BFSResult withMetrics(SearchMetrics metrics) {
+    return new BFSResult(path, nodesExplored, filtersApplied, metrics);
+  }
 }
@@ -0,0 +1,280 @@
+package com.wikipediafinder.backend;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pre-warms the {@link AdjacencyCache} with unused upstream quota, so the pages users search for
+ * are already cached when they arrive.
+ *
+ * <p>Each scheduled run expands the configured seed pages, then the pages most frequently seen in
+ * recent searches (see {@link SearchActivity}), then the pages those link to, through the normal
+ * {@link PageNode} fetch path. A run stops once it has sent {@code budget} upstream requests;
+ * expanding an already cached page costs none. Before every page the crawler checks for live
+ * traffic and, while a search is running or one ended less than the quiet period ago, pauses so
+ * searches get the upstream capacity. Page counts are decayed after every run, so the crawl follows
+ * what users searched for recently.
+ *
+ * <p>Crawling is disabled unless {@code wikipediafinder.crawler.budget} is positive. Runs are
+ * scheduled on the crawler's own thread rather than Spring's shared scheduler, whose single thread
+ * a paused crawl would otherwise hold for as long as traffic lasts. Progress is reported by {@link
+ * #getProgress()}.
+ */
+@Component
+public class BackgroundCrawler {
+  // Popular pages considered by a run, in addition to the seeds
+  private static final int TOP_PAGES = 200;
+
+  private final SearchActivity activity;
+  private final List<String> seedUrls;
+  private final int budget;
+  private final long quietNanos;
+  private final long pollMillis;
+  private final Duration initialDelay;
+  private final Duration interval;
+  private volatile ScheduledExecutorService scheduler;
+
+  private final AtomicLong runs = new AtomicLong();
+  private final AtomicLong pagesExpanded = new AtomicLong();
+  private final AtomicLong upstreamRequests = new AtomicLong();
+  private final AtomicLong bytesDownloaded = new AtomicLong();
+  private final AtomicLong pauses = new AtomicLong();
+  private final AtomicLong pausedMillis = new AtomicLong();
+  private volatile String state = "idle";
+  private volatile long lastRunPages;
+  private volatile long lastRunRequests;
+  private volatile double lastRunMillis;
+  private volatile boolean stopped;
+
+  /**
+   * Create the crawler from the {@code wikipediafinder.crawler.*} properties.
+   *
+   * @param budget upstream requests per run; 0 disables crawling
+   * @param seeds comma-separated titles of pages to crawl on every run
+   * @param quietPeriod time since the last search after which crawling resumes
+   * @param initialDelay time from startup to the first run
+   * @param interval time from the end of one run to the start of the next
+   */
+  @Autowired
+  public BackgroundCrawler(
+      @Value("${wikipediafinder.crawler.budget:0}") int budget,
+      @Value("${wikipediafinder.crawler.seeds:}") String seeds,
+      @Value("${wikipediafinder.crawler.quiet-period:5s}") Duration quietPeriod,
+      @Value("${wikipediafinder.crawler.initial-delay:PT1M}") Duration initialDelay,
+      @Value("${wikipediafinder.crawler.interval:PT10M}") Duration interval) {
+    this(
+        SearchActivity.shared(), seedUrls(seeds), budget, quietPeriod, 250, initialDelay, interval);
+  }
+
+  /**
+   * Create a crawler.
+   *
+   * @param activity live traffic to yield to and source of popular pages
+   * @param seedUrls URLs of pages to crawl on every run
+   * @param budget upstream requests per run; 0 disables crawling
+   * @param quietPeriod time since the last search after which crawling resumes
+   * @param pollMillis interval at which a paused crawler checks for traffic
+   * @param initialDelay time from {@link #start()} to the first run
+   * @param interval time from the end of one run to the start of the next
+   */
+  BackgroundCrawler(
+      SearchActivity activity,
+      List<String> seedUrls,
+      int budget,
+      Duration quietPeriod,
+      long pollMillis,
+      Duration initialDelay,
+      Duration interval) {
+    if (budget < 0) {
+      throw new IllegalArgumentException("budget must not be negative");
+    }
+    this.activity = activity;
+    this.seedUrls = List.copyOf(seedUrls);
+    this.budget = budget;
+    this.quietNanos = quietPeriod.toNanos();
+    this.pollMillis = pollMillis;
+    this.initialDelay = initialDelay;
+    this.interval = interval;
+  }
+
+  private static List<String> seedUrls(String seeds) {
+    List<String> urls = new ArrayList<>();
+    for (String title : seeds.split(",")) {
+      if (!title.isBlank()) {
+        urls.add(WikipediaApiClient.titleToUrl(title.trim()));
+      }
+    }
+    return urls;
+  }
+
+  /** Schedules runs on the crawler's own thread, unless it is disabled. */
+  @PostConstruct
+  public void start() {
+    if (budget == 0 || stopped || scheduler != null) {
+      return;
+    }
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "background-crawler");
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.scheduleWithFixedDelay(
+        this::scheduledRun, initialDelay.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private void scheduledRun() {
+    try {
+      crawl();
+    } catch (RuntimeException e) {
+      // An exception would cancel the remaining runs
+      System.err.println("Background crawl failed: " + e);
+    }
+  }
+
+  /**
+   * Runs one crawl: expands seeds, popular pages and their links until the request budget is spent
+   * or there is nothing left to expand, pausing during live traffic.
+   *
+   * @return the number of pages expanded
+   */
+  public synchronized long crawl() {
+    TitleRegistry registry = TitleRegistry.shared();
+    IntQueue queue = new IntQueue();
+    BitSet queued = new BitSet();
+    for (String url : seedUrls) {
+      enqueue(registry.idOf(url), queue, queued);
+    }
+    for (int id : activity.topPages(TOP_PAGES)) {
+      enqueue(id, queue, queued);
+    }
+    // Seeds and popular pages form level 0; only their links are added after them
+    int levelRemaining = queue.size();
+    CompressedAdjacency.Cursor cursor = new CompressedAdjacency.Cursor();
+    SearchMetrics metrics = new SearchMetrics();
+    metrics.setFetchPriority(FetchScheduler.Priority.BACKGROUND);
+    long pages = 0;
+    long requests = 0;
+    long bytes = 0;
+    state = "crawling";
+    try (SearchMetrics.Scope ignored = metrics.enter()) {
+      while (!queue.isEmpty() && metrics.getHttpRequests() < budget && awaitQuiet()) {
+        int id = queue.poll();
+        PageNode node = createNode(registry.urlOf(id));
+        node.findOutgoingLinks();
+        pages++;
+        pagesExpanded.incrementAndGet();
+        upstreamRequests.addAndGet(metrics.getHttpRequests() - requests);
+        bytesDownloaded.addAndGet(metrics.getBytesDownloaded() - bytes);
+        requests = metrics.getHttpRequests();
+        bytes = metrics.getBytesDownloaded();
+        boolean followLinks = levelRemaining > 0;
+        levelRemaining--;
+        if (followLinks && node.isValidPage()) {
+          cursor.reset(node.getOutLinkIds());
+          while (cursor.hasNext()) {
+            enqueue(cursor.nextInt(), queue, queued);
+          }
+        }
+      }
+    } finally {
+      metrics.finish();
+      activity.decay();
+      runs.incrementAndGet();
+      lastRunPages = pages;
+      lastRunRequests = requests;
+      lastRunMillis = metrics.getTotalMillis();
+      state = "idle";
+    }
+    return pages;
+  }
+
+  /** Creates the node expanded for {@code url} (overridable in tests). */
+  protected PageNode createNode(String url) {
+    return new PageNode(url);
+  }
+
+  /** Stops a running crawl before its next page and cancels the runs scheduled. */
+  @PreDestroy
+  public void stop() {
+    stopped = true;
+    ScheduledExecutorService current = scheduler;
+    if (current != null) {
+      current.shutdownNow();
+    }
+  }
+
+  /** Returns true while a crawl is running, including while it is paused. */
+  public boolean isCrawling() {
+    return !"idle".equals(state);
+  }
+
+  /** Returns counters of the crawler's work so far and the state of the current run. */
+  public Map<String, Object> getProgress() {
+    Map<String, Object> progress = new LinkedHashMap<>();
+    progress.put("state", state);
+    progress.put("budget", budget);
+    progress.put("runs", runs.get());
+    progress.put("pagesExpanded", pagesExpanded.get());
+    progress.put("upstreamRequests", upstreamRequests.get());
+    progress.put("bytesDownloaded", bytesDownloaded.get());
+    progress.put("pauses", pauses.get());
+    progress.put("pausedMillis", pausedMillis.get());
+    progress.put("lastRunPages", lastRunPages);
+    progress.put("lastRunRequests", lastRunRequests);
+    progress.put("lastRunMillis", lastRunMillis);
+    return progress;
+  }
+
+  /**
+   * Waits until no search has run for the quiet period. Returns false if the crawl should end
+   * instead, because the crawler was stopped or interrupted.
+   */
+  private boolean awaitQuiet() {
+    if (stopped) {
+      return false;
+    }
+    if (!activity.isBusy(quietNanos)) {
+      return true;
+    }
+    state = "paused";
+    pauses.incrementAndGet();
+    long pauseStart = System.nanoTime();
+    try {
+      while (activity.isBusy(quietNanos)) {
+        if (stopped) {
+          return false;
+        }
+        Thread.sleep(pollMillis);
+      }
+      state = "crawling";
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      pausedMillis.addAndGet((System.nanoTime() - pauseStart) / 1_000_000);
+    }
+  }
+
+  private static void enqueue(int id, IntQueue queue, BitSet queued) {
+    if (!queued.get(id)) {
+      queued.set(id);
+      queue.add(id);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package com.wikipediafinder.backend;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drops what a batch of {@link RecentChanges} made stale: the links of the changed pages (cached
+ * and stored, the cached backlinks of the pages they linked to, and in the shared {@link
+ * GraphSnapshot}), the BFS trees that discovered them, and the cached paths running through them.
+ * Deleted pages are recorded as missing, and pages known to be missing that were created or
+ * edited as existing.
+ *
+ * <p>A cached path remains a path as long as none of its pages but the last was edited, since
+ * every link it follows is then still in place. An edit elsewhere can still add a shortcut and
+ * make it longer than the shortest path; that is left to the path caches' own expiry, which the
+ * feed does not extend. Plain results without a path depend on every page their search explored,
+ * so they are dropped with every batch; a {@link CachedResult} without one is kept, since it is
+ * only served for its own short TTL.
+ */
+public final class CacheInvalidator {
+  private final LinkFetcher fetcher;
+  private final SourceTreeCache trees;
+  private final PageExistenceCache existence;
+  private final TitleRegistry registry;
+  private final List<Map<Object, Object>> pathCaches;
+  private final AtomicLong pathsDropped = new AtomicLong();
+
+  /**
+   * Create an invalidator.
+   *
+   * @param fetcher fetcher whose cached and stored links are dropped
+   * @param trees cache of BFS trees
+   * @param existence record of existing and missing pages
+   * @param registry registry mapping URLs to IDs
+   * @param pathCaches cached search results by key: {@link BFSResult}s, {@link CachedResult}s or
+   *     lists of URLs
+   */
+  public CacheInvalidator(
+      LinkFetcher fetcher,
+      SourceTreeCache trees,
+      PageExistenceCache existence,
+      TitleRegistry registry,
+      List<Map<Object, Object>> pathCaches) {
+    this.fetcher = fetcher;
+    this.trees = trees;
+    this.existence = existence;
+    this.registry = registry;
+    this.pathCaches = List.copyOf(pathCaches);
+  }
+
+  /** Returns the number of cached results dropped so far. */
+  public long getPathsDropped() {
+    return pathsDropped.get();
+  }
+
+  /** Drops everything cached that depends on the links of the pages in {@code changes}. */
+  public void apply(List<RecentChanges.Change> changes) {
+    Set<String> changedUrls = new HashSet<>();
+    BitSet changedIds = new BitSet();
+    for (RecentChanges.Change change : changes) {
+      String url = change.getUrl();
+      String title = WikipediaApiClient.urlToTitle(url);
+      if (change.isDeleted()) {
+        existence.markMissing(title);
+      } else if (existence.isKnownMissing(title)) {
+        existence.markExisting(title);
+      }
+      fetcher.invalidate(url);
+      int id = registry.find(url);
+      if (id >= 0) {
+        changedIds.set(id);
+      }
+      changedUrls.add(url);
+    }
+    if (!changedIds.isEmpty()) {
+      trees.invalidatePages(changedIds);
+      GraphSnapshot.forgetShared(changedIds);
+    }
+    for (Map<Object, Object> cache : pathCaches) {
+      cache
+          .values()
+          .removeIf(
+              value -> {
+                boolean stale = isStale(value, changedUrls);
+                if (stale) {
+                  pathsDropped.incrementAndGet();
+                }
+                return stale;
+              });
+    }
+  }
+
+  /**
+   * Returns true if {@code value} is a path through a changed page, or a result without a path
+   * other than a {@link CachedResult}.
+   */
+  private static boolean isStale(Object value, Set<String> changedUrls) {
+    List<?> path;
+    if (value instanceof CachedResult) {
+      path = ((CachedResult) value).getResult().getPath();
+      if (path == null) {
+        return false;
+      }
+    } else if (value instanceof BFSResult) {
+      path = ((BFSResult) value).getPath();
+    } else if (value instanceof List) {
+      path = (List<?>) value;
+    } else {
+      return true;
+    }
+    if (path == null) {
+      return true;
+    }
+    for (int i = 0; i < path.size() - 1; i++) {
+      if (changedUrls.contains(path.get(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
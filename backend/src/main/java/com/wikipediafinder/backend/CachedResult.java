@@ -0,0 +1,60 @@
+package com.wikipediafinder.backend;
+
+/**
+ * A search result as kept in the {@code pathStatsCache}: the {@link BFSResult}, when it was
+ * computed, and the mode and budget of the search. A path answers any search between its pages,
+ * but a result without a path only shows there is none within that search's budget, counted in its
+ * mode's units (pages expanded, or live requests for a snapshot search). Such a result must only
+ * answer searches of the same mode with no larger budget. Immutable.
+ */
+public final class CachedResult {
+  private final BFSResult result;
+  private final long computedAt;
+  private final String mode;
+  private final int budget;
+
+  /**
+   * Create a cached result.
+   *
+   * @param result result of the search
+   * @param computedAt when the search finished, in milliseconds since the epoch
+   * @param mode search mode, e.g. {@code "default"} or {@code "snapshot"}
+   * @param budget most pages the search could expand, or request for a snapshot search
+   */
+  public CachedResult(BFSResult result, long computedAt, String mode, int budget) {
+    if (result == null || mode == null) {
+      throw new IllegalArgumentException("result and mode must not be null.");
+    }
+    this.result = result;
+    this.computedAt = computedAt;
+    this.mode = mode;
+    this.budget = budget;
+  }
+
+  public BFSResult getResult() {
+    return result;
+  }
+
+  /** Returns when the search finished, in milliseconds since the epoch. */
+  public long getComputedAt() {
+    return computedAt;
+  }
+
+  public String getMode() {
+    return mode;
+  }
+
+  public int getBudget() {
+    return budget;
+  }
+
+  /** Returns true if the search found no path. */
+  public boolean isNegative() {
+    return result.getPath() == null;
+  }
+
+  /** Returns true if this result may answer a search of {@code mode} with {@code budget}. */
+  public boolean answers(String mode, int budget) {
+    return !isNegative() || (this.mode.equals(mode) && this.budget >= budget);
+  }
+}
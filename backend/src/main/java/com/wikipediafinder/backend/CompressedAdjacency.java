@@ -0,0 +1,225 @@
+package com.wikipediafinder.backend;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable, compact list of a page's outgoing links.
+ *
+ * <p>Links are stored as the sorted, de-duplicated {@link TitleRegistry} IDs of the linked pages.
+ * The first ID is written as-is and every following ID as the gap to its predecessor, each as an
+ * unsigned LEB128 varint in a single {@code byte[]}. Because neighbouring IDs tend to be close,
+ * most links take one or two bytes, compared with well over a hundred bytes for a URL string held
+ * in a {@code HashSet}. The URL strings themselves still live in the registry, which only grows
+ * (see {@link TitleRegistry}), so the saving is per link, not per page.
+ *
+ * <p>Iteration never allocates: use {@link #forEach(IntConsumer)} or a reusable {@link Cursor}.
+ */
+public final class CompressedAdjacency {
+  /** Adjacency with no links. */
+  public static final CompressedAdjacency EMPTY = new CompressedAdjacency(new byte[0], 0, 0);
+
+  private final byte[] data;
+  private final int size;
+  private final long revision;
+
+  private CompressedAdjacency(byte[] data, int size, long revision) {
+    this.data = data;
+    this.size = size;
+    this.revision = revision;
+  }
+
+  /**
+   * Encodes the given IDs. The array is not modified; duplicates are dropped.
+   *
+   * @param ids non-negative title IDs in any order
+   * @return the encoded adjacency
+   * @throws IllegalArgumentException if an ID is negative
+   */
+  public static CompressedAdjacency of(int[] ids) {
+    if (ids.length == 0) {
+      return EMPTY;
+    }
+    int[] sorted = ids.clone();
+    Arrays.sort(sorted);
+    if (sorted[0] < 0) {
+      throw new IllegalArgumentException("Title IDs must be non-negative.");
+    }
+    byte[] buffer = new byte[sorted.length * 5];
+    int pos = 0;
+    int count = 0;
+    int previous = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (i > 0 && sorted[i] == previous) {
+        continue;
+      }
+      pos = writeVarint(buffer, pos, sorted[i] - previous);
+      previous = sorted[i];
+      count++;
+    }
+    return new CompressedAdjacency(Arrays.copyOf(buffer, pos), count, 0);
+  }
+
+  /**
+   * Registers the given URLs in {@code registry} and encodes their IDs.
+   *
+   * @param urls page URLs
+   * @param registry registry used to map URLs to IDs
+   * @return the encoded adjacency
+   */
+  public static CompressedAdjacency fromUrls(Collection<String> urls, TitleRegistry registry) {
+    int[] ids = new int[urls.size()];
+    int i = 0;
+    for (String url : urls) {
+      ids[i++] = registry.idOf(url);
+    }
+    return of(ids);
+  }
+
+  /**
+   * Returns the same links, read from revision {@code revision} of their page. A cache can then
+   * tell whether they are still current by comparing revisions instead of downloading them again.
+   */
+  public CompressedAdjacency withRevision(long revision) {
+    return revision == this.revision ? this : new CompressedAdjacency(data, size, revision);
+  }
+
+  /** Returns the revision of the page the links were read from, or 0 if it is unknown. */
+  public long getRevision() {
+    return revision;
+  }
+
+  /** Returns the number of links. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns true if there are no links. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Returns the number of bytes used by the encoded links. */
+  public int byteSize() {
+    return data.length;
+  }
+
+  /** Returns true if {@code id} is one of the links. */
+  public boolean contains(int id) {
+    int pos = 0;
+    int current = 0;
+    while (pos < data.length) {
+      int delta = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = data[pos++];
+        delta |= (b & 0x7f) << shift;
+        shift += 7;
+      } while (b < 0);
+      current += delta;
+      if (current >= id) {
+        return current == id;
+      }
+    }
+    return false;
+  }
+
+  /** Calls {@code action} with every linked ID in ascending order. */
+  public void forEach(IntConsumer action) {
+    int pos = 0;
+    int current = 0;
+    while (pos < data.length) {
+      int delta = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = data[pos++];
+        delta |= (b & 0x7f) << shift;
+        shift += 7;
+      } while (b < 0);
+      current += delta;
+      action.accept(current);
+    }
+  }
+
+  /** Returns all linked IDs in ascending order. */
+  public int[] toArray() {
+    int[] ids = new int[size];
+    Cursor cursor = new Cursor().reset(this);
+    for (int i = 0; i < size; i++) {
+      ids[i] = cursor.nextInt();
+    }
+    return ids;
+  }
+
+  /** Returns an adjacency holding the links of both {@code this} and {@code other}. */
+  public CompressedAdjacency union(CompressedAdjacency other) {
+    if (other.isEmpty()) {
+      return this;
+    }
+    if (isEmpty()) {
+      return other;
+    }
+    int[] mine = toArray();
+    int[] theirs = other.toArray();
+    int[] all = Arrays.copyOf(mine, mine.length + theirs.length);
+    System.arraycopy(theirs, 0, all, mine.length, theirs.length);
+    return of(all);
+  }
+
+  private static int writeVarint(byte[] buffer, int pos, int value) {
+    while ((value & ~0x7f) != 0) {
+      buffer[pos++] = (byte) ((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    buffer[pos++] = (byte) value;
+    return pos;
+  }
+
+  /**
+   * Reusable forward iterator over the IDs of a {@link CompressedAdjacency}. A single cursor can be
+   * {@linkplain #reset(CompressedAdjacency) reset} onto any number of adjacencies, so hot loops
+   * iterate without allocating.
+   */
+  public static final class Cursor {
+    private byte[] data = EMPTY.data;
+    private int pos;
+    private int current;
+
+    /** Positions this cursor before the first ID of {@code adjacency} and returns it. */
+    public Cursor reset(CompressedAdjacency adjacency) {
+      this.data = adjacency.data;
+      this.pos = 0;
+      this.current = 0;
+      return this;
+    }
+
+    /** Returns true if another ID is available. */
+    public boolean hasNext() {
+      return pos < data.length;
+    }
+
+    /**
+     * Returns the next ID.
+     *
+     * @throws IllegalStateException if there are no more IDs
+     */
+    public int nextInt() {
+      if (pos >= data.length) {
+        throw new IllegalStateException("No more links.");
+      }
+      int delta = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = data[pos++];
+        delta |= (b & 0x7f) << shift;
+        shift += 7;
+      } while (b < 0);
+      current += delta;
+      return current;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.wikipediafinder.backend;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring mapping page titles to the peer (backend replica) that owns them.
+ *
+ * <p>Every peer is placed on the ring at several virtual points so that titles spread evenly, and
+ * adding or removing a peer only moves the titles adjacent to its points. Immutable and
+ * thread-safe.
+ */
+public final class ConsistentHashRing {
+  private static final int VIRTUAL_NODES_PER_PEER = 128;
+
+  private final TreeMap<Long, String> ring = new TreeMap<>();
+  private final List<String> peers;
+
+  /**
+   * Create a ring over the given peers.
+   *
+   * @param peers peer identifiers (e.g. base URLs); must not be empty
+   * @throws IllegalArgumentException if {@code peers} is empty
+   */
+  public ConsistentHashRing(Collection<String> peers) {
+    if (peers.isEmpty()) {
+      throw new IllegalArgumentException("At least one peer is required.");
+    }
+    this.peers = List.copyOf(peers);
+    for (String peer : this.peers) {
+      for (int i = 0; i < VIRTUAL_NODES_PER_PEER; i++) {
+        ring.put(Hashing.hash64(peer + "#" + i), peer);
+      }
+    }
+  }
+
+  /** Returns the peer that owns {@code key}. */
+  public String ownerOf(String key) {
+    Map.Entry<Long, String> entry = ring.ceilingEntry(Hashing.hash64(key));
+    return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+  }
+
+  /** Returns the peers on the ring. */
+  public List<String> getPeers() {
+    return peers;
+  }
+}
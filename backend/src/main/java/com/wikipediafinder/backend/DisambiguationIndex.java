@@ -0,0 +1,37 @@
+package com.wikipediafinder.backend;
+
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Process-wide set of the {@link TitleRegistry} IDs of pages known to be disambiguation pages.
+ *
+ * <p>The set is filled from the page properties returned with link lists (see {@link
+ * WikipediaApiClient#getOutgoingLinksWithDisambiguation}), so a pruned search learns that a page
+ * is a disambiguation page from the page linking to it and never has to fetch it. Thread-safe.
+ */
+public final class DisambiguationIndex {
+  private static final DisambiguationIndex SHARED = new DisambiguationIndex();
+
+  private final BitSet ids = new BitSet();
+
+  /** Returns the process-wide instance. */
+  public static DisambiguationIndex shared() {
+    return SHARED;
+  }
+
+  /** Records that page {@code id} is a disambiguation page. */
+  public synchronized void mark(int id) {
+    ids.set(id);
+  }
+
+  /** Returns true if page {@code id} is known to be a disambiguation page. */
+  public synchronized boolean contains(int id) {
+    return ids.get(id);
+  }
+
+  /** Calls {@code action} with the ID of every page known to be a disambiguation page. */
+  public synchronized void forEachId(IntConsumer action) {
+    ids.stream().forEach(action);
+  }
+}
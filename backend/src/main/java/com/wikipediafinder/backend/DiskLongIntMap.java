@@ -0,0 +1,230 @@
+package com.wikipediafinder.backend;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Insert-only map from {@code long} keys to non-negative {@code int} values that keeps a bounded
+ * number of entries on the heap and the rest in a memory-mapped hash table on disk.
+ *
+ * <p>New entries go into a primitive open-addressing table on the heap (the hot portion). When it
+ * holds {@code hotCapacity} entries it is flushed into an open-addressing table stored in a file
+ * and then cleared. The file is mapped in fixed-size segments, so it may grow past the 2 GB limit
+ * of a single mapping; it is rehashed into a file of twice the size once it becomes half full.
+ * Lookups check the hot portion first and then the file. The external-memory search keys it by the
+ * 64-bit {@link Hashing#hash64} of page URLs, for which collisions among even billions of pages
+ * are negligible. Not thread-safe.
+ */
+public class DiskLongIntMap implements Closeable {
+  // Slots per mapped segment: 2^20 slots of 12 bytes = 12 MB
+  private static final int SEGMENT_SHIFT = 20;
+  private static final int SLOTS_PER_SEGMENT = 1 << SEGMENT_SHIFT;
+  private static final int SLOT_BYTES = 12;
+
+  private final Path directory;
+  private final int hotCapacity;
+  // Values are stored off by one, so that 0 marks an empty slot on the heap and on disk
+  private final long[] hotKeys;
+  private final int[] hotValues;
+  private int hotSize;
+  private Path tableFile;
+  private MappedByteBuffer[] segments;
+  private long tableSlots;
+  private long diskSize;
+  private int generation;
+
+  /**
+   * Create an empty map.
+   *
+   * @param directory existing directory for the table file
+   * @param hotCapacity maximum number of entries held on the heap before flushing to disk
+   * @throws IllegalArgumentException if {@code hotCapacity} is not positive or above 2^28
+   */
+  public DiskLongIntMap(Path directory, int hotCapacity) {
+    if (hotCapacity <= 0 || hotCapacity > 1 << 28) {
+      throw new IllegalArgumentException("Hot capacity must be between 1 and 2^28.");
+    }
+    this.directory = directory;
+    this.hotCapacity = hotCapacity;
+    int hotSlots = Integer.highestOneBit(hotCapacity) * 4;
+    this.hotKeys = new long[hotSlots];
+    this.hotValues = new int[hotSlots];
+    allocateTable(Math.max(SLOTS_PER_SEGMENT, Long.highestOneBit((long) hotCapacity * 4)));
+  }
+
+  /**
+   * Associates {@code value} with {@code key} if the key has no value yet.
+   *
+   * @return true if the mapping was added, false if the key already had a value
+   * @throws IllegalArgumentException if {@code value} is negative or {@link Integer#MAX_VALUE}
+   */
+  public boolean putIfAbsent(long key, int value) {
+    if (value < 0 || value == Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Values must be between 0 and 2^31 - 2.");
+    }
+    int slot = findHotSlot(key);
+    if (hotValues[slot] != 0 || readValue(findSlot(key)) != 0) {
+      return false;
+    }
+    hotKeys[slot] = key;
+    hotValues[slot] = value + 1;
+    if (++hotSize >= hotCapacity) {
+      flush();
+    }
+    return true;
+  }
+
+  /** Returns the value for {@code key}, or {@code defaultValue} if there is none. */
+  public int get(long key, int defaultValue) {
+    int value = hotValues[findHotSlot(key)];
+    if (value == 0) {
+      value = readValue(findSlot(key));
+    }
+    return value == 0 ? defaultValue : value - 1;
+  }
+
+  /** Returns true if {@code key} has a value. */
+  public boolean containsKey(long key) {
+    return get(key, -1) >= 0;
+  }
+
+  /** Returns the total number of mappings (hot and on disk). */
+  public long size() {
+    return diskSize + hotSize;
+  }
+
+  /** Returns the number of mappings currently held on the heap. */
+  public int hotSize() {
+    return hotSize;
+  }
+
+  /** Unmaps and deletes the table file. */
+  @Override
+  public void close() throws IOException {
+    unmap(segments);
+    segments = new MappedByteBuffer[0];
+    tableSlots = 0;
+    Files.deleteIfExists(tableFile);
+  }
+
+  /** Moves every hot entry into the disk table. */
+  private void flush() {
+    if (diskSize + hotSize > tableSlots / 2) {
+      rehash(Math.max(tableSlots * 2, Long.highestOneBit((diskSize + hotSize) * 4)));
+    }
+    for (int slot = 0; slot < hotKeys.length; slot++) {
+      if (hotValues[slot] != 0) {
+        writeToDisk(hotKeys[slot], hotValues[slot]);
+      }
+    }
+    Arrays.fill(hotValues, 0);
+    hotSize = 0;
+  }
+
+  private void writeToDisk(long key, int storedValue) {
+    long slot = findSlot(key);
+    if (readValue(slot) == 0) {
+      MappedByteBuffer segment = segmentOf(slot);
+      int offset = offsetOf(slot);
+      segment.putLong(offset, key);
+      segment.putInt(offset + 8, storedValue);
+      diskSize++;
+    }
+  }
+
+  private void rehash(long newSlots) {
+    Path oldFile = tableFile;
+    MappedByteBuffer[] oldSegments = segments;
+    long oldSlots = tableSlots;
+    allocateTable(newSlots);
+    diskSize = 0;
+    for (long slot = 0; slot < oldSlots; slot++) {
+      MappedByteBuffer segment = oldSegments[(int) (slot >>> SEGMENT_SHIFT)];
+      int offset = offsetOf(slot);
+      int storedValue = segment.getInt(offset + 8);
+      if (storedValue != 0) {
+        writeToDisk(segment.getLong(offset), storedValue);
+      }
+    }
+    unmap(oldSegments);
+    try {
+      Files.deleteIfExists(oldFile);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void allocateTable(long slots) {
+    tableFile = directory.resolve("visited-" + (generation++) + ".tbl");
+    tableSlots = slots;
+    int segmentCount = (int) ((slots + SLOTS_PER_SEGMENT - 1) >>> SEGMENT_SHIFT);
+    segments = new MappedByteBuffer[segmentCount];
+    try (FileChannel channel =
+        FileChannel.open(
+            tableFile,
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      long segmentBytes = (long) SLOTS_PER_SEGMENT * SLOT_BYTES;
+      for (int i = 0; i < segmentCount; i++) {
+        segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * segmentBytes, segmentBytes);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Returns the hot slot holding {@code key}, or the empty slot where it would be inserted. */
+  private int findHotSlot(long key) {
+    int mask = hotKeys.length - 1;
+    int slot = (int) mix(key) & mask;
+    while (hotValues[slot] != 0 && hotKeys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /** Returns the disk slot holding {@code key}, or the empty slot where it would be inserted. */
+  private long findSlot(long key) {
+    long mask = tableSlots - 1;
+    long slot = mix(key) & mask;
+    while (true) {
+      MappedByteBuffer segment = segmentOf(slot);
+      int offset = offsetOf(slot);
+      if (segment.getInt(offset + 8) == 0 || segment.getLong(offset) == key) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private int readValue(long slot) {
+    return segmentOf(slot).getInt(offsetOf(slot) + 8);
+  }
+
+  private MappedByteBuffer segmentOf(long slot) {
+    return segments[(int) (slot >>> SEGMENT_SHIFT)];
+  }
+
+  private static int offsetOf(long slot) {
+    return (int) (slot & (SLOTS_PER_SEGMENT - 1)) * SLOT_BYTES;
+  }
+
+  private static long mix(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return h ^ (h >>> 29);
+  }
+
+  private static void unmap(MappedByteBuffer[] buffers) {
+    for (MappedByteBuffer buffer : buffers) {
+      MappedBuffers.unmap(buffer);
+    }
+  }
+}
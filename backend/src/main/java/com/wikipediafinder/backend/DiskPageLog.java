@@ -0,0 +1,170 @@
+package com.wikipediafinder.backend;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Append-only log of the pages discovered by a search, kept in memory-mapped segment files.
+ *
+ * <p>Each page is appended once, with the index of the page it was discovered from, and gets the
+ * next index. A breadth-first search appends pages level by level, so the log is its frontier (a
+ * level is a contiguous range of indices, read back in order) as well as its parent table (a path
+ * is read back by following parent indices). Pages are stored as URLs rather than {@link
+ * TitleRegistry} IDs, so the log holds no IDs that a {@link TitleRegistry#trim} could free. Records
+ * ({@code int} parent, {@code short} length, UTF-8 bytes) are packed into data segments, and the
+ * offset of every record into offset segments; only the mappings themselves are on the heap. Not
+ * thread-safe.
+ */
+public class DiskPageLog implements Closeable {
+  private static final int DEFAULT_SEGMENT_BYTES = 8 << 20;
+  // Record offsets per offset segment: 2^20 longs = 8 MB
+  private static final int OFFSET_SHIFT = 20;
+  private static final int OFFSETS_PER_SEGMENT = 1 << OFFSET_SHIFT;
+  private static final int HEADER_BYTES = 6;
+  private static final int MAX_URL_BYTES = 0xffff;
+
+  private final Path directory;
+  private final int segmentBytes;
+  private final List<MappedByteBuffer> data = new ArrayList<>();
+  private final List<MappedByteBuffer> offsets = new ArrayList<>();
+  private final List<Path> files = new ArrayList<>();
+  private int writePosition;
+  private int size;
+
+  /**
+   * Create an empty log with 8 MB data segments.
+   *
+   * @param directory existing directory for the segment files
+   */
+  public DiskPageLog(Path directory) {
+    this(directory, DEFAULT_SEGMENT_BYTES);
+  }
+
+  /**
+   * Create an empty log.
+   *
+   * @param directory existing directory for the segment files
+   * @param segmentBytes size of each data segment; no record may be larger
+   * @throws IllegalArgumentException if a data segment could not hold the longest URL
+   */
+  public DiskPageLog(Path directory, int segmentBytes) {
+    if (segmentBytes < HEADER_BYTES + MAX_URL_BYTES) {
+      throw new IllegalArgumentException("Segments must hold at least one record.");
+    }
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    this.writePosition = segmentBytes;
+  }
+
+  /**
+   * Appends a page.
+   *
+   * @param parent index of the page {@code url} was discovered from, or -1 for the start page
+   * @param url page URL
+   * @return the index of the page
+   * @throws IllegalArgumentException if the URL is longer than 65535 bytes in UTF-8
+   * @throws IllegalStateException if the log already holds {@link Integer#MAX_VALUE} pages
+   * @throws UncheckedIOException if a segment file cannot be created
+   */
+  public int append(int parent, String url) {
+    byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > MAX_URL_BYTES) {
+      throw new IllegalArgumentException("URL too long for the page log: " + url);
+    }
+    if (size == Integer.MAX_VALUE) {
+      throw new IllegalStateException("The page log is full.");
+    }
+    if (writePosition + HEADER_BYTES + bytes.length > segmentBytes) {
+      data.add(newSegment("pages-" + data.size() + ".dat", segmentBytes));
+      writePosition = 0;
+    }
+    if ((size & (OFFSETS_PER_SEGMENT - 1)) == 0) {
+      offsets.add(newSegment("offsets-" + offsets.size() + ".dat", OFFSETS_PER_SEGMENT * 8));
+    }
+    MappedByteBuffer segment = data.get(data.size() - 1);
+    segment.putInt(writePosition, parent);
+    segment.putShort(writePosition + 4, (short) bytes.length);
+    segment.put(writePosition + HEADER_BYTES, bytes);
+    long offset = (long) (data.size() - 1) * segmentBytes + writePosition;
+    offsets.get(size >>> OFFSET_SHIFT).putLong((size & (OFFSETS_PER_SEGMENT - 1)) * 8, offset);
+    writePosition += HEADER_BYTES + bytes.length;
+    return size++;
+  }
+
+  /** Returns the URL of the page at {@code index}. */
+  public String urlOf(int index) {
+    long offset = offsetOf(index);
+    MappedByteBuffer segment = data.get((int) (offset / segmentBytes));
+    int position = (int) (offset % segmentBytes);
+    byte[] bytes = new byte[Short.toUnsignedInt(segment.getShort(position + 4))];
+    segment.get(position + HEADER_BYTES, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Returns the index of the page the page at {@code index} was discovered from, or -1. */
+  public int parentOf(int index) {
+    long offset = offsetOf(index);
+    return data.get((int) (offset / segmentBytes)).getInt((int) (offset % segmentBytes));
+  }
+
+  /** Returns the URLs from the first page appended to the page at {@code index}. */
+  public List<String> pathTo(int index) {
+    List<String> path = new ArrayList<>();
+    for (int i = index; i >= 0; i = parentOf(i)) {
+      path.add(urlOf(i));
+    }
+    Collections.reverse(path);
+    return path;
+  }
+
+  /** Returns the number of pages appended. */
+  public int size() {
+    return size;
+  }
+
+  /** Unmaps and deletes the segment files. */
+  @Override
+  public void close() throws IOException {
+    data.forEach(MappedBuffers::unmap);
+    offsets.forEach(MappedBuffers::unmap);
+    data.clear();
+    offsets.clear();
+    for (Path file : files) {
+      Files.deleteIfExists(file);
+    }
+    files.clear();
+    size = 0;
+  }
+
+  private long offsetOf(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("No page at index " + index);
+    }
+    return offsets.get(index >>> OFFSET_SHIFT).getLong((index & (OFFSETS_PER_SEGMENT - 1)) * 8);
+  }
+
+  private MappedByteBuffer newSegment(String name, int bytes) {
+    Path file = directory.resolve(name);
+    try (FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      files.add(file);
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
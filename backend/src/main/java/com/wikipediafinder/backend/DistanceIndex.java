@@ -0,0 +1,318 @@
+package com.wikipediafinder.backend;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Exact shortest-path distances and paths between the pages of an offline {@link LinkGraph},
+ * answered from a memory-mapped file of {@link PrunedLandmarkLabeling} labels without any search.
+ *
+ * <p>A distance query merges the out-label of the start with the in-label of the end, typically a
+ * few hundred entries read from the mapping, and takes microseconds. A path is rebuilt from the
+ * labels too: each entry names the next page towards its hub, so the path runs from the start to
+ * the best hub and on to the end one label lookup per page. Pages are found by title with a binary
+ * search over the sorted titles in the file, so opening an index reads nothing into the heap.
+ *
+ * <p>File layout, big-endian: a header (magic, page count, title bytes, out- and in-label entry
+ * counts), the title, out-label and in-label offsets as {@code long}s, the page of each hub rank,
+ * the out- and in-label entries of {@link PrunedLandmarkLabeling#ENTRY_INTS} {@code int}s each,
+ * and the UTF-8 titles. The file is mapped in segments, so it may exceed 2 GB. Thread-safe.
+ */
+public final class DistanceIndex implements Closeable {
+  private static final int MAGIC = 0x504C4C31; // "PLL1"
+  private static final int HEADER_BYTES = 32;
+  private static final int SEGMENT_SHIFT = 30;
+  private static final long SEGMENT_BYTES = 1L << SEGMENT_SHIFT;
+  private static final int ENTRY_BYTES = PrunedLandmarkLabeling.ENTRY_INTS * 4;
+
+  private final MappedByteBuffer[] segments;
+  private final int size;
+  private final long titleOffsetsAt;
+  private final long outOffsetsAt;
+  private final long inOffsetsAt;
+  private final long hubsAt;
+  private final long outEntriesAt;
+  private final long inEntriesAt;
+  private final long titlesAt;
+
+  private DistanceIndex(MappedByteBuffer[] segments) throws IOException {
+    this.segments = segments;
+    if (segments.length == 0 || segments[0].limit() < HEADER_BYTES || getInt(0) != MAGIC) {
+      throw new IOException("Not a distance index file.");
+    }
+    this.size = getInt(4);
+    long titleBytes = getLong(8);
+    long outEntries = getLong(16);
+    long inEntries = getLong(24);
+    this.titleOffsetsAt = HEADER_BYTES;
+    this.outOffsetsAt = titleOffsetsAt + 8L * (size + 1);
+    this.inOffsetsAt = outOffsetsAt + 8L * (size + 1);
+    this.hubsAt = inOffsetsAt + 8L * (size + 1);
+    this.outEntriesAt = hubsAt + 4L * size;
+    this.inEntriesAt = outEntriesAt + ENTRY_BYTES * outEntries;
+    this.titlesAt = inEntriesAt + ENTRY_BYTES * inEntries;
+    long length = 0;
+    for (MappedByteBuffer segment : segments) {
+      length += segment.limit();
+    }
+    if (titlesAt + titleBytes != length) {
+      throw new IOException("Truncated distance index file.");
+    }
+  }
+
+  /**
+   * Labels {@code graph} and writes the index to {@code file}, replacing it atomically.
+   *
+   * @param graph graph indexed
+   * @param file index file written
+   * @param pool pool running the labeling
+   * @throws IOException if the file cannot be written
+   */
+  public static void build(LinkGraph graph, Path file, ForkJoinPool pool) throws IOException {
+    write(graph, PrunedLandmarkLabeling.compute(graph, pool), file);
+  }
+
+  /** Writes the labels of {@code graph} to {@code file}. */
+  static void write(LinkGraph graph, PrunedLandmarkLabeling labels, Path file)
+      throws IOException {
+    int n = graph.size();
+    byte[][] titles = new byte[n][];
+    long titleBytes = 0;
+    long outEntries = 0;
+    long inEntries = 0;
+    for (int page = 0; page < n; page++) {
+      titles[page] = graph.title(page).getBytes(StandardCharsets.UTF_8);
+      titleBytes += titles[page].length;
+      outEntries += labels.outLabelSize(page);
+      inEntries += labels.inLabelSize(page);
+    }
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(n);
+      out.writeLong(titleBytes);
+      out.writeLong(outEntries);
+      out.writeLong(inEntries);
+      long offset = 0;
+      for (int page = 0; page < n; page++) {
+        out.writeLong(offset);
+        offset += titles[page].length;
+      }
+      out.writeLong(offset);
+      for (boolean outLabels : new boolean[] {true, false}) {
+        offset = 0;
+        for (int page = 0; page < n; page++) {
+          out.writeLong(offset);
+          offset += outLabels ? labels.outLabelSize(page) : labels.inLabelSize(page);
+        }
+        out.writeLong(offset);
+      }
+      for (int hub : labels.hubs()) {
+        out.writeInt(hub);
+      }
+      for (boolean outLabels : new boolean[] {true, false}) {
+        for (int page = 0; page < n; page++) {
+          for (int value : outLabels ? labels.outLabel(page) : labels.inLabel(page)) {
+            out.writeInt(value);
+          }
+        }
+      }
+      for (byte[] title : titles) {
+        out.write(title);
+      }
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Maps the index in {@code file}.
+   *
+   * @throws IOException if the file cannot be read or is not a complete index
+   */
+  public static DistanceIndex open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long length = channel.size();
+      int count = (int) ((length + SEGMENT_BYTES - 1) >>> SEGMENT_SHIFT);
+      MappedByteBuffer[] segments = new MappedByteBuffer[count];
+      for (int i = 0; i < count; i++) {
+        long start = i * SEGMENT_BYTES;
+        long bytes = Math.min(SEGMENT_BYTES, length - start);
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, bytes);
+      }
+      return new DistanceIndex(segments);
+    }
+  }
+
+  /** Returns the number of pages indexed. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns the title of page {@code id}, with underscores for spaces. */
+  public String title(int id) {
+    long start = getLong(titleOffsetsAt + 8L * id);
+    byte[] bytes = new byte[(int) (getLong(titleOffsetsAt + 8L * (id + 1)) - start)];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = getByte(titlesAt + start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Returns the ID of the page titled {@code title}, or -1 if it is not indexed. */
+  public int find(String title) {
+    byte[] key = LinkGraph.normalize(title).getBytes(StandardCharsets.UTF_8);
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compareTitle(mid, key);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the number of links on a shortest path from {@code from} to {@code to}, or -1. */
+  public int distance(int from, int to) {
+    if (from == to) {
+      return 0;
+    }
+    long[] best = bestHub(from, to);
+    return best == null ? -1 : (int) best[0];
+  }
+
+  /**
+   * Returns the titles of the pages on a shortest path from {@code from} to {@code to}, both
+   * included, or null if there is none.
+   */
+  public List<String> path(int from, int to) {
+    if (from == to) {
+      return Collections.singletonList(title(from));
+    }
+    long[] best = bestHub(from, to);
+    if (best == null) {
+      return null;
+    }
+    int rank = (int) best[1];
+    int hub = getInt(hubsAt + 4L * rank);
+    List<String> path = new ArrayList<>();
+    for (int page = from; page != hub; page = next(outOffsetsAt, outEntriesAt, page, rank)) {
+      path.add(title(page));
+    }
+    List<String> toEnd = new ArrayList<>();
+    for (int page = to; page != hub; page = next(inOffsetsAt, inEntriesAt, page, rank)) {
+      toEnd.add(title(page));
+    }
+    path.add(title(hub));
+    Collections.reverse(toEnd);
+    path.addAll(toEnd);
+    return path;
+  }
+
+  /** Drops the mapping, which is unmapped once collected; the index cannot be used afterwards. */
+  @Override
+  public void close() {
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = null;
+    }
+  }
+
+  /**
+   * Merges the out-label of {@code from} with the in-label of {@code to}; returns the shortest
+   * distance through a common hub and that hub's rank, or null if they share none.
+   */
+  private long[] bestHub(int from, int to) {
+    long out = getLong(outOffsetsAt + 8L * from);
+    long outEnd = getLong(outOffsetsAt + 8L * (from + 1));
+    long in = getLong(inOffsetsAt + 8L * to);
+    long inEnd = getLong(inOffsetsAt + 8L * (to + 1));
+    long bestDistance = Long.MAX_VALUE;
+    int bestRank = -1;
+    while (out < outEnd && in < inEnd) {
+      long outAt = outEntriesAt + ENTRY_BYTES * out;
+      long inAt = inEntriesAt + ENTRY_BYTES * in;
+      int outRank = getInt(outAt);
+      int inRank = getInt(inAt);
+      if (outRank < inRank) {
+        out++;
+      } else if (outRank > inRank) {
+        in++;
+      } else {
+        long distance = (long) getInt(outAt + 4) + getInt(inAt + 4);
+        if (distance < bestDistance) {
+          bestDistance = distance;
+          bestRank = outRank;
+        }
+        out++;
+        in++;
+      }
+    }
+    return bestRank < 0 ? null : new long[] {bestDistance, bestRank};
+  }
+
+  /** Returns the next page towards the hub of {@code rank} in a label of {@code page}. */
+  private int next(long offsetsAt, long entriesAt, int page, int rank) {
+    long low = getLong(offsetsAt + 8L * page);
+    long high = getLong(offsetsAt + 8L * (page + 1)) - 1;
+    while (low <= high) {
+      long mid = (low + high) >>> 1;
+      int midRank = getInt(entriesAt + ENTRY_BYTES * mid);
+      if (midRank < rank) {
+        low = mid + 1;
+      } else if (midRank > rank) {
+        high = mid - 1;
+      } else {
+        return getInt(entriesAt + ENTRY_BYTES * mid + 8);
+      }
+    }
+    // Every page on a hub's BFS tree is labeled with the hub
+    throw new IllegalStateException("Corrupt distance index: page " + page + " lacks hub " + rank);
+  }
+
+  private int compareTitle(int id, byte[] key) {
+    long start = titlesAt + getLong(titleOffsetsAt + 8L * id);
+    long end = titlesAt + getLong(titleOffsetsAt + 8L * (id + 1));
+    for (int i = 0; i < key.length && start + i < end; i++) {
+      int cmp = Byte.compareUnsigned(getByte(start + i), key[i]);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return Long.compare(end - start, key.length);
+  }
+
+  // Longs and ints are aligned and segments are a multiple of 8 bytes, so none spans two segments
+  private long getLong(long position) {
+    return segments[(int) (position >>> SEGMENT_SHIFT)].getLong(
+        (int) (position & (SEGMENT_BYTES - 1)));
+  }
+
+  private int getInt(long position) {
+    return segments[(int) (position >>> SEGMENT_SHIFT)].getInt(
+        (int) (position & (SEGMENT_BYTES - 1)));
+  }
+
+  private byte getByte(long position) {
+    return segments[(int) (position >>> SEGMENT_SHIFT)].get(
+        (int) (position & (SEGMENT_BYTES - 1)));
+  }
+}
@@ -0,0 +1,94 @@
+package com.wikipediafinder.backend;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens the {@link DistanceIndex} in {@code wikipediafinder.distance.index} for {@code
+ * /api/distance}. If the file does not exist and {@code wikipediafinder.distance.edges} names an
+ * edge list (see {@link LinkGraph}), the index is built from it first, on all cores. Loading runs
+ * in the background, and the endpoint is unavailable until it finishes; with an empty index path,
+ * or if loading fails, it stays unavailable.
+ */
+@Component
+public class DistanceIndexService {
+  private final Path indexFile;
+  private final Path edgeFile;
+  private volatile DistanceIndex index;
+
+  public DistanceIndexService(
+      @Value("${wikipediafinder.distance.index:}") String indexFile,
+      @Value("${wikipediafinder.distance.edges:}") String edgeFile) {
+    this.indexFile = indexFile.isBlank() ? null : Path.of(indexFile.trim());
+    this.edgeFile = edgeFile.isBlank() ? null : Path.of(edgeFile.trim());
+  }
+
+  /** Loads the index on a background thread, unless it is disabled. */
+  @PostConstruct
+  public void start() {
+    if (indexFile == null) {
+      return;
+    }
+    Thread thread = new Thread(this::load, "distance-index");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /** Builds the index if needed and opens it. */
+  public void load() {
+    try {
+      if (!Files.isRegularFile(indexFile)) {
+        if (edgeFile == null) {
+          System.err.println("Distance index unavailable: " + indexFile + " does not exist");
+          return;
+        }
+        build();
+      }
+      DistanceIndex opened = DistanceIndex.open(indexFile);
+      index = opened;
+      System.err.println("Distance index opened with " + opened.size() + " pages");
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Distance index unavailable: " + e);
+    }
+  }
+
+  private void build() throws IOException {
+    long startNanos = System.nanoTime();
+    LinkGraph graph = LinkGraph.read(edgeFile);
+    System.err.println(
+        "Building distance index of "
+            + graph.size()
+            + " pages and "
+            + graph.linkCount()
+            + " links");
+    ForkJoinPool pool = new ForkJoinPool();
+    try {
+      DistanceIndex.build(graph, indexFile, pool);
+    } finally {
+      pool.shutdown();
+    }
+    System.err.println(
+        "Distance index built in " + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+  }
+
+  /** Returns the index, or null while it is loading or if it is unavailable. */
+  public DistanceIndex getIndex() {
+    return index;
+  }
+
+  /** Releases the index. */
+  @PreDestroy
+  public void close() {
+    DistanceIndex opened = index;
+    index = null;
+    if (opened != null) {
+      opened.close();
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.wikipediafinder.backend;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies the {@code wikipediafinder.fetch.max-concurrent} property to {@link
+ * FetchScheduler#shared()} at startup.
+ */
+@Component
+public class FetchLimits {
+
+  public FetchLimits(@Value("${wikipediafinder.fetch.max-concurrent:24}") int maxConcurrent) {
+    FetchScheduler.shared().setMaxConcurrent(maxConcurrent);
+  }
+}
@@ -0,0 +1,236 @@
+package com.wikipediafinder.backend;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shares the upstream connection budget between concurrent searches: at most {@link
+ * #getMaxConcurrent()} requests to Wikipedia are in flight at once, and when more are waiting, the
+ * next one is chosen by deficit round robin over the searches that issued them.
+ *
+ * <p>Every search has its own queue, keyed by its {@link SearchMetrics} (which identifies a search
+ * on all the threads working for it); requests outside a search share one queue. Each round a
+ * search may start as many requests as its weight, which comes from its {@link Priority}: a short
+ * interactive search is served ahead of a crawl or a batch job instead of queuing behind their
+ * hundreds of requests. An interactive search that has sent more than {@link #HEAVY_REQUESTS}
+ * requests is no longer short and drops to batch weight, so it cannot crowd out the small queries
+ * arriving after it.
+ */
+public final class FetchScheduler {
+  /** Scheduling class of a search, set with {@link SearchMetrics#setFetchPriority}. */
+  public enum Priority {
+    /** A search a user is waiting for. */
+    INTERACTIVE(8),
+    /** A long-running job whose result is collected later. */
+    BATCH(2),
+    /** Work nobody waits for, such as pre-warming the cache. */
+    BACKGROUND(1);
+
+    private final int weight;
+
+    Priority(int weight) {
+      this.weight = weight;
+    }
+  }
+
+  // Requests after which an interactive search is served at batch weight
+  static final long HEAVY_REQUESTS = 200;
+  private static final int DEFAULT_MAX_CONCURRENT = 24;
+  private static final FetchScheduler SHARED = new FetchScheduler(DEFAULT_MAX_CONCURRENT);
+
+  private final Map<SearchMetrics, Flow> flows = new IdentityHashMap<>();
+  // Searches with waiting requests, in round-robin order; the head is being served
+  private final ArrayDeque<Flow> active = new ArrayDeque<>();
+  private int maxConcurrent;
+  private int inFlight;
+
+  /**
+   * Create a scheduler.
+   *
+   * @param maxConcurrent most requests in flight at once
+   * @throws IllegalArgumentException if {@code maxConcurrent} is less than 1
+   */
+  public FetchScheduler(int maxConcurrent) {
+    setMaxConcurrent(maxConcurrent);
+  }
+
+  /** Returns the scheduler shared by all upstream requests. */
+  public static FetchScheduler shared() {
+    return SHARED;
+  }
+
+  /**
+   * Changes the most requests in flight at once. Requests already in flight are not affected.
+   *
+   * @throws IllegalArgumentException if {@code maxConcurrent} is less than 1
+   */
+  public void setMaxConcurrent(int maxConcurrent) {
+    if (maxConcurrent < 1) {
+      throw new IllegalArgumentException("Concurrency limit must be at least 1.");
+    }
+    List<CompletableFuture<Permit>> granted;
+    synchronized (this) {
+      this.maxConcurrent = maxConcurrent;
+      granted = dispatch();
+    }
+    grant(granted);
+  }
+
+  public synchronized int getMaxConcurrent() {
+    return maxConcurrent;
+  }
+
+  /** Returns the number of requests in flight. */
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  /** Returns the number of requests waiting for their turn. */
+  public synchronized int getQueued() {
+    int queued = 0;
+    for (Flow flow : active) {
+      queued += flow.waiting.size();
+    }
+    return queued;
+  }
+
+  /**
+   * Waits for the turn of a request of the search running on this thread.
+   *
+   * @return permit to close once the response has been received
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public Permit acquire() throws InterruptedException {
+    CompletableFuture<Permit> ticket = acquireAsync();
+    try {
+      return ticket.get();
+    } catch (InterruptedException e) {
+      if (!ticket.cancel(false)) {
+        ticket.join().close();
+      }
+      throw e;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Queues a request of the search running on this thread. The returned future completes with a
+   * permit when it is the request's turn; cancelling it withdraws the request.
+   */
+  public CompletableFuture<Permit> acquireAsync() {
+    SearchMetrics search = SearchMetrics.current();
+    CompletableFuture<Permit> ticket = new CompletableFuture<>();
+    List<CompletableFuture<Permit>> granted;
+    synchronized (this) {
+      Flow flow = flows.computeIfAbsent(search, Flow::new);
+      if (!flow.active) {
+        flow.active = true;
+        active.addLast(flow);
+      }
+      flow.waiting.add(ticket);
+      granted = dispatch();
+    }
+    grant(granted);
+    return ticket;
+  }
+
+  private void release() {
+    List<CompletableFuture<Permit>> granted;
+    synchronized (this) {
+      inFlight--;
+      granted = dispatch();
+    }
+    grant(granted);
+  }
+
+  /** Starts waiting requests while there is capacity; the caller completes the returned tickets. */
+  private List<CompletableFuture<Permit>> dispatch() {
+    List<CompletableFuture<Permit>> granted = new ArrayList<>();
+    while (inFlight < maxConcurrent && !active.isEmpty()) {
+      Flow flow = active.peekFirst();
+      CompletableFuture<Permit> ticket = flow.waiting.peek();
+      if (ticket == null) {
+        // Idle searches keep no credit, or they could burst past the others later
+        active.pollFirst();
+        flows.remove(flow.search);
+        continue;
+      }
+      if (ticket.isDone()) {
+        // Withdrawn while waiting
+        flow.waiting.poll();
+        continue;
+      }
+      if (!flow.served) {
+        flow.served = true;
+        flow.deficit += flow.weight();
+      }
+      if (flow.deficit >= 1) {
+        flow.deficit--;
+        flow.waiting.poll();
+        inFlight++;
+        granted.add(ticket);
+      } else {
+        flow.served = false;
+        active.addLast(active.pollFirst());
+      }
+    }
+    return granted;
+  }
+
+  /** Completes granted tickets outside the lock, since their callbacks may start requests. */
+  private void grant(List<CompletableFuture<Permit>> granted) {
+    for (CompletableFuture<Permit> ticket : granted) {
+      if (!ticket.complete(new Grant())) {
+        // Withdrawn after it was granted
+        release();
+      }
+    }
+  }
+
+  /** Permission to have one request in flight, returned by {@link #close()}. */
+  public interface Permit extends AutoCloseable {
+    /** Returns the permit; later calls have no effect. */
+    @Override
+    void close();
+  }
+
+  private final class Grant implements Permit {
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        release();
+      }
+    }
+  }
+
+  /** Waiting requests of one search. */
+  private static final class Flow {
+    final SearchMetrics search;
+    final ArrayDeque<CompletableFuture<Permit>> waiting = new ArrayDeque<>();
+    boolean active;
+    // Whether the flow received its quantum since it reached the head of the ring
+    boolean served;
+    int deficit;
+
+    Flow(SearchMetrics search) {
+      this.search = search;
+    }
+
+    int weight() {
+      int weight = search.fetchPriority().weight;
+      if (search.getHttpRequests() > HEAVY_REQUESTS) {
+        weight = Math.min(weight, Priority.BATCH.weight);
+      }
+      return weight;
+    }
+  }
+}
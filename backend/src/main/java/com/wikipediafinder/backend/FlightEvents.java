@@ -0,0 +1,259 @@
+package com.wikipediafinder.backend;
+
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Custom Java Flight Recorder events emitted by the search path.
+ *
+ * <p>All events are duration events in the "Wikipedia Finder" category: callers create one, call
+ * {@link Event#begin()} and finally one of its {@code end} methods, which fill in the fields and
+ * commit only if {@link Event#shouldCommit()} is true. When no recording enables the events that is
+ * a single flag check, and the JIT eliminates the event objects altogether, so instrumented code
+ * pays next to nothing. Stack traces are disabled to keep recordings small; the event fields
+ * already identify the call site.
+ */
+public final class FlightEvents {
+  /** Every event class declared here. */
+  static final List<Class<? extends Event>> ALL =
+      List.of(
+          SearchEvent.class,
+          LevelEvent.class,
+          PageLoadEvent.class,
+          FetchEvent.class,
+          ParseEvent.class);
+
+  private FlightEvents() {}
+
+  /** One search, from start to result. */
+  @Name("wikipediafinder.Search")
+  @Label("Search")
+  @Category("Wikipedia Finder")
+  @StackTrace(false)
+  public static final class SearchEvent extends Event {
+    @Label("Mode")
+    @Description("Search variant, e.g. bfs, disk, level-aware, async or reachability")
+    public String mode;
+
+    @Label("Start URL")
+    public String startUrl;
+
+    @Label("End URL")
+    public String endUrl;
+
+    @Label("Node Cap")
+    public int nodeCap;
+
+    @Label("Nodes Explored")
+    public int nodesExplored;
+
+    @Label("Path Length")
+    @Description("Number of pages on the path found, or 0 if none was found")
+    public int pathLength;
+
+    /** Commits the event if enabled; a null {@code result} means the search did not complete. */
+    void end(String mode, String startUrl, String endUrl, int nodeCap, BFSResult result) {
+      if (result == null) {
+        end(mode, startUrl, endUrl, nodeCap, 0, 0);
+      } else {
+        List<String> path = result.getPath();
+        int pathLength = path == null ? 0 : path.size();
+        end(mode, startUrl, endUrl, nodeCap, result.getNodesExplored(), pathLength);
+      }
+    }
+
+    /** Commits the event if enabled. */
+    void end(
+        String mode,
+        String startUrl,
+        String endUrl,
+        int nodeCap,
+        int nodesExplored,
+        int pathLength) {
+      if (shouldCommit()) {
+        this.mode = mode;
+        this.startUrl = startUrl;
+        this.endUrl = endUrl;
+        this.nodeCap = nodeCap;
+        this.nodesExplored = nodesExplored;
+        this.pathLength = pathLength;
+        commit();
+      }
+    }
+  }
+
+  /** One BFS level, from its first expansion to its last. */
+  @Name("wikipediafinder.Level")
+  @Label("BFS Level")
+  @Category("Wikipedia Finder")
+  @StackTrace(false)
+  public static final class LevelEvent extends Event {
+    @Label("Mode")
+    public String mode;
+
+    @Label("Depth")
+    public int depth;
+
+    @Label("Nodes Expanded")
+    public int nodesExpanded;
+
+    @Label("Next Frontier Size")
+    public long nextFrontierSize;
+
+    /** Commits the event if enabled. */
+    void end(String mode, int depth, int nodesExpanded, long nextFrontierSize) {
+      if (shouldCommit()) {
+        this.mode = mode;
+        this.depth = depth;
+        this.nodesExpanded = nodesExpanded;
+        this.nextFrontierSize = nextFrontierSize;
+        commit();
+      }
+    }
+  }
+
+  /**
+   * Emits one {@link LevelEvent} per level of a search: the search reports every expansion and
+   * every level boundary, and finally the level it stopped in. Not thread-safe.
+   */
+  static final class LevelTracker {
+    private final String mode;
+    private LevelEvent event;
+    private int depth;
+    private int expanded;
+
+    LevelTracker(String mode) {
+      this.mode = mode;
+      begin();
+    }
+
+    /** Counts one expansion in the current level. */
+    void expanded() {
+      expanded++;
+    }
+
+    /** Counts {@code count} expansions in the current level. */
+    void expanded(long count) {
+      expanded += (int) Math.min(Integer.MAX_VALUE - expanded, count);
+    }
+
+    /** Ends the current level, whose expansions discovered {@code nextFrontierSize} pages. */
+    void nextLevel(long nextFrontierSize) {
+      event.end(mode, depth++, expanded, nextFrontierSize);
+      begin();
+    }
+
+    /** Ends the level the search stopped in, unless nothing was expanded in it. */
+    void finish(long nextFrontierSize) {
+      if (expanded > 0) {
+        event.end(mode, depth, expanded, nextFrontierSize);
+      }
+    }
+
+    private void begin() {
+      event = new LevelEvent();
+      expanded = 0;
+      event.begin();
+    }
+  }
+
+  /** Loading the links of one page in {@link PageNode#findOutgoingLinks()}. */
+  @Name("wikipediafinder.PageLoad")
+  @Label("Page Load")
+  @Category("Wikipedia Finder")
+  @StackTrace(false)
+  public static final class PageLoadEvent extends Event {
+    @Label("Title")
+    public String title;
+
+    @Label("Links")
+    public int links;
+
+    @Label("Pruned")
+    @Description("The page matched a link filter and was not expanded")
+    public boolean pruned;
+
+    @Label("Valid")
+    public boolean valid;
+
+    /** Commits the event if enabled. */
+    void end(String title, int links, boolean pruned, boolean valid) {
+      if (shouldCommit()) {
+        this.title = title;
+        this.links = links;
+        this.pruned = pruned;
+        this.valid = valid;
+        commit();
+      }
+    }
+  }
+
+  /** One HTTP request to the Wikipedia API, from send to response. */
+  @Name("wikipediafinder.Fetch")
+  @Label("Wikipedia Fetch")
+  @Category("Wikipedia Finder")
+  @StackTrace(false)
+  public static final class FetchEvent extends Event {
+    @Label("Request")
+    @Description("links, links-async, links-pageprops, backlinks or existence")
+    public String request;
+
+    @Label("Title")
+    @Description("Requested title(s), '|'-separated for batched requests")
+    public String title;
+
+    @Label("Status")
+    @Description("HTTP status code, or 0 if no response was received")
+    public int status;
+
+    @Label("Response Size")
+    @DataAmount
+    public long bytes;
+
+    /** Commits the event if enabled; a null {@code response} means none was received. */
+    void end(String request, String title, HttpResponse<String> response) {
+      if (shouldCommit()) {
+        this.request = request;
+        this.title = title;
+        if (response != null) {
+          this.status = response.statusCode();
+          String body = response.body();
+          this.bytes = body == null ? 0 : body.getBytes(StandardCharsets.UTF_8).length;
+        }
+        commit();
+      }
+    }
+  }
+
+  /** Parsing one Wikipedia API response. */
+  @Name("wikipediafinder.Parse")
+  @Label("Response Parse")
+  @Category("Wikipedia Finder")
+  @StackTrace(false)
+  public static final class ParseEvent extends Event {
+    @Label("Title")
+    @Description("Requested title(s), '|'-separated for batched requests")
+    public String title;
+
+    @Label("Entries")
+    @Description("Number of links or pages extracted from the response")
+    public int entries;
+
+    /** Commits the event if enabled. */
+    void end(String title, int entries) {
+      if (shouldCommit()) {
+        this.title = title;
+        this.entries = entries;
+        commit();
+      }
+    }
+  }
+}
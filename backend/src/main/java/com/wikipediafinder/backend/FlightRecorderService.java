@@ -0,0 +1,115 @@
+package com.wikipediafinder.backend;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import org.springframework.stereotype.Service;
+
+/**
+ * Starts, snapshots and stops an on-demand Java Flight Recorder recording of the running backend.
+ *
+ * <p>At most one recording is active at a time. It uses one of the JDK's built-in settings
+ * ({@code default} or {@code profile}) with all {@link FlightEvents} enabled, so a recording shows
+ * every search, BFS level, page load, Wikipedia fetch and response parse next to the JVM's own CPU,
+ * allocation and GC events. To bound disk usage only the last 15 minutes, and at most 64 MB, of
+ * data are kept.
+ */
+@Service
+public class FlightRecorderService {
+  private static final Duration MAX_AGE = Duration.ofMinutes(15);
+  private static final long MAX_SIZE = 64L << 20;
+
+  private Recording recording;
+
+  /**
+   * Starts a recording.
+   *
+   * @param settings name of a JDK recording configuration, e.g. {@code default} or {@code profile}
+   * @return false if a recording is already running
+   * @throws IllegalArgumentException if no configuration named {@code settings} exists
+   * @throws IOException if the configuration cannot be read
+   */
+  public synchronized boolean start(String settings) throws IOException {
+    if (recording != null) {
+      return false;
+    }
+    Configuration configuration;
+    try {
+      configuration = Configuration.getConfiguration(settings);
+    } catch (NoSuchFileException e) {
+      throw new IllegalArgumentException("Unknown recording settings: " + settings, e);
+    } catch (ParseException e) {
+      throw new IOException("Invalid recording settings: " + settings, e);
+    }
+    Recording started = new Recording(configuration);
+    started.setName("wikipediafinder");
+    started.setMaxAge(MAX_AGE);
+    started.setMaxSize(MAX_SIZE);
+    for (Class<? extends Event> eventClass : FlightEvents.ALL) {
+      started.enable(eventClass).withoutThreshold();
+    }
+    started.start();
+    recording = started;
+    return true;
+  }
+
+  /** Returns true if a recording is running. */
+  public synchronized boolean isRecording() {
+    return recording != null;
+  }
+
+  /**
+   * Returns the data recorded so far in JFR format, leaving the recording running.
+   *
+   * @return the recording's contents, or null if no recording is running
+   * @throws IOException if the data cannot be written out
+   */
+  public synchronized byte[] dump() throws IOException {
+    return recording == null ? null : read(recording);
+  }
+
+  /**
+   * Stops the recording and returns its contents in JFR format.
+   *
+   * @return the recording's contents, or null if no recording is running
+   * @throws IOException if the data cannot be written out
+   */
+  public synchronized byte[] stop() throws IOException {
+    if (recording == null) {
+      return null;
+    }
+    try {
+      recording.stop();
+      return read(recording);
+    } finally {
+      recording.close();
+      recording = null;
+    }
+  }
+
+  /** Discards a running recording on shutdown. */
+  @PreDestroy
+  public synchronized void close() {
+    if (recording != null) {
+      recording.close();
+      recording = null;
+    }
+  }
+
+  private static byte[] read(Recording recording) throws IOException {
+    Path file = Files.createTempFile("wikipediafinder-", ".jfr");
+    try {
+      recording.dump(file);
+      return Files.readAllBytes(file);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package com.wikipediafinder.backend;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/** Helpers for {@link CompletableFuture} chains. */
+final class Futures {
+  private Futures() {}
+
+  /**
+   * Cancels {@code source} when {@code derived} is cancelled. A future derived with {@code
+   * thenApply} and similar methods does not pass cancellation back to the future it was derived
+   * from, so without this an abandoned HTTP exchange would keep running.
+   */
+  static void propagateCancellation(CompletableFuture<?> derived, Future<?> source) {
+    derived.whenComplete(
+        (result, error) -> {
+          if (derived.isCancelled()) {
+            source.cancel(true);
+          }
+        });
+  }
+}
@@ -0,0 +1,225 @@
+package com.wikipediafinder.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable copy of the link graph known locally, frozen into compressed sparse row (CSR) arrays
+ * of {@link TitleRegistry} IDs for {@link SnapshotSearch}.
+ *
+ * <p>The out-links of page {@code id} are {@code targets[offsets[id]]} up to {@code
+ * targets[offsets[id + 1]]}; the in-links, for bottom-up search steps, are held the same way in a
+ * second pair of arrays. Both are plain {@code int} arrays indexed by ID, so a traversal touches no
+ * objects, hash sets or URL strings. Only pages whose links were cached are <em>known</em>; a page
+ * that is only linked to has no out-links in the snapshot, and a search must fetch them.
+ *
+ * <p>The {@link #shared()} snapshot is taken from {@link AdjacencyCache#shared()} by {@link
+ * #refreshShared()}. Pages edited since are dropped from it with {@link #forgetShared}, which
+ * leaves them unknown rather than rebuilding the arrays.
+ */
+public final class GraphSnapshot {
+  /** Snapshot knowing no pages. */
+  public static final GraphSnapshot EMPTY =
+      new GraphSnapshot(new int[1], new int[0], new int[1], new int[0], new BitSet());
+
+  private static final Object SHARED_LOCK = new Object();
+  private static final Object REFRESH_LOCK = new Object();
+  private static volatile GraphSnapshot shared = EMPTY;
+  // Pages forgotten while a refresh is capturing, dropped from its snapshot before it is installed
+  private static BitSet forgottenDuringRefresh;
+
+  private final int[] offsets;
+  private final int[] targets;
+  private final int[] inOffsets;
+  private final int[] sources;
+  private final BitSet known;
+
+  private GraphSnapshot(
+      int[] offsets, int[] targets, int[] inOffsets, int[] sources, BitSet known) {
+    this.offsets = offsets;
+    this.targets = targets;
+    this.inOffsets = inOffsets;
+    this.sources = sources;
+    this.known = known;
+  }
+
+  /**
+   * Freezes the unexpired link lists in {@code cache}.
+   *
+   * @param cache cache whose link lists are copied
+   * @return snapshot of the cached links
+   */
+  public static GraphSnapshot of(AdjacencyCache cache) {
+    List<CompressedAdjacency> lists = new ArrayList<>();
+    List<Integer> ids = new ArrayList<>();
+    cache.forEach(
+        (links, id) -> {
+          lists.add(links);
+          ids.add(id);
+        });
+    // Size the arrays to the pages in the snapshot, not to every ID registered since
+    int nodeCount = 0;
+    CompressedAdjacency.Cursor cursor = new CompressedAdjacency.Cursor();
+    for (int i = 0; i < lists.size(); i++) {
+      nodeCount = Math.max(nodeCount, ids.get(i) + 1);
+      cursor.reset(lists.get(i));
+      int last = -1;
+      while (cursor.hasNext()) {
+        last = cursor.nextInt();
+      }
+      nodeCount = Math.max(nodeCount, last + 1);
+    }
+    int[] offsets = new int[nodeCount + 1];
+    BitSet known = new BitSet(nodeCount);
+    long edgeCount = 0;
+    for (int i = 0; i < lists.size(); i++) {
+      int id = ids.get(i);
+      offsets[id + 1] = lists.get(i).size();
+      edgeCount += lists.get(i).size();
+      known.set(id);
+    }
+    if (edgeCount > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("Too many cached links for one snapshot: " + edgeCount);
+    }
+    for (int id = 0; id < nodeCount; id++) {
+      offsets[id + 1] += offsets[id];
+    }
+    int[] targets = new int[(int) edgeCount];
+    int[] inOffsets = new int[nodeCount + 1];
+    for (int i = 0; i < lists.size(); i++) {
+      int[] position = {offsets[ids.get(i)]};
+      CompressedAdjacency links = lists.get(i);
+      links.forEach(
+          target -> {
+            targets[position[0]++] = target;
+            inOffsets[target + 1]++;
+          });
+    }
+    for (int id = 0; id < nodeCount; id++) {
+      inOffsets[id + 1] += inOffsets[id];
+    }
+    int[] sources = new int[targets.length];
+    int[] fill = Arrays.copyOf(inOffsets, nodeCount);
+    for (int id = known.nextSetBit(0); id >= 0; id = known.nextSetBit(id + 1)) {
+      for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+        sources[fill[targets[e]]++] = id;
+      }
+    }
+    return new GraphSnapshot(offsets, targets, inOffsets, sources, known);
+  }
+
+  /** Returns the snapshot shared by all searches; {@link #EMPTY} until the first refresh. */
+  public static GraphSnapshot shared() {
+    return shared;
+  }
+
+  /**
+   * Replaces the shared snapshot with one of the links cached now, and returns it.
+   *
+   * <p>Searches keep using the previous snapshot while the new one is built, so a refresh does not
+   * send them to fetch every page live. The process therefore holds two copies of the graph at the
+   * peak of a refresh, about twice the memory of one snapshot; the previous copy is collected once
+   * the searches still using it end. Pages forgotten while the new snapshot is built are dropped
+   * from both.
+   */
+  public static GraphSnapshot refreshShared() {
+    synchronized (REFRESH_LOCK) {
+      synchronized (SHARED_LOCK) {
+        forgottenDuringRefresh = new BitSet();
+      }
+      GraphSnapshot snapshot = of(AdjacencyCache.shared());
+      synchronized (SHARED_LOCK) {
+        snapshot = snapshot.without(forgottenDuringRefresh);
+        forgottenDuringRefresh = null;
+        shared = snapshot;
+      }
+      return snapshot;
+    }
+  }
+
+  /** Makes the pages in {@code ids} unknown in the shared snapshot, e.g. because they changed. */
+  public static void forgetShared(BitSet ids) {
+    synchronized (SHARED_LOCK) {
+      shared = shared.without(ids);
+      if (forgottenDuringRefresh != null) {
+        forgottenDuringRefresh.or(ids);
+      }
+    }
+  }
+
+  /**
+   * Returns a snapshot in which the pages in {@code ids} are unknown, sharing this one's arrays.
+   * Their links stay in the in-link arrays, which a search must therefore only follow from known
+   * pages.
+   */
+  public GraphSnapshot without(BitSet ids) {
+    if (!known.intersects(ids)) {
+      return this;
+    }
+    BitSet remaining = (BitSet) known.clone();
+    remaining.andNot(ids);
+    return new GraphSnapshot(offsets, targets, inOffsets, sources, remaining);
+  }
+
+  /**
+   * Calls {@code action} with the ID of every page the snapshot has links of or to, possibly more
+   * than once.
+   */
+  public void forEachId(IntConsumer action) {
+    known.stream().forEach(action);
+    for (int id : targets) {
+      action.accept(id);
+    }
+    for (int id : sources) {
+      action.accept(id);
+    }
+  }
+
+  /** Returns one more than the largest page ID the snapshot has links of or to. */
+  public int nodeCount() {
+    return offsets.length - 1;
+  }
+
+  /** Returns the number of pages whose links are in the snapshot. */
+  public int knownPages() {
+    return known.cardinality();
+  }
+
+  /** Returns the number of links in the snapshot, including those of forgotten pages. */
+  public int edgeCount() {
+    return targets.length;
+  }
+
+  /** Returns true if the out-links of page {@code id} are in the snapshot. */
+  public boolean isKnown(int id) {
+    return known.get(id);
+  }
+
+  /** Returns the number of out-links of page {@code id}; 0 for pages not in the snapshot. */
+  public int outDegree(int id) {
+    return isKnown(id) ? offsets[id + 1] - offsets[id] : 0;
+  }
+
+  /** Out-link offsets by page ID, {@link #nodeCount()} + 1 entries. */
+  int[] offsets() {
+    return offsets;
+  }
+
+  /** Out-link targets of all pages, indexed through {@link #offsets()}. */
+  int[] targets() {
+    return targets;
+  }
+
+  /** In-link offsets by page ID, {@link #nodeCount()} + 1 entries. */
+  int[] inOffsets() {
+    return inOffsets;
+  }
+
+  /** In-link sources of all pages, indexed through {@link #inOffsets()}. */
+  int[] sources() {
+    return sources;
+  }
+}
@@ -0,0 +1,34 @@
+package com.wikipediafinder.backend;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the {@link GraphSnapshot#shared() shared graph snapshot} from the link cache on a
+ * schedule, so that snapshot searches see the links fetched since the last one. Pages edited in
+ * between are dropped from it as the recent changes feed reports them (see {@link
+ * CacheInvalidator}).
+ */
+@Component
+public class GraphSnapshotRefresher {
+
+  /** Replaces the shared snapshot with one of the links cached now. */
+  @Scheduled(
+      initialDelayString = "${wikipediafinder.snapshot.initial-delay:PT1M}",
+      fixedDelayString = "${wikipediafinder.snapshot.interval:PT10M}")
+  public void refresh() {
+    if (AdjacencyCache.shared().size() == 0) {
+      return;
+    }
+    long startNanos = System.nanoTime();
+    GraphSnapshot snapshot = GraphSnapshot.refreshShared();
+    System.err.println(
+        "Graph snapshot refreshed with "
+            + snapshot.knownPages()
+            + " pages and "
+            + snapshot.edgeCount()
+            + " links in "
+            + (System.nanoTime() - startNanos) / 1_000_000
+            + " ms");
+  }
+}
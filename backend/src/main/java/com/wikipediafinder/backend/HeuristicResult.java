@@ -0,0 +1,61 @@
+package com.wikipediafinder.backend;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a heuristic search (see {@link BFS#getPathWithStatsHeuristic}): a path that may be
+ * longer than the shortest one, with a proven lower bound on the shortest path's length.
+ *
+ * <p>The lower bound only covers what the search saw of the link graph: the levels it explored in
+ * full and the target's backlinks. {@link #getOptimalityGap()} is the number of hops by which the
+ * path may exceed the shortest one; a gap of 0 proves the path shortest.
+ */
+public class HeuristicResult extends BFSResult {
+  private final int lowerBound;
+  private final int beamWidth;
+
+  /**
+   * Create a new HeuristicResult.
+   *
+   * @param path ordered list of URLs from start to end (or {@code null} if no path)
+   * @param nodesExplored number of nodes expanded during the search
+   * @param lowerBound proven minimum number of hops of any path
+   * @param beamWidth most pages the search kept per level
+   * @param metrics metrics of the finished search
+   */
+  public HeuristicResult(
+      List<String> path, int nodesExplored, int lowerBound, int beamWidth, SearchMetrics metrics) {
+    super(path, nodesExplored, Collections.emptyList(), metrics);
+    this.lowerBound = lowerBound;
+    this.beamWidth = beamWidth;
+  }
+
+  /** Returns the proven minimum number of hops of any path from start to end. */
+  public int getLowerBound() {
+    return lowerBound;
+  }
+
+  /** Returns the most pages the search kept per level. */
+  public int getBeamWidth() {
+    return beamWidth;
+  }
+
+  /**
+   * Returns how many hops the path may be longer than the shortest one, or -1 if no path was
+   * found.
+   */
+  public int getOptimalityGap() {
+    return getPath() == null ? -1 : Math.max(0, getPath().size() - 1 - lowerBound);
+  }
+
+  /** Returns whether the path is proven to be a shortest one. */
+  public boolean isProvenOptimal() {
+    return getOptimalityGap() == 0;
+  }
+
+  @Override
+  public HeuristicResult withMetrics(SearchMetrics metrics) {
+    return new HeuristicResult(getPath(), getNodesExplored(), lowerBound, beamWidth, metrics);
+  }
+}
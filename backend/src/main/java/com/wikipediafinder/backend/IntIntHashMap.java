@@ -0,0 +1,120 @@
+package com.wikipediafinder.backend;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from non-negative {@code int} keys to {@code int} values.
+ *
+ * <p>Used for search bookkeeping keyed by {@link TitleRegistry} IDs (e.g. parent pointers), where a
+ * {@code HashMap<Integer, Integer>} would allocate two boxed integers and an entry per mapping.
+ * Keys and values live in two parallel arrays probed linearly. Not thread-safe.
+ */
+public final class IntIntHashMap {
+  private static final int EMPTY = -1;
+
+  private int[] keys;
+  private int[] values;
+  private int size;
+
+  /** Create an empty map. */
+  public IntIntHashMap() {
+    this(16);
+  }
+
+  /**
+   * Create an empty map sized for {@code expectedSize} mappings.
+   *
+   * @param expectedSize number of mappings expected (used to size the table)
+   */
+  public IntIntHashMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1;
+    keys = new int[capacity];
+    values = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+  }
+
+  /**
+   * Associates {@code value} with {@code key}, replacing any previous value.
+   *
+   * @throws IllegalArgumentException if {@code key} is negative
+   */
+  public void put(int key, int value) {
+    if (key < 0) {
+      throw new IllegalArgumentException("Keys must be non-negative: " + key);
+    }
+    int slot = slotOf(key);
+    if (keys[slot] == EMPTY) {
+      keys[slot] = key;
+      values[slot] = value;
+      if (++size * 2 > keys.length) {
+        resize();
+      }
+    } else {
+      values[slot] = value;
+    }
+  }
+
+  /** Returns the value for {@code key}, or {@code defaultValue} if there is none. */
+  public int get(int key, int defaultValue) {
+    if (key < 0) {
+      return defaultValue;
+    }
+    int slot = slotOf(key);
+    return keys[slot] == EMPTY ? defaultValue : values[slot];
+  }
+
+  /** Returns true if {@code key} has a value. */
+  public boolean containsKey(int key) {
+    return key >= 0 && keys[slotOf(key)] != EMPTY;
+  }
+
+  /** Returns the number of mappings. */
+  public int size() {
+    return size;
+  }
+
+  /** Calls {@code action} for every mapping, in no particular order. */
+  public void forEach(IntIntConsumer action) {
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != EMPTY) {
+        action.accept(keys[i], values[i]);
+      }
+    }
+  }
+
+  /** Returns the slot holding {@code key}, or the empty slot where it would be inserted. */
+  private int slotOf(int key) {
+    int mask = keys.length - 1;
+    int slot = mix(key) & mask;
+    while (keys[slot] != EMPTY && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void resize() {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new int[oldKeys.length * 2];
+    values = new int[oldValues.length * 2];
+    Arrays.fill(keys, EMPTY);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int slot = slotOf(oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  private static int mix(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /** Callback receiving one key/value mapping. */
+  @FunctionalInterface
+  public interface IntIntConsumer {
+    void accept(int key, int value);
+  }
+}
@@ -0,0 +1,65 @@
+package com.wikipediafinder.backend;
+
+import java.util.Arrays;
+
+/**
+ * Growable first-in first-out queue of {@code int} values, used as the BFS frontier so that queued
+ * {@link TitleRegistry} IDs are not boxed. Not thread-safe.
+ */
+public final class IntQueue {
+  private int[] elements = new int[64];
+  private int head;
+  private int tail;
+
+  /** Appends {@code value} to the end of the queue. */
+  public void add(int value) {
+    if (tail == elements.length) {
+      int live = tail - head;
+      if (head > 0 && live <= elements.length / 2) {
+        // Reuse the space freed by polled elements instead of growing
+        System.arraycopy(elements, head, elements, 0, live);
+      } else {
+        elements = Arrays.copyOfRange(elements, head, head + elements.length * 2);
+      }
+      head = 0;
+      tail = live;
+    }
+    elements[tail++] = value;
+  }
+
+  /**
+   * Removes and returns the value at the front of the queue.
+   *
+   * @throws IllegalStateException if the queue is empty
+   */
+  public int poll() {
+    if (head == tail) {
+      throw new IllegalStateException("Queue is empty.");
+    }
+    return elements[head++];
+  }
+
+  /** Returns the value at {@code index} positions from the front without removing it. */
+  public int peek(int index) {
+    if (index < 0 || head + index >= tail) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+    }
+    return elements[head + index];
+  }
+
+  /** Returns true if the queue holds no values. */
+  public boolean isEmpty() {
+    return head == tail;
+  }
+
+  /** Returns the number of queued values. */
+  public int size() {
+    return tail - head;
+  }
+
+  /** Removes all values. */
+  public void clear() {
+    head = 0;
+    tail = 0;
+  }
+}
@@ -0,0 +1,584 @@
+package com.wikipediafinder.backend;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/**
+ * Single entry point for obtaining a page's outgoing links, used by {@link PageNode}.
+ *
+ * <p>Links are looked up in this order:
+ *
+ * <ol>
+ *   <li>the local {@link AdjacencyCache};
+ *   <li>when peers are configured, the replica that owns the title on the {@link
+ *       ConsistentHashRing}, through its {@code /internal/links} endpoint;
+ *   <li>the Wikipedia API.
+ * </ol>
+ *
+ * <p>Because each title has exactly one owner, a page is downloaded from Wikipedia once per
+ * cluster rather than once per replica. A peer that fails is skipped for a short back-off period,
+ * during which its titles are fetched from Wikipedia directly.
+ *
+ * <p>Links downloaded from Wikipedia carry the revision of their page. When they expire but are
+ * still retained by the cache or the store, the page's latest revision is looked up first, in
+ * requests batched across pages (see {@link RevisionBatcher}); if it has not changed, the links are
+ * kept for another TTL instead of being downloaded again.
+ */
+public class LinkFetcher {
+  // Maximum number of links requested from the Wikipedia API per page
+  static final int LINK_LIMIT = 500;
+  private static final long PEER_BACKOFF_MILLIS = 30_000;
+
+  private static final LinkFetcher SHARED =
+      new LinkFetcher(AdjacencyCache.shared(), TitleRegistry.shared(), new PeerLinkClient());
+
+  private final AdjacencyCache cache;
+  private final TitleRegistry registry;
+  private final PeerLinkClient peerClient;
+  private final DisambiguationIndex disambiguation;
+  private final AdjacencyCache backlinkCache =
+      new AdjacencyCache(64L * 1024 * 1024, Duration.ofHours(1));
+  private final Map<String, Long> peerBackoffUntil = new ConcurrentHashMap<>();
+  private final RevisionBatcher revisions = new RevisionBatcher(this::fetchRevisionsFromApi);
+  private volatile ConsistentHashRing ring;
+  private volatile String selfUrl;
+  private volatile String peerSecret;
+  private volatile AdjacencyStore store;
+
+  /**
+   * Create a fetcher.
+   *
+   * @param cache cache of link lists consulted before any network call
+   * @param registry registry used to map URLs to IDs
+   * @param peerClient client used to reach other replicas
+   */
+  public LinkFetcher(AdjacencyCache cache, TitleRegistry registry, PeerLinkClient peerClient) {
+    this(cache, registry, peerClient, DisambiguationIndex.shared());
+  }
+
+  /**
+   * Create a fetcher recording disambiguation pages in the given index.
+   *
+   * @param cache cache of link lists consulted before any network call
+   * @param registry registry used to map URLs to IDs
+   * @param peerClient client used to reach other replicas
+   * @param disambiguation index filled by {@link #fetchPruned}
+   */
+  public LinkFetcher(
+      AdjacencyCache cache,
+      TitleRegistry registry,
+      PeerLinkClient peerClient,
+      DisambiguationIndex disambiguation) {
+    this.cache = cache;
+    this.registry = registry;
+    this.peerClient = peerClient;
+    this.disambiguation = disambiguation;
+  }
+
+  /** Returns the process-wide instance. */
+  public static LinkFetcher shared() {
+    return SHARED;
+  }
+
+  /**
+   * Enables sharding across the given replicas. Passing an empty peer list disables sharding.
+   *
+   * @param selfUrl base URL under which this replica is listed in {@code peerUrls}
+   * @param peerUrls base URLs of all replicas, including this one
+   * @param secret shared secret every replica requires on its peer link endpoint
+   * @throws IllegalArgumentException if peers are given without a secret
+   */
+  public void configurePeers(String selfUrl, Collection<String> peerUrls, String secret) {
+    List<String> peers = new ArrayList<>();
+    for (String peerUrl : peerUrls) {
+      if (!peerUrl.isBlank()) {
+        peers.add(stripTrailingSlash(peerUrl.trim()));
+      }
+    }
+    if (!peers.isEmpty() && (secret == null || secret.isBlank())) {
+      throw new IllegalArgumentException("Peer sharding requires a shared peer secret");
+    }
+    this.selfUrl = selfUrl == null ? null : stripTrailingSlash(selfUrl.trim());
+    this.peerSecret = secret;
+    this.ring = peers.isEmpty() ? null : new ConsistentHashRing(peers);
+    peerBackoffUntil.clear();
+  }
+
+  /**
+   * Calls {@code action} with every {@link TitleRegistry} ID held by the fetcher's link and
+   * backlink caches.
+   */
+  public void forEachId(IntConsumer action) {
+    cache.forEachId(action);
+    backlinkCache.forEachId(action);
+  }
+
+  /** Returns the registry the IDs of fetched links refer to. */
+  public TitleRegistry getRegistry() {
+    return registry;
+  }
+
+  /**
+   * Backs the cache with a persistent store: cache misses are looked up there, and every fetched
+   * link list is added to it. Passing null detaches the store.
+   */
+  public void useStore(AdjacencyStore store) {
+    this.store = store;
+  }
+
+  /**
+   * Returns the outgoing links of {@code pageTitle}, from the cache, the owning peer or the
+   * Wikipedia API.
+   *
+   * @param pageTitle page title (spaces or underscores)
+   * @return the page's links as {@link TitleRegistry} IDs
+   * @throws PageMissingException if the page does not exist
+   * @throws IOException if the links cannot be fetched
+   */
+  public CompressedAdjacency fetch(String pageTitle) throws IOException {
+    int id = registry.idOf(WikipediaApiClient.titleToUrl(pageTitle));
+    CompressedAdjacency cached = lookup(id);
+    if (cached == null) {
+      cached = revalidate(id, pageTitle);
+    }
+    if (cached != null) {
+      return cached;
+    }
+    String owner = remoteOwnerOf(pageTitle);
+    if (owner != null) {
+      try {
+        List<String> urls = new ArrayList<>();
+        for (String title : peerClient.fetchLinks(owner, peerSecret, pageTitle)) {
+          urls.add(WikipediaApiClient.titleToUrl(title));
+        }
+        CompressedAdjacency adjacency = CompressedAdjacency.fromUrls(urls, registry);
+        remember(id, adjacency);
+        return adjacency;
+      } catch (PageMissingException e) {
+        throw e;
+      } catch (IOException e) {
+        // Peer unavailable: back off from it and fall back to the Wikipedia API
+        peerBackoffUntil.put(owner, System.currentTimeMillis() + PEER_BACKOFF_MILLIS);
+      }
+    }
+    return fetchAndCache(id, pageTitle);
+  }
+
+  /**
+   * Returns the outgoing links of {@code pageTitle} from the cache or the Wikipedia API, never
+   * asking a peer. Used to answer peer requests, so requests cannot bounce between replicas.
+   *
+   * @param pageTitle page title (spaces or underscores)
+   * @return the page's links as {@link TitleRegistry} IDs
+   * @throws PageMissingException if the page does not exist
+   * @throws IOException if the links cannot be fetched
+   */
+  public CompressedAdjacency fetchLocally(String pageTitle) throws IOException {
+    int id = registry.idOf(WikipediaApiClient.titleToUrl(pageTitle));
+    CompressedAdjacency cached = lookup(id);
+    if (cached == null) {
+      cached = revalidate(id, pageTitle);
+    }
+    if (cached != null) {
+      return cached;
+    }
+    return fetchAndCache(id, pageTitle);
+  }
+
+  /**
+   * Non-blocking variant of {@link #fetch}: returns the cached links of {@code pageTitle} or
+   * requests them from the owning peer or the Wikipedia API without blocking a thread. Cancelling
+   * the returned future aborts the HTTP request.
+   *
+   * @param pageTitle page title (spaces or underscores)
+   * @return future links as {@link TitleRegistry} IDs; completes exceptionally with a {@link
+   *     PageMissingException} if the page does not exist
+   */
+  public CompletableFuture<CompressedAdjacency> fetchAsync(String pageTitle) {
+    int id = registry.idOf(WikipediaApiClient.titleToUrl(pageTitle));
+    CompressedAdjacency cached = lookup(id);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+    CompressedAdjacency stale = staleLinks(id);
+    if (stale == null) {
+      return downloadAsync(id, pageTitle);
+    }
+    // Callbacks run on the revision lookup thread, so the caller's metrics are captured here
+    SearchMetrics metrics = SearchMetrics.current();
+    AtomicBoolean cancelled = new AtomicBoolean();
+    AtomicReference<CompletableFuture<?>> download = new AtomicReference<>();
+    CompletableFuture<CompressedAdjacency> adjacency =
+        revisions
+            .latestRevision(revisionTitle(pageTitle))
+            .handle((latest, error) -> error == null && keepIfCurrent(id, stale, latest, metrics))
+            .thenCompose(
+                kept -> {
+                  if (kept) {
+                    return CompletableFuture.completedFuture(stale);
+                  }
+                  try (SearchMetrics.Scope ignored = metrics.enter()) {
+                    CompletableFuture<CompressedAdjacency> request = downloadAsync(id, pageTitle);
+                    download.set(request);
+                    if (cancelled.get()) {
+                      request.cancel(true);
+                    }
+                    return request;
+                  }
+                });
+    adjacency.whenComplete(
+        (result, error) -> {
+          if (adjacency.isCancelled()) {
+            cancelled.set(true);
+            CompletableFuture<?> started = download.get();
+            if (started != null) {
+              started.cancel(true);
+            }
+          }
+        });
+    return adjacency;
+  }
+
+  /**
+   * Requests the links of {@code pageTitle} from the peer owning it, or from the Wikipedia API if
+   * it is owned locally or the peer fails, and caches them on arrival.
+   */
+  private CompletableFuture<CompressedAdjacency> downloadAsync(int id, String pageTitle) {
+    String owner = remoteOwnerOf(pageTitle);
+    if (owner == null) {
+      return downloadFromApiAsync(id, pageTitle);
+    }
+    // Callbacks run on the HTTP client's threads, so the caller's metrics are captured here
+    SearchMetrics metrics = SearchMetrics.current();
+    AtomicBoolean cancelled = new AtomicBoolean();
+    AtomicReference<CompletableFuture<?>> fallback = new AtomicReference<>();
+    CompletableFuture<List<String>> request =
+        peerClient.fetchLinksAsync(owner, peerSecret, pageTitle);
+    CompletableFuture<CompressedAdjacency> adjacency =
+        request
+            .thenApply(
+                titles -> {
+                  List<String> urls = new ArrayList<>(titles.size());
+                  for (String title : titles) {
+                    urls.add(WikipediaApiClient.titleToUrl(title));
+                  }
+                  CompressedAdjacency links = CompressedAdjacency.fromUrls(urls, registry);
+                  remember(id, links);
+                  return links;
+                })
+            .exceptionallyCompose(
+                error -> {
+                  Throwable cause = error;
+                  if (cause instanceof CompletionException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                  }
+                  if (cancelled.get() || cause instanceof PageMissingException) {
+                    return CompletableFuture.failedFuture(cause);
+                  }
+                  // Peer unavailable: back off from it and fall back to the Wikipedia API
+                  peerBackoffUntil.put(owner, System.currentTimeMillis() + PEER_BACKOFF_MILLIS);
+                  try (SearchMetrics.Scope ignored = metrics.enter()) {
+                    CompletableFuture<CompressedAdjacency> download =
+                        downloadFromApiAsync(id, pageTitle);
+                    fallback.set(download);
+                    if (cancelled.get()) {
+                      download.cancel(true);
+                    }
+                    return download;
+                  }
+                });
+    adjacency.whenComplete(
+        (result, error) -> {
+          if (adjacency.isCancelled()) {
+            cancelled.set(true);
+            request.cancel(true);
+            CompletableFuture<?> started = fallback.get();
+            if (started != null) {
+              started.cancel(true);
+            }
+          }
+        });
+    return adjacency;
+  }
+
+  /** Requests the links of {@code pageTitle} from the Wikipedia API and caches them on arrival. */
+  private CompletableFuture<CompressedAdjacency> downloadFromApiAsync(int id, String pageTitle) {
+    CompletableFuture<WikipediaApiClient.PageLinks> request = fetchFromApiAsync(pageTitle);
+    CompletableFuture<CompressedAdjacency> adjacency =
+        request.thenApply(
+            page -> {
+              CompressedAdjacency links = toAdjacency(page);
+              remember(id, links);
+              return links;
+            });
+    Futures.propagateCancellation(adjacency, request);
+    return adjacency;
+  }
+
+  /**
+   * Returns the outgoing links of {@code pageTitle} for a search pruned by {@code filter}, or null
+   * if the page exceeds the filter's out-degree cap.
+   *
+   * <p>On a cache miss the links are requested from the Wikipedia API together with the
+   * disambiguation property of every linked page, which is recorded in the {@link
+   * DisambiguationIndex}; at most one link more than the out-degree cap is requested. A complete
+   * result is cached for all searches, while a truncated hub is not cached at all. Peers are not
+   * consulted.
+   *
+   * @param pageTitle page title (spaces or underscores)
+   * @param filter filter whose out-degree cap applies
+   * @return the page's links as {@link TitleRegistry} IDs, or null for a hub
+   * @throws IOException if the links cannot be fetched
+   */
+  public CompressedAdjacency fetchPruned(String pageTitle, LinkFilter filter) throws IOException {
+    int id = registry.idOf(WikipediaApiClient.titleToUrl(pageTitle));
+    CompressedAdjacency adjacency = lookup(id);
+    if (adjacency == null) {
+      adjacency = revalidate(id, pageTitle);
+    }
+    if (adjacency == null) {
+      int limit = filter.apiLinkLimit(LINK_LIMIT);
+      Map<String, Boolean> linked = fetchAnnotatedFromApi(pageTitle, limit);
+      List<String> validUrls = new ArrayList<>(linked.size());
+      for (Map.Entry<String, Boolean> link : linked.entrySet()) {
+        if (PageNode.isWikipediaUrl(link.getKey())) {
+          validUrls.add(link.getKey());
+          if (link.getValue()) {
+            disambiguation.mark(registry.idOf(link.getKey()));
+          }
+        }
+      }
+      if (linked.size() >= limit && limit < LINK_LIMIT) {
+        // More links than the cap: a hub, whose (truncated) links are not worth keeping
+        return null;
+      }
+      adjacency = CompressedAdjacency.fromUrls(validUrls, registry);
+      if (!adjacency.isEmpty()) {
+        // An empty result may also mean a missing page, which fetch() must still report
+        remember(id, adjacency);
+      }
+    }
+    return filter.exceedsOutDegree(adjacency.size()) ? null : adjacency;
+  }
+
+  /**
+   * Returns the pages linking to {@code pageTitle}, from a cache of backlink lists or the Wikipedia
+   * API. Peers are not consulted.
+   *
+   * @param pageTitle page title (spaces or underscores)
+   * @return the linking pages as {@link TitleRegistry} IDs
+   * @throws IOException if the backlinks cannot be fetched
+   */
+  public CompressedAdjacency fetchBacklinks(String pageTitle) throws IOException {
+    int id = registry.idOf(WikipediaApiClient.titleToUrl(pageTitle));
+    CompressedAdjacency cached = backlinkCache.get(id);
+    if (cached != null) {
+      SearchMetrics.current().recordCacheHit();
+      return cached;
+    }
+    SearchMetrics.current().recordCacheMiss();
+    CompressedAdjacency backlinks = toAdjacency(fetchBacklinksFromApi(pageTitle));
+    backlinkCache.put(id, backlinks);
+    return backlinks;
+  }
+
+  /**
+   * Downloads the links of {@code pageTitle} with the disambiguation property of each linked page
+   * from the Wikipedia API (overridable in tests).
+   *
+   * @throws IOException if the API request fails
+   */
+  protected Map<String, Boolean> fetchAnnotatedFromApi(String pageTitle, int limit)
+      throws IOException {
+    return WikipediaApiClient.getOutgoingLinksWithDisambiguation(pageTitle, limit);
+  }
+
+  /**
+   * Downloads the links of {@code pageTitle} from the Wikipedia API (overridable in tests).
+   *
+   * @throws IOException if the API request fails
+   */
+  protected CompressedAdjacency fetchFromApi(String pageTitle) throws IOException {
+    return toAdjacency(WikipediaApiClient.getOutgoingLinks(pageTitle, LINK_LIMIT));
+  }
+
+  /**
+   * Looks up the latest revision of each of {@code titles} on the Wikipedia API, leaving out
+   * missing pages (overridable in tests).
+   *
+   * @throws IOException if the API request fails
+   */
+  protected Map<String, Long> fetchRevisionsFromApi(List<String> titles) throws IOException {
+    return WikipediaApiClient.getRevisions(titles);
+  }
+
+  /**
+   * Downloads the URLs of the pages linking to {@code pageTitle} from the Wikipedia API
+   * (overridable in tests).
+   *
+   * @throws IOException if the API request fails
+   */
+  protected Set<String> fetchBacklinksFromApi(String pageTitle) throws IOException {
+    return WikipediaApiClient.getBacklinks(pageTitle, LINK_LIMIT);
+  }
+
+  /**
+   * Requests the link URLs and revision of {@code pageTitle} without blocking (overridable in
+   * tests).
+   */
+  protected CompletableFuture<WikipediaApiClient.PageLinks> fetchFromApiAsync(String pageTitle) {
+    return WikipediaApiClient.getOutgoingLinksAsync(pageTitle, LINK_LIMIT);
+  }
+
+  /**
+   * Forgets the links of the page at {@code url}, in the cache and the persistent store, and the
+   * cached backlinks of the pages it linked to, e.g. because the page was edited.
+   */
+  public void invalidate(String url) {
+    int id = registry.find(url);
+    if (id >= 0) {
+      CompressedAdjacency links = cache.get(id);
+      if (links != null) {
+        links.forEach(backlinkCache::invalidate);
+      }
+      cache.invalidate(id);
+    }
+    AdjacencyStore currentStore = store;
+    if (currentStore != null) {
+      currentStore.remove(url);
+    }
+  }
+
+  /**
+   * Returns the links of {@code id} from the cache or, failing that, the persistent store, counting
+   * the hit or miss in {@link SearchMetrics}.
+   */
+  private CompressedAdjacency lookup(int id) {
+    CompressedAdjacency cached = cache.get(id);
+    AdjacencyStore currentStore = store;
+    if (cached == null && currentStore != null) {
+      cached = currentStore.get(registry.urlOf(id));
+      if (cached != null) {
+        cache.put(id, cached);
+      }
+    }
+    if (cached != null) {
+      SearchMetrics.current().recordCacheHit();
+    } else {
+      SearchMetrics.current().recordCacheMiss();
+    }
+    return cached;
+  }
+
+  /**
+   * Returns the expired links of {@code id} if its page has not changed since they were fetched,
+   * keeping them for another TTL, or null if they must be downloaded again.
+   *
+   * @throws IOException if the thread is interrupted while waiting for the revision lookup
+   */
+  private CompressedAdjacency revalidate(int id, String pageTitle) throws IOException {
+    CompressedAdjacency stale = staleLinks(id);
+    if (stale == null) {
+      return null;
+    }
+    try {
+      long latest = revisions.latestRevision(revisionTitle(pageTitle)).get();
+      return keepIfCurrent(id, stale, latest, SearchMetrics.current()) ? stale : null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Request interrupted", e);
+    } catch (ExecutionException e) {
+      // Unknown whether the page changed: download its links as on any other miss
+      return null;
+    }
+  }
+
+  /** Returns the expired links of {@code id} still retained, if their revision is known. */
+  private CompressedAdjacency staleLinks(int id) {
+    CompressedAdjacency stale = cache.getStale(id);
+    AdjacencyStore currentStore = store;
+    if (stale == null && currentStore != null) {
+      stale = currentStore.getStale(registry.urlOf(id));
+    }
+    return stale != null && stale.getRevision() != 0 ? stale : null;
+  }
+
+  /** Keeps {@code stale} for another TTL if {@code latest} is still its revision. */
+  private boolean keepIfCurrent(
+      int id, CompressedAdjacency stale, long latest, SearchMetrics metrics) {
+    if (latest != stale.getRevision()) {
+      return false;
+    }
+    remember(id, stale);
+    metrics.recordRevalidation();
+    return true;
+  }
+
+  /** Returns the title under which revision lookups of the same page are combined. */
+  private static String revisionTitle(String pageTitle) {
+    return pageTitle.replace('_', ' ');
+  }
+
+  /** Caches freshly fetched links and adds them to the persistent store, if any. */
+  private void remember(int id, CompressedAdjacency adjacency) {
+    cache.put(id, adjacency);
+    AdjacencyStore currentStore = store;
+    if (currentStore != null) {
+      currentStore.put(registry.urlOf(id), adjacency);
+    }
+  }
+
+  private CompressedAdjacency fetchAndCache(int id, String pageTitle) throws IOException {
+    CompressedAdjacency adjacency = fetchFromApi(pageTitle);
+    remember(id, adjacency);
+    return adjacency;
+  }
+
+  private CompressedAdjacency toAdjacency(WikipediaApiClient.PageLinks page) {
+    return toAdjacency(page.getLinks()).withRevision(page.getRevision());
+  }
+
+  private CompressedAdjacency toAdjacency(Set<String> linkUrls) {
+    List<String> validUrls = new ArrayList<>(linkUrls.size());
+    for (String linkUrl : linkUrls) {
+      // Skip invalid links
+      if (PageNode.isWikipediaUrl(linkUrl)) {
+        validUrls.add(linkUrl);
+      }
+    }
+    return CompressedAdjacency.fromUrls(validUrls, registry);
+  }
+
+  /** Returns the peer owning {@code pageTitle}, or null if it is owned locally or unsharded. */
+  private String remoteOwnerOf(String pageTitle) {
+    ConsistentHashRing currentRing = ring;
+    if (currentRing == null) {
+      return null;
+    }
+    String owner = currentRing.ownerOf(pageTitle.replace(' ', '_'));
+    if (owner.equals(selfUrl)) {
+      return null;
+    }
+    Long backoffUntil = peerBackoffUntil.get(owner);
+    if (backoffUntil != null && backoffUntil > System.currentTimeMillis()) {
+      return null;
+    }
+    return owner;
+  }
+
+  private static String stripTrailingSlash(String url) {
+    return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+  }
+}
@@ -0,0 +1,115 @@
+package com.wikipediafinder.backend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable set of rules deciding which pages a pruned search does not expand.
+ *
+ * <p>Pages with a high branching factor that rarely lie on the paths users want (lists, years,
+ * dates, disambiguation pages, navbox-heavy hubs) are still discovered, and can therefore still be
+ * the target, but their own links are not followed. Three kinds of rules are supported:
+ *
+ * <ul>
+ *   <li>title patterns, matched against the page title (with spaces) using {@link
+ *       java.util.regex.Matcher#find()};
+ *   <li>disambiguation pages, recognized from the {@code disambiguation} page property that the
+ *       API returns alongside the links of the page that links to them;
+ *   <li>a maximum out-degree: pages with more links than this are treated as hubs. The link request
+ *       asks the API for one link more than the cap, so hubs are never downloaded in full.
+ * </ul>
+ */
+public final class LinkFilter {
+  private static final List<String> DEFAULT_TITLE_PATTERNS =
+      List.of(
+          "^Lists? of ",
+          "^Index of ",
+          "^Outline of ",
+          "^Timeline of ",
+          // Years, decades and centuries, e.g. "1999", "44 BC", "1990s", "20th century"
+          "^\\d{1,4}( BC)?$",
+          "^\\d{1,4}s( BC)?$",
+          "^\\d{1,2}(st|nd|rd|th) (century|millennium)( BC)?$",
+          // Calendar dates, e.g. "July 4"
+          "^(January|February|March|April|May|June|July|August|September|October|November"
+              + "|December) \\d{1,2}$");
+
+  private static final LinkFilter DEFAULTS = new LinkFilter(DEFAULT_TITLE_PATTERNS, true, 400);
+
+  private final List<Pattern> titlePatterns;
+  private final boolean excludeDisambiguation;
+  private final int maxOutDegree;
+
+  /**
+   * Create a filter.
+   *
+   * @param titlePatterns regular expressions; a page whose title matches any of them is pruned
+   * @param excludeDisambiguation whether disambiguation pages are pruned
+   * @param maxOutDegree pages with more links than this are pruned; zero or negative for no cap
+   * @throws java.util.regex.PatternSyntaxException if a pattern is invalid
+   */
+  public LinkFilter(List<String> titlePatterns, boolean excludeDisambiguation, int maxOutDegree) {
+    List<Pattern> compiled = new ArrayList<>();
+    for (String titlePattern : titlePatterns) {
+      compiled.add(Pattern.compile(titlePattern));
+    }
+    this.titlePatterns = Collections.unmodifiableList(compiled);
+    this.excludeDisambiguation = excludeDisambiguation;
+    this.maxOutDegree = maxOutDegree;
+  }
+
+  /**
+   * Returns the filter used by the pruned search mode: list, index, outline and timeline pages,
+   * years, decades, centuries and calendar dates, disambiguation pages, and pages with more than
+   * 400 links.
+   */
+  public static LinkFilter defaults() {
+    return DEFAULTS;
+  }
+
+  /** Returns true if the page titled {@code title} matches one of the title patterns. */
+  public boolean excludesTitle(String title) {
+    for (Pattern pattern : titlePatterns) {
+      if (pattern.matcher(title).find()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns true if disambiguation pages are pruned. */
+  public boolean excludesDisambiguation() {
+    return excludeDisambiguation;
+  }
+
+  /** Returns true if a page with {@code outDegree} links exceeds the out-degree cap. */
+  public boolean exceedsOutDegree(int outDegree) {
+    return maxOutDegree > 0 && outDegree > maxOutDegree;
+  }
+
+  /**
+   * Returns how many links to request from the API for one page: one more than the out-degree cap,
+   * so that a hub is recognized without downloading all of its links, but never more than {@code
+   * defaultLimit}.
+   */
+  public int apiLinkLimit(int defaultLimit) {
+    return maxOutDegree > 0 ? Math.min(defaultLimit, maxOutDegree + 1) : defaultLimit;
+  }
+
+  /** Returns a human-readable description of every active rule, reported with search results. */
+  public List<String> describe() {
+    List<String> rules = new ArrayList<>();
+    for (Pattern pattern : titlePatterns) {
+      rules.add("title:" + pattern.pattern());
+    }
+    if (excludeDisambiguation) {
+      rules.add("disambiguation");
+    }
+    if (maxOutDegree > 0) {
+      rules.add("maxOutDegree:" + maxOutDegree);
+    }
+    return rules;
+  }
+}
@@ -0,0 +1,204 @@
+package com.wikipediafinder.backend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Offline copy of the link graph, read from an edge list file, for building a {@link
+ * DistanceIndex}.
+ *
+ * <p>Each line of the file holds the title of a page and the title of a page it links to,
+ * separated by a tab, e.g. as exported from the {@code page} and {@code pagelinks} dump tables.
+ * Titles may use spaces or underscores; blank lines and lines starting with {@code #} are
+ * skipped, and a {@code .gz} file is decompressed. Pages are numbered in the order of their titles'
+ * UTF-8 bytes, and the links are held in compressed sparse row arrays in both directions, without
+ * duplicates or self-links.
+ */
+public final class LinkGraph {
+  private final String[] titles;
+  private final int[] offsets;
+  private final int[] targets;
+  private final int[] inOffsets;
+  private final int[] sources;
+
+  private LinkGraph(String[] titles, int[] offsets, int[] targets) {
+    this.titles = titles;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.inOffsets = new int[titles.length + 1];
+    for (int target : targets) {
+      inOffsets[target + 1]++;
+    }
+    for (int id = 0; id < titles.length; id++) {
+      inOffsets[id + 1] += inOffsets[id];
+    }
+    this.sources = new int[targets.length];
+    int[] fill = Arrays.copyOf(inOffsets, titles.length);
+    for (int id = 0; id < titles.length; id++) {
+      for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+        sources[fill[targets[e]]++] = id;
+      }
+    }
+  }
+
+  /**
+   * Reads the edge list in {@code file}.
+   *
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if a line does not hold two titles
+   */
+  public static LinkGraph read(Path file) throws IOException {
+    InputStream in = Files.newInputStream(file);
+    if (file.getFileName().toString().endsWith(".gz")) {
+      in = new GZIPInputStream(in, 1 << 16);
+    }
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+      return read(reader);
+    }
+  }
+
+  /** Reads an edge list from {@code reader}. */
+  static LinkGraph read(BufferedReader reader) throws IOException {
+    Map<String, Integer> ids = new HashMap<>();
+    int[] edges = new int[1024];
+    int edgeInts = 0;
+    String line;
+    int lineNumber = 0;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      if (line.isBlank() || line.startsWith("#")) {
+        continue;
+      }
+      int tab = line.indexOf('\t');
+      String from = tab < 0 ? "" : normalize(line.substring(0, tab));
+      String to = tab < 0 ? "" : normalize(line.substring(tab + 1));
+      if (from.isEmpty() || to.isEmpty()) {
+        throw new IllegalArgumentException("Line " + lineNumber + " does not hold two titles.");
+      }
+      if (edgeInts + 2 > edges.length) {
+        edges = Arrays.copyOf(edges, edges.length * 2);
+      }
+      edges[edgeInts++] = ids.computeIfAbsent(from, t -> ids.size());
+      edges[edgeInts++] = ids.computeIfAbsent(to, t -> ids.size());
+    }
+    return of(ids, edges, edgeInts / 2);
+  }
+
+  /** Numbers the pages in {@code ids} by title and collects the first {@code count} edges. */
+  private static LinkGraph of(Map<String, Integer> ids, int[] edges, int count) {
+    int n = ids.size();
+    byte[][] encoded = new byte[n][];
+    Integer[] order = new Integer[n];
+    String[] byOldId = new String[n];
+    ids.forEach(
+        (title, id) -> {
+          byOldId[id] = title;
+          encoded[id] = title.getBytes(StandardCharsets.UTF_8);
+          order[id] = id;
+        });
+    Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(encoded[a], encoded[b]));
+    String[] titles = new String[n];
+    int[] newId = new int[n];
+    for (int i = 0; i < n; i++) {
+      titles[i] = byOldId[order[i]];
+      newId[order[i]] = i;
+    }
+    int[] offsets = new int[n + 1];
+    for (int e = 0; e < count; e++) {
+      offsets[newId[edges[2 * e]] + 1]++;
+    }
+    for (int id = 0; id < n; id++) {
+      offsets[id + 1] += offsets[id];
+    }
+    int[] targets = new int[count];
+    int[] fill = Arrays.copyOf(offsets, n);
+    for (int e = 0; e < count; e++) {
+      targets[fill[newId[edges[2 * e]]]++] = newId[edges[2 * e + 1]];
+    }
+    // Sort each page's links and drop duplicates and self-links in place
+    int kept = 0;
+    int start = 0;
+    for (int id = 0; id < n; id++) {
+      int end = offsets[id + 1];
+      Arrays.sort(targets, start, end);
+      offsets[id] = kept;
+      for (int e = start; e < end; e++) {
+        if (targets[e] != id && (kept == offsets[id] || targets[kept - 1] != targets[e])) {
+          targets[kept++] = targets[e];
+        }
+      }
+      start = end;
+    }
+    offsets[n] = kept;
+    return new LinkGraph(titles, offsets, Arrays.copyOf(targets, kept));
+  }
+
+  /** Returns {@code title} with underscores for spaces, as in page URLs and the dumps. */
+  static String normalize(String title) {
+    return title.trim().replace(' ', '_');
+  }
+
+  /** Returns the number of pages. */
+  public int size() {
+    return titles.length;
+  }
+
+  /** Returns the number of links. */
+  public int linkCount() {
+    return targets.length;
+  }
+
+  /** Returns the title of page {@code id}, with underscores for spaces. */
+  public String title(int id) {
+    return titles[id];
+  }
+
+  /** Returns the ID of the page titled {@code title}, or -1 if it is not in the graph. */
+  public int find(String title) {
+    byte[] key = normalize(title).getBytes(StandardCharsets.UTF_8);
+    int low = 0;
+    int high = titles.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = Arrays.compareUnsigned(titles[mid].getBytes(StandardCharsets.UTF_8), key);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /** Out-link offsets by page ID, {@link #size()} + 1 entries. */
+  int[] offsets() {
+    return offsets;
+  }
+
+  /** Out-link targets of all pages, indexed through {@link #offsets()}. */
+  int[] targets() {
+    return targets;
+  }
+
+  /** In-link offsets by page ID, {@link #size()} + 1 entries. */
+  int[] inOffsets() {
+    return inOffsets;
+  }
+
+  /** In-link sources of all pages, indexed through {@link #inOffsets()}. */
+  int[] sources() {
+    return sources;
+  }
+}
@@ -0,0 +1,167 @@
+package com.wikipediafinder.backend;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.IntConsumer;
+
+/**
+ * Loads the links of queued BFS nodes in the background, ahead of the search loop that consumes
+ * them.
+ *
+ * <p>Before polling the next node the search calls {@link #advance(IntQueue)}, which starts a load
+ * for each of the first <em>window</em> queued IDs that has not been requested yet, and after
+ * polling it calls {@link #await(int)}, which waits for that node's own load if one is in flight.
+ * The loader is expected to leave its result in a cache (for {@link PageNode} this is the {@link
+ * AdjacencyCache} behind {@link LinkFetcher}), so the expansion that follows finds the links
+ * without a network call.
+ *
+ * <p>The window is sized from two moving averages: the latency of a load and the time the search
+ * spends on a node when it does not have to wait. Their ratio is the number of loads that must be
+ * in flight for the search never to block; it is clamped to {@code [minWindow, maxWindow]}, so
+ * slow fetches widen the window and cache hits shrink it. {@link #cancel()} abandons the
+ * outstanding loads, e.g. once the target has been found.
+ *
+ * <p>Methods other than the background loads themselves must be called from the search thread.
+ */
+public class LookaheadPrefetcher {
+  // Weight of a new sample in the moving averages
+  private static final double SMOOTHING = 0.2;
+
+  private final Executor executor;
+  private final IntConsumer loader;
+  private final int minWindow;
+  private final int maxWindow;
+  private final BitSet requested = new BitSet();
+  private final Map<Integer, FutureTask<Void>> inFlight = new HashMap<>();
+
+  private volatile double loadNanos;
+  private double nodeNanos;
+  private long lastAdvanceNanos;
+  private long blockedNanos;
+  private int window;
+
+  /**
+   * Create a prefetcher.
+   *
+   * @param executor executor running the loads
+   * @param loader loads (and caches) the links of the given {@link TitleRegistry} ID; exceptions
+   *     are ignored, the search will retry the load itself
+   * @param minWindow smallest number of queued nodes to load ahead (at least 1)
+   * @param maxWindow largest number of queued nodes to load ahead
+   * @throws IllegalArgumentException if the window bounds are invalid
+   */
+  public LookaheadPrefetcher(Executor executor, IntConsumer loader, int minWindow, int maxWindow) {
+    if (minWindow < 1 || maxWindow < minWindow) {
+      throw new IllegalArgumentException("Window bounds must satisfy 1 <= min <= max.");
+    }
+    this.executor = executor;
+    this.loader = loader;
+    this.minWindow = minWindow;
+    this.maxWindow = maxWindow;
+    this.window = minWindow;
+  }
+
+  /**
+   * Starts loads for the first {@link #getWindow()} IDs of {@code queue} that have not been
+   * requested before, keeping at most that many loads in flight.
+   */
+  public void advance(IntQueue queue) {
+    long now = System.nanoTime();
+    if (lastAdvanceNanos != 0) {
+      nodeNanos = average(nodeNanos, Math.max(1, now - lastAdvanceNanos - blockedNanos));
+      window = computeWindow();
+    }
+    lastAdvanceNanos = now;
+    blockedNanos = 0;
+
+    inFlight.values().removeIf(FutureTask::isDone);
+    int limit = Math.min(window, queue.size());
+    for (int i = 0; i < limit && inFlight.size() < window; i++) {
+      int id = queue.peek(i);
+      if (!requested.get(id)) {
+        requested.set(id);
+        FutureTask<Void> task = new FutureTask<>(() -> load(id), null);
+        inFlight.put(id, task);
+        executor.execute(task);
+      }
+    }
+  }
+
+  /**
+   * Waits for the load of {@code id} if one is in flight. A load that no pool thread has started
+   * yet is run on the calling thread instead, rather than waiting behind the pool's queue. Returns
+   * immediately if there is no load, or if the calling thread is interrupted.
+   */
+  public void await(int id) {
+    FutureTask<Void> task = inFlight.remove(id);
+    if (task == null || task.isDone()) {
+      return;
+    }
+    // No-op if a pool thread is already running the load; its later run is then a no-op instead
+    task.run();
+    long begin = System.nanoTime();
+    try {
+      task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | CancellationException e) {
+      // The search loads the node itself
+    } finally {
+      blockedNanos += System.nanoTime() - begin;
+    }
+  }
+
+  /**
+   * Cancels every load that has not started yet. Loads already running are left to finish so that
+   * their results still reach the cache.
+   */
+  public void cancel() {
+    Iterator<FutureTask<Void>> tasks = inFlight.values().iterator();
+    while (tasks.hasNext()) {
+      tasks.next().cancel(false);
+      tasks.remove();
+    }
+  }
+
+  /** Returns the current lookahead window. */
+  public int getWindow() {
+    return window;
+  }
+
+  /** Returns the number of loads started and not yet awaited, completed or cancelled. */
+  public int getInFlight() {
+    inFlight.values().removeIf(FutureTask::isDone);
+    return inFlight.size();
+  }
+
+  private void load(int id) {
+    long begin = System.nanoTime();
+    try {
+      loader.accept(id);
+    } finally {
+      recordLoad(System.nanoTime() - begin);
+    }
+  }
+
+  private synchronized void recordLoad(long nanos) {
+    loadNanos = average(loadNanos, nanos);
+  }
+
+  private int computeWindow() {
+    if (loadNanos == 0) {
+      return window;
+    }
+    long needed = (long) Math.ceil(loadNanos / nodeNanos);
+    return (int) Math.max(minWindow, Math.min(maxWindow, needed));
+  }
+
+  private static double average(double current, double sample) {
+    return current == 0 ? sample : current + SMOOTHING * (sample - current);
+  }
+}
@@ -0,0 +1,50 @@
+package com.wikipediafinder.backend;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Unmaps memory-mapped files before the buffers are collected, so that the disk space of deleted
+ * files is released at once. The JDK offers no public way to do this; {@code
+ * sun.misc.Unsafe.invokeCleaner} is used when available, and the buffer is otherwise left to the
+ * garbage collector.
+ */
+final class MappedBuffers {
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      Class<?> type = Class.forName("sun.misc.Unsafe");
+      Field field = type.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      unsafe = field.get(null);
+      invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      System.err.println("Mapped files are unmapped when collected: " + e);
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+
+  private MappedBuffers() {}
+
+  /**
+   * Unmaps {@code buffer}. The caller must make sure no thread uses it afterwards: an access to an
+   * unmapped buffer crashes the JVM.
+   */
+  static void unmap(MappedByteBuffer buffer) {
+    if (INVOKE_CLEANER == null || buffer == null) {
+      return;
+    }
+    try {
+      INVOKE_CLEANER.invoke(UNSAFE, buffer);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // Left to the garbage collector
+    }
+  }
+}
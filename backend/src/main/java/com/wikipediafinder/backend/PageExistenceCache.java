@@ -0,0 +1,78 @@
+package com.wikipediafinder.backend;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+
+/**
+ * Process-wide record of which Wikipedia titles are known to exist and which are known to be
+ * missing.
+ *
+ * <p>Both verdicts are kept in bounded Caffeine caches, and only verdicts the Wikipedia API
+ * confirmed are recorded, so a title reported missing really was missing when it was checked: it
+ * is safe to reject it up front or to skip it during a search. Recording one verdict drops the
+ * other, which protects pages that were created after being seen as missing. Titles that fall out
+ * of the caches are simply checked again.
+ *
+ * <p>The shared instance is used by {@link PageNode} (which records pages that turn out to be
+ * missing while fetching links) and by {@link PageExistenceChecker} (which validates user input
+ * before a search starts).
+ */
+public class PageExistenceCache {
+  private static final PageExistenceCache SHARED =
+      new PageExistenceCache(100_000, 100_000, Duration.ofDays(1));
+
+  private final Cache<String, Boolean> missing;
+  private final Cache<String, Boolean> existing;
+
+  /**
+   * Create a cache.
+   *
+   * @param missingCapacity maximum number of missing titles remembered
+   * @param existingCapacity maximum number of existing titles remembered
+   * @param ttl how long a title is remembered either way
+   */
+  public PageExistenceCache(long missingCapacity, long existingCapacity, Duration ttl) {
+    this.missing = Caffeine.newBuilder().maximumSize(missingCapacity).expireAfterWrite(ttl).build();
+    this.existing =
+        Caffeine.newBuilder().maximumSize(existingCapacity).expireAfterWrite(ttl).build();
+  }
+
+  /** Returns the process-wide instance. */
+  public static PageExistenceCache shared() {
+    return SHARED;
+  }
+
+  /**
+   * Looks up what is known about {@code title}.
+   *
+   * @return {@code TRUE} if the page is known to exist, {@code FALSE} if it is known to be missing,
+   *     or {@code null} if nothing is known
+   */
+  public Boolean lookup(String title) {
+    if (existing.getIfPresent(title) != null) {
+      return Boolean.TRUE;
+    }
+    if (missing.getIfPresent(title) != null) {
+      return Boolean.FALSE;
+    }
+    return null;
+  }
+
+  /** Returns true if {@code title} is known to be missing. */
+  public boolean isKnownMissing(String title) {
+    return Boolean.FALSE.equals(lookup(title));
+  }
+
+  /** Records that {@code title} exists. */
+  public void markExisting(String title) {
+    missing.invalidate(title);
+    existing.put(title, Boolean.TRUE);
+  }
+
+  /** Records that {@code title} does not exist. */
+  public void markMissing(String title) {
+    existing.invalidate(title);
+    missing.put(title, Boolean.TRUE);
+  }
+}
@@ -0,0 +1,95 @@
+package com.wikipediafinder.backend;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.stereotype.Service;
+
+/**
+ * Pre-flight validation of user-supplied pages before a search starts.
+ *
+ * <p>Titles are first looked up in the shared {@link PageExistenceCache}; all titles that are not
+ * known either way are then checked with a single batched Wikipedia API request and the answers
+ * are recorded in the cache. A misspelled start or target page is therefore rejected in one round
+ * trip the first time, and without any network access afterwards, instead of letting BFS exhaust
+ * its whole node budget looking for a page that does not exist.
+ */
+@Service
+public class PageExistenceChecker {
+
+  private final PageExistenceCache cache;
+
+  /** Create a checker backed by the shared {@link PageExistenceCache}. */
+  public PageExistenceChecker() {
+    this(PageExistenceCache.shared());
+  }
+
+  /**
+   * Create a checker backed by the given cache (used by tests).
+   *
+   * @param cache existence cache to consult and update
+   */
+  public PageExistenceChecker(PageExistenceCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Returns the subset of {@code urls} that do not refer to an existing Wikipedia page.
+   *
+   * <p>If the Wikipedia API cannot be reached, pages whose existence is unknown are assumed to
+   * exist so that an upstream outage never rejects valid queries.
+   *
+   * @param urls fully-qualified Wikipedia URLs to validate
+   * @return the URLs that are known not to exist (empty if all exist)
+   */
+  public List<String> findMissingPages(String... urls) {
+    List<String> missing = new ArrayList<>();
+    Map<String, String> unknownTitles = new LinkedHashMap<>();
+    for (String url : urls) {
+      String title = WikipediaApiClient.urlToTitle(url);
+      if (title == null || title.isBlank()) {
+        missing.add(url);
+        continue;
+      }
+      Boolean known = cache.lookup(title);
+      if (known == null) {
+        unknownTitles.put(url, title);
+      } else if (!known) {
+        missing.add(url);
+      }
+    }
+    if (unknownTitles.isEmpty()) {
+      return missing;
+    }
+
+    Map<String, Boolean> exists;
+    try {
+      exists = fetchExistence(new ArrayList<>(unknownTitles.values()));
+    } catch (IOException e) {
+      return missing;
+    }
+    for (Map.Entry<String, String> entry : unknownTitles.entrySet()) {
+      String title = entry.getValue();
+      if (exists.getOrDefault(title, true)) {
+        cache.markExisting(title);
+      } else {
+        cache.markMissing(title);
+        missing.add(entry.getKey());
+      }
+    }
+    return missing;
+  }
+
+  /**
+   * Checks the given titles against the Wikipedia API (overridable in tests).
+   *
+   * @param titles titles whose existence is unknown
+   * @return map from each title to whether the page exists
+   * @throws IOException if the API request fails
+   */
+  protected Map<String, Boolean> fetchExistence(List<String> titles) throws IOException {
+    return WikipediaApiClient.checkPagesExist(titles);
+  }
+}
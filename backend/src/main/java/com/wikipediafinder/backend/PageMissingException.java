@@ -0,0 +1,23 @@
+package com.wikipediafinder.backend;
+
+import java.io.IOException;
+
+/** Thrown when the Wikipedia API reports that a requested page does not exist. */
+public class PageMissingException extends IOException {
+  private final String pageTitle;
+
+  /**
+   * Create a new exception for the given title.
+   *
+   * @param pageTitle the title that the API reported as missing or invalid
+   */
+  public PageMissingException(String pageTitle) {
+    super("Wikipedia page does not exist: " + pageTitle);
+    this.pageTitle = pageTitle;
+  }
+
+  /** Returns the title that the API reported as missing or invalid. */
+  public String getPageTitle() {
+    return pageTitle;
+  }
+}
@@ -3,6 +3,7 @@ package com.wikipediafinder.backend;
 import com.wikipediafinder.backend.interfaces.PageNodeInterface;
 import java.io.IOException;
 import java.util.*;
+import java.util.function.IntConsumer;
 
 /**
  * Represents a Wikipedia page and provides access to its outgoing (hyperlink) neighbors.
@@ -19,8 +20,9 @@ public class PageNode implements PageNodeInterface {
   private String url;
   private String pageTitle;
   private boolean validPage;
-  private Map<String, PageNode> outLinks;
-  private String WIKI_LINK_PREFIX = "https://en.wikipedia.org";
+  private CompressedAdjacency outLinks;
+  private final LinkFilter linkFilter;
+  private static final String WIKI_LINK_PREFIX = "https://en.wikipedia.org";
 
   /**
    * Construct a PageNode for the given URL. The constructor performs validation to ensure the URL
@@ -32,11 +34,21 @@ public class PageNode implements PageNodeInterface {
    * @throws IllegalArgumentException if the URL is null or does not start with the wiki prefix
    */
   public PageNode(String url) {
+    this(url, null);
+  }
+
+  /**
+   * Construct a PageNode whose links are only followed if {@code linkFilter} does not prune it. A
+   * pruned page keeps an empty link list: it can still be reached, but is not expanded.
+   *
+   * @param url fully-qualified Wikipedia URL (must start with the official wiki prefix)
+   * @param linkFilter filter applied when loading links, or null to load them unfiltered
+   * @throws IllegalArgumentException if the URL is null or does not start with the wiki prefix
+   */
+  public PageNode(String url, LinkFilter linkFilter) {
 
     // Validate input URL
-    if (url == null
-        || url.length() < WIKI_LINK_PREFIX.length()
-        || !url.startsWith(WIKI_LINK_PREFIX)) {
+    if (!isWikipediaUrl(url)) {
       throw new IllegalArgumentException("Invalid URL for PageNode: " + url);
     }
 
@@ -46,43 +58,93 @@ public class PageNode implements PageNodeInterface {
     // Assume valid until proven otherwise during findOutgoingLinks()
     this.validPage = true;
 
-    outLinks = new HashMap<>();
+    outLinks = CompressedAdjacency.EMPTY;
+    this.linkFilter = linkFilter;
   }
 
   /**
    * Loads and caches up to 10 outgoing links using the Wikipedia API. This is significantly faster
-   * than parsing HTML. Links are fetched using the Wikipedia API and converted to PageNode objects
-   * (without making additional network requests per link).
+   * than parsing HTML. Links are obtained through {@link LinkFetcher} (shared cache, owning peer or
+   * the Wikipedia API) and held as a {@link CompressedAdjacency} of {@link TitleRegistry} IDs
+   * (without making additional network requests per link). Each call is recorded as a {@link
+   * FlightEvents.PageLoadEvent}.
    */
   public void findOutgoingLinks() {
+    FlightEvents.PageLoadEvent event = new FlightEvents.PageLoadEvent();
+    event.begin();
+    boolean pruned = loadOutgoingLinks();
+    event.end(pageTitle, outLinks.size(), pruned, validPage);
+  }
+
+  /** Loads the links for {@link #findOutgoingLinks()}; returns true if the page was pruned. */
+  private boolean loadOutgoingLinks() {
     if (pageTitle == null) {
       validPage = false;
-      return; // No links to process if the page title is invalid
+      return false; // No links to process if the page title is invalid
+    }
+    if (PageExistenceCache.shared().isKnownMissing(pageTitle)) {
+      validPage = false;
+      return false; // Skip the API call for pages already known not to exist
+    }
+
+    if (linkFilter != null) {
+      return findFilteredOutgoingLinks();
     }
 
     try {
-      Set<String> linkUrls = WikipediaApiClient.getOutgoingLinks(pageTitle, 500);
-
-      for (String linkUrl : linkUrls) {
-        if (!outLinks.containsKey(linkUrl)) {
-          // Create a lightweight PageNode without triggering additional API calls
-          try {
-            PageNode outPage = new PageNode(linkUrl);
-            outLinks.put(linkUrl, outPage);
-          } catch (IllegalArgumentException ignored) {
-            // Skip invalid links
-          }
-        }
+      CompressedAdjacency links = LinkFetcher.shared().fetch(pageTitle);
+      PageExistenceCache.shared().markExisting(pageTitle);
+      outLinks = outLinks.union(links);
+    } catch (PageMissingException e) {
+      // Remember the missing page so later searches skip it (and reject it up front)
+      PageExistenceCache.shared().markMissing(pageTitle);
+      validPage = false;
+    } catch (IOException e) {
+      System.err.println("Failed to fetch links for: " + url);
+      e.printStackTrace();
+      validPage = false;
+    }
+    return false;
+  }
+
+  /**
+   * Loads the links of a page that {@link #linkFilter} does not prune, as a leaf otherwise.
+   * Returns true if the page was pruned.
+   */
+  private boolean findFilteredOutgoingLinks() {
+    if (linkFilter.excludesTitle(pageTitle)) {
+      return true;
+    }
+    if (linkFilter.excludesDisambiguation()
+        && DisambiguationIndex.shared().contains(TitleRegistry.shared().idOf(url))) {
+      return true;
+    }
+    try {
+      CompressedAdjacency links = LinkFetcher.shared().fetchPruned(pageTitle, linkFilter);
+      if (links == null) {
+        return true;
+      }
+      if (links.isEmpty()) {
+        // The pruned request cannot tell a missing page from one without links; fetch() can
+        links = LinkFetcher.shared().fetch(pageTitle);
       }
+      PageExistenceCache.shared().markExisting(pageTitle);
+      outLinks = outLinks.union(links);
+    } catch (PageMissingException e) {
+      // Remember the missing page so later searches skip it (and reject it up front)
+      PageExistenceCache.shared().markMissing(pageTitle);
+      validPage = false;
     } catch (IOException e) {
       System.err.println("Failed to fetch links for: " + url);
       e.printStackTrace();
       validPage = false;
     }
+    return false;
   }
 
   /**
-   * Replace the outgoing links map (used by tests to mock graph structure).
+   * Replace the outgoing links (used by tests to mock graph structure). Only the keys of the map
+   * are kept; the {@link PageNode} values are not retained.
    *
    * @throws IllegalArgumentException if {@code outLinks} is null
    */
@@ -90,7 +152,7 @@ public class PageNode implements PageNodeInterface {
     if (outLinks == null) {
       throw new IllegalArgumentException("Outgoing links map cannot be null.");
     }
-    this.outLinks = outLinks;
+    this.outLinks = CompressedAdjacency.fromUrls(outLinks.keySet(), TitleRegistry.shared());
   }
 
   /** Returns true if the underlying page was successfully loaded. */
@@ -103,19 +165,49 @@ public class PageNode implements PageNodeInterface {
     return this.url;
   }
 
-  /** Returns the set of outgoing link URLs (keys of the internal map). */
+  /** Returns the set of outgoing link URLs (decoded from the compact link list on each call). */
   public Set<String> getOutLinks() {
-    return this.outLinks.keySet();
+    TitleRegistry registry = TitleRegistry.shared();
+    Set<String> urls = new LinkedHashSet<>();
+    outLinks.forEach(id -> urls.add(registry.urlOf(id)));
+    return urls;
   }
 
-  /** Returns the set of outgoing PageNode objects (values of the internal map). */
+  /** Returns a new, unfetched PageNode for every outgoing link (created on each call). */
   public Set<PageNode> getOutNodes() {
-    return new HashSet<>(outLinks.values());
+    Set<PageNode> nodes = new HashSet<>();
+    for (String linkUrl : getOutLinks()) {
+      nodes.add(new PageNode(linkUrl));
+    }
+    return nodes;
+  }
+
+  /**
+   * Returns the outgoing links as {@link TitleRegistry} IDs. The returned list is the node's own
+   * immutable link list (no copy is made); iterate it with a reusable {@link
+   * CompressedAdjacency.Cursor} to avoid allocating.
+   */
+  public CompressedAdjacency getOutLinkIds() {
+    return outLinks;
+  }
+
+  /**
+   * Calls {@code action} with the {@link TitleRegistry} ID of every outgoing link in ascending
+   * order. No PageNode or URL string is created.
+   */
+  public void forEachNeighbor(IntConsumer action) {
+    getOutLinkIds().forEach(action);
   }
 
   /** Returns true if this node has an outgoing link to the provided URL. */
   public boolean hasLink(String link) {
-    return outLinks.containsKey(link);
+    int id = TitleRegistry.shared().find(link);
+    return id >= 0 && outLinks.contains(id);
+  }
+
+  /** Returns true if {@code url} looks like a link to an English Wikipedia page. */
+  static boolean isWikipediaUrl(String url) {
+    return url != null && url.startsWith(WIKI_LINK_PREFIX);
   }
 
   /** Equality is based on the page URL. */
@@ -0,0 +1,90 @@
+package com.wikipediafinder.backend;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Cheap estimate of how close a page is to a search target, used by the heuristic search of {@link
+ * BFS#getPathWithStatsHeuristic} to rank its frontier.
+ *
+ * <p>A page scores by the words of its title: one point for each word shared with the target's
+ * title, plus, for each word, the fraction of the target's backlinks whose titles contain it. The
+ * second signal captures the target's neighborhood ("Kevin Bacon" is linked from "Footloose" and
+ * from pages about actors) without any request beyond the target's backlinks, which the search
+ * also uses to recognize pages one hop from the target. The sum is divided by the square root of
+ * the title's word count, so long titles do not win by length alone. Words shorter than three
+ * characters are ignored. Not thread-safe.
+ */
+public final class PathHeuristic {
+  private static final int MIN_WORD_LENGTH = 3;
+
+  private final TitleRegistry registry;
+  private final List<String> targetWords;
+  private final Map<String, Double> backlinkWordWeights = new HashMap<>();
+  private final BitSet backlinks = new BitSet();
+
+  /**
+   * Create a heuristic for one target.
+   *
+   * @param targetUrl URL of the target page
+   * @param targetBacklinks pages linking to the target, or null if unknown
+   * @param registry registry mapping IDs to URLs
+   */
+  public PathHeuristic(
+      String targetUrl, CompressedAdjacency targetBacklinks, TitleRegistry registry) {
+    this.registry = registry;
+    this.targetWords = words(targetUrl);
+    if (targetBacklinks != null && !targetBacklinks.isEmpty()) {
+      Map<String, Integer> counts = new HashMap<>();
+      targetBacklinks.forEach(
+          id -> {
+            backlinks.set(id);
+            for (String word : words(registry.urlOf(id))) {
+              counts.merge(word, 1, Integer::sum);
+            }
+          });
+      double total = targetBacklinks.size();
+      counts.forEach((word, count) -> backlinkWordWeights.put(word, count / total));
+    }
+  }
+
+  /** Returns whether page {@code id} is known to link to the target. */
+  public boolean linksToTarget(int id) {
+    return backlinks.get(id);
+  }
+
+  /** Returns the score of page {@code id}; higher means likely closer to the target. */
+  public float score(int id) {
+    List<String> words = words(registry.urlOf(id));
+    if (words.isEmpty()) {
+      return 0;
+    }
+    double score = 0;
+    for (String word : words) {
+      if (targetWords.contains(word)) {
+        score += 1;
+      }
+      score += backlinkWordWeights.getOrDefault(word, 0.0);
+    }
+    return (float) (score / Math.sqrt(words.size()));
+  }
+
+  /** Returns the distinct lower-case words of the title of the page at {@code url}. */
+  static List<String> words(String url) {
+    String title = WikipediaApiClient.urlToTitle(url);
+    List<String> words = new ArrayList<>();
+    if (title == null) {
+      return words;
+    }
+    for (String word : title.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+      if (word.length() >= MIN_WORD_LENGTH && !words.contains(word)) {
+        words.add(word);
+      }
+    }
+    return words;
+  }
+}
@@ -0,0 +1,166 @@
+package com.wikipediafinder.backend;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Client for the peer link endpoint ({@code GET /internal/links?title=...}) exposed by every
+ * backend replica.
+ *
+ * <p>Link lists travel in a small binary format: a big-endian {@code int} count followed by that
+ * many titles, each written with {@link DataOutputStream#writeUTF(String)}. A peer answers 404 if
+ * the page does not exist, and 403 if the request does not carry the shared peer secret. Requests
+ * use a short timeout so that an unreachable peer only delays a fetch briefly before the caller
+ * falls back to the Wikipedia API.
+ */
+public class PeerLinkClient {
+  /** Path of the peer link endpoint, relative to a peer's base URL. */
+  public static final String LINKS_PATH = "/internal/links";
+
+  /** Header carrying the shared secret that peers require on {@link #LINKS_PATH}. */
+  public static final String SECRET_HEADER = "X-Peer-Secret";
+
+  private final HttpClient httpClient =
+      HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+  private final Duration requestTimeout;
+
+  /** Create a client with a two-second request timeout. */
+  public PeerLinkClient() {
+    this(Duration.ofSeconds(2));
+  }
+
+  /**
+   * Create a client with a custom request timeout.
+   *
+   * @param requestTimeout maximum time to wait for a peer's response
+   */
+  public PeerLinkClient(Duration requestTimeout) {
+    this.requestTimeout = requestTimeout;
+  }
+
+  /**
+   * Fetches the outgoing link titles of {@code pageTitle} from the peer at {@code peerBaseUrl}.
+   *
+   * @param peerBaseUrl base URL of the peer (e.g. {@code http://10.0.0.2:8080})
+   * @param secret shared peer secret sent in the {@link #SECRET_HEADER} header
+   * @param pageTitle title of the page whose links are wanted
+   * @return the titles of the linked pages
+   * @throws PageMissingException if the peer reports that the page does not exist
+   * @throws IOException if the peer cannot be reached or answers with an error
+   */
+  public List<String> fetchLinks(String peerBaseUrl, String secret, String pageTitle)
+      throws IOException {
+    HttpResponse<byte[]> response;
+    try {
+      HttpRequest request = linksRequest(peerBaseUrl, secret, pageTitle);
+      response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Request interrupted", e);
+    }
+    SearchMetrics.current().recordHttpRequest(response.body().length);
+    return decode(peerBaseUrl, pageTitle, response);
+  }
+
+  /**
+   * Non-blocking variant of {@link #fetchLinks}. Cancelling the returned future aborts the HTTP
+   * exchange.
+   *
+   * @return future titles of the linked pages; completes exceptionally with a {@link
+   *     PageMissingException} if the peer reports that the page does not exist, or with another
+   *     {@link IOException} if the peer cannot be reached or answers with an error
+   */
+  public CompletableFuture<List<String>> fetchLinksAsync(
+      String peerBaseUrl, String secret, String pageTitle) {
+    // Callbacks run on the HTTP client's threads, so the caller's metrics are captured here
+    SearchMetrics metrics = SearchMetrics.current();
+    HttpRequest request = linksRequest(peerBaseUrl, secret, pageTitle);
+    CompletableFuture<HttpResponse<byte[]>> response =
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+    CompletableFuture<List<String>> titles =
+        response.thenApply(
+            received -> {
+              metrics.recordHttpRequest(received.body().length);
+              try {
+                return decode(peerBaseUrl, pageTitle, received);
+              } catch (IOException e) {
+                throw new CompletionException(e);
+              }
+            });
+    Futures.propagateCancellation(titles, response);
+    return titles;
+  }
+
+  private HttpRequest linksRequest(String peerBaseUrl, String secret, String pageTitle) {
+    String url =
+        peerBaseUrl + LINKS_PATH + "?title=" + URLEncoder.encode(pageTitle, StandardCharsets.UTF_8);
+    return HttpRequest.newBuilder()
+        .uri(URI.create(url))
+        .header(SECRET_HEADER, secret)
+        .timeout(requestTimeout)
+        .GET()
+        .build();
+  }
+
+  /** Returns the titles in a peer's {@code response} for {@code pageTitle}. */
+  private static List<String> decode(
+      String peerBaseUrl, String pageTitle, HttpResponse<byte[]> response) throws IOException {
+    if (response.statusCode() == 404) {
+      throw new PageMissingException(pageTitle);
+    }
+    if (response.statusCode() != 200) {
+      throw new IOException(
+          "Peer " + peerBaseUrl + " returned status code: " + response.statusCode());
+    }
+    return decode(response.body());
+  }
+
+  /** Encodes link titles in the peer wire format. */
+  public static byte[] encode(Collection<String> titles) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(titles.size());
+      for (String title : titles) {
+        out.writeUTF(title);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes link titles from the peer wire format.
+   *
+   * @throws IOException if the payload is truncated or malformed
+   */
+  public static List<String> decode(byte[] payload) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+      int count = in.readInt();
+      if (count < 0) {
+        throw new IOException("Malformed peer payload: negative link count");
+      }
+      List<String> titles = new ArrayList<>(Math.min(count, 4096));
+      for (int i = 0; i < count; i++) {
+        titles.add(in.readUTF());
+      }
+      return titles;
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package com.wikipediafinder.backend;
+
+import java.util.Arrays;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies the {@code wikipediafinder.peers}, {@code wikipediafinder.self-url} and {@code
+ * wikipediafinder.peer-secret} properties to the application's {@link LinkFetcher} at startup. With
+ * no peers configured every replica fetches links from Wikipedia on its own, as before; peers
+ * without a secret fail the startup rather than expose an unauthenticated endpoint.
+ */
+@Component
+public class PeerSharding {
+
+  public PeerSharding(
+      LinkFetcher fetcher,
+      @Value("${wikipediafinder.peers:}") String peers,
+      @Value("${wikipediafinder.self-url:}") String selfUrl,
+      @Value("${wikipediafinder.peer-secret:}") String secret) {
+    fetcher.configurePeers(selfUrl, Arrays.asList(peers.split(",")), secret);
+  }
+}
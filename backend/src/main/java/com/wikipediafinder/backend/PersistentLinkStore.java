@@ -0,0 +1,60 @@
+package com.wikipediafinder.backend;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens the {@link AdjacencyStore} in {@code wikipediafinder.store.dir} at startup and attaches it
+ * to {@link LinkFetcher#shared()}, so link lists fetched before a restart are served from disk.
+ * Compacts the store on a schedule and closes it on shutdown. With an empty directory, or if the
+ * store cannot be opened, links are only cached in memory, as before.
+ */
+@Component
+public class PersistentLinkStore {
+  private static final int SEGMENT_BYTES = 64 * 1024 * 1024;
+
+  private final AdjacencyStore store;
+
+  public PersistentLinkStore(
+      @Value("${wikipediafinder.store.dir:}") String dir,
+      @Value("${wikipediafinder.store.ttl:7d}") Duration ttl,
+      @Value("${wikipediafinder.store.max-size-mb:4096}") long maxSizeMb) {
+    AdjacencyStore opened = null;
+    if (!dir.isBlank()) {
+      try {
+        opened =
+            new AdjacencyStore(
+                Path.of(dir), TitleRegistry.shared(), ttl, SEGMENT_BYTES, maxSizeMb * 1024 * 1024);
+        System.err.println("Link store opened with " + opened.size() + " pages");
+      } catch (IOException | RuntimeException e) {
+        System.err.println("Link store unavailable, caching in memory only: " + e);
+      }
+    }
+    this.store = opened;
+    LinkFetcher.shared().useStore(opened);
+  }
+
+  /** Reclaims dead segments and enforces the disk budget. */
+  @Scheduled(
+      initialDelayString = "${wikipediafinder.store.compaction-interval:PT10M}",
+      fixedDelayString = "${wikipediafinder.store.compaction-interval:PT10M}")
+  public void compact() {
+    if (store != null) {
+      store.compact();
+    }
+  }
+
+  /** Detaches and closes the store. */
+  @PreDestroy
+  public void close() {
+    if (store != null) {
+      LinkFetcher.shared().useStore(null);
+      store.close();
+    }
+  }
+}
@@ -0,0 +1,277 @@
+package com.wikipediafinder.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes a 2-hop labeling of a {@link LinkGraph} by pruned landmark labeling (Akiba, Iwata and
+ * Yoshida, SIGMOD 2013), for {@link DistanceIndex}.
+ *
+ * <p>Every page gets an out-label of hubs it reaches and an in-label of hubs reaching it, each
+ * with the distance and the next page towards the hub. The distance from {@code s} to {@code t}
+ * is then the smallest sum over the hubs in both the out-label of {@code s} and the in-label of
+ * {@code t}. Pages become hubs in order of degree: each runs a forward and a backward BFS that
+ * labels the pages it reaches, but stops at pages whose distance the labels already give, so the
+ * many BFSs after the first few stay small.
+ *
+ * <p>The first hubs prune the most and run one at a time. The rest run in batches on a {@link
+ * ForkJoinPool}, each BFS pruning with the labels of the earlier batches only; that labels some
+ * pages a hub of the same batch would have pruned, but every label still follows a real path and
+ * the distances stay exact.
+ */
+final class PrunedLandmarkLabeling {
+  // Hubs labeled one at a time before the batches start
+  private static final int SEQUENTIAL_HUBS = 256;
+  private static final int INFINITE = Integer.MAX_VALUE;
+  // Ints per label entry: hub rank, distance, next page towards the hub
+  static final int ENTRY_INTS = 3;
+
+  private final LinkGraph graph;
+  private final int[] hubs;
+  private final int[][] outLabels;
+  private final int[][] inLabels;
+  private final int[] outSizes;
+  private final int[] inSizes;
+
+  private PrunedLandmarkLabeling(LinkGraph graph) {
+    int n = graph.size();
+    this.graph = graph;
+    this.hubs = rankByDegree(graph);
+    this.outLabels = new int[n][];
+    this.inLabels = new int[n][];
+    this.outSizes = new int[n];
+    this.inSizes = new int[n];
+  }
+
+  /**
+   * Labels every page of {@code graph}.
+   *
+   * @param graph graph labeled
+   * @param pool pool running the batches of BFSs
+   * @return the labeling
+   */
+  static PrunedLandmarkLabeling compute(LinkGraph graph, ForkJoinPool pool) {
+    PrunedLandmarkLabeling labeling = new PrunedLandmarkLabeling(graph);
+    labeling.run(pool);
+    return labeling;
+  }
+
+  /** Returns the pages in hub order: {@code hubs()[rank]} is the page of that rank. */
+  int[] hubs() {
+    return hubs;
+  }
+
+  /** Returns the out-label of {@code page}, {@link #ENTRY_INTS} ints per hub in rank order. */
+  int[] outLabel(int page) {
+    return outLabels[page] == null ? new int[0] : Arrays.copyOf(outLabels[page], outSizes[page]);
+  }
+
+  /** Returns the in-label of {@code page}, {@link #ENTRY_INTS} ints per hub in rank order. */
+  int[] inLabel(int page) {
+    return inLabels[page] == null ? new int[0] : Arrays.copyOf(inLabels[page], inSizes[page]);
+  }
+
+  /** Returns the number of hubs in the out-label of {@code page}. */
+  int outLabelSize(int page) {
+    return outSizes[page] / ENTRY_INTS;
+  }
+
+  /** Returns the number of hubs in the in-label of {@code page}. */
+  int inLabelSize(int page) {
+    return inSizes[page] / ENTRY_INTS;
+  }
+
+  /** Returns the number of entries in all labels. */
+  long entryCount() {
+    long ints = 0;
+    for (int page = 0; page < hubs.length; page++) {
+      ints += outSizes[page] + inSizes[page];
+    }
+    return ints / ENTRY_INTS;
+  }
+
+  /** Orders pages by in- plus out-degree, highest first; pages on many paths prune the most. */
+  private static int[] rankByDegree(LinkGraph graph) {
+    int n = graph.size();
+    int[] offsets = graph.offsets();
+    int[] inOffsets = graph.inOffsets();
+    long[] keys = new long[n];
+    for (int page = 0; page < n; page++) {
+      long degree =
+          (long) offsets[page + 1] - offsets[page] + inOffsets[page + 1] - inOffsets[page];
+      // Highest degree first, then lowest ID
+      keys[page] = ((-degree) << 32) | page;
+    }
+    Arrays.sort(keys);
+    int[] hubs = new int[n];
+    for (int rank = 0; rank < n; rank++) {
+      hubs[rank] = (int) keys[rank];
+    }
+    return hubs;
+  }
+
+  private void run(ForkJoinPool pool) {
+    int n = hubs.length;
+    int slots = Math.max(1, pool.getParallelism());
+    Scratch[] scratch = new Scratch[slots];
+    for (int i = 0; i < slots; i++) {
+      scratch[i] = new Scratch(n);
+    }
+    int rank = 0;
+    while (rank < n) {
+      int batch = rank < SEQUENTIAL_HUBS ? 1 : Math.min(slots, n - rank);
+      List<HubTask> tasks = new ArrayList<>(batch);
+      for (int i = 0; i < batch; i++) {
+        tasks.add(new HubTask(rank + i, scratch[i]));
+      }
+      tasks.forEach(pool::execute);
+      tasks.forEach(ForkJoinTask::join);
+      // Appending in rank order keeps every label sorted by hub rank
+      for (HubTask task : tasks) {
+        append(inLabels, inSizes, task.rank, task.forward);
+        append(outLabels, outSizes, task.rank, task.backward);
+      }
+      rank += batch;
+    }
+  }
+
+  private static void append(int[][] labels, int[] sizes, int rank, Found found) {
+    for (int i = 0; i < found.count; i++) {
+      int page = found.pages[i];
+      int[] label = labels[page];
+      int size = sizes[page];
+      if (label == null) {
+        label = labels[page] = new int[ENTRY_INTS * 4];
+      } else if (size + ENTRY_INTS > label.length) {
+        label = labels[page] = Arrays.copyOf(label, label.length * 2);
+      }
+      label[size] = rank;
+      label[size + 1] = found.distances[i];
+      label[size + 2] = found.next[i];
+      sizes[page] = size + ENTRY_INTS;
+    }
+  }
+
+  /**
+   * Runs the pruned BFS from the hub of {@code rank} over out-links ({@code forward}, labeling
+   * in-labels) or in-links, and returns the pages labeled.
+   */
+  private Found bfs(int rank, boolean forward, Scratch scratch) {
+    int hub = hubs[rank];
+    int[] offsets = forward ? graph.offsets() : graph.inOffsets();
+    int[] links = forward ? graph.targets() : graph.sources();
+    // Pruning asks for the distance between the hub and each page reached: hub labels on one side,
+    // page labels on the other
+    int[] hubLabel = forward ? outLabels[hub] : inLabels[hub];
+    int hubSize = forward ? outSizes[hub] : inSizes[hub];
+    int[][] pageLabels = forward ? inLabels : outLabels;
+    int[] pageSizes = forward ? inSizes : outSizes;
+    int[] hubDistance = scratch.hubDistance;
+    for (int e = 0; e < hubSize; e += ENTRY_INTS) {
+      hubDistance[hubLabel[e]] = hubLabel[e + 1];
+    }
+    int[] queue = scratch.queue;
+    int[] parent = scratch.parent;
+    Found found = new Found();
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = hub;
+    parent[hub] = hub;
+    int distance = 0;
+    int levelEnd = tail;
+    while (head < tail) {
+      if (head == levelEnd) {
+        distance++;
+        levelEnd = tail;
+      }
+      int page = queue[head++];
+      if (covered(hubDistance, pageLabels[page], pageSizes[page], distance)) {
+        continue;
+      }
+      found.add(page, distance, parent[page]);
+      for (int e = offsets[page]; e < offsets[page + 1]; e++) {
+        int next = links[e];
+        if (parent[next] < 0) {
+          parent[next] = page;
+          queue[tail++] = next;
+        }
+      }
+    }
+    for (int i = 0; i < tail; i++) {
+      parent[queue[i]] = -1;
+    }
+    for (int e = 0; e < hubSize; e += ENTRY_INTS) {
+      hubDistance[hubLabel[e]] = INFINITE;
+    }
+    return found;
+  }
+
+  /** Returns true if the labels already give a distance of at most {@code distance}. */
+  private static boolean covered(int[] hubDistance, int[] label, int size, int distance) {
+    for (int e = 0; e < size; e += ENTRY_INTS) {
+      int viaHub = hubDistance[label[e]];
+      if (viaHub != INFINITE && viaHub + label[e + 1] <= distance) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Per-thread BFS arrays, reset after each BFS. */
+  private static final class Scratch {
+    final int[] hubDistance;
+    final int[] queue;
+    final int[] parent;
+
+    Scratch(int n) {
+      hubDistance = new int[n];
+      Arrays.fill(hubDistance, INFINITE);
+      queue = new int[n];
+      parent = new int[n];
+      Arrays.fill(parent, -1);
+    }
+  }
+
+  /** Pages labeled by one BFS, with their distances and next pages towards the hub. */
+  private static final class Found {
+    int[] pages = new int[16];
+    int[] distances = new int[16];
+    int[] next = new int[16];
+    int count;
+
+    void add(int page, int distance, int nextPage) {
+      if (count == pages.length) {
+        pages = Arrays.copyOf(pages, count * 2);
+        distances = Arrays.copyOf(distances, count * 2);
+        next = Arrays.copyOf(next, count * 2);
+      }
+      pages[count] = page;
+      distances[count] = distance;
+      next[count] = nextPage;
+      count++;
+    }
+  }
+
+  /** Both BFSs of one hub, on one slot's scratch arrays. */
+  private final class HubTask extends RecursiveAction {
+    final int rank;
+    final Scratch scratch;
+    Found forward;
+    Found backward;
+
+    HubTask(int rank, Scratch scratch) {
+      this.rank = rank;
+      this.scratch = scratch;
+    }
+
+    @Override
+    protected void compute() {
+      forward = bfs(rank, true, scratch);
+      backward = bfs(rank, false, scratch);
+    }
+  }
+}
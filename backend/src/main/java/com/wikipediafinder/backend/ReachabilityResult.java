@@ -0,0 +1,76 @@
+package com.wikipediafinder.backend;
+
+import com.wikipediafinder.backend.interfaces.ReachabilityResultInterface;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable result returned by a one-to-many reachability search.
+ *
+ * <p>The result maps every reached page of interest (either the requested targets, or every page
+ * within the requested number of hops) to its distance from the start page. When paths were
+ * requested, each reached page is also mapped to an ordered list of URLs from the start page to
+ * it; otherwise {@link #getPaths()} returns {@code null}. All collections are unmodifiable.
+ */
+public class ReachabilityResult implements ReachabilityResultInterface {
+  private final Map<String, Integer> distances;
+  private final Map<String, List<String>> paths;
+  private final Set<String> unreachedTargets;
+  private final int nodesExplored;
+
+  /**
+   * Create a new ReachabilityResult.
+   *
+   * @param distances hop distance from the start page for each reached page (must be non-null)
+   * @param paths path from the start page for each reached page (or {@code null} if not requested)
+   * @param unreachedTargets requested targets that were not reached (must be non-null)
+   * @param nodesExplored number of nodes expanded during the search
+   */
+  public ReachabilityResult(
+      Map<String, Integer> distances,
+      Map<String, List<String>> paths,
+      Set<String> unreachedTargets,
+      int nodesExplored) {
+    this.distances = Collections.unmodifiableMap(new LinkedHashMap<>(distances));
+    if (paths == null) {
+      this.paths = null;
+    } else {
+      Map<String, List<String>> copy = new LinkedHashMap<>();
+      for (Map.Entry<String, List<String>> entry : paths.entrySet()) {
+        copy.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+      }
+      this.paths = Collections.unmodifiableMap(copy);
+    }
+    this.unreachedTargets = Collections.unmodifiableSet(new LinkedHashSet<>(unreachedTargets));
+    this.nodesExplored = nodesExplored;
+  }
+
+  /** Returns the hop distance from the start page for every reached page of interest. */
+  @Override
+  public Map<String, Integer> getDistances() {
+    return distances;
+  }
+
+  /** Returns the path to every reached page of interest, or null if paths were not requested. */
+  @Override
+  public Map<String, List<String>> getPaths() {
+    return paths;
+  }
+
+  /** Returns the requested targets that were not reached within the depth or node budget. */
+  @Override
+  public Set<String> getUnreachedTargets() {
+    return unreachedTargets;
+  }
+
+  /** Returns the number of nodes explored during the search. */
+  @Override
+  public int getNodesExplored() {
+    return nodesExplored;
+  }
+}
@@ -0,0 +1,246 @@
+package com.wikipediafinder.backend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Reader of Wikipedia's recent-changes feed, reporting which pages changed so that what is cached
+ * about them can be dropped.
+ *
+ * <p>The feed is Wikimedia's EventStreams stream of server-sent events ({@code
+ * https://stream.wikimedia.org/v2/stream/recentchange}), one JSON event per change on any wiki.
+ * Only article-namespace events of the configured wiki are reported: edits and page creations as
+ * changed pages, deletions as deleted pages, restorations as changed pages and moves as changes to
+ * both titles. Other changes, such as category updates, leave the links of a page unchanged. For
+ * tests and local setups the same events can be read from a file ({@code file:} URL, e.g. {@code
+ * file:feed.txt} relative to the working directory) or a TCP socket ({@code tcp://host:port}), one
+ * JSON event per line or in event-stream format.
+ *
+ * <p>Changes are handed to the listener in batches of the events that arrived together. The ID of
+ * the last event handed over is kept, and an HTTP stream opened again resumes after it ({@code
+ * Last-Event-ID}), so no change is missed across reconnects.
+ */
+public final class RecentChanges {
+  private static final int MAX_BATCH = 1000;
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private static final HttpClient httpClient =
+      HttpClient.newBuilder()
+          .connectTimeout(Duration.ofSeconds(10))
+          .followRedirects(HttpClient.Redirect.NORMAL)
+          .build();
+
+  private final String wiki;
+  private final Consumer<List<Change>> listener;
+  private final AtomicLong events = new AtomicLong();
+  private final AtomicLong changes = new AtomicLong();
+  private volatile String lastEventId;
+  private volatile Closeable current;
+
+  /**
+   * Create a reader.
+   *
+   * @param wiki database name of the wiki whose changes are reported, e.g. {@code enwiki}
+   * @param listener receives each batch of changes
+   */
+  public RecentChanges(String wiki, Consumer<List<Change>> listener) {
+    this.wiki = wiki;
+    this.listener = listener;
+  }
+
+  /** Returns the ID of the last event handed to the listener, or null if none had an ID. */
+  public String getLastEventId() {
+    return lastEventId;
+  }
+
+  /** Sets the event after which the next HTTP stream resumes, e.g. one saved before a restart. */
+  public void setLastEventId(String lastEventId) {
+    this.lastEventId = lastEventId;
+  }
+
+  /** Returns the number of events read, including those of other wikis and namespaces. */
+  public long getEvents() {
+    return events.get();
+  }
+
+  /** Returns the number of changes handed to the listener. */
+  public long getChanges() {
+    return changes.get();
+  }
+
+  /**
+   * Reads the feed at {@code source} and reports its changes until it ends or {@link #close()} is
+   * called.
+   *
+   * @param source {@code http:}, {@code https:}, {@code file:} or {@code tcp:} URL of the feed
+   * @param onOpen invoked once the feed has been opened
+   * @throws IOException if the feed cannot be opened or read
+   * @throws InterruptedException if the thread is interrupted while connecting
+   * @throws IllegalArgumentException if the URL scheme is not supported
+   */
+  public void consume(URI source, Runnable onOpen) throws IOException, InterruptedException {
+    try (BufferedReader reader = open(source)) {
+      current = reader;
+      onOpen.run();
+      consume(reader);
+    } finally {
+      current = null;
+    }
+  }
+
+  /** Closes the feed being read, so that {@link #consume(URI, Runnable)} returns. */
+  public void close() {
+    Closeable reader = current;
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        // Already broken
+      }
+    }
+  }
+
+  /** Reports the changes read from {@code reader} until it ends. */
+  void consume(BufferedReader reader) throws IOException {
+    List<Change> batch = new ArrayList<>();
+    String eventId = null;
+    String readId = null;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.startsWith("id:")) {
+        eventId = line.substring(3).trim();
+      } else if (line.startsWith("data:") || line.startsWith("{")) {
+        parse(line.startsWith("{") ? line : line.substring(5), batch);
+        events.incrementAndGet();
+        readId = eventId;
+      }
+      if (!batch.isEmpty() && (batch.size() >= MAX_BATCH || !reader.ready())) {
+        deliver(batch);
+        batch = new ArrayList<>();
+      }
+      if (batch.isEmpty() && readId != null) {
+        lastEventId = readId;
+      }
+    }
+    if (!batch.isEmpty()) {
+      deliver(batch);
+      if (readId != null) {
+        lastEventId = readId;
+      }
+    }
+  }
+
+  private void deliver(List<Change> batch) {
+    listener.accept(batch);
+    changes.addAndGet(batch.size());
+  }
+
+  /** Adds the changes described by a JSON event to {@code changes}; skips malformed events. */
+  void parse(String json, List<Change> changes) {
+    JsonNode event;
+    try {
+      event = objectMapper.readTree(json);
+    } catch (IOException e) {
+      return;
+    }
+    if (!wiki.equals(event.path("wiki").asText()) || event.path("namespace").asInt(-1) != 0) {
+      return;
+    }
+    String title = event.path("title").asText("");
+    if (title.isEmpty()) {
+      return;
+    }
+    String url = WikipediaApiClient.titleToUrl(title);
+    String type = event.path("type").asText();
+    if (type.equals("edit") || type.equals("new")) {
+      changes.add(new Change(url, false));
+    } else if (type.equals("log")) {
+      String logType = event.path("log_type").asText();
+      String action = event.path("log_action").asText();
+      if (logType.equals("delete")) {
+        changes.add(new Change(url, action.equals("delete")));
+      } else if (logType.equals("move")) {
+        changes.add(new Change(url, false));
+        String target = event.path("log_params").path("target").asText("");
+        if (!target.isEmpty()) {
+          changes.add(new Change(WikipediaApiClient.titleToUrl(target), false));
+        }
+      }
+    }
+  }
+
+  private BufferedReader open(URI source) throws IOException, InterruptedException {
+    String scheme = String.valueOf(source.getScheme());
+    if (scheme.equals("file")) {
+      Path file = source.isOpaque() ? Path.of(source.getSchemeSpecificPart()) : Path.of(source);
+      return Files.newBufferedReader(file, StandardCharsets.UTF_8);
+    }
+    if (scheme.equals("tcp")) {
+      Socket socket = new Socket(source.getHost(), source.getPort());
+      return new BufferedReader(
+          new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+    if (scheme.equals("http") || scheme.equals("https")) {
+      HttpRequest.Builder request =
+          HttpRequest.newBuilder(source)
+              .header("Accept", "text/event-stream")
+              .header("User-Agent", "wikipediafinder")
+              .GET();
+      String resumeAfter = lastEventId;
+      if (resumeAfter != null) {
+        request.header("Last-Event-ID", resumeAfter);
+      }
+      HttpResponse<InputStream> response =
+          httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+      if (response.statusCode() != 200) {
+        response.body().close();
+        throw new IOException("Recent changes feed returned HTTP " + response.statusCode());
+      }
+      return new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+    }
+    throw new IllegalArgumentException("Unsupported recent changes feed: " + source);
+  }
+
+  /** A page whose links may have changed. */
+  public static final class Change {
+    private final String url;
+    private final boolean deleted;
+
+    /**
+     * Create a change.
+     *
+     * @param url URL of the changed page
+     * @param deleted true if the page was deleted
+     */
+    public Change(String url, boolean deleted) {
+      this.url = url;
+      this.deleted = deleted;
+    }
+
+    public String getUrl() {
+      return url;
+    }
+
+    /** Returns true if the page was deleted. */
+    public boolean isDeleted() {
+      return deleted;
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package com.wikipediafinder.backend;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Follows Wikipedia's recent changes (see {@link RecentChanges}) and drops cached links, trees and
+ * paths as the pages they depend on are edited (see {@link CacheInvalidator}).
+ *
+ * <p>While the feed is connected, cached link lists that no edit touched stay valid, so they are
+ * kept for {@code wikipediafinder.changes.cache-ttl} instead of an hour. When the feed is lost, the
+ * link cache falls back to its configured expiry until it reconnects; the HTTP feed resumes after
+ * the last event read, so entries kept meanwhile are checked against the changes missed. Cached
+ * paths keep their own expiry: a path no edit touched still leads to its target, but an edit
+ * elsewhere can add a shortcut that only a new search finds. With a persistent link store, the
+ * position in the feed is saved next to it, so that a restart resumes there and links stored
+ * before it are checked too. Backlink lists and trees keep their one-hour expiry, since an edit
+ * changes the backlinks of pages it adds links to, which the feed does not name.
+ *
+ * <p>Disabled if {@code wikipediafinder.changes.url} is empty.
+ */
+@Component
+public class RecentChangesConsumer {
+  private static final String[] PATH_CACHES = {"pathCache", "pathStatsCache"};
+  private static final String POSITION_FILE = "recentchange.id";
+  private static final long MIN_RETRY_MILLIS = 1_000;
+  private static final long MAX_RETRY_MILLIS = 60_000;
+  private static final long SAVE_INTERVAL_MILLIS = 10_000;
+
+  private final URI source;
+  private final Duration cacheTtl;
+  private final Duration defaultLinkTtl;
+  private final Path positionFile;
+  private final CacheInvalidator invalidator;
+  private final RecentChanges changes;
+  private volatile boolean stopping;
+  private volatile boolean live;
+  private volatile long lastSaveMillis;
+
+  /**
+   * Create the consumer from the {@code wikipediafinder.changes.*} properties.
+   *
+   * @param url URL of the recent-changes feed; empty disables the consumer
+   * @param wiki database name of the wiki searched, e.g. {@code enwiki}
+   * @param cacheTtl expiry of cached links while the feed is connected
+   * @param storeDir directory of the persistent link store, where the feed position is saved
+   * @param cacheManager manager of the path caches
+   */
+  public RecentChangesConsumer(
+      @Value("${wikipediafinder.changes.url:}") String url,
+      @Value("${wikipediafinder.changes.wiki:enwiki}") String wiki,
+      @Value("${wikipediafinder.changes.cache-ttl:3d}") Duration cacheTtl,
+      @Value("${wikipediafinder.store.dir:}") String storeDir,
+      CacheManager cacheManager) {
+    this.source = url.isBlank() ? null : URI.create(url.trim());
+    this.cacheTtl = cacheTtl;
+    this.defaultLinkTtl = AdjacencyCache.shared().getTtl();
+    this.positionFile = storeDir.isBlank() ? null : Path.of(storeDir, POSITION_FILE);
+    List<Map<Object, Object>> pathMaps = new ArrayList<>();
+    for (String name : PATH_CACHES) {
+      org.springframework.cache.Cache cache = cacheManager.getCache(name);
+      if (cache != null && cache.getNativeCache() instanceof Cache) {
+        @SuppressWarnings("unchecked")
+        Cache<Object, Object> nativeCache = (Cache<Object, Object>) cache.getNativeCache();
+        pathMaps.add(nativeCache.asMap());
+      }
+    }
+    this.invalidator =
+        new CacheInvalidator(
+            LinkFetcher.shared(),
+            SourceTreeCache.shared(),
+            PageExistenceCache.shared(),
+            TitleRegistry.shared(),
+            pathMaps);
+    this.changes = new RecentChanges(wiki, this::apply);
+  }
+
+  /** Starts following the feed on a background thread, unless the consumer is disabled. */
+  @PostConstruct
+  public void start() {
+    if (source == null) {
+      return;
+    }
+    if (positionFile != null && Files.isRegularFile(positionFile)) {
+      try {
+        changes.setLastEventId(Files.readString(positionFile, StandardCharsets.UTF_8).trim());
+      } catch (IOException e) {
+        System.err.println("Ignoring unreadable recent changes position: " + e);
+      }
+    }
+    Thread thread = new Thread(this::run, "recent-changes");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /** Stops following the feed and saves the position reached. */
+  @PreDestroy
+  public void stop() {
+    stopping = true;
+    changes.close();
+    savePosition();
+  }
+
+  /** Reads the feed, reconnecting with increasing delays; a file is read once. */
+  private void run() {
+    long retryMillis = MIN_RETRY_MILLIS;
+    while (!stopping) {
+      long changesBefore = changes.getChanges();
+      try {
+        changes.consume(source, () -> setLive(true));
+      } catch (IOException | RuntimeException e) {
+        if (!stopping) {
+          System.err.println("Recent changes feed failed: " + e);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        setLive(false);
+      }
+      if ("file".equals(source.getScheme())) {
+        return;
+      }
+      retryMillis =
+          changes.getChanges() > changesBefore
+              ? MIN_RETRY_MILLIS
+              : Math.min(MAX_RETRY_MILLIS, retryMillis * 2);
+      try {
+        Thread.sleep(retryMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private void apply(List<RecentChanges.Change> batch) {
+    invalidator.apply(batch);
+    if (System.currentTimeMillis() - lastSaveMillis > SAVE_INTERVAL_MILLIS) {
+      savePosition();
+    }
+  }
+
+  /** Keeps cached links for the long TTL while the feed is connected. */
+  private void setLive(boolean live) {
+    if (this.live == live) {
+      return;
+    }
+    this.live = live;
+    AdjacencyCache.shared().setTtl(live ? cacheTtl : defaultLinkTtl);
+    if (live) {
+      System.err.println("Recent changes feed connected, caching links for " + cacheTtl);
+    } else {
+      System.err.println(
+          "Recent changes feed disconnected after "
+              + changes.getChanges()
+              + " changes and "
+              + invalidator.getPathsDropped()
+              + " dropped paths");
+    }
+  }
+
+  private synchronized void savePosition() {
+    String position = changes.getLastEventId();
+    lastSaveMillis = System.currentTimeMillis();
+    if (positionFile == null || position == null) {
+      return;
+    }
+    try {
+      Files.writeString(positionFile, position, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      System.err.println("Could not save recent changes position: " + e);
+    }
+  }
+}
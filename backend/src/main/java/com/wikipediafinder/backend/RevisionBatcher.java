@@ -0,0 +1,170 @@
+package com.wikipediafinder.backend;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Looks up the latest revision of pages whose cached links have expired, combining concurrent
+ * lookups into requests of up to {@link #MAX_BATCH} titles.
+ *
+ * <p>Lookups are batched per {@link FetchScheduler.Priority} of the search making them, so that a
+ * request is counted in the {@link SearchMetrics} and scheduled by {@link FetchScheduler} under the
+ * priority of every lookup in it: an interactive search never waits for a batch sent for a
+ * background job. A lookup goes out at once if its class has no request in flight; otherwise it
+ * waits and goes out with the others arriving meanwhile, so a search finding many expired pages in
+ * one BFS level checks them with a few requests instead of one per page. When more lookups of a
+ * class wait than its requests in flight will take next, another request is started, up to {@link
+ * #MAX_IN_FLIGHT} per class. A page looked up at a lower priority and again at a higher one moves
+ * up to the higher class; one already waiting at a higher priority is not looked up again.
+ */
+final class RevisionBatcher {
+  // The API accepts at most 50 titles in a single titles= parameter for anonymous clients
+  static final int MAX_BATCH = 50;
+
+  // Requests of one priority class in flight at once
+  static final int MAX_IN_FLIGHT = 4;
+
+  private static final Executor SHARED_EXECUTOR =
+      Executors.newCachedThreadPool(
+          runnable -> {
+            Thread thread = new Thread(runnable, "revision-lookup");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /** Source of the latest revision of pages, such as {@link WikipediaApiClient#getRevisions}. */
+  interface RevisionSource {
+    /** Returns the latest revision of each page in {@code titles}, leaving out missing pages. */
+    Map<String, Long> revisions(List<String> titles) throws IOException;
+  }
+
+  private final RevisionSource source;
+  private final Executor executor;
+  private final Map<FetchScheduler.Priority, Map<String, Lookup>> waiting =
+      new EnumMap<>(FetchScheduler.Priority.class);
+  private final Map<FetchScheduler.Priority, Integer> sending =
+      new EnumMap<>(FetchScheduler.Priority.class);
+
+  /** Create a batcher sending its requests on a shared pool of daemon threads. */
+  RevisionBatcher(RevisionSource source) {
+    this(source, SHARED_EXECUTOR);
+  }
+
+  /** Create a batcher sending its requests on {@code executor}. */
+  RevisionBatcher(RevisionSource source, Executor executor) {
+    this.source = source;
+    this.executor = executor;
+    for (FetchScheduler.Priority priority : FetchScheduler.Priority.values()) {
+      waiting.put(priority, new LinkedHashMap<>());
+      sending.put(priority, 0);
+    }
+  }
+
+  /**
+   * Returns the latest revision of the page {@code title}, or 0 if it does not exist. The future
+   * completes exceptionally with an {@link IOException} if the request fails.
+   */
+  CompletableFuture<Long> latestRevision(String title) {
+    SearchMetrics search = SearchMetrics.current();
+    FetchScheduler.Priority priority = search.fetchPriority();
+    Map<String, Lookup> queue = waiting.get(priority);
+    CompletableFuture<Long> revision;
+    boolean start = false;
+    synchronized (this) {
+      Lookup higher = findHigherPriorityLookup(title, priority);
+      if (higher != null) {
+        return higher.revision;
+      }
+      Lookup lookup = queue.get(title);
+      if (lookup == null) {
+        lookup = new Lookup(search, takeLowerPriorityLookup(title, priority));
+        queue.put(title, lookup);
+      }
+      revision = lookup.revision;
+      int senders = sending.get(priority);
+      if (senders < MAX_IN_FLIGHT && (senders == 0 || queue.size() > senders * MAX_BATCH)) {
+        sending.put(priority, senders + 1);
+        start = true;
+      }
+    }
+    if (start) {
+      executor.execute(() -> drain(priority));
+    }
+    return revision;
+  }
+
+  /** Returns the lookup of {@code title} waiting at a higher priority than {@code priority}. */
+  private Lookup findHigherPriorityLookup(String title, FetchScheduler.Priority priority) {
+    for (Map.Entry<FetchScheduler.Priority, Map<String, Lookup>> entry : waiting.entrySet()) {
+      if (entry.getKey().compareTo(priority) < 0 && entry.getValue().containsKey(title)) {
+        return entry.getValue().get(title);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Removes the lookup of {@code title} waiting at a lower priority than {@code priority}, and
+   * returns its future; returns a new future if there is none.
+   */
+  private CompletableFuture<Long> takeLowerPriorityLookup(
+      String title, FetchScheduler.Priority priority) {
+    for (Map.Entry<FetchScheduler.Priority, Map<String, Lookup>> entry : waiting.entrySet()) {
+      if (entry.getKey().compareTo(priority) > 0) {
+        Lookup lower = entry.getValue().remove(title);
+        if (lower != null) {
+          return lower.revision;
+        }
+      }
+    }
+    return new CompletableFuture<>();
+  }
+
+  /** Sends the waiting lookups of {@code priority} in batches until none are left. */
+  private void drain(FetchScheduler.Priority priority) {
+    Map<String, Lookup> queue = waiting.get(priority);
+    while (true) {
+      Map<String, Lookup> batch = new LinkedHashMap<>();
+      synchronized (this) {
+        Iterator<Map.Entry<String, Lookup>> it = queue.entrySet().iterator();
+        while (it.hasNext() && batch.size() < MAX_BATCH) {
+          Map.Entry<String, Lookup> next = it.next();
+          batch.put(next.getKey(), next.getValue());
+          it.remove();
+        }
+        if (batch.isEmpty()) {
+          sending.put(priority, sending.get(priority) - 1);
+          return;
+        }
+      }
+      // Every lookup in the batch has this priority; the first one's search is charged for it
+      SearchMetrics search = batch.values().iterator().next().search;
+      try (SearchMetrics.Scope ignored = search.enter()) {
+        Map<String, Long> revisions = source.revisions(new ArrayList<>(batch.keySet()));
+        batch.forEach(
+            (title, lookup) -> lookup.revision.complete(revisions.getOrDefault(title, 0L)));
+      } catch (IOException | RuntimeException e) {
+        batch.values().forEach(lookup -> lookup.revision.completeExceptionally(e));
+      }
+    }
+  }
+
+  /** A waiting lookup and the search that first asked for it at its priority. */
+  private static final class Lookup {
+    final SearchMetrics search;
+    final CompletableFuture<Long> revision;
+
+    Lookup(SearchMetrics search, CompletableFuture<Long> revision) {
+      this.search = search;
+      this.revision = revision;
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.wikipediafinder.backend;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Live search traffic as seen by background work: how many searches are running, when the last one
+ * ended, and which pages recent searches asked about or passed through.
+ *
+ * <p>The {@link BackgroundCrawler} uses the first two to stay off the upstream API while users are
+ * searching, and the page counts to decide what to crawl. Counts are halved by {@link #decay()},
+ * so pages seen in older searches gradually lose weight, and at most {@code maxPages} pages are
+ * tracked.
+ */
+public final class SearchActivity {
+  private static final SearchActivity SHARED = new SearchActivity(10_000);
+
+  private final int maxPages;
+  private final AtomicInteger activeSearches = new AtomicInteger();
+  private final Map<Integer, Integer> pageCounts = new ConcurrentHashMap<>();
+  // As if the last search ended long ago
+  private volatile long lastEndNanos = System.nanoTime() - Long.MAX_VALUE / 2;
+
+  /**
+   * Create a tracker.
+   *
+   * @param maxPages number of pages above which counts are decayed to make room
+   */
+  public SearchActivity(int maxPages) {
+    if (maxPages <= 0) {
+      throw new IllegalArgumentException("maxPages must be positive");
+    }
+    this.maxPages = maxPages;
+  }
+
+  /** Returns the process-wide instance, fed by every search of {@link BFS}. */
+  public static SearchActivity shared() {
+    return SHARED;
+  }
+
+  /** Records that a search started; it counts as running until the returned scope is closed. */
+  public Scope begin() {
+    activeSearches.incrementAndGet();
+    return () -> {
+      lastEndNanos = System.nanoTime();
+      activeSearches.decrementAndGet();
+    };
+  }
+
+  /** Returns the number of searches running now. */
+  public int getActiveSearches() {
+    return activeSearches.get();
+  }
+
+  /**
+   * Returns true if a search is running or one ended less than {@code quietNanos} ago, i.e. users
+   * may need the upstream API.
+   */
+  public boolean isBusy(long quietNanos) {
+    return activeSearches.get() > 0 || System.nanoTime() - lastEndNanos < quietNanos;
+  }
+
+  /** Counts one sighting of each page in {@code urls} (e.g. the endpoints and path of a search). */
+  public void recordPages(List<String> urls) {
+    TitleRegistry registry = TitleRegistry.shared();
+    for (String url : urls) {
+      pageCounts.merge(registry.idOf(url), 1, Integer::sum);
+    }
+    if (pageCounts.size() > maxPages) {
+      decay();
+    }
+  }
+
+  /** Forgets every sighting of the pages in {@code urls}, e.g. of fixtures searched at startup. */
+  public void forgetPages(Collection<String> urls) {
+    TitleRegistry registry = TitleRegistry.shared();
+    for (String url : urls) {
+      int id = registry.find(url);
+      if (id >= 0) {
+        pageCounts.remove(id);
+      }
+    }
+  }
+
+  /**
+   * Returns the {@link TitleRegistry} IDs of the {@code limit} most frequently seen pages, most
+   * frequent first.
+   */
+  public List<Integer> topPages(int limit) {
+    List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(pageCounts.entrySet());
+    entries.sort(Map.Entry.<Integer, Integer>comparingByValue().reversed());
+    List<Integer> top = new ArrayList<>(Math.min(limit, entries.size()));
+    for (Map.Entry<Integer, Integer> entry : entries) {
+      if (top.size() == limit) {
+        break;
+      }
+      top.add(entry.getKey());
+    }
+    return top;
+  }
+
+  /** Calls {@code action} with the {@link TitleRegistry} ID of every page counted. */
+  public void forEachId(IntConsumer action) {
+    pageCounts.keySet().forEach(action::accept);
+  }
+
+  /** Halves every page count, forgetting pages seen only once since the last decay. */
+  public void decay() {
+    pageCounts.replaceAll((id, count) -> count / 2);
+    pageCounts.values().removeIf(count -> count == 0);
+  }
+
+  /** A running search, ended by {@link #close()}. */
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,146 @@
+package com.wikipediafinder.backend;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * A long-running shortest-path search submitted to {@link SearchJobService}, identified by an ID
+ * that clients poll or subscribe to.
+ *
+ * <p>The job's search state is a forward {@link SourceTree} from the start page, which the service
+ * expands in the background and checkpoints to disk. Once the job has finished, only its outcome
+ * is kept. The explored-node count is published to {@link #progress()}, which is closed when the
+ * job stops running, whether it finished or the server is shutting down.
+ */
+public final class SearchJob {
+  /** Lifecycle of a job; the last four states are final. */
+  public enum Status {
+    QUEUED,
+    RUNNING,
+    FOUND,
+    NOT_FOUND,
+    FAILED,
+    CANCELLED;
+
+    public boolean isFinished() {
+      return this != QUEUED && this != RUNNING;
+    }
+  }
+
+  private final String id;
+  private final String client;
+  private final String startUrl;
+  private final String endUrl;
+  private final int nodeBudget;
+  private final SubmissionPublisher<Integer> progress;
+  private volatile Status status = Status.QUEUED;
+  private volatile int nodesExplored;
+  private volatile List<String> path;
+  private volatile String error;
+  private volatile long finishedAt;
+  private volatile boolean cancelRequested;
+  private volatile SourceTree tree;
+
+  SearchJob(
+      String id, String client, String startUrl, String endUrl, int nodeBudget, Executor executor) {
+    this.id = id;
+    this.client = client;
+    this.startUrl = startUrl;
+    this.endUrl = endUrl;
+    this.nodeBudget = nodeBudget;
+    this.progress = new SubmissionPublisher<>(executor, Flow.defaultBufferSize());
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  /** Returns the address of the client that submitted the job, or null if it is not known. */
+  String getClient() {
+    return client;
+  }
+
+  public String getStartUrl() {
+    return startUrl;
+  }
+
+  public String getEndUrl() {
+    return endUrl;
+  }
+
+  /** Returns the maximum number of pages the job expands. */
+  public int getNodeBudget() {
+    return nodeBudget;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  /** Returns the number of pages expanded so far, across restarts. */
+  public int getNodesExplored() {
+    return nodesExplored;
+  }
+
+  /** Returns the shortest path once the status is {@link Status#FOUND}, otherwise null. */
+  public List<String> getPath() {
+    return path;
+  }
+
+  /** Returns why the job failed, or a note on an incomplete search; null otherwise. */
+  public String getError() {
+    return error;
+  }
+
+  /** Returns when the job finished, in epoch milliseconds, or 0 if it has not. */
+  public long getFinishedAt() {
+    return finishedAt;
+  }
+
+  /** Returns the publisher of explored-node counts, closed when the job stops running. */
+  public Flow.Publisher<Integer> progress() {
+    return progress;
+  }
+
+  boolean isCancelRequested() {
+    return cancelRequested;
+  }
+
+  void requestCancel() {
+    cancelRequested = true;
+  }
+
+  SourceTree getTree() {
+    return tree;
+  }
+
+  void setTree(SourceTree tree) {
+    this.tree = tree;
+  }
+
+  void setStatus(Status status) {
+    this.status = status;
+  }
+
+  void setNodesExplored(int nodesExplored) {
+    this.nodesExplored = nodesExplored;
+    progress.offer(nodesExplored, (subscriber, dropped) -> false);
+  }
+
+  /** Records the outcome of the job, drops its search state and closes {@link #progress()}. */
+  void finish(Status status, List<String> path, String error, long finishedAt) {
+    this.path = path;
+    this.error = error;
+    this.finishedAt = finishedAt;
+    this.tree = null;
+    this.status = status;
+    progress.close();
+  }
+
+  /** Closes {@link #progress()} of a job that stops running without finishing. */
+  void suspend() {
+    progress.close();
+  }
+}
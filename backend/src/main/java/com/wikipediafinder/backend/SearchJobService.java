@@ -0,0 +1,481 @@
+package com.wikipediafinder.backend;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs {@link SearchJob}s: shortest-path searches with a far larger node budget than the 10000 of
+ * a synchronous search, in the background.
+ *
+ * <p>A job expands a forward {@link SourceTree} from its start page a few pages at a time, so it
+ * can be cancelled or stopped promptly, with its links prefetched as in {@link BFS}. Its state is
+ * checkpointed to a gzipped file in the job directory at a fixed interval and when it stops. On
+ * startup every job file is loaded again: unfinished jobs resume from their last checkpoint, and
+ * finished ones keep answering polls until they are purged after the retention period. At most
+ * {@code maxRunning} jobs run at once; others wait in a queue. Since every job may expand a large
+ * part of Wikipedia, at most {@code maxQueued} unfinished jobs are accepted, and at most {@code
+ * maxPerClient} of them from one client address; jobs resumed after a restart count towards the
+ * first limit only.
+ *
+ * <p>If a spill directory is configured, new jobs instead run as one external-memory search (see
+ * {@link BFS#getPathWithStatsOnDisk}) whose frontier, visited set and parents are kept in files
+ * there, so a job's budget is not limited by the heap. Such a search cannot be checkpointed part
+ * way: a job stopped by a shutdown starts over after the restart.
+ */
+@Service
+public class SearchJobService {
+  private static final int FILE_MAGIC = 0x57464a32; // "WFJ2"
+  private static final String FILE_SUFFIX = ".job";
+
+  // Pages expanded between checks for cancellation, shutdown and checkpoint time
+  private static final int CHUNK = 32;
+
+  private final Path directory;
+  private final Path spillDirectory;
+  private final int nodeBudget;
+  private final long checkpointNanos;
+  private final Duration retention;
+  private final int maxQueued;
+  private final int maxPerClient;
+  private final Function<String, PageNode> nodeFactory;
+  private final BFS bfs;
+  private final ExecutorService runner;
+  private final ExecutorService progressExecutor;
+  private final Map<String, SearchJob> jobs = new ConcurrentHashMap<>();
+  private volatile boolean stopping;
+
+  /**
+   * Create the service from the {@code wikipediafinder.jobs.*} properties.
+   *
+   * @param bfs search service whose prefetcher jobs use
+   * @param directory directory holding job checkpoints
+   * @param spillDirectory directory for the files of external-memory jobs, or empty to expand jobs
+   *     on the heap
+   * @param nodeBudget maximum number of pages a job expands
+   * @param checkpointInterval time between checkpoints of a running job
+   * @param retention how long a finished job can still be polled
+   * @param maxRunning number of jobs running at once
+   * @param maxQueued number of unfinished jobs accepted, running or queued
+   * @param maxPerClient number of unfinished jobs accepted from one client
+   */
+  @Autowired
+  public SearchJobService(
+      BFS bfs,
+      @Value("${wikipediafinder.jobs.dir:jobs}") String directory,
+      @Value("${wikipediafinder.jobs.spill-dir:}") String spillDirectory,
+      @Value("${wikipediafinder.jobs.node-budget:200000}") int nodeBudget,
+      @Value("${wikipediafinder.jobs.checkpoint-interval:1m}") Duration checkpointInterval,
+      @Value("${wikipediafinder.jobs.retention:1d}") Duration retention,
+      @Value("${wikipediafinder.jobs.max-running:2}") int maxRunning,
+      @Value("${wikipediafinder.jobs.max-queued:20}") int maxQueued,
+      @Value("${wikipediafinder.jobs.max-per-client:2}") int maxPerClient) {
+    this(
+        bfs,
+        BFS.DEFAULT_FACTORY,
+        Path.of(directory),
+        spillDirectory.isEmpty() ? null : Path.of(spillDirectory),
+        nodeBudget,
+        checkpointInterval,
+        retention,
+        maxRunning,
+        maxQueued,
+        maxPerClient);
+  }
+
+  /**
+   * Create a service expanding pages obtained from {@code nodeFactory}; the {@link BFS} prefetcher
+   * is only used with {@link BFS#DEFAULT_FACTORY}. Jobs run on disk under {@code spillDirectory}
+   * unless it is null.
+   */
+  SearchJobService(
+      BFS bfs,
+      Function<String, PageNode> nodeFactory,
+      Path directory,
+      Path spillDirectory,
+      int nodeBudget,
+      Duration checkpointInterval,
+      Duration retention,
+      int maxRunning,
+      int maxQueued,
+      int maxPerClient) {
+    if (nodeBudget <= 0 || maxRunning <= 0 || maxQueued <= 0 || maxPerClient <= 0) {
+      throw new IllegalArgumentException("Node budget and job limits must be positive.");
+    }
+    this.bfs = bfs;
+    this.nodeFactory = nodeFactory;
+    this.directory = directory;
+    this.spillDirectory = spillDirectory;
+    this.nodeBudget = nodeBudget;
+    this.checkpointNanos = checkpointInterval.toNanos();
+    this.retention = retention;
+    this.maxQueued = maxQueued;
+    this.maxPerClient = maxPerClient;
+    this.runner = Executors.newFixedThreadPool(maxRunning, daemonThreads("search-job"));
+    this.progressExecutor = Executors.newSingleThreadExecutor(daemonThreads("search-job-progress"));
+  }
+
+  private static ThreadFactory daemonThreads(String name) {
+    return runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Loads the checkpoints in the job directory and resumes unfinished jobs. Unreadable files are
+   * skipped.
+   *
+   * @throws IOException if the directory cannot be created or listed
+   */
+  @PostConstruct
+  public void recover() throws IOException {
+    Files.createDirectories(directory);
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+      for (Path file : files) {
+        SearchJob job;
+        try {
+          job = load(file);
+        } catch (IOException e) {
+          System.err.println("Skipping unreadable search job checkpoint: " + file);
+          continue;
+        }
+        jobs.put(job.getId(), job);
+        if (!job.getStatus().isFinished()) {
+          job.setStatus(SearchJob.Status.QUEUED);
+          runner.execute(() -> run(job));
+        }
+      }
+    }
+  }
+
+  /**
+   * Submits a search job from {@code startUrl} to {@code endUrl} on behalf of {@code client}.
+   *
+   * @param client address of the submitting client
+   * @return the queued job
+   * @throws IllegalArgumentException if either URL is not a Wikipedia page URL
+   * @throws RejectedExecutionException if too many jobs, or too many of the client's, are pending
+   * @throws IOException if the job's first checkpoint cannot be written
+   */
+  public SearchJob submit(String startUrl, String endUrl, String client) throws IOException {
+    if (!PageNode.isWikipediaUrl(startUrl) || !PageNode.isWikipediaUrl(endUrl)) {
+      throw new IllegalArgumentException("Start and end must be Wikipedia page URLs.");
+    }
+    SearchJob job =
+        new SearchJob(
+            UUID.randomUUID().toString(), client, startUrl, endUrl, nodeBudget, progressExecutor);
+    if (spillDirectory == null) {
+      job.setTree(new SourceTree(TitleRegistry.shared().idOf(startUrl), false));
+    }
+    admit(job);
+    try {
+      checkpoint(job);
+    } catch (IOException e) {
+      jobs.remove(job.getId());
+      throw e;
+    }
+    runner.execute(() -> run(job));
+    return job;
+  }
+
+  /** Adds {@code job} to the known jobs unless that would exceed the limits on unfinished jobs. */
+  private synchronized void admit(SearchJob job) {
+    int unfinished = 0;
+    int ofClient = 0;
+    for (SearchJob other : jobs.values()) {
+      if (!other.getStatus().isFinished()) {
+        unfinished++;
+        if (job.getClient().equals(other.getClient())) {
+          ofClient++;
+        }
+      }
+    }
+    if (unfinished >= maxQueued) {
+      throw new RejectedExecutionException("Too many search jobs are pending; try again later.");
+    }
+    if (ofClient >= maxPerClient) {
+      throw new RejectedExecutionException(
+          "At most " + maxPerClient + " pending search jobs are allowed per client.");
+    }
+    jobs.put(job.getId(), job);
+  }
+
+  /** Returns the job with the given ID, or null if there is none. */
+  public SearchJob get(String id) {
+    return jobs.get(id);
+  }
+
+  /**
+   * Cancels a job; it stops after the pages it is expanding. Finished jobs are not affected.
+   *
+   * @return the job, or null if there is none with the given ID
+   */
+  public SearchJob cancel(String id) {
+    SearchJob job = jobs.get(id);
+    if (job != null) {
+      job.requestCancel();
+    }
+    return job;
+  }
+
+  /** Calls {@code action} with the {@link TitleRegistry} ID of every page in a job's tree. */
+  public void forEachId(IntConsumer action) {
+    for (SearchJob job : jobs.values()) {
+      SourceTree tree = job.getTree();
+      if (tree != null) {
+        tree.forEachId(action);
+      }
+    }
+  }
+
+  /** Forgets finished jobs older than the retention period and deletes their checkpoints. */
+  @Scheduled(fixedDelayString = "PT1H")
+  public void purgeExpired() {
+    long cutoff = System.currentTimeMillis() - retention.toMillis();
+    for (SearchJob job : jobs.values()) {
+      if (job.getStatus().isFinished() && job.getFinishedAt() < cutoff) {
+        jobs.remove(job.getId());
+        try {
+          Files.deleteIfExists(fileOf(job.getId()));
+        } catch (IOException e) {
+          System.err.println("Failed to delete search job checkpoint: " + job.getId());
+        }
+      }
+    }
+  }
+
+  /**
+   * Stops running jobs after their current pages and checkpoints them, to be resumed by the next
+   * {@link #recover()}.
+   */
+  @PreDestroy
+  public void shutdown() {
+    stopping = true;
+    runner.shutdown();
+    try {
+      if (!runner.awaitTermination(10, TimeUnit.SECONDS)) {
+        runner.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      runner.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    progressExecutor.shutdown();
+  }
+
+  /** Expands the job's tree until it finds the target, runs out of pages or budget, or stops. */
+  private void run(SearchJob job) {
+    if (stopping) {
+      job.suspend();
+      return;
+    }
+    if (job.getTree() == null) {
+      if (spillDirectory != null) {
+        runOnDisk(job);
+        return;
+      }
+      // A job that ran on disk before a restart without a spill directory
+      job.setTree(new SourceTree(TitleRegistry.shared().idOf(job.getStartUrl()), false));
+    }
+    SourceTree tree = job.getTree();
+    int endId = TitleRegistry.shared().idOf(job.getEndUrl());
+    job.setStatus(SearchJob.Status.RUNNING);
+    SearchMetrics metrics = new SearchMetrics();
+    metrics.setFetchPriority(FetchScheduler.Priority.BATCH);
+    LookaheadPrefetcher prefetcher = null;
+    try (SearchMetrics.Scope ignored = metrics.enter()) {
+      prefetcher = bfs.createPrefetcher(nodeFactory);
+      long lastCheckpoint = System.nanoTime();
+      while (tree.pathTo(endId) == null
+          && !tree.isExhausted()
+          && tree.getNodesExpanded() < job.getNodeBudget()
+          && !job.isCancelRequested()
+          && !stopping) {
+        int base = tree.getNodesExpanded();
+        tree.expand(
+            endId,
+            Math.min(CHUNK, job.getNodeBudget() - base),
+            id -> BFS.loadLinks(nodeFactory, id),
+            prefetcher,
+            expanded -> job.setNodesExplored(base + expanded));
+        if (System.nanoTime() - lastCheckpoint >= checkpointNanos) {
+          checkpoint(job);
+          lastCheckpoint = System.nanoTime();
+        }
+      }
+      if (stopping && !job.isCancelRequested() && tree.pathTo(endId) == null) {
+        checkpoint(job);
+        job.suspend();
+        return;
+      }
+      List<String> path = tree.pathTo(endId);
+      if (path != null) {
+        job.finish(SearchJob.Status.FOUND, path, null, System.currentTimeMillis());
+      } else if (job.isCancelRequested()) {
+        job.finish(SearchJob.Status.CANCELLED, null, null, System.currentTimeMillis());
+      } else {
+        String note = tree.hasFailed() ? "The links of some pages could not be loaded." : null;
+        job.finish(SearchJob.Status.NOT_FOUND, null, note, System.currentTimeMillis());
+      }
+      checkpoint(job);
+    } catch (IOException | RuntimeException e) {
+      job.finish(SearchJob.Status.FAILED, null, e.getMessage(), System.currentTimeMillis());
+      try {
+        checkpoint(job);
+      } catch (IOException ignored) {
+        // The job is reported as failed either way; it will not be resumed after a restart
+      }
+    } finally {
+      if (prefetcher != null) {
+        prefetcher.cancel();
+      }
+    }
+  }
+
+  /**
+   * Runs the job as one external-memory search. It is only checkpointed when it ends, or without
+   * its progress when it stops.
+   */
+  private void runOnDisk(SearchJob job) {
+    job.setStatus(SearchJob.Status.RUNNING);
+    job.setNodesExplored(0);
+    SearchMetrics metrics = new SearchMetrics();
+    metrics.setFetchPriority(FetchScheduler.Priority.BATCH);
+    try (SearchMetrics.Scope ignored = metrics.enter()) {
+      BFSResult result =
+          bfs.getPathWithStatsOnDisk(
+              nodeFactory.apply(job.getStartUrl()),
+              nodeFactory.apply(job.getEndUrl()),
+              nodeFactory,
+              job.getNodeBudget(),
+              spillDirectory,
+              job::setNodesExplored,
+              () -> job.isCancelRequested() || stopping);
+      if (result.getPath() != null) {
+        job.finish(SearchJob.Status.FOUND, result.getPath(), null, System.currentTimeMillis());
+      } else if (job.isCancelRequested()) {
+        job.finish(SearchJob.Status.CANCELLED, null, null, System.currentTimeMillis());
+      } else if (stopping) {
+        checkpoint(job);
+        job.suspend();
+        return;
+      } else {
+        job.finish(SearchJob.Status.NOT_FOUND, null, null, System.currentTimeMillis());
+      }
+      checkpoint(job);
+    } catch (IOException | RuntimeException e) {
+      job.finish(SearchJob.Status.FAILED, null, e.getMessage(), System.currentTimeMillis());
+      try {
+        checkpoint(job);
+      } catch (IOException ignored) {
+        // The job is reported as failed either way; it will not be resumed after a restart
+      }
+    }
+  }
+
+  /** Writes the job's checkpoint, replacing the previous one atomically. */
+  private void checkpoint(SearchJob job) throws IOException {
+    Path file = fileOf(job.getId());
+    Path temp = directory.resolve(job.getId() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(
+            new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp))))) {
+      out.writeInt(FILE_MAGIC);
+      out.writeUTF(job.getId());
+      out.writeUTF(job.getStartUrl());
+      out.writeUTF(job.getEndUrl());
+      out.writeInt(job.getNodeBudget());
+      out.writeUTF(job.getStatus().name());
+      out.writeInt(job.getNodesExplored());
+      out.writeLong(job.getFinishedAt());
+      out.writeUTF(job.getError() == null ? "" : job.getError());
+      List<String> path = job.getPath();
+      out.writeInt(path == null ? -1 : path.size());
+      if (path != null) {
+        for (String url : path) {
+          out.writeUTF(url);
+        }
+      }
+      SourceTree tree = job.getTree();
+      out.writeBoolean(tree != null);
+      if (tree != null) {
+        tree.writeTo(out);
+      }
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Reads a job written by {@link #checkpoint}. */
+  private SearchJob load(Path file) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(
+            new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+      if (in.readInt() != FILE_MAGIC) {
+        throw new IOException("Not a search job checkpoint: " + file);
+      }
+      String id = in.readUTF();
+      String startUrl = in.readUTF();
+      String endUrl = in.readUTF();
+      int budget = in.readInt();
+      SearchJob.Status status;
+      try {
+        status = SearchJob.Status.valueOf(in.readUTF());
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Invalid search job status in " + file, e);
+      }
+      int nodesExplored = in.readInt();
+      long finishedAt = in.readLong();
+      String error = in.readUTF();
+      int pathLength = in.readInt();
+      List<String> path = null;
+      if (pathLength >= 0) {
+        path = new ArrayList<>(pathLength);
+        for (int i = 0; i < pathLength; i++) {
+          path.add(in.readUTF());
+        }
+      }
+      SearchJob job = new SearchJob(id, null, startUrl, endUrl, budget, progressExecutor);
+      job.setNodesExplored(nodesExplored);
+      if (status.isFinished()) {
+        job.finish(status, path, error.isEmpty() ? null : error, finishedAt);
+      } else if (in.readBoolean()) {
+        job.setTree(SourceTree.readFrom(in));
+      }
+      // An unfinished job without a tree ran on disk and starts over
+      return job;
+    }
+  }
+
+  private Path fileOf(String id) {
+    return directory.resolve(id + FILE_SUFFIX);
+  }
+}
@@ -0,0 +1,257 @@
+package com.wikipediafinder.backend;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timing and I/O breakdown of one search, returned with its {@link BFSResult}.
+ *
+ * <p>A search creates an instance and binds it to its thread with {@link #enter()} (and to every
+ * background thread working for it); code deep in the fetch path reports to {@link #current()}
+ * without the instance being passed around. Outside a search, {@code current()} is the {@link
+ * #empty()} instance, which ignores all reports. A report costs a thread-local lookup and an atomic
+ * add, cheap enough to collect for every search.
+ *
+ * <p>Cache hits and misses count the lookups of the search's own thread only: a prefetcher loading
+ * pages ahead of it enters the metrics with {@link #enterPrefetch()}, so that a prefetched page
+ * counts once, as the hit the search then finds. Fetch waits exclude the time the waiting thread
+ * spent parsing the response itself, which is reported as parse time.
+ */
+public final class SearchMetrics {
+  private static final ThreadLocal<SearchMetrics> CURRENT = new ThreadLocal<>();
+  private static final ThreadLocal<SearchMetrics> PREFETCHING = new ThreadLocal<>();
+  private static final ThreadLocal<long[]> THREAD_PARSE_NANOS =
+      ThreadLocal.withInitial(() -> new long[1]);
+  private static final SearchMetrics DISCARD = new SearchMetrics(false);
+
+  private final boolean enabled;
+  private final long startNanos = System.nanoTime();
+  private final AtomicLong fetchWaitNanos = new AtomicLong();
+  private final AtomicLong parseNanos = new AtomicLong();
+  private final AtomicLong cacheHits = new AtomicLong();
+  private final AtomicLong cacheMisses = new AtomicLong();
+  private final AtomicLong revalidations = new AtomicLong();
+  private final AtomicLong httpRequests = new AtomicLong();
+  private final AtomicLong bytesDownloaded = new AtomicLong();
+  private volatile long totalNanos = -1;
+  private volatile long maxFrontierSize;
+  private volatile int depthReached;
+  private volatile FetchScheduler.Priority fetchPriority = FetchScheduler.Priority.INTERACTIVE;
+
+  /** Create metrics for a search starting now. */
+  public SearchMetrics() {
+    this(true);
+  }
+
+  private SearchMetrics(boolean enabled) {
+    this.enabled = enabled;
+    if (!enabled) {
+      totalNanos = 0;
+    }
+  }
+
+  /** Returns metrics that are all zero and ignore reports, for results of no measured search. */
+  public static SearchMetrics empty() {
+    return DISCARD;
+  }
+
+  /** Returns the metrics of the search running on this thread, or an instance ignoring reports. */
+  public static SearchMetrics current() {
+    SearchMetrics metrics = CURRENT.get();
+    return metrics == null ? DISCARD : metrics;
+  }
+
+  /**
+   * Makes these metrics {@link #current()} on the calling thread until the returned scope is
+   * closed, which restores the previous ones.
+   */
+  public Scope enter() {
+    SearchMetrics previous = CURRENT.get();
+    CURRENT.set(this);
+    return () -> {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    };
+  }
+
+  /**
+   * Like {@link #enter()}, for a thread prefetching links for the search: its cache lookups are not
+   * counted, while its requests and parse time are.
+   */
+  public Scope enterPrefetch() {
+    Scope scope = enter();
+    SearchMetrics previous = PREFETCHING.get();
+    PREFETCHING.set(this);
+    return () -> {
+      if (previous == null) {
+        PREFETCHING.remove();
+      } else {
+        PREFETCHING.set(previous);
+      }
+      scope.close();
+    };
+  }
+
+  /**
+   * Returns the start of a wait for links, to be passed to {@link #recordFetchWaitSince}: the
+   * current time less the time the calling thread has spent parsing.
+   */
+  public static long startWait() {
+    return System.nanoTime() - THREAD_PARSE_NANOS.get()[0];
+  }
+
+  /** Stops the clock of {@link #getTotalMillis()}; later calls have no effect. */
+  public void finish() {
+    if (totalNanos < 0) {
+      totalNanos = System.nanoTime() - startNanos;
+    }
+  }
+
+  /** Records time the search spent blocked waiting for a page's links. */
+  public void recordFetchWait(long nanos) {
+    if (enabled) {
+      fetchWaitNanos.addAndGet(nanos);
+    }
+  }
+
+  /**
+   * Records time the calling thread spent waiting for a page's links since {@code start} (from
+   * {@link #startWait()}), less any time it spent parsing them.
+   */
+  public void recordFetchWaitSince(long start) {
+    recordFetchWait(startWait() - start);
+  }
+
+  /** Records time the calling thread spent parsing an upstream response. */
+  public void recordParse(long nanos) {
+    THREAD_PARSE_NANOS.get()[0] += nanos;
+    if (enabled) {
+      parseNanos.addAndGet(nanos);
+    }
+  }
+
+  /** Records a lookup that found a page's links in the {@link AdjacencyCache}. */
+  public void recordCacheHit() {
+    if (enabled && PREFETCHING.get() != this) {
+      cacheHits.incrementAndGet();
+    }
+  }
+
+  /** Records a lookup that missed the {@link AdjacencyCache}. */
+  public void recordCacheMiss() {
+    if (enabled && PREFETCHING.get() != this) {
+      cacheMisses.incrementAndGet();
+    }
+  }
+
+  /**
+   * Records a lookup that found a page's links expired but kept them, because the page had not
+   * changed since they were fetched.
+   */
+  public void recordRevalidation() {
+    if (enabled) {
+      revalidations.incrementAndGet();
+    }
+  }
+
+  /** Records an HTTP request to Wikipedia or a peer whose response body had {@code bytes} bytes. */
+  public void recordHttpRequest(long bytes) {
+    if (enabled) {
+      httpRequests.incrementAndGet();
+      bytesDownloaded.addAndGet(bytes);
+    }
+  }
+
+  /** Records the current frontier size. Must only be called from the search's own thread. */
+  public void recordFrontier(long size) {
+    if (enabled && size > maxFrontierSize) {
+      maxFrontierSize = size;
+    }
+  }
+
+  /** Records that the search started expanding level {@code depth}. */
+  public void recordDepth(int depth) {
+    if (enabled && depth > depthReached) {
+      depthReached = depth;
+    }
+  }
+
+  /**
+   * Sets how the search's upstream requests are scheduled against other searches' (see {@link
+   * FetchScheduler}); searches are {@link FetchScheduler.Priority#INTERACTIVE} unless set
+   * otherwise.
+   */
+  public void setFetchPriority(FetchScheduler.Priority priority) {
+    if (enabled) {
+      fetchPriority = priority;
+    }
+  }
+
+  /** Returns the scheduling class of the search's upstream requests. */
+  public FetchScheduler.Priority fetchPriority() {
+    return fetchPriority;
+  }
+
+  /** Returns the wall-clock time of the search (so far, if it has not finished). */
+  public double getTotalMillis() {
+    long nanos = totalNanos;
+    return toMillis(nanos < 0 ? System.nanoTime() - startNanos : nanos);
+  }
+
+  /**
+   * Returns the time the search was blocked waiting for links, excluding parsing on its own thread;
+   * 0 for non-blocking searches.
+   */
+  public double getFetchWaitMillis() {
+    return toMillis(fetchWaitNanos.get());
+  }
+
+  /** Returns the time spent parsing upstream responses, on all threads. */
+  public double getParseMillis() {
+    return toMillis(parseNanos.get());
+  }
+
+  public long getCacheHits() {
+    return cacheHits.get();
+  }
+
+  public long getCacheMisses() {
+    return cacheMisses.get();
+  }
+
+  /** Returns the number of expired link lists kept because their page had not changed. */
+  public long getRevalidations() {
+    return revalidations.get();
+  }
+
+  /** Returns the number of HTTP requests sent to Wikipedia or to peers. */
+  public long getHttpRequests() {
+    return httpRequests.get();
+  }
+
+  public long getBytesDownloaded() {
+    return bytesDownloaded.get();
+  }
+
+  /** Returns the largest number of discovered pages waiting to be expanded at once. */
+  public long getMaxFrontierSize() {
+    return maxFrontierSize;
+  }
+
+  /** Returns the deepest BFS level expanded (0 if only the start page was). */
+  public int getDepthReached() {
+    return depthReached;
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  /** Binding of metrics to a thread, undone by {@link #close()}. */
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,247 @@
+package com.wikipediafinder.backend;
+
+import com.wikipediafinder.backend.interfaces.ShortestPathsInterface;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable result of an all-shortest-paths search: the predecessor DAG of the target, from which
+ * every shortest path is read lazily.
+ *
+ * <p>The DAG records, for every page on some shortest path, all pages one hop closer to the start
+ * that link to it. Paths are enumerated depth-first from the target back to the start; since every
+ * page in the DAG has a predecessor, each path costs time proportional to its length, however many
+ * paths there are. Pulling N paths therefore needs no additional search.
+ */
+public final class ShortestPaths implements ShortestPathsInterface {
+  private final int startId;
+  private final int endId;
+  private final int distance;
+  private final Predecessors predecessors;
+  private final boolean complete;
+  private final int nodesExplored;
+  private final SearchMetrics metrics;
+
+  /**
+   * Create a result.
+   *
+   * @param startId ID of the start page
+   * @param endId ID of the target page
+   * @param distance hops of the shortest paths, or -1 if the target was not reached
+   * @param predecessors predecessor DAG of the target
+   * @param complete whether the target's level was finished, so that every shortest path is known
+   * @param nodesExplored number of nodes expanded during the search
+   * @param metrics metrics of the finished search
+   */
+  ShortestPaths(
+      int startId,
+      int endId,
+      int distance,
+      Predecessors predecessors,
+      boolean complete,
+      int nodesExplored,
+      SearchMetrics metrics) {
+    this.startId = startId;
+    this.endId = endId;
+    this.distance = distance;
+    this.predecessors = predecessors;
+    this.complete = complete;
+    this.nodesExplored = nodesExplored;
+    this.metrics = metrics;
+  }
+
+  /** Returns a copy of this result with the given metrics. */
+  ShortestPaths withMetrics(SearchMetrics metrics) {
+    return new ShortestPaths(
+        startId, endId, distance, predecessors, complete, nodesExplored, metrics);
+  }
+
+  /** Returns the number of hops of every shortest path, or -1 if the target was not reached. */
+  @Override
+  public int getDistance() {
+    return distance;
+  }
+
+  /**
+   * Returns whether every shortest path is known. False if the node cap was reached before the
+   * target's level was finished; the known paths are still shortest.
+   */
+  @Override
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /** Returns the number of nodes explored during the search. */
+  @Override
+  public int getNodesExplored() {
+    return nodesExplored;
+  }
+
+  /** Returns the timing breakdown of the search. */
+  @Override
+  public SearchMetrics getMetrics() {
+    return metrics;
+  }
+
+  /** Returns the number of known shortest paths, saturating at {@link Long#MAX_VALUE}. */
+  @Override
+  public long countPaths() {
+    return distance < 0 ? 0 : count(endId, new HashMap<>());
+  }
+
+  private long count(int id, Map<Integer, Long> memo) {
+    if (id == startId) {
+      return 1;
+    }
+    Long known = memo.get(id);
+    if (known != null) {
+      return known;
+    }
+    long total = 0;
+    for (int entry = predecessors.first(id); entry >= 0; entry = predecessors.next(entry)) {
+      long paths = count(predecessors.parent(entry), memo);
+      total = paths > Long.MAX_VALUE - total ? Long.MAX_VALUE : total + paths;
+    }
+    memo.put(id, total);
+    return total;
+  }
+
+  /**
+   * Returns the shortest paths as ordered lists of URLs from start to target, computed lazily as
+   * the stream is consumed. Empty if the target was not reached.
+   */
+  @Override
+  public Stream<List<String>> paths() {
+    if (distance < 0) {
+      return Stream.empty();
+    }
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(
+            new PathIterator(), Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+        false);
+  }
+
+  /**
+   * Returns at most {@code maxPaths} shortest paths.
+   *
+   * @throws IllegalArgumentException if {@code maxPaths} is negative
+   */
+  @Override
+  public List<List<String>> paths(int maxPaths) {
+    if (maxPaths < 0) {
+      throw new IllegalArgumentException("Maximum path count cannot be negative.");
+    }
+    return paths().limit(maxPaths).collect(Collectors.toList());
+  }
+
+  /**
+   * Depth-first walk over the DAG from the target. {@code nodes[i]} is the page {@code i} hops
+   * before the target on the current path and {@code entries[i]} the predecessor entry of {@code
+   * nodes[i]} leading to {@code nodes[i + 1]}.
+   */
+  private final class PathIterator implements Iterator<List<String>> {
+    private final int[] nodes = new int[distance + 1];
+    private final int[] entries = new int[distance + 1];
+    private boolean hasNext = true;
+
+    PathIterator() {
+      nodes[0] = endId;
+      descend(0);
+    }
+
+    /** Completes the current path from {@code nodes[i]} with the first predecessors. */
+    private void descend(int i) {
+      for (; i < distance; i++) {
+        entries[i] = predecessors.first(nodes[i]);
+        nodes[i + 1] = predecessors.parent(entries[i]);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return hasNext;
+    }
+
+    @Override
+    public List<String> next() {
+      if (!hasNext) {
+        throw new NoSuchElementException();
+      }
+      TitleRegistry registry = TitleRegistry.shared();
+      List<String> path = new ArrayList<>(distance + 1);
+      for (int i = distance; i >= 0; i--) {
+        path.add(registry.urlOf(nodes[i]));
+      }
+      advance();
+      return Collections.unmodifiableList(path);
+    }
+
+    /** Moves to the next path: the deepest page with another predecessor takes it. */
+    private void advance() {
+      for (int i = distance - 1; i >= 0; i--) {
+        int entry = predecessors.next(entries[i]);
+        if (entry >= 0) {
+          entries[i] = entry;
+          nodes[i + 1] = predecessors.parent(entry);
+          descend(i + 1);
+          return;
+        }
+      }
+      hasNext = false;
+    }
+  }
+
+  /**
+   * Multimap from a page to the pages one level closer to the start that link to it, stored as
+   * linked lists of entries in parallel arrays. Not thread-safe.
+   */
+  static final class Predecessors {
+    private final IntIntHashMap heads = new IntIntHashMap();
+    private int[] parents = new int[64];
+    private int[] nexts = new int[64];
+    private int size;
+
+    /** Records {@code parentId} as a predecessor of {@code childId}. */
+    void add(int childId, int parentId) {
+      if (size == parents.length) {
+        parents = Arrays.copyOf(parents, size * 2);
+        nexts = Arrays.copyOf(nexts, size * 2);
+      }
+      parents[size] = parentId;
+      nexts[size] = heads.get(childId, -1);
+      heads.put(childId, size);
+      size++;
+    }
+
+    /** Returns the first predecessor entry of {@code id}, or -1 if it has none. */
+    int first(int id) {
+      return heads.get(id, -1);
+    }
+
+    /** Returns the entry after {@code entry} for the same page, or -1 if it is the last. */
+    int next(int entry) {
+      return nexts[entry];
+    }
+
+    /** Returns the predecessor recorded by {@code entry}. */
+    int parent(int entry) {
+      return parents[entry];
+    }
+
+    /** Returns the number of recorded edges. */
+    int size() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,365 @@
+package com.wikipediafinder.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Parallel, direction-optimizing breadth-first search over a {@link GraphSnapshot}, falling back to
+ * live link requests for the pages the snapshot does not know.
+ *
+ * <p>The frontier, the next frontier and the visited set are bitsets over page IDs, allocated once
+ * per search and reused across levels, and each level is expanded by fork-join tasks over ranges of
+ * their words. Parent pointers are kept only for visited pages, in an {@link IntIntHashMap} filled
+ * from the pages each task claimed, so a search that stops after a few levels does not pay for an
+ * array over every page ID. A level runs either top-down (each frontier page scans its out-links
+ * and claims unvisited targets with a compare-and-set) or bottom-up (each unvisited page scans its
+ * in-links for a parent in the frontier and stops at the first). Following Beamer, Asanović and
+ * Patterson, the search turns bottom-up once the frontier's out-links exceed 1/14 of the links not
+ * yet explored, and back once the frontier holds fewer than 1/24 of the pages: on the few huge
+ * middle levels of a small-world graph such as Wikipedia's, most in-link scans end after a link or
+ * two, far less work than scanning every frontier link.
+ *
+ * <p>Frontier pages the snapshot does not know are expanded top-down before the parallel step,
+ * from links requested through the live loader for all of them at once. The search gives up
+ * without a path once it would need more than {@code liveCap} such requests. Instances are
+ * single-use.
+ */
+final class SnapshotSearch {
+  // Go bottom-up when frontier links exceed unexplored links / ALPHA, top-down again when the
+  // frontier holds fewer than nodeCount / BETA pages
+  private static final int ALPHA = 14;
+  private static final int BETA = 24;
+  // Bitset words (64 pages each) handled by one leaf task
+  private static final int WORDS_PER_TASK = 256;
+
+  private final GraphSnapshot graph;
+  private final IntFunction<CompletableFuture<CompressedAdjacency>> liveLinks;
+  private final ForkJoinPool pool;
+  private final int liveCap;
+  private final IntIntHashMap parents = new IntIntHashMap();
+  private AtomicLongArray visited;
+  private long[] frontier;
+  private AtomicLongArray next;
+  private long explored;
+  private int liveRequests;
+  private int bottomUpLevels;
+
+  /**
+   * Create a search.
+   *
+   * @param graph snapshot searched
+   * @param liveLinks requests the links of a page the snapshot does not know, by ID
+   * @param pool pool running the parallel steps
+   * @param liveCap most pages whose links are requested live
+   */
+  SnapshotSearch(
+      GraphSnapshot graph,
+      IntFunction<CompletableFuture<CompressedAdjacency>> liveLinks,
+      ForkJoinPool pool,
+      int liveCap) {
+    this.graph = graph;
+    this.liveLinks = liveLinks;
+    this.pool = pool;
+    this.liveCap = liveCap;
+  }
+
+  /**
+   * Searches from {@code startId} until {@code endId} is reached or no page is left.
+   *
+   * @param progressCallback receives the number of pages expanded after each level; may be null
+   * @return true if {@code endId} was reached; {@link #parentOf} then leads back to the start
+   */
+  boolean run(int startId, int endId, Consumer<Integer> progressCallback) {
+    SearchMetrics metrics = SearchMetrics.current();
+    FlightEvents.LevelTracker levels = new FlightEvents.LevelTracker("snapshot");
+    int capacity = Math.max(graph.nodeCount(), Math.max(startId, endId) + 1);
+    visited = new AtomicLongArray(words(capacity));
+    frontier = new long[words(capacity)];
+    next = new AtomicLongArray(frontier.length);
+    claim(startId);
+    parents.put(startId, startId);
+    frontier[startId >>> 6] |= 1L << startId;
+    long frontierSize = 1;
+    long frontierLinks = graph.outDegree(startId);
+    long unexploredLinks = graph.edgeCount() - frontierLinks;
+    boolean bottomUp = false;
+    for (int depth = 1; frontierSize > 0; depth++) {
+      explored += frontierSize;
+      levels.expanded(frontierSize);
+      for (int w = 0; w < next.length(); w++) {
+        next.set(w, 0);
+      }
+      if (!expandUnknown(metrics)) {
+        levels.finish(0);
+        return false;
+      }
+      if (bottomUp) {
+        bottomUp = frontierSize >= graph.nodeCount() / BETA;
+      } else {
+        bottomUp = frontierLinks > unexploredLinks / ALPHA;
+      }
+      if (bottomUp) {
+        bottomUpLevels++;
+        pool.invoke(new BottomUp(0, words(graph.nodeCount())));
+      } else {
+        pool.invoke(new TopDown(0, frontier.length));
+      }
+      frontierSize = 0;
+      frontierLinks = 0;
+      for (int w = 0; w < frontier.length; w++) {
+        long bits = next.get(w);
+        frontier[w] = bits;
+        frontierSize += Long.bitCount(bits);
+        for (; bits != 0; bits &= bits - 1) {
+          frontierLinks += graph.outDegree((w << 6) + Long.numberOfTrailingZeros(bits));
+        }
+      }
+      unexploredLinks -= frontierLinks;
+      if (progressCallback != null) {
+        progressCallback.accept((int) Math.min(Integer.MAX_VALUE, explored));
+      }
+      metrics.recordFrontier(frontierSize);
+      if (frontierSize > 0) {
+        metrics.recordDepth(depth);
+        levels.nextLevel(frontierSize);
+      }
+      if (isVisited(endId)) {
+        levels.finish(0);
+        return true;
+      }
+    }
+    levels.finish(0);
+    return false;
+  }
+
+  /** Returns the page through which {@code id} was reached, or -1 if it was not. */
+  int parentOf(int id) {
+    return parents.get(id, -1);
+  }
+
+  /** Returns the number of pages expanded. */
+  long getExplored() {
+    return explored;
+  }
+
+  /** Returns the number of pages whose links were requested live. */
+  int getLiveRequests() {
+    return liveRequests;
+  }
+
+  /** Returns the number of levels expanded bottom-up. */
+  int getBottomUpLevels() {
+    return bottomUpLevels;
+  }
+
+  /**
+   * Requests the links of the frontier pages the snapshot does not know and expands them into the
+   * next frontier. Returns false if that would exceed the live request cap.
+   */
+  private boolean expandUnknown(SearchMetrics metrics) {
+    List<Integer> unknown = new ArrayList<>();
+    for (int w = 0; w < frontier.length; w++) {
+      for (long bits = frontier[w]; bits != 0; bits &= bits - 1) {
+        int id = (w << 6) + Long.numberOfTrailingZeros(bits);
+        if (!graph.isKnown(id)) {
+          unknown.add(id);
+        }
+      }
+    }
+    if (unknown.isEmpty()) {
+      return true;
+    }
+    if (liveRequests + unknown.size() > liveCap) {
+      return false;
+    }
+    liveRequests += unknown.size();
+    List<CompletableFuture<CompressedAdjacency>> requests = new ArrayList<>(unknown.size());
+    for (int id : unknown) {
+      requests.add(liveLinks.apply(id));
+    }
+    long waitStart = SearchMetrics.startWait();
+    List<CompressedAdjacency> fetched = new ArrayList<>(unknown.size());
+    int maxId = -1;
+    for (CompletableFuture<CompressedAdjacency> request : requests) {
+      CompressedAdjacency links;
+      try {
+        links = request.join();
+      } catch (CompletionException | CancellationException e) {
+        // As in the other searches, a page whose links cannot be fetched has none
+        links = CompressedAdjacency.EMPTY;
+      }
+      fetched.add(links);
+      CompressedAdjacency.Cursor cursor = new CompressedAdjacency.Cursor();
+      cursor.reset(links);
+      while (cursor.hasNext()) {
+        maxId = Math.max(maxId, cursor.nextInt());
+      }
+    }
+    metrics.recordFetchWaitSince(waitStart);
+    ensureCapacity(maxId + 1);
+    for (int i = 0; i < unknown.size(); i++) {
+      int parent = unknown.get(i);
+      CompressedAdjacency links = fetched.get(i);
+      links.forEach(
+          id -> {
+            if (claim(id)) {
+              parents.put(id, parent);
+              setNext(id);
+            }
+          });
+    }
+    return true;
+  }
+
+  /** Grows the bitsets to hold pages discovered through live requests. */
+  private void ensureCapacity(int capacity) {
+    int words = words(capacity);
+    if (words <= frontier.length) {
+      return;
+    }
+    int newWords = Math.max(words, frontier.length + (frontier.length >> 1));
+    frontier = Arrays.copyOf(frontier, newWords);
+    visited = grow(visited, newWords);
+    next = grow(next, newWords);
+  }
+
+  private static AtomicLongArray grow(AtomicLongArray array, int length) {
+    AtomicLongArray grown = new AtomicLongArray(length);
+    for (int i = 0; i < array.length(); i++) {
+      grown.set(i, array.get(i));
+    }
+    return grown;
+  }
+
+  /** Marks {@code id} visited; returns false if it already was. */
+  private boolean claim(int id) {
+    int word = id >>> 6;
+    long bit = 1L << id;
+    while (true) {
+      long bits = visited.get(word);
+      if ((bits & bit) != 0) {
+        return false;
+      }
+      if (visited.compareAndSet(word, bits, bits | bit)) {
+        return true;
+      }
+    }
+  }
+
+  /** Records the parents of the pages a task claimed. */
+  private void addParents(IntIntHashMap claimed) {
+    synchronized (parents) {
+      claimed.forEach(parents::put);
+    }
+  }
+
+  private boolean isVisited(int id) {
+    return (visited.get(id >>> 6) & (1L << id)) != 0;
+  }
+
+  private void setNext(int id) {
+    next.getAndAccumulate(id >>> 6, 1L << id, (bits, bit) -> bits | bit);
+  }
+
+  private static int words(int pages) {
+    return (pages + 63) >>> 6;
+  }
+
+  /** Expands the known frontier pages in a range of frontier words through their out-links. */
+  private final class TopDown extends RecursiveAction {
+    private final int from;
+    private final int to;
+
+    TopDown(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > WORDS_PER_TASK) {
+        int mid = (from + to) >>> 1;
+        invokeAll(new TopDown(from, mid), new TopDown(mid, to));
+        return;
+      }
+      int[] offsets = graph.offsets();
+      int[] targets = graph.targets();
+      IntIntHashMap claimed = new IntIntHashMap();
+      for (int w = from; w < to; w++) {
+        for (long bits = frontier[w]; bits != 0; bits &= bits - 1) {
+          int id = (w << 6) + Long.numberOfTrailingZeros(bits);
+          // Unknown pages were expanded from live links
+          if (!graph.isKnown(id)) {
+            continue;
+          }
+          for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+            int target = targets[e];
+            if (!isVisited(target) && claim(target)) {
+              claimed.put(target, id);
+              setNext(target);
+            }
+          }
+        }
+      }
+      addParents(claimed);
+    }
+  }
+
+  /**
+   * Looks for a parent in the frontier for each unvisited page in a range of visited words, among
+   * the in-links from known pages. Each word belongs to one task, so its bits are only set by it.
+   */
+  private final class BottomUp extends RecursiveAction {
+    private final int from;
+    private final int to;
+
+    BottomUp(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > WORDS_PER_TASK) {
+        int mid = (from + to) >>> 1;
+        invokeAll(new BottomUp(from, mid), new BottomUp(mid, to));
+        return;
+      }
+      int[] inOffsets = graph.inOffsets();
+      int[] sources = graph.sources();
+      int nodeCount = graph.nodeCount();
+      IntIntHashMap claimed = new IntIntHashMap();
+      for (int w = from; w < to; w++) {
+        long found = 0;
+        for (long bits = ~visited.get(w); bits != 0; bits &= bits - 1) {
+          int id = (w << 6) + Long.numberOfTrailingZeros(bits);
+          if (id >= nodeCount) {
+            break;
+          }
+          for (int e = inOffsets[id]; e < inOffsets[id + 1]; e++) {
+            int source = sources[e];
+            if ((frontier[source >>> 6] & (1L << source)) != 0 && graph.isKnown(source)) {
+              claimed.put(id, source);
+              found |= 1L << id;
+              break;
+            }
+          }
+        }
+        if (found != 0) {
+          visited.getAndAccumulate(w, found, (bits, bit) -> bits | bit);
+          next.getAndAccumulate(w, found, (bits, bit) -> bits | bit);
+        }
+      }
+      addParents(claimed);
+    }
+  }
+}
@@ -0,0 +1,328 @@
+package com.wikipediafinder.backend;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * A partially expanded breadth-first search tree rooted at one page, which later searches resume
+ * instead of starting over.
+ *
+ * <p>A forward tree follows outgoing links from its root and answers paths from the root; a reverse
+ * tree follows backlinks into its root and answers paths to the root. The tree keeps exactly what a
+ * BFS needs to continue where it stopped: the discovered set, parent pointers (as {@link
+ * TitleRegistry} IDs) and the queue of discovered pages not yet expanded. Every page in the tree
+ * was discovered at its shortest distance from the root, so a search whose other end is already in
+ * the tree is answered from the parent pointers without expanding anything.
+ *
+ * <p>A page is always expanded completely, even once the target is among its links, so that the
+ * queue remains a valid BFS frontier for the next search, and it leaves the queue only once its
+ * links have been added. The tree is thread-safe, but links are loaded without holding its lock:
+ * searches sharing a tree load the same front page side by side and the first to finish adds it.
+ * A tree can be saved with {@link #writeTo} and restored by {@link #readFrom}, also in another
+ * process, since pages are written as URLs rather than IDs.
+ */
+public final class SourceTree {
+  private final int rootId;
+  private final boolean reverse;
+  private final BitSet discovered = new BitSet();
+  private final IntIntHashMap parents = new IntIntHashMap();
+  private final IntQueue queue = new IntQueue();
+  private final CompressedAdjacency.Cursor cursor = new CompressedAdjacency.Cursor();
+  private int nodesExpanded;
+  private int depth;
+  private int levelRemaining = 1;
+  private int truncatedDepth = Integer.MAX_VALUE;
+  private boolean failed;
+
+  /**
+   * Create a tree containing only its root.
+   *
+   * @param rootId {@link TitleRegistry} ID of the root page
+   * @param reverse true to follow backlinks into the root rather than links out of it
+   */
+  public SourceTree(int rootId, boolean reverse) {
+    this.rootId = rootId;
+    this.reverse = reverse;
+    discovered.set(rootId);
+    queue.add(rootId);
+  }
+
+  /** Returns the {@link TitleRegistry} ID of the root page. */
+  public int getRootId() {
+    return rootId;
+  }
+
+  /** Returns true if the tree follows backlinks into its root. */
+  public boolean isReverse() {
+    return reverse;
+  }
+
+  /** Returns the number of pages expanded by all searches so far. */
+  public synchronized int getNodesExpanded() {
+    return nodesExpanded;
+  }
+
+  /**
+   * Returns true if the links of some expanded page could not be loaded. Such a tree lacks part of
+   * the graph and should not be kept for later searches.
+   */
+  public synchronized boolean hasFailed() {
+    return failed;
+  }
+
+  /** Returns true if every page reachable within the tree has been expanded. */
+  public synchronized boolean isExhausted() {
+    return queue.isEmpty();
+  }
+
+  /**
+   * Returns true if {@link #pathTo} page {@code id} is known to be a shortest path. A backlink list
+   * cut off at {@link LinkFetcher#LINK_LIMIT} may leave out a page that reaches the pages two or
+   * more levels below it by a shorter path, so this requires that no such list was expanded above
+   * the level of {@code id}'s parent. Forward trees follow the same link lists as any other search,
+   * so every page they discovered counts as exact.
+   */
+  public synchronized boolean isExact(int id) {
+    if (!discovered.get(id)) {
+      return false;
+    }
+    int distance = 0;
+    for (int node = id; node != rootId; node = parents.get(node, rootId)) {
+      distance++;
+    }
+    return distance - 1 <= truncatedDepth;
+  }
+
+  /** Calls {@code action} with the {@link TitleRegistry} ID of every page discovered. */
+  public synchronized void forEachId(IntConsumer action) {
+    discovered.stream().forEach(action);
+  }
+
+  /** Returns true if any of the pages in {@code ids} has been discovered. */
+  public synchronized boolean containsAny(BitSet ids) {
+    return discovered.intersects(ids);
+  }
+
+  /**
+   * Returns a shortest path between the root and page {@code id} if the page has been discovered:
+   * from the root to {@code id} for a forward tree, from {@code id} to the root for a reverse tree.
+   *
+   * @return list of URLs, or null if {@code id} is not in the tree
+   */
+  public synchronized List<String> pathTo(int id) {
+    if (!discovered.get(id)) {
+      return null;
+    }
+    TitleRegistry registry = TitleRegistry.shared();
+    List<String> path = new ArrayList<>();
+    for (int node = id; node != rootId; node = parents.get(node, rootId)) {
+      path.add(registry.urlOf(node));
+    }
+    path.add(registry.urlOf(rootId));
+    if (!reverse) {
+      Collections.reverse(path);
+    }
+    return path;
+  }
+
+  /**
+   * Expands queued pages until {@code targetId} is discovered, every reachable page is expanded or
+   * {@code budget} pages have been expanded by this call.
+   *
+   * @param targetId {@link TitleRegistry} ID of the page searched for
+   * @param budget maximum number of pages to expand
+   * @param loader returns the links of a page (its backlinks for a reverse tree), or null if they
+   *     could not be loaded
+   * @param prefetcher loads the links of queued pages ahead of their expansion (nullable)
+   * @param progressCallback invoked with the number of pages expanded by this call (nullable)
+   * @return the number of pages expanded by this call
+   */
+  public int expand(
+      int targetId,
+      int budget,
+      IntFunction<CompressedAdjacency> loader,
+      LookaheadPrefetcher prefetcher,
+      Consumer<Integer> progressCallback) {
+    SearchMetrics metrics = SearchMetrics.current();
+    int expanded = 0;
+    while (expanded < budget) {
+      int id;
+      synchronized (this) {
+        if (discovered.get(targetId) || queue.isEmpty()) {
+          break;
+        }
+        if (prefetcher != null) {
+          prefetcher.advance(queue);
+        }
+        id = queue.peek(0);
+      }
+      long waitStart = SearchMetrics.startWait();
+      if (prefetcher != null) {
+        prefetcher.await(id);
+      }
+      CompressedAdjacency links = loader.apply(id);
+      metrics.recordFetchWaitSince(waitStart);
+      expanded++;
+      synchronized (this) {
+        // Another search sharing the tree may have added the page while its links were loading
+        if (!queue.isEmpty() && queue.peek(0) == id) {
+          add(id, links);
+        }
+        metrics.recordDepth(depth);
+        metrics.recordFrontier(queue.size());
+      }
+      if (progressCallback != null) {
+        progressCallback.accept(expanded);
+      }
+    }
+    return expanded;
+  }
+
+  /** Takes page {@code id} off the front of the queue and queues the pages it discovers. */
+  private void add(int id, CompressedAdjacency links) {
+    if (levelRemaining == 0) {
+      // The level is done, so the queue holds exactly the next one
+      depth++;
+      levelRemaining = queue.size();
+    }
+    queue.poll();
+    levelRemaining--;
+    nodesExpanded++;
+    if (links == null) {
+      failed = true;
+      return;
+    }
+    if (reverse && links.size() >= LinkFetcher.LINK_LIMIT) {
+      truncatedDepth = Math.min(truncatedDepth, depth);
+    }
+    cursor.reset(links);
+    while (cursor.hasNext()) {
+      int neighborId = cursor.nextInt();
+      if (!discovered.get(neighborId)) {
+        discovered.set(neighborId);
+        parents.put(neighborId, id);
+        queue.add(neighborId);
+      }
+    }
+  }
+
+  /**
+   * Writes the tree, to be restored by {@link #readFrom}: every discovered page as a URL (the root
+   * first), the index of each other page's parent in that list, and the queue as indices. The tree
+   * is locked only while its IDs are copied, not while the URLs are looked up and written.
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    int nodesExpanded;
+    int depth;
+    int levelRemaining;
+    int truncatedDepth;
+    boolean failed;
+    int[] nodes;
+    int[] parentIndices;
+    int[] queueIndices;
+    synchronized (this) {
+      nodesExpanded = this.nodesExpanded;
+      depth = this.depth;
+      levelRemaining = this.levelRemaining;
+      truncatedDepth = this.truncatedDepth;
+      failed = this.failed;
+      nodes = new int[parents.size() + 1];
+      IntIntHashMap indexOf = new IntIntHashMap(nodes.length);
+      nodes[0] = rootId;
+      indexOf.put(rootId, 0);
+      int[] count = {1};
+      parents.forEach(
+          (id, parent) -> {
+            indexOf.put(id, count[0]);
+            nodes[count[0]++] = id;
+          });
+      parentIndices = new int[nodes.length];
+      for (int i = 1; i < nodes.length; i++) {
+        parentIndices[i] = indexOf.get(parents.get(nodes[i], rootId), 0);
+      }
+      queueIndices = new int[queue.size()];
+      for (int i = 0; i < queueIndices.length; i++) {
+        queueIndices[i] = indexOf.get(queue.peek(i), 0);
+      }
+    }
+    TitleRegistry registry = TitleRegistry.shared();
+    out.writeBoolean(reverse);
+    out.writeInt(nodesExpanded);
+    out.writeInt(depth);
+    out.writeInt(levelRemaining);
+    out.writeInt(truncatedDepth);
+    out.writeBoolean(failed);
+    out.writeInt(nodes.length);
+    for (int id : nodes) {
+      out.writeUTF(registry.urlOf(id));
+    }
+    for (int i = 1; i < nodes.length; i++) {
+      out.writeInt(parentIndices[i]);
+    }
+    out.writeInt(queueIndices.length);
+    for (int index : queueIndices) {
+      out.writeInt(index);
+    }
+  }
+
+  /**
+   * Reads a tree written by {@link #writeTo}, registering its pages in the {@link TitleRegistry}.
+   *
+   * @throws IOException if the data cannot be read or is not a valid tree
+   */
+  public static SourceTree readFrom(DataInput in) throws IOException {
+    TitleRegistry registry = TitleRegistry.shared();
+    boolean reverse = in.readBoolean();
+    int nodesExpanded = in.readInt();
+    int depth = in.readInt();
+    int levelRemaining = in.readInt();
+    int truncatedDepth = in.readInt();
+    boolean failed = in.readBoolean();
+    int nodeCount = in.readInt();
+    if (nodeCount <= 0) {
+      throw new IOException("Invalid tree: " + nodeCount + " pages");
+    }
+    int[] nodes = new int[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      nodes[i] = registry.idOf(in.readUTF());
+    }
+    SourceTree tree = new SourceTree(nodes[0], reverse);
+    tree.queue.clear();
+    for (int i = 1; i < nodeCount; i++) {
+      tree.discovered.set(nodes[i]);
+      tree.parents.put(nodes[i], nodes[readIndex(in, nodeCount)]);
+    }
+    int queued = in.readInt();
+    for (int i = 0; i < queued; i++) {
+      tree.queue.add(nodes[readIndex(in, nodeCount)]);
+    }
+    tree.nodesExpanded = nodesExpanded;
+    tree.depth = depth;
+    tree.levelRemaining = levelRemaining;
+    tree.truncatedDepth = truncatedDepth;
+    tree.failed = failed;
+    return tree;
+  }
+
+  private static int readIndex(DataInput in, int nodeCount) throws IOException {
+    int index = in.readInt();
+    if (index < 0 || index >= nodeCount) {
+      throw new IOException("Invalid tree: page index " + index + " out of range");
+    }
+    return index;
+  }
+
+  /** Returns the approximate memory used by the tree, in bytes. */
+  public synchronized long byteSize() {
+    // At a load factor of at most one half, each parent pointer takes two slots of two ints
+    return 16L * parents.size() + 4L * queue.size() + discovered.size() / 8 + 64;
+  }
+}
@@ -0,0 +1,142 @@
+package com.wikipediafinder.backend;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Cache of {@link SourceTree}s: forward trees keyed by their start page and reverse (backlink)
+ * trees keyed by their target page.
+ *
+ * <p>The cache is bounded by the approximate memory of the trees. Caffeine admits and evicts by
+ * access frequency, so the trees of popular start and target pages stay while one-off searches
+ * are evicted first. Trees expire a fixed time after they were built, like the link lists they
+ * were built from; resuming a tree does not extend it, so popular trees are rebuilt from fresh
+ * links too. Queries per target page are counted so that a reverse tree is only built for a
+ * target that is searched for repeatedly.
+ */
+public final class SourceTreeCache {
+  private static final SourceTreeCache SHARED =
+      new SourceTreeCache(128L * 1024 * 1024, Duration.ofHours(1), 3);
+
+  private final Cache<Long, SourceTree> trees;
+  private final Cache<Integer, AtomicInteger> targetQueries;
+  private final int popularTargetQueries;
+
+  /**
+   * Create a cache.
+   *
+   * @param maxBytes approximate upper bound on the memory used by cached trees
+   * @param ttl how long a tree is kept after it was first cached
+   * @param popularTargetQueries number of queries after which a target page is popular
+   */
+  public SourceTreeCache(long maxBytes, Duration ttl, int popularTargetQueries) {
+    this.trees =
+        Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .<Long, SourceTree>weigher(
+                (key, tree) -> (int) Math.min(Integer.MAX_VALUE, tree.byteSize()))
+            .expireAfter(
+                new Expiry<Long, SourceTree>() {
+                  @Override
+                  public long expireAfterCreate(Long key, SourceTree tree, long currentTime) {
+                    return ttl.toNanos();
+                  }
+
+                  @Override
+                  public long expireAfterUpdate(
+                      Long key, SourceTree tree, long currentTime, long currentDuration) {
+                    return currentDuration;
+                  }
+
+                  @Override
+                  public long expireAfterRead(
+                      Long key, SourceTree tree, long currentTime, long currentDuration) {
+                    return currentDuration;
+                  }
+                })
+            .build();
+    this.targetQueries = Caffeine.newBuilder().maximumSize(10_000).expireAfterWrite(ttl).build();
+    this.popularTargetQueries = popularTargetQueries;
+  }
+
+  /** Returns the process-wide instance. */
+  public static SourceTreeCache shared() {
+    return SHARED;
+  }
+
+  /** Returns the forward tree rooted at page {@code startId}, or null if none is cached. */
+  public SourceTree getForward(int startId) {
+    return trees.getIfPresent(key(startId, false));
+  }
+
+  /** Returns the reverse tree rooted at page {@code targetId}, or null if none is cached. */
+  public SourceTree getReverse(int targetId) {
+    return trees.getIfPresent(key(targetId, true));
+  }
+
+  /**
+   * Counts a query for page {@code targetId} and returns true if the page is now popular enough
+   * to warrant a reverse tree.
+   */
+  public boolean recordTargetQuery(int targetId) {
+    AtomicInteger queries = targetQueries.get(targetId, id -> new AtomicInteger());
+    return queries.incrementAndGet() >= popularTargetQueries;
+  }
+
+  /**
+   * Stores {@code tree}, built by a search, unless a tree with the same root was cached meanwhile;
+   * a tree with missing links is dropped instead.
+   */
+  public void put(SourceTree tree) {
+    long key = key(tree.getRootId(), tree.isReverse());
+    if (tree.hasFailed()) {
+      trees.asMap().remove(key, tree);
+    } else {
+      trees.asMap().putIfAbsent(key, tree);
+    }
+  }
+
+  /**
+   * Re-weighs {@code tree}, taken from the cache and resumed by a search, if it is still cached.
+   * Its expiry is kept, and a tree dropped while it was resumed stays dropped; a tree with missing
+   * links is dropped instead.
+   */
+  public void update(SourceTree tree) {
+    long key = key(tree.getRootId(), tree.isReverse());
+    if (tree.hasFailed()) {
+      trees.asMap().remove(key, tree);
+    } else {
+      trees.asMap().replace(key, tree, tree);
+    }
+  }
+
+  /**
+   * Drops the trees that discovered any of the pages in {@code changedIds}, whose links changed.
+   */
+  public void invalidatePages(BitSet changedIds) {
+    trees.asMap().values().removeIf(tree -> tree.containsAny(changedIds));
+  }
+
+  /**
+   * Calls {@code action} with every {@link TitleRegistry} ID held: the pages of cached trees and
+   * the targets whose queries are counted.
+   */
+  public void forEachId(IntConsumer action) {
+    trees.asMap().values().forEach(tree -> tree.forEachId(action));
+    targetQueries.asMap().keySet().forEach(action::accept);
+  }
+
+  /** Drops all trees, e.g. after the link lists they were built from changed. */
+  public void invalidateAll() {
+    trees.invalidateAll();
+  }
+
+  private static long key(int rootId, boolean reverse) {
+    return reverse ? -1L - rootId : rootId;
+  }
+}
@@ -0,0 +1,205 @@
+package com.wikipediafinder.backend;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Process-wide dictionary that assigns a dense {@code int} ID to every page URL the backend holds.
+ *
+ * <p>IDs are small, so they can be stored in primitive arrays and bitsets. Each URL string is held
+ * exactly once here, which lets adjacency lists (see {@link CompressedAdjacency}) store small
+ * integers instead of repeating full URLs for every link. Lookups are lock-free; only the
+ * assignment of a new ID and {@link #trim} are synchronized.
+ *
+ * <p>Every link of every fetched page is registered, so the registry would grow with every
+ * distinct URL seen for the lifetime of the process. Instead its size follows the caches: {@link
+ * #trim} frees the IDs that no cache refers to any more (see {@link TitleRegistryTrimmer}), and
+ * freed IDs are handed out again. An ID that was looked up ({@link #idOf}, {@link #find}, {@link
+ * #urlOf}) since the previous trim, or was referenced at it, is never freed, so code holding an ID
+ * outside the caches is safe for at least one full interval between trims.
+ */
+public final class TitleRegistry {
+  private static final TitleRegistry SHARED = new TitleRegistry();
+  private static final int CHUNK_BITS = 14;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+  private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+  // Chunks are never copied when the registry grows, so that no concurrent write to them is lost
+  private volatile AtomicReferenceArray<String>[] urls = newUrlChunks();
+  // The trim epoch in which each ID was last used
+  private volatile AtomicIntegerArray[] usedIn = newEpochChunks();
+  private final IntQueue freeIds = new IntQueue();
+  private volatile int epoch;
+  private int size;
+
+  /** Returns the process-wide instance. */
+  public static TitleRegistry shared() {
+    return SHARED;
+  }
+
+  /**
+   * Returns the ID for {@code url}, assigning a new one if the URL is not registered.
+   *
+   * @param url page URL (must be non-null)
+   * @return the URL's ID
+   */
+  public int idOf(String url) {
+    Integer id = ids.get(url);
+    if (id != null && markUsed(id, url)) {
+      return id;
+    }
+    synchronized (this) {
+      id = ids.get(url);
+      if (id != null) {
+        markUsed(id, url);
+        return id;
+      }
+      int newId = freeIds.isEmpty() ? size++ : freeIds.poll();
+      if (newId >> CHUNK_BITS == urls.length || urls[newId >> CHUNK_BITS] == null) {
+        addChunk(newId >> CHUNK_BITS);
+      }
+      usedIn[newId >> CHUNK_BITS].set(newId & (CHUNK_SIZE - 1), epoch);
+      urls[newId >> CHUNK_BITS].set(newId & (CHUNK_SIZE - 1), url);
+      ids.put(url, newId);
+      return newId;
+    }
+  }
+
+  /** Returns the ID for {@code url}, or -1 if the URL is not registered. */
+  public int find(String url) {
+    Integer id = ids.get(url);
+    if (id == null) {
+      return -1;
+    }
+    if (markUsed(id, url)) {
+      return id;
+    }
+    synchronized (this) {
+      id = ids.get(url);
+      if (id == null) {
+        return -1;
+      }
+      markUsed(id, url);
+      return id;
+    }
+  }
+
+  /**
+   * Returns the URL registered under {@code id}.
+   *
+   * @throws IndexOutOfBoundsException if no URL is registered under {@code id}
+   */
+  public String urlOf(int id) {
+    AtomicReferenceArray<String>[] chunks = urls;
+    if (id < 0 || id >> CHUNK_BITS >= chunks.length || chunks[id >> CHUNK_BITS] == null) {
+      throw new IndexOutOfBoundsException("Unknown title ID: " + id);
+    }
+    markUsed(id);
+    String url = chunks[id >> CHUNK_BITS].get(id & (CHUNK_SIZE - 1));
+    if (url == null) {
+      // A trim may be checking the ID right now; it keeps the ID since it has just been used
+      synchronized (this) {
+        url = urls[id >> CHUNK_BITS].get(id & (CHUNK_SIZE - 1));
+      }
+      if (url == null) {
+        throw new IndexOutOfBoundsException("Unknown title ID: " + id);
+      }
+    }
+    return url;
+  }
+
+  /** Returns one more than the largest ID assigned so far. */
+  public synchronized int size() {
+    return size;
+  }
+
+  /** Returns the number of URLs registered now, i.e. excluding those freed by {@link #trim}. */
+  public synchronized int urlCount() {
+    return size - freeIds.size();
+  }
+
+  /**
+   * Frees the IDs of URLs that are neither in {@code referenced} nor were referenced at the
+   * previous trim or used since, and starts a new epoch. Their URLs must be registered again to be
+   * looked up, possibly under another ID.
+   *
+   * @param referenced IDs held by the caches now
+   * @return the number of URLs freed
+   */
+  public synchronized int trim(BitSet referenced) {
+    int current = ++epoch;
+    for (int id = referenced.nextSetBit(0);
+        id >= 0 && id < size;
+        id = referenced.nextSetBit(id + 1)) {
+      usedIn[id >> CHUNK_BITS].set(id & (CHUNK_SIZE - 1), current);
+    }
+    int freed = 0;
+    for (int id = 0; id < size; id++) {
+      AtomicReferenceArray<String> chunk = urls[id >> CHUNK_BITS];
+      AtomicIntegerArray used = usedIn[id >> CHUNK_BITS];
+      int index = id & (CHUNK_SIZE - 1);
+      String url = chunk.get(index);
+      if (url == null || used.get(index) >= current - 1) {
+        continue;
+      }
+      chunk.set(index, null);
+      // A lock-free lookup that marked the ID before seeing it cleared keeps it registered
+      if (used.get(index) >= current - 1) {
+        chunk.set(index, url);
+        continue;
+      }
+      ids.remove(url);
+      freeIds.add(id);
+      freed++;
+    }
+    return freed;
+  }
+
+  /**
+   * Marks {@code id} as used in the current epoch and returns true if it is still registered to
+   * {@code url}. Marking before checking means that a concurrent {@link #trim} either sees the mark
+   * or is seen to have cleared the URL.
+   */
+  private boolean markUsed(int id, String url) {
+    markUsed(id);
+    return url.equals(urls[id >> CHUNK_BITS].get(id & (CHUNK_SIZE - 1)));
+  }
+
+  private void markUsed(int id) {
+    AtomicIntegerArray used = usedIn[id >> CHUNK_BITS];
+    int current = epoch;
+    if (used.get(id & (CHUNK_SIZE - 1)) != current) {
+      used.set(id & (CHUNK_SIZE - 1), current);
+    }
+  }
+
+  /** Adds the chunks holding IDs from {@code chunk << CHUNK_BITS} on. */
+  private void addChunk(int chunk) {
+    AtomicReferenceArray<String>[] newUrls = urls;
+    AtomicIntegerArray[] newUsedIn = usedIn;
+    if (chunk == newUrls.length) {
+      newUrls = Arrays.copyOf(newUrls, chunk * 2);
+      newUsedIn = Arrays.copyOf(newUsedIn, chunk * 2);
+    }
+    newUrls[chunk] = new AtomicReferenceArray<>(CHUNK_SIZE);
+    newUsedIn[chunk] = new AtomicIntegerArray(CHUNK_SIZE);
+    usedIn = newUsedIn;
+    urls = newUrls;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static AtomicReferenceArray<String>[] newUrlChunks() {
+    AtomicReferenceArray<String>[] chunks = new AtomicReferenceArray[1];
+    chunks[0] = new AtomicReferenceArray<>(CHUNK_SIZE);
+    return chunks;
+  }
+
+  private static AtomicIntegerArray[] newEpochChunks() {
+    AtomicIntegerArray[] chunks = new AtomicIntegerArray[1];
+    chunks[0] = new AtomicIntegerArray(CHUNK_SIZE);
+    return chunks;
+  }
+}
@@ -0,0 +1,71 @@
+package com.wikipediafinder.backend;
+
+import java.util.BitSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Frees the {@link TitleRegistry} IDs that nothing cached refers to any more, so that the registry
+ * shrinks with the link caches rather than growing with every URL the process has seen.
+ *
+ * <p>Each run collects the IDs held by the link and backlink caches, the cached and job search
+ * trees, the shared graph snapshot, the disambiguation index and the search activity counts, and
+ * passes them to {@link TitleRegistry#trim}. Since that walks every cache, runs are skipped while
+ * the registry holds fewer URLs than configured. They are also skipped while the background crawler
+ * is running, as a paused crawl may hold IDs for longer than an interval.
+ */
+@Component
+public class TitleRegistryTrimmer {
+  private final LinkFetcher linkFetcher;
+  private final SearchJobService jobs;
+  private final BackgroundCrawler crawler;
+  private final int minUrls;
+
+  /**
+   * Create a trimmer.
+   *
+   * @param linkFetcher fetcher whose registry is trimmed and whose caches are kept
+   * @param jobs search jobs whose trees are kept
+   * @param crawler crawler during whose runs nothing is trimmed
+   * @param minUrls number of registered URLs below which runs are skipped
+   */
+  public TitleRegistryTrimmer(
+      LinkFetcher linkFetcher,
+      SearchJobService jobs,
+      BackgroundCrawler crawler,
+      @Value("${wikipediafinder.titles.trim-above:1000000}") int minUrls) {
+    this.linkFetcher = linkFetcher;
+    this.jobs = jobs;
+    this.crawler = crawler;
+    this.minUrls = minUrls;
+  }
+
+  /** Frees the IDs no cache refers to, unless the registry is small or a crawl is running. */
+  @Scheduled(
+      initialDelayString = "${wikipediafinder.titles.trim-interval:PT30M}",
+      fixedDelayString = "${wikipediafinder.titles.trim-interval:PT30M}")
+  public void trim() {
+    TitleRegistry registry = linkFetcher.getRegistry();
+    if (registry.urlCount() < minUrls || crawler.isCrawling()) {
+      return;
+    }
+    long startNanos = System.nanoTime();
+    BitSet referenced = new BitSet(registry.size());
+    linkFetcher.forEachId(referenced::set);
+    SourceTreeCache.shared().forEachId(referenced::set);
+    jobs.forEachId(referenced::set);
+    GraphSnapshot.shared().forEachId(referenced::set);
+    DisambiguationIndex.shared().forEachId(referenced::set);
+    SearchActivity.shared().forEachId(referenced::set);
+    int freed = registry.trim(referenced);
+    System.err.println(
+        "Title registry trimmed: "
+            + freed
+            + " URLs freed, "
+            + registry.urlCount()
+            + " kept in "
+            + (System.nanoTime() - startNanos) / 1_000_000
+            + " ms");
+  }
+}
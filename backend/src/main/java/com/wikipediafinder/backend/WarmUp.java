@@ -0,0 +1,149 @@
+package com.wikipediafinder.backend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the hot paths of a search at startup against bundled fixtures, so that the JIT has compiled
+ * them before the first user query: parsing link responses, the default and snapshot searches, and
+ * serializing results. The fixtures in {@code warmup/links.json} are API responses for a made-up
+ * graph of 60 pages, so nothing is fetched and no shared cache receives their links.
+ *
+ * <p>Runs as an {@link ApplicationRunner}, which Spring Boot completes before the application
+ * accepts traffic, so {@code /api/health} reports it as unavailable until the warm-up is done.
+ * {@code wikipediafinder.warmup.iterations} sets how many rounds run; 0 disables it.
+ */
+@Component
+public class WarmUp implements ApplicationRunner {
+  static final String FIXTURES = "/warmup/links.json";
+
+  private final BFS bfs;
+  private final ObjectMapper objectMapper;
+  private final int iterations;
+
+  public WarmUp(
+      BFS bfs,
+      ObjectMapper objectMapper,
+      @Value("${wikipediafinder.warmup.iterations:200}") int iterations) {
+    this.bfs = bfs;
+    this.objectMapper = objectMapper;
+    this.iterations = iterations;
+  }
+
+  /** Runs the warm-up rounds; failures are logged and do not stop startup. */
+  @Override
+  public void run(ApplicationArguments args) {
+    if (iterations <= 0) {
+      return;
+    }
+    long startNanos = System.nanoTime();
+    Map<String, String> responses;
+    try {
+      responses = loadFixtures();
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Warm-up skipped: " + e);
+      return;
+    }
+    List<String> urls = new ArrayList<>();
+    for (String title : responses.keySet()) {
+      urls.add(WikipediaApiClient.titleToUrl(title));
+    }
+    try {
+      for (int round = 0; round < iterations; round++) {
+        runRound(responses, urls, round);
+      }
+      System.err.println(
+          "Warm-up ran "
+              + iterations
+              + " rounds in "
+              + Duration.ofNanos(System.nanoTime() - startNanos).toMillis()
+              + " ms");
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Warm-up stopped: " + e);
+    } finally {
+      // Keep the made-up pages out of what the background crawler fetches
+      SearchActivity.shared().forgetPages(urls);
+    }
+  }
+
+  /** Returns the body of the fixture response of each page, by title. */
+  static Map<String, String> loadFixtures() throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    Map<String, String> responses = new HashMap<>();
+    try (InputStream in = WarmUp.class.getResourceAsStream(FIXTURES)) {
+      if (in == null) {
+        throw new IOException("Missing warm-up fixtures " + FIXTURES);
+      }
+      JsonNode root = mapper.readTree(in);
+      Iterator<Map.Entry<String, JsonNode>> pages = root.fields();
+      while (pages.hasNext()) {
+        Map.Entry<String, JsonNode> page = pages.next();
+        responses.put(page.getKey(), mapper.writeValueAsString(page.getValue()));
+      }
+    }
+    return responses;
+  }
+
+  /** Parses every fixture, searches between two of its pages both ways and serializes the paths. */
+  private void runRound(Map<String, String> responses, List<String> urls, int round)
+      throws IOException {
+    TitleRegistry registry = TitleRegistry.shared();
+    AdjacencyCache cache = new AdjacencyCache(1 << 20, Duration.ofMinutes(1));
+    Map<String, CompressedAdjacency> links = new HashMap<>();
+    for (Map.Entry<String, String> response : responses.entrySet()) {
+      WikipediaApiClient.PageLinks parsed =
+          WikipediaApiClient.parseLinks(
+              response.getKey(), response.getValue(), SearchMetrics.current());
+      int[] ids = parsed.getLinks().stream().mapToInt(registry::idOf).toArray();
+      String url = WikipediaApiClient.titleToUrl(response.getKey());
+      CompressedAdjacency adjacency = CompressedAdjacency.of(ids);
+      links.put(url, adjacency);
+      cache.put(registry.idOf(url), adjacency);
+    }
+    PageNode start = new FixturePage(urls.get(round % urls.size()), links);
+    PageNode end = new FixturePage(urls.get((round * 7 + 3) % urls.size()), links);
+    BFSResult result = bfs.getPathWithStats(start, end, url -> new FixturePage(url, links));
+    objectMapper.writeValueAsString(result);
+    BFSResult snapshotResult =
+        bfs.getPathWithStatsSnapshot(
+            start,
+            end,
+            GraphSnapshot.of(cache),
+            url ->
+                CompletableFuture.completedFuture(
+                    links.getOrDefault(url, CompressedAdjacency.EMPTY)),
+            null);
+    objectMapper.writeValueAsString(snapshotResult);
+  }
+
+  /** Page whose links come from the parsed fixtures. */
+  private static final class FixturePage extends PageNode {
+    private final Map<String, CompressedAdjacency> links;
+
+    FixturePage(String url, Map<String, CompressedAdjacency> links) {
+      super(url);
+      this.links = links;
+    }
+
+    @Override
+    public void findOutgoingLinks() {}
+
+    @Override
+    public CompressedAdjacency getOutLinkIds() {
+      return links.getOrDefault(getURL(), CompressedAdjacency.EMPTY);
+    }
+  }
+}
@@ -10,8 +10,20 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Client for interacting with the Wikipedia API to fetch page links efficiently.
@@ -22,6 +34,8 @@ import java.util.Set;
  */
 public class WikipediaApiClient {
   private static final String API_BASE_URL = "https://en.wikipedia.org/w/api.php";
+  // The API accepts at most 50 titles in a single titles= parameter for anonymous clients
+  private static final int MAX_TITLES_PER_REQUEST = 50;
   private static final HttpClient httpClient =
       HttpClient.newBuilder()
           .connectTimeout(Duration.ofSeconds(10))
@@ -31,64 +45,290 @@ public class WikipediaApiClient {
   private static final ObjectMapper objectMapper = new ObjectMapper();
 
   /**
-   * Fetches up to {@code limit} outgoing links from the given Wikipedia page title.
+   * Fetches up to {@code limit} outgoing links from the given Wikipedia page title, together with
+   * the revision of the page they were read from.
    *
    * @param pageTitle the title of the Wikipedia page (e.g., "Python_(programming_language)")
    * @param limit maximum number of links to retrieve
-   * @return set of Wikipedia URLs for outgoing links
+   * @return Wikipedia URLs for outgoing links and the page revision
+   * @throws PageMissingException if the API reports that the page does not exist
    * @throws IOException if the API request fails
    */
-  public static Set<String> getOutgoingLinks(String pageTitle, int limit) throws IOException {
+  public static PageLinks getOutgoingLinks(String pageTitle, int limit) throws IOException {
+    try {
+      HttpResponse<String> response = send(linksRequest(pageTitle, limit), "links", pageTitle);
+      return parseLinks(pageTitle, response, SearchMetrics.current());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Request interrupted", e);
+    }
+  }
+
+  /**
+   * Non-blocking variant of {@link #getOutgoingLinks}: the request is sent with {@link
+   * HttpClient#sendAsync} once {@link FetchScheduler} gives it a turn, and no thread waits for it.
+   *
+   * <p>Cancelling the returned future withdraws the request if it is still waiting for its turn and
+   * aborts the underlying HTTP exchange otherwise. The future completes exceptionally with a {@link
+   * PageMissingException} if the page does not exist, or with another {@link IOException} if the
+   * request fails.
+   *
+   * @param pageTitle the title of the Wikipedia page
+   * @param limit maximum number of links to retrieve
+   * @return future Wikipedia URLs for outgoing links and page revision
+   */
+  public static CompletableFuture<PageLinks> getOutgoingLinksAsync(String pageTitle, int limit) {
+    // Callbacks run on the HTTP client's threads, so the caller's metrics are captured here
+    SearchMetrics metrics = SearchMetrics.current();
+    CompletableFuture<FetchScheduler.Permit> permit = FetchScheduler.shared().acquireAsync();
+    AtomicBoolean cancelled = new AtomicBoolean();
+    AtomicReference<CompletableFuture<?>> exchange = new AtomicReference<>();
+    CompletableFuture<HttpResponse<String>> sent =
+        permit.thenCompose(
+            granted -> {
+              if (cancelled.get()) {
+                granted.close();
+                return CompletableFuture.failedFuture(new CancellationException());
+              }
+              FlightEvents.FetchEvent event = new FlightEvents.FetchEvent();
+              event.begin();
+              CompletableFuture<HttpResponse<String>> response =
+                  httpClient.sendAsync(
+                      linksRequest(pageTitle, limit), HttpResponse.BodyHandlers.ofString());
+              exchange.set(response);
+              if (cancelled.get()) {
+                response.cancel(true);
+              }
+              return response.whenComplete(
+                  (received, error) -> {
+                    granted.close();
+                    event.end("links-async", pageTitle, received);
+                    if (received != null) {
+                      metrics.recordHttpRequest(bodySize(received));
+                    }
+                  });
+            });
+    CompletableFuture<PageLinks> links =
+        sent.thenApply(
+            response -> {
+              try {
+                return parseLinks(pageTitle, response, metrics);
+              } catch (IOException e) {
+                throw new CompletionException(e);
+              }
+            });
+    links.whenComplete(
+        (result, error) -> {
+          if (links.isCancelled()) {
+            // Withdraws the request if it is still waiting for its turn, or aborts the exchange
+            cancelled.set(true);
+            permit.cancel(false);
+            CompletableFuture<?> started = exchange.get();
+            if (started != null) {
+              started.cancel(true);
+            }
+          }
+        });
+    return links;
+  }
+
+  private static HttpRequest linksRequest(String pageTitle, int limit) {
+    String encodedTitle = URLEncoder.encode(pageTitle, StandardCharsets.UTF_8);
+    String apiUrl =
+        String.format(
+            "%s?action=query&titles=%s&prop=links%%7Cinfo&pllimit=%d&plnamespace=0&format=json",
+            API_BASE_URL, encodedTitle, limit);
+    return HttpRequest.newBuilder().uri(URI.create(apiUrl)).GET().build();
+  }
+
+  /**
+   * Sends {@code request} once {@link FetchScheduler} gives it a turn and returns its response,
+   * recording a {@link FlightEvents.FetchEvent} of the given request kind.
+   */
+  private static HttpResponse<String> send(HttpRequest request, String kind, String title)
+      throws IOException, InterruptedException {
+    FlightEvents.FetchEvent event = new FlightEvents.FetchEvent();
+    HttpResponse<String> response = null;
+    try (FetchScheduler.Permit ignored = FetchScheduler.shared().acquire()) {
+      event.begin();
+      response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+      SearchMetrics.current().recordHttpRequest(bodySize(response));
+      return response;
+    } finally {
+      event.end(kind, title, response);
+    }
+  }
+
+  /**
+   * Returns the size of a response body in bytes. Without {@code utf8=1} the API escapes every
+   * non-ASCII character in its JSON, so each character is one byte.
+   */
+  private static long bodySize(HttpResponse<String> response) {
+    String body = response.body();
+    return body == null ? 0 : body.length();
+  }
+
+  /**
+   * Extracts the link URLs and page revision from a {@code prop=links|info} response for {@code
+   * pageTitle}, failing if the request did not succeed.
+   */
+  private static PageLinks parseLinks(
+      String pageTitle, HttpResponse<String> response, SearchMetrics metrics) throws IOException {
+    if (response.statusCode() != 200) {
+      throw new IOException("Wikipedia API returned status code: " + response.statusCode());
+    }
+    return parseLinks(pageTitle, response.body(), metrics);
+  }
+
+  /**
+   * Extracts the link URLs and page revision from the body of a {@code prop=links|info} response
+   * for {@code pageTitle}, recording the parse time in {@code metrics}.
+   */
+  static PageLinks parseLinks(String pageTitle, String body, SearchMetrics metrics)
+      throws IOException {
     Set<String> links = new HashSet<>();
+    long revision = 0;
+    long parseStart = System.nanoTime();
+    FlightEvents.ParseEvent event = new FlightEvents.ParseEvent();
+    event.begin();
+    JsonNode root = objectMapper.readTree(body);
+    JsonNode pages = root.path("query").path("pages");
+
+    if (pages.isMissingNode()) {
+      return new PageLinks(links, revision);
+    }
+
+    // Wikipedia API returns pages as an object with page IDs as keys
+    for (JsonNode pageNode : pages) {
+      if (pageNode.has("missing") || pageNode.has("invalid")) {
+        throw new PageMissingException(pageTitle);
+      }
+      revision = pageNode.path("lastrevid").asLong(0);
+      JsonNode linksArray = pageNode.path("links");
+      if (!linksArray.isMissingNode() && linksArray.isArray()) {
+        linksArray.forEach(
+            linkNode -> {
+              String title = linkNode.path("title").asText();
+              if (!title.isEmpty()) {
+                // Convert title to Wikipedia URL format
+                String url = titleToUrl(title);
+                links.add(url);
+              }
+            });
+      }
+    }
+    event.end(pageTitle, links.size());
+    metrics.recordParse(System.nanoTime() - parseStart);
+    return new PageLinks(links, revision);
+  }
+
+  /**
+   * Fetches up to {@code limit} outgoing links of the given page together with whether each linked
+   * page is a disambiguation page.
+   *
+   * <p>The links are used as a generator ({@code generator=links}) so that the page properties of
+   * the linked pages ({@code prop=pageprops&ppprop=disambiguation}) come back in the same request.
+   * Only article-namespace links are requested. Unlike {@link #getOutgoingLinks}, a missing page
+   * cannot be told apart from a page without links: both yield an empty map.
+   *
+   * @param pageTitle the title of the Wikipedia page
+   * @param limit maximum number of links to retrieve
+   * @return map from the URL of each linked page to whether it is a disambiguation page
+   * @throws IOException if the API request fails
+   */
+  public static Map<String, Boolean> getOutgoingLinksWithDisambiguation(
+      String pageTitle, int limit) throws IOException {
     try {
       String encodedTitle = URLEncoder.encode(pageTitle, StandardCharsets.UTF_8);
       String apiUrl =
           String.format(
-              "%s?action=query&titles=%s&prop=links&pllimit=%d&plnamespace=0&format=json",
+              "%s?action=query&titles=%s&generator=links&gpllimit=%d&gplnamespace=0"
+                  + "&prop=pageprops&ppprop=disambiguation&format=json",
               API_BASE_URL, encodedTitle, limit);
 
       HttpRequest request = HttpRequest.newBuilder().uri(URI.create(apiUrl)).GET().build();
 
-      HttpResponse<String> response =
-          httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+      HttpResponse<String> response = send(request, "links-pageprops", pageTitle);
 
       if (response.statusCode() != 200) {
         throw new IOException("Wikipedia API returned status code: " + response.statusCode());
       }
 
-      JsonNode root = objectMapper.readTree(response.body());
-      JsonNode pages = root.path("query").path("pages");
+      long parseStart = System.nanoTime();
+      FlightEvents.ParseEvent event = new FlightEvents.ParseEvent();
+      event.begin();
+      Map<String, Boolean> linked = parseLinkedPages(objectMapper.readTree(response.body()));
+      event.end(pageTitle, linked.size());
+      SearchMetrics.current().recordParse(System.nanoTime() - parseStart);
+      return linked;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Request interrupted", e);
+    }
+  }
 
-      if (pages.isMissingNode()) {
-        return links;
+  /**
+   * Maps the URL of every page generated by a {@code generator=links} query to whether it carries
+   * the {@code disambiguation} page property.
+   */
+  static Map<String, Boolean> parseLinkedPages(JsonNode root) {
+    Map<String, Boolean> linked = new LinkedHashMap<>();
+    for (JsonNode page : root.path("query").path("pages")) {
+      String title = page.path("title").asText();
+      if (!title.isEmpty()) {
+        linked.put(titleToUrl(title), page.path("pageprops").has("disambiguation"));
       }
+    }
+    return linked;
+  }
 
-      // Wikipedia API returns pages as an object with page IDs as keys
-      pages
-          .fields()
-          .forEachRemaining(
-              entry -> {
-                JsonNode pageNode = entry.getValue();
-                JsonNode linksArray = pageNode.path("links");
-                if (!linksArray.isMissingNode() && linksArray.isArray()) {
-                  linksArray.forEach(
-                      linkNode -> {
-                        String title = linkNode.path("title").asText();
-                        if (!title.isEmpty()) {
-                          // Convert title to Wikipedia URL format
-                          String url = titleToUrl(title);
-                          links.add(url);
-                        }
-                      });
-                }
-              });
+  /**
+   * Fetches up to {@code limit} pages in the article namespace that link to the given page.
+   *
+   * @param pageTitle the title of the Wikipedia page
+   * @param limit maximum number of backlinks to retrieve
+   * @return set of Wikipedia URLs of the linking pages
+   * @throws IOException if the API request fails
+   */
+  public static Set<String> getBacklinks(String pageTitle, int limit) throws IOException {
+    try {
+      String encodedTitle = URLEncoder.encode(pageTitle, StandardCharsets.UTF_8);
+      String apiUrl =
+          String.format(
+              "%s?action=query&list=backlinks&bltitle=%s&bllimit=%d&blnamespace=0&format=json",
+              API_BASE_URL, encodedTitle, limit);
+
+      HttpRequest request = HttpRequest.newBuilder().uri(URI.create(apiUrl)).GET().build();
+
+      HttpResponse<String> response = send(request, "backlinks", pageTitle);
+
+      if (response.statusCode() != 200) {
+        throw new IOException("Wikipedia API returned status code: " + response.statusCode());
+      }
 
+      long parseStart = System.nanoTime();
+      FlightEvents.ParseEvent event = new FlightEvents.ParseEvent();
+      event.begin();
+      Set<String> backlinks = parseBacklinks(objectMapper.readTree(response.body()));
+      event.end(pageTitle, backlinks.size());
+      SearchMetrics.current().recordParse(System.nanoTime() - parseStart);
+      return backlinks;
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
       throw new IOException("Request interrupted", e);
     }
+  }
 
-    return links;
+  /** Extracts the URLs of the linking pages from a {@code list=backlinks} response. */
+  static Set<String> parseBacklinks(JsonNode root) {
+    Set<String> backlinks = new LinkedHashSet<>();
+    for (JsonNode backlink : root.path("query").path("backlinks")) {
+      String title = backlink.path("title").asText();
+      if (!title.isEmpty()) {
+        backlinks.add(titleToUrl(title));
+      }
+    }
+    return backlinks;
   }
 
   /**
@@ -97,7 +337,7 @@ public class WikipediaApiClient {
    * @param title the page title (e.g., "Python (programming language)")
    * @return the full Wikipedia URL
    */
-  private static String titleToUrl(String title) {
+  public static String titleToUrl(String title) {
     // Replace spaces with underscores for Wikipedia URL format
     String formattedTitle = title.replace(" ", "_");
     return "https://en.wikipedia.org/wiki/" + formattedTitle;
@@ -132,42 +372,197 @@ public class WikipediaApiClient {
   }
 
   /**
-   * Checks if a Wikipedia page exists by making a lightweight API call.
+   * Checks whether each of the given Wikipedia pages exists, using one API request per 50 titles.
    *
-   * @param pageTitle the title of the page to check
-   * @return true if the page exists, false otherwise
+   * <p>Title normalization (e.g. first-letter capitalization) and redirects are followed, so a
+   * title that redirects to an existing page is reported as existing.
+   *
+   * @param pageTitles the titles to check
+   * @return map from each input title to whether the page exists, in input order
+   * @throws IOException if an API request fails
    */
-  public static boolean pageExists(String pageTitle) {
+  public static Map<String, Boolean> checkPagesExist(Collection<String> pageTitles)
+      throws IOException {
+    Map<String, Boolean> result = new LinkedHashMap<>();
+    List<String> titles = new ArrayList<>(new LinkedHashSet<>(pageTitles));
     try {
-      String encodedTitle = URLEncoder.encode(pageTitle, StandardCharsets.UTF_8);
-      String apiUrl =
-          String.format("%s?action=query&titles=%s&format=json", API_BASE_URL, encodedTitle);
+      for (int from = 0; from < titles.size(); from += MAX_TITLES_PER_REQUEST) {
+        List<String> batch =
+            titles.subList(from, Math.min(titles.size(), from + MAX_TITLES_PER_REQUEST));
+        String joinedTitles = String.join("|", batch);
+        String encodedTitles = URLEncoder.encode(joinedTitles, StandardCharsets.UTF_8);
+        String apiUrl =
+            String.format(
+                "%s?action=query&titles=%s&redirects=1&format=json", API_BASE_URL, encodedTitles);
 
-      HttpRequest request = HttpRequest.newBuilder().uri(URI.create(apiUrl)).GET().build();
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(apiUrl)).GET().build();
 
-      HttpResponse<String> response =
-          httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(request, "existence", joinedTitles);
 
-      if (response.statusCode() != 200) {
-        return false;
+        if (response.statusCode() != 200) {
+          throw new IOException("Wikipedia API returned status code: " + response.statusCode());
+        }
+
+        long parseStart = System.nanoTime();
+        FlightEvents.ParseEvent event = new FlightEvents.ParseEvent();
+        event.begin();
+        result.putAll(parseExistence(objectMapper.readTree(response.body()), batch));
+        event.end(joinedTitles, batch.size());
+        SearchMetrics.current().recordParse(System.nanoTime() - parseStart);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Request interrupted", e);
+    }
+    return result;
+  }
+
+  /**
+   * Maps each requested title to whether it exists, given a {@code action=query} response.
+   *
+   * @param root parsed API response
+   * @param titles the titles that were requested
+   * @return map from each requested title to whether the page exists
+   */
+  static Map<String, Boolean> parseExistence(JsonNode root, List<String> titles) {
+    JsonNode query = root.path("query");
+    Map<String, String> renames = new HashMap<>();
+    for (JsonNode rename : query.path("normalized")) {
+      renames.put(rename.path("from").asText(), rename.path("to").asText());
+    }
+    for (JsonNode rename : query.path("redirects")) {
+      renames.put(rename.path("from").asText(), rename.path("to").asText());
+    }
+    // If the page doesn't exist, it will have a negative page ID and "missing" field
+    Map<String, Boolean> existsByTitle = new HashMap<>();
+    for (JsonNode page : query.path("pages")) {
+      existsByTitle.put(page.path("title").asText(), !page.has("missing") && !page.has("invalid"));
+    }
+    Map<String, Boolean> result = new LinkedHashMap<>();
+    for (String title : titles) {
+      String resolved = title;
+      // Normalization and then a redirect: never more than two renames per title
+      for (int i = 0; i < 2 && renames.containsKey(resolved); i++) {
+        resolved = renames.get(resolved);
       }
+      result.put(title, existsByTitle.getOrDefault(resolved, false));
+    }
+    return result;
+  }
 
-      JsonNode root = objectMapper.readTree(response.body());
-      JsonNode pages = root.path("query").path("pages");
+  /**
+   * Looks up the latest revision of each of the given pages ({@code prop=info}), using one API
+   * request per 50 titles. Comparing it with the revision that cached links were read from tells
+   * whether they are still current without downloading them again.
+   *
+   * <p>Title normalization is followed but redirects are not, since the links of a redirect page
+   * are those of the redirect itself.
+   *
+   * @param pageTitles the titles to look up
+   * @return map from each input title whose page exists to its latest revision ID
+   * @throws IOException if an API request fails
+   */
+  public static Map<String, Long> getRevisions(Collection<String> pageTitles) throws IOException {
+    Map<String, Long> result = new LinkedHashMap<>();
+    List<String> titles = new ArrayList<>(new LinkedHashSet<>(pageTitles));
+    try {
+      for (int from = 0; from < titles.size(); from += MAX_TITLES_PER_REQUEST) {
+        List<String> batch =
+            titles.subList(from, Math.min(titles.size(), from + MAX_TITLES_PER_REQUEST));
+        String joinedTitles = String.join("|", batch);
+        String encodedTitles = URLEncoder.encode(joinedTitles, StandardCharsets.UTF_8);
+        String apiUrl =
+            String.format(
+                "%s?action=query&titles=%s&prop=info&format=json", API_BASE_URL, encodedTitles);
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(apiUrl)).GET().build();
 
-      // If the page doesn't exist, it will have a negative page ID and "missing" field
-      for (JsonNode page : pages) {
-        if (page.has("missing")) {
-          return false;
+        HttpResponse<String> response = send(request, "revisions", joinedTitles);
+        if (response.statusCode() != 200) {
+          throw new IOException("Wikipedia API returned status code: " + response.statusCode());
         }
-      }
-      return true;
 
-    } catch (IOException e) {
-      return false;
+        long parseStart = System.nanoTime();
+        FlightEvents.ParseEvent event = new FlightEvents.ParseEvent();
+        event.begin();
+        result.putAll(parseRevisions(objectMapper.readTree(response.body()), batch));
+        event.end(joinedTitles, batch.size());
+        SearchMetrics.current().recordParse(System.nanoTime() - parseStart);
+      }
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
+      throw new IOException("Request interrupted", e);
+    }
+    return result;
+  }
+
+  /**
+   * Maps each requested title to the latest revision of its page, given a {@code prop=info}
+   * response. Titles of missing pages are left out.
+   *
+   * @param root parsed API response
+   * @param titles the titles that were requested
+   * @return map from each requested title whose page exists to its latest revision ID
+   */
+  static Map<String, Long> parseRevisions(JsonNode root, List<String> titles) {
+    JsonNode query = root.path("query");
+    Map<String, String> renames = new HashMap<>();
+    for (JsonNode rename : query.path("normalized")) {
+      renames.put(rename.path("from").asText(), rename.path("to").asText());
+    }
+    Map<String, Long> revisionByTitle = new HashMap<>();
+    for (JsonNode page : query.path("pages")) {
+      long revision = page.path("lastrevid").asLong(0);
+      if (!page.has("missing") && !page.has("invalid") && revision != 0) {
+        revisionByTitle.put(page.path("title").asText(), revision);
+      }
+    }
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (String title : titles) {
+      Long revision = revisionByTitle.get(renames.getOrDefault(title, title));
+      if (revision != null) {
+        result.put(title, revision);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Checks if a Wikipedia page exists by making a lightweight API call.
+   *
+   * @param pageTitle the title of the page to check
+   * @return true if the page exists, false otherwise
+   */
+  public static boolean pageExists(String pageTitle) {
+    try {
+      return checkPagesExist(List.of(pageTitle)).getOrDefault(pageTitle, false);
+    } catch (IOException e) {
       return false;
     }
   }
+
+  /** Outgoing links of a page and the revision of the page they were read from. */
+  public static final class PageLinks {
+    private final Set<String> links;
+    private final long revision;
+
+    /**
+     * Create a result.
+     *
+     * @param links Wikipedia URLs of the linked pages
+     * @param revision revision ID of the page, or 0 if unknown
+     */
+    public PageLinks(Set<String> links, long revision) {
+      this.links = links;
+      this.revision = revision;
+    }
+
+    public Set<String> getLinks() {
+      return links;
+    }
+
+    /** Returns the revision ID of the page, or 0 if unknown. */
+    public long getRevision() {
+      return revision;
+    }
+  }
 }
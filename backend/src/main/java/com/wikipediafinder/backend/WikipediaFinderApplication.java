@@ -5,6 +5,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
@@ -12,6 +13,7 @@ import org.springframework.web.filter.CorsFilter;
 /** Main Spring Boot application class for Wikipedia path finder. */
 @SpringBootApplication
 @EnableCaching
+@EnableScheduling
 public class WikipediaFinderApplication implements WikipediaFinderApplicationInterface {
 
   /**
@@ -23,6 +25,17 @@ public class WikipediaFinderApplication implements WikipediaFinderApplicationInt
     SpringApplication.run(WikipediaFinderApplication.class, args);
   }
 
+  /**
+   * Exposes the process-wide {@link LinkFetcher} that searches use, so that components configuring
+   * or serving it can have it injected.
+   *
+   * @return the shared link fetcher
+   */
+  @Bean
+  public LinkFetcher linkFetcher() {
+    return LinkFetcher.shared();
+  }
+
   /**
    * Cors filter cors filter.
    *
@@ -0,0 +1,126 @@
+package com.wikipediafinder.backend.controller;
+
+import com.wikipediafinder.backend.BackgroundCrawler;
+import com.wikipediafinder.backend.FlightRecorderService;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Operator endpoints controlling an on-demand flight recording (see {@link FlightRecorderService})
+ * and reporting the progress of the {@link BackgroundCrawler}.
+ *
+ * <p>Every request must carry the {@code wikipediafinder.admin-token} property in an {@code
+ * X-Admin-Token} header. When the property is empty (the default) the endpoints answer 404, as if
+ * they did not exist. Recordings are returned in JFR format, to be opened with JDK Mission Control
+ * or {@code jfr print}.
+ */
+@RestController
+public class AdminController {
+  static final String TOKEN_HEADER = "X-Admin-Token";
+  private static final String JFR_DISPOSITION = "attachment; filename=\"wikipediafinder.jfr\"";
+
+  private final FlightRecorderService recorder;
+  private final BackgroundCrawler crawler;
+  private final byte[] adminToken;
+
+  public AdminController(
+      FlightRecorderService recorder,
+      BackgroundCrawler crawler,
+      @Value("${wikipediafinder.admin-token:}") String adminToken) {
+    this.recorder = recorder;
+    this.crawler = crawler;
+    this.adminToken = adminToken.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Starts a recording with the given JDK settings; 409 if one is already running. */
+  @PostMapping("/admin/recording/start")
+  public ResponseEntity<String> startRecording(
+      @RequestHeader(value = TOKEN_HEADER, required = false) String token,
+      @RequestParam(defaultValue = "profile") String settings) {
+    ResponseEntity<String> denied = checkToken(token);
+    if (denied != null) {
+      return denied;
+    }
+    try {
+      if (!recorder.start(settings)) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("A recording is already running.");
+      }
+      return ResponseEntity.status(HttpStatus.CREATED).body("Recording started.");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (IOException e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+    }
+  }
+
+  /** Returns the data recorded so far without stopping; 404 if no recording is running. */
+  @GetMapping(value = "/admin/recording", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<byte[]> dumpRecording(
+      @RequestHeader(value = TOKEN_HEADER, required = false) String token) {
+    ResponseEntity<byte[]> denied = checkToken(token);
+    if (denied != null) {
+      return denied;
+    }
+    try {
+      return recordingResponse(recorder.dump());
+    } catch (IOException e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    }
+  }
+
+  /** Stops the recording and returns its contents; 404 if no recording is running. */
+  @PostMapping(value = "/admin/recording/stop", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<byte[]> stopRecording(
+      @RequestHeader(value = TOKEN_HEADER, required = false) String token) {
+    ResponseEntity<byte[]> denied = checkToken(token);
+    if (denied != null) {
+      return denied;
+    }
+    try {
+      return recordingResponse(recorder.stop());
+    } catch (IOException e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    }
+  }
+
+  /** Returns the background crawler's counters (see {@link BackgroundCrawler#getProgress()}). */
+  @GetMapping("/admin/crawler")
+  public ResponseEntity<Map<String, Object>> crawlerProgress(
+      @RequestHeader(value = TOKEN_HEADER, required = false) String token) {
+    ResponseEntity<Map<String, Object>> denied = checkToken(token);
+    if (denied != null) {
+      return denied;
+    }
+    return ResponseEntity.ok(crawler.getProgress());
+  }
+
+  /** Returns the response rejecting {@code token}, or null if it grants access. */
+  private <T> ResponseEntity<T> checkToken(String token) {
+    if (adminToken.length == 0) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+    if (token == null
+        || !MessageDigest.isEqual(adminToken, token.getBytes(StandardCharsets.UTF_8))) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+    return null;
+  }
+
+  private static ResponseEntity<byte[]> recordingResponse(byte[] data) {
+    if (data == null) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+    return ResponseEntity.ok().header("Content-Disposition", JFR_DISPOSITION).body(data);
+  }
+}
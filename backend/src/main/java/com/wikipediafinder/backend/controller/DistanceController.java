@@ -0,0 +1,82 @@
+package com.wikipediafinder.backend.controller;
+
+import com.wikipediafinder.backend.DistanceIndex;
+import com.wikipediafinder.backend.DistanceIndexService;
+import com.wikipediafinder.backend.WikipediaApiClient;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Distance endpoint answered from the offline {@link DistanceIndex} (see {@link
+ * DistanceIndexService}) in microseconds, without searching or contacting Wikipedia. Distances and
+ * paths are exact for the link graph the index was built from, which may be older than the live
+ * one.
+ */
+@RestController
+@RequestMapping("/api")
+public class DistanceController {
+  private final DistanceIndexService indexService;
+
+  public DistanceController(DistanceIndexService indexService) {
+    this.indexService = indexService;
+  }
+
+  /**
+   * Returns the number of links on a shortest path from {@code startinglink} to {@code endinglink}
+   * and, unless {@code includePath} is false, such a path. 404 for a page the index does not hold,
+   * 503 while the index is unavailable.
+   */
+  @CrossOrigin(origins = {"http://localhost:5173", "https://wikipedia-path-finder.vercel.app"})
+  @GetMapping("/distance")
+  public ResponseEntity<Object> getDistance(
+      @RequestParam String startinglink,
+      @RequestParam String endinglink,
+      @RequestParam(defaultValue = "true") boolean includePath) {
+    DistanceIndex index = indexService.getIndex();
+    if (index == null) {
+      return new ResponseEntity<>(
+          Map.of("error", "The distance index is not available."), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    try {
+      int from = find(index, startinglink);
+      int to = find(index, endinglink);
+      int distance = index.distance(from, to);
+      if (distance < 0) {
+        return new ResponseEntity<>(
+            Map.of("message", "No path found", "distance", distance), HttpStatus.OK);
+      }
+      Map<String, Object> body = new LinkedHashMap<>();
+      body.put("distance", distance);
+      if (includePath) {
+        List<String> path = new ArrayList<>();
+        for (String title : index.path(from, to)) {
+          path.add(WikipediaApiClient.titleToUrl(title));
+        }
+        body.put("path", path);
+      }
+      return new ResponseEntity<>(body, HttpStatus.OK);
+    } catch (IllegalArgumentException e) {
+      return new ResponseEntity<>(Map.of("error", e.getMessage()), HttpStatus.NOT_FOUND);
+    }
+  }
+
+  /** Returns the ID of the page {@code link} names in {@code index}. */
+  private static int find(DistanceIndex index, String link) {
+    String url = MyController.normalizeWikipediaUrl(link);
+    String title = WikipediaApiClient.urlToTitle(url);
+    int id = title == null || title.isEmpty() ? -1 : index.find(title);
+    if (id < 0) {
+      throw new IllegalArgumentException("Page not in the distance index: " + url);
+    }
+    return id;
+  }
+}
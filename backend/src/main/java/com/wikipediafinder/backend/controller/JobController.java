@@ -0,0 +1,172 @@
+package com.wikipediafinder.backend.controller;
+
+import com.wikipediafinder.backend.PageExistenceChecker;
+import com.wikipediafinder.backend.SearchJob;
+import com.wikipediafinder.backend.SearchJobService;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * REST endpoints for long-running search jobs (see {@link SearchJobService}), for searches that
+ * need more than the 10000 expansions of {@code /getResults}.
+ *
+ * <p>A job is submitted with {@code POST /api/jobs} and answered with its ID. Clients then poll
+ * {@code GET /api/jobs/{id}}, or subscribe to {@code GET /api/jobs/{id}/events}, which streams
+ * {@code progress} events ({@code {"nodesExplored": N}}) followed by a {@code result} event with
+ * the finished job. Jobs survive server restarts. Each client address may have only a few jobs
+ * pending at once, and submissions beyond that or beyond the server's overall limit answer 429.
+ */
+@RestController
+@RequestMapping("/api")
+public class JobController {
+  private static final long EVENTS_TIMEOUT_MILLIS = 30 * 60_000L;
+
+  private final SearchJobService jobs;
+  private final PageExistenceChecker pageExistenceChecker;
+
+  public JobController(SearchJobService jobs, PageExistenceChecker pageExistenceChecker) {
+    this.jobs = jobs;
+    this.pageExistenceChecker = pageExistenceChecker;
+  }
+
+  /**
+   * Submits a job; 202 with the queued job, 400 for an invalid or missing page, or 429 if too many
+   * jobs are pending.
+   */
+  @CrossOrigin(origins = {"http://localhost:5173", "https://wikipedia-path-finder.vercel.app"})
+  @PostMapping("/jobs")
+  public ResponseEntity<Object> submitJob(
+      @RequestParam String startinglink,
+      @RequestParam String endinglink,
+      HttpServletRequest request) {
+    try {
+      String normalizedStart = MyController.normalizeWikipediaUrl(startinglink);
+      String normalizedEnd = MyController.normalizeWikipediaUrl(endinglink);
+      List<String> missing = pageExistenceChecker.findMissingPages(normalizedStart, normalizedEnd);
+      if (missing != null && !missing.isEmpty()) {
+        return new ResponseEntity<>(
+            Map.of("error", "Wikipedia page does not exist: " + missing.get(0)),
+            HttpStatus.BAD_REQUEST);
+      }
+      SearchJob job = jobs.submit(normalizedStart, normalizedEnd, request.getRemoteAddr());
+      return ResponseEntity.accepted().header("Location", "/api/jobs/" + job.getId()).body(job);
+    } catch (IllegalArgumentException e) {
+      return new ResponseEntity<>(Map.of("error", e.getMessage()), HttpStatus.BAD_REQUEST);
+    } catch (RejectedExecutionException e) {
+      return new ResponseEntity<>(Map.of("error", e.getMessage()), HttpStatus.TOO_MANY_REQUESTS);
+    } catch (IOException e) {
+      return new ResponseEntity<>(
+          Map.of("error", "The job could not be saved."), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+  }
+
+  /** Returns the job's status, progress and, once found, path; 404 for an unknown job. */
+  @CrossOrigin(origins = {"http://localhost:5173", "https://wikipedia-path-finder.vercel.app"})
+  @GetMapping("/jobs/{id}")
+  public ResponseEntity<Object> getJob(@PathVariable String id) {
+    return jobResponse(id, jobs.get(id));
+  }
+
+  /** Cancels the job and returns it; 404 for an unknown job. */
+  @CrossOrigin(origins = {"http://localhost:5173", "https://wikipedia-path-finder.vercel.app"})
+  @DeleteMapping("/jobs/{id}")
+  public ResponseEntity<Object> cancelJob(@PathVariable String id) {
+    return jobResponse(id, jobs.cancel(id));
+  }
+
+  /**
+   * Streams the job's progress as Server-Sent Events, then its final state as a {@code result}
+   * event. The stream ends without a result if the server stops the job to restart, or with an
+   * {@code error} event for an unknown job.
+   */
+  @CrossOrigin(origins = {"http://localhost:5173", "https://wikipedia-path-finder.vercel.app"})
+  @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter jobEvents(@PathVariable String id) {
+    SseEmitter emitter = new SseEmitter(EVENTS_TIMEOUT_MILLIS);
+    SearchJob job = jobs.get(id);
+    if (job == null) {
+      try {
+        emitter.send(SseEmitter.event().name("error").data(Map.of("error", "Unknown job: " + id)));
+      } catch (IOException ignored) {
+        // Client already gone
+      }
+      emitter.complete();
+      return emitter;
+    }
+    AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+    Runnable unsubscribe =
+        () -> {
+          Flow.Subscription current = subscription.get();
+          if (current != null) {
+            current.cancel();
+          }
+        };
+    emitter.onCompletion(unsubscribe);
+    emitter.onTimeout(unsubscribe);
+    emitter.onError(error -> unsubscribe.run());
+    job.progress()
+        .subscribe(
+            new Flow.Subscriber<>() {
+              @Override
+              public void onSubscribe(Flow.Subscription s) {
+                subscription.set(s);
+                s.request(Long.MAX_VALUE);
+              }
+
+              @Override
+              public void onNext(Integer nodeCount) {
+                try {
+                  emitter.send(
+                      SseEmitter.event()
+                          .name("progress")
+                          .data(Map.of("nodesExplored", nodeCount)));
+                } catch (IOException e) {
+                  // Client disconnected; the job keeps running
+                  unsubscribe.run();
+                }
+              }
+
+              @Override
+              public void onError(Throwable error) {
+                emitter.completeWithError(error);
+              }
+
+              @Override
+              public void onComplete() {
+                try {
+                  if (job.getStatus().isFinished()) {
+                    emitter.send(SseEmitter.event().name("result").data(job));
+                  }
+                  emitter.complete();
+                } catch (IOException e) {
+                  emitter.completeWithError(e);
+                }
+              }
+            });
+    return emitter;
+  }
+
+  private static ResponseEntity<Object> jobResponse(String id, SearchJob job) {
+    if (job == null) {
+      return new ResponseEntity<>(Map.of("error", "Unknown job: " + id), HttpStatus.NOT_FOUND);
+    }
+    return new ResponseEntity<>(job, HttpStatus.OK);
+  }
+}
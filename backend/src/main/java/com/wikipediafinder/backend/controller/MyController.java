@@ -1,21 +1,46 @@
 package com.wikipediafinder.backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wikipediafinder.backend.AsyncSearch;
 import com.wikipediafinder.backend.BFS;
 import com.wikipediafinder.backend.BFSResult;
+import com.wikipediafinder.backend.CachedResult;
+import com.wikipediafinder.backend.LinkFilter;
+import com.wikipediafinder.backend.PageExistenceChecker;
 import com.wikipediafinder.backend.PageNode;
+import com.wikipediafinder.backend.ReachabilityResult;
+import com.wikipediafinder.backend.SearchMetrics;
+import com.wikipediafinder.backend.ShortestPaths;
 import jakarta.annotation.PreDestroy;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -26,6 +51,14 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 /**
  * REST controller that exposes the API endpoints for the Wikipedia path finder. The controller is
  * thin and delegates search work to the injected {@link BFS} service.
+ *
+ * <p>Search results are kept in the {@code pathStatsCache} as {@link CachedResult}s. Results
+ * without a path are served for {@code wikipediafinder.results.negative-ttl}, and only to searches
+ * of the same mode with no larger budget; a snapshot search shares its key with the default one but
+ * gives up on other grounds, so neither answers the other with a miss. Results with a path older
+ * than {@code wikipediafinder.results.fresh-ttl} are still served at once, while a single
+ * background search per key replaces them; they leave the cache when it expires them. A cached
+ * result is served with empty metrics, since no search ran for the request.
  */
 @RestController
 @RequestMapping("/api")
@@ -33,18 +66,61 @@ public class MyController {
 
   private static final String WIKI_URL_PREFIX = "https://en.wikipedia.org/wiki/";
 
+  // Most paths returned by /getAllPaths
+  private static final int MAX_ALL_PATHS = 100;
+
+  // Widest beam accepted by the heuristic mode of /getResults
+  private static final int MAX_BEAM_WIDTH = 1000;
+
+  // Bounds of /getDistances: targets per request, hops searched and pages reported
+  private static final int MAX_DISTANCE_TARGETS = 100;
+  private static final int MAX_DISTANCE_DEPTH = 6;
+  private static final int MAX_DISTANCE_ENTRIES = 1000;
+
+  // Threads and queued tasks of the background refreshes of stale results
+  private static final int REFRESH_THREADS = 2;
+  private static final int REFRESH_QUEUE = 32;
+
   private final BFS bfs;
   private final CacheManager cacheManager;
+  private final PageExistenceChecker pageExistenceChecker;
+  private final ObjectProvider<ApplicationAvailability> availability;
+  private final Duration freshTtl;
+  private final Duration negativeTtl;
   private final ObjectMapper objectMapper = new ObjectMapper();
   private final ExecutorService executor = Executors.newCachedThreadPool();
+  // Recomputes stale cached results: a few threads and a short queue, beyond which a refresh is
+  // skipped and the stale result is served until a later request tries again
+  private final ThreadPoolExecutor refreshExecutor =
+      new ThreadPoolExecutor(
+          REFRESH_THREADS,
+          REFRESH_THREADS,
+          60,
+          TimeUnit.SECONDS,
+          new ArrayBlockingQueue<>(REFRESH_QUEUE),
+          new ThreadPoolExecutor.AbortPolicy());
+  // Cache keys whose stale result is being recomputed
+  private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
 
-  public MyController(BFS bfs, CacheManager cacheManager) {
+  public MyController(
+      BFS bfs,
+      CacheManager cacheManager,
+      PageExistenceChecker pageExistenceChecker,
+      ObjectProvider<ApplicationAvailability> availability,
+      @Value("${wikipediafinder.results.fresh-ttl:45m}") Duration freshTtl,
+      @Value("${wikipediafinder.results.negative-ttl:5m}") Duration negativeTtl) {
     this.bfs = bfs;
     this.cacheManager = cacheManager;
+    this.pageExistenceChecker = pageExistenceChecker;
+    this.availability = availability;
+    this.freshTtl = freshTtl;
+    this.negativeTtl = negativeTtl;
+    refreshExecutor.allowCoreThreadTimeOut(true);
   }
 
   @PreDestroy
   public void shutdown() {
+    refreshExecutor.shutdownNow();
     executor.shutdown();
     try {
       if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -56,34 +132,205 @@ public class MyController {
     }
   }
 
+  /**
+   * Health endpoint, also used as the readiness check: 503 until the application accepts traffic,
+   * i.e. while startup and the {@link com.wikipediafinder.backend.WarmUp} are still running.
+   */
   @GetMapping("/health")
   public ResponseEntity<String> hello() {
+    ApplicationAvailability state = availability.getIfAvailable();
+    if (state != null && state.getReadinessState() != ReadinessState.ACCEPTING_TRAFFIC) {
+      return new ResponseEntity<>(
+          "[Health check] - This app is warming up.", HttpStatus.SERVICE_UNAVAILABLE);
+    }
     return ResponseEntity.ok("[Health check] - This app is running!");
   }
 
+  /**
+   * Path endpoint. With {@code pruned=true} the search does not expand list, year, date and
+   * disambiguation pages or hubs (see {@link LinkFilter#defaults()}); the response then reports the
+   * filters applied, and the path may be longer than the shortest one. With {@code
+   * heuristic=true} a beam search of {@code beamWidth} pages per level (at most 1000) answers
+   * quickly instead; the response then reports how far the path may be from the shortest one.
+   * With {@code snapshot=true} a parallel search over the in-memory {@link
+   * com.wikipediafinder.backend.GraphSnapshot} finds a shortest path, fetching only the pages it
+   * does not know; it shares cached results with the default search. So does {@code
+   * levelAware=true}, which expands the cached pages of every level while the others are fetched.
+   */
   @CrossOrigin(origins = {"http://localhost:5173", "https://wikipedia-path-finder.vercel.app"})
   @GetMapping("/getResults")
   public ResponseEntity<Object> getResults(
-      @RequestParam String startinglink, @RequestParam String endinglink) {
+      @RequestParam String startinglink,
+      @RequestParam String endinglink,
+      @RequestParam(defaultValue = "false") boolean pruned,
+      @RequestParam(defaultValue = "false") boolean heuristic,
+      @RequestParam(defaultValue = "64") int beamWidth,
+      @RequestParam(defaultValue = "false") boolean snapshot,
+      @RequestParam(defaultValue = "false") boolean levelAware) {
     try {
+      if ((pruned ? 1 : 0) + (heuristic ? 1 : 0) + (snapshot ? 1 : 0) + (levelAware ? 1 : 0) > 1) {
+        throw new IllegalArgumentException(
+            "Choose only one of the pruned, heuristic, snapshot and level-aware searches.");
+      }
+      if (heuristic && (beamWidth < 1 || beamWidth > MAX_BEAM_WIDTH)) {
+        throw new IllegalArgumentException(
+            "beamWidth must be between 1 and " + MAX_BEAM_WIDTH + ".");
+      }
       String normalizedStart = normalizeWikipediaUrl(startinglink);
       String normalizedEnd = normalizeWikipediaUrl(endinglink);
+      String cacheKey =
+          heuristic
+              ? buildCacheKey(normalizedStart, normalizedEnd, false) + "|heuristic:" + beamWidth
+              : buildCacheKey(normalizedStart, normalizedEnd, pruned);
+      String mode = heuristic ? "heuristic" : pruned ? "pruned" : snapshot ? "snapshot" : "default";
+      if (levelAware) {
+        mode = "level-aware";
+      }
       Cache cache = cacheManager.getCache("pathStatsCache");
-      if (cache != null) {
-        String cacheKey = buildCacheKey(normalizedStart, normalizedEnd);
-        BFSResult cachedResult = cache.get(cacheKey, BFSResult.class);
-        if (cachedResult != null) {
-          return buildResultsResponse(cachedResult);
+      Function<Boolean, BFSResult> search =
+          useTrees ->
+              search(
+                  new PageNode(normalizedStart),
+                  new PageNode(normalizedEnd),
+                  pruned,
+                  heuristic,
+                  beamWidth,
+                  snapshot,
+                  levelAware,
+                  useTrees);
+      CachedResult cachedResult = lookup(cache, cacheKey, mode, () -> search.apply(false));
+      if (cachedResult != null) {
+        return buildResultsResponse(fromCache(cachedResult));
+      }
+      String missingPageError = checkPagesExist(normalizedStart, normalizedEnd);
+      if (missingPageError != null) {
+        return new ResponseEntity<>(Map.of("error", missingPageError), HttpStatus.BAD_REQUEST);
+      }
+      BFSResult result = search.apply(true);
+      store(cache, cacheKey, mode, result);
+
+      return buildResultsResponse(result);
+    } catch (IllegalArgumentException e) {
+      return new ResponseEntity<>(Map.of("error", e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+  }
+
+  /**
+   * One-to-many reachability endpoint: computes the hop distance from {@code startinglink} to every
+   * page given as a {@code target} parameter (repeated, at most 100) in a single traversal. When no
+   * targets are given, every page within {@code maxDepth} hops is reported instead. {@code
+   * maxDepth} is at most 6, which is also the default with targets. At most 1000 pages are
+   * reported, nearest first, with {@code truncated} set if there were more. Paths are only
+   * reconstructed when {@code includePaths} is set.
+   */
+  @CrossOrigin(origins = {"http://localhost:5173", "https://wikipedia-path-finder.vercel.app"})
+  @GetMapping("/getDistances")
+  public ResponseEntity<Object> getDistances(
+      @RequestParam String startinglink,
+      @RequestParam(required = false) Integer maxDepth,
+      @RequestParam(defaultValue = "false") boolean includePaths,
+      @RequestParam MultiValueMap<String, String> params) {
+    try {
+      // Read from the raw parameters: a bound List would split a single title on its commas
+      List<String> targets = params.getOrDefault("target", List.of());
+      if (targets.size() > MAX_DISTANCE_TARGETS) {
+        throw new IllegalArgumentException(
+            "At most " + MAX_DISTANCE_TARGETS + " targets are allowed.");
+      }
+      if (maxDepth != null && (maxDepth < 0 || maxDepth > MAX_DISTANCE_DEPTH)) {
+        throw new IllegalArgumentException(
+            "maxDepth must be between 0 and " + MAX_DISTANCE_DEPTH + ".");
+      }
+      String normalizedStart = normalizeWikipediaUrl(startinglink);
+      List<String> normalizedTargets = new ArrayList<>();
+      for (String target : targets) {
+        if (!target.isBlank()) {
+          normalizedTargets.add(normalizeWikipediaUrl(target));
         }
       }
       PageNode start = new PageNode(normalizedStart);
-      PageNode end = new PageNode(normalizedEnd);
-      BFSResult result = bfs.getPathWithStats(start, end, PageNode::new);
-      if (cache != null && result.getPath() != null) {
-        cache.put(buildCacheKey(normalizedStart, normalizedEnd), result);
+      List<String> pages = new ArrayList<>();
+      pages.add(normalizedStart);
+      pages.addAll(normalizedTargets);
+      String missingPageError = checkPagesExist(pages.toArray(new String[0]));
+      if (missingPageError != null) {
+        return new ResponseEntity<>(Map.of("error", missingPageError), HttpStatus.BAD_REQUEST);
       }
+      // Without targets the depth must be given; BFS rejects -1 then
+      int depth =
+          maxDepth != null ? maxDepth : normalizedTargets.isEmpty() ? -1 : MAX_DISTANCE_DEPTH;
+      ReachabilityResult result =
+          bfs.getDistances(start, normalizedTargets, depth, includePaths, PageNode::new);
+      return new ResponseEntity<>(buildDistancesResponse(result), HttpStatus.OK);
+    } catch (IllegalArgumentException e) {
+      return new ResponseEntity<>(Map.of("error", e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+  }
 
-      return buildResultsResponse(result);
+  /** Returns the body of a {@code /getDistances} response, with at most 1000 pages. */
+  private static Map<String, Object> buildDistancesResponse(ReachabilityResult result) {
+    Map<String, Integer> distances = new LinkedHashMap<>();
+    Map<String, List<String>> paths = result.getPaths() == null ? null : new LinkedHashMap<>();
+    for (Map.Entry<String, Integer> entry : result.getDistances().entrySet()) {
+      if (distances.size() == MAX_DISTANCE_ENTRIES) {
+        break;
+      }
+      distances.put(entry.getKey(), entry.getValue());
+      if (paths != null) {
+        paths.put(entry.getKey(), result.getPaths().get(entry.getKey()));
+      }
+    }
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("distances", distances);
+    body.put("paths", paths);
+    body.put("unreachedTargets", result.getUnreachedTargets());
+    body.put("nodesExplored", result.getNodesExplored());
+    body.put("truncated", distances.size() < result.getDistances().size());
+    return body;
+  }
+
+  /**
+   * All-shortest-paths endpoint: returns up to {@code maxPaths} (at most 100) of the shortest paths
+   * from {@code startinglink} to {@code endinglink}, found in one traversal, with the number of
+   * shortest paths known and whether the search finished the target's level ({@code complete}).
+   */
+  @CrossOrigin(origins = {"http://localhost:5173", "https://wikipedia-path-finder.vercel.app"})
+  @GetMapping("/getAllPaths")
+  public ResponseEntity<Object> getAllPaths(
+      @RequestParam String startinglink,
+      @RequestParam String endinglink,
+      @RequestParam(defaultValue = "10") int maxPaths) {
+    try {
+      if (maxPaths < 1 || maxPaths > MAX_ALL_PATHS) {
+        throw new IllegalArgumentException("maxPaths must be between 1 and " + MAX_ALL_PATHS + ".");
+      }
+      String normalizedStart = normalizeWikipediaUrl(startinglink);
+      String normalizedEnd = normalizeWikipediaUrl(endinglink);
+      String missingPageError = checkPagesExist(normalizedStart, normalizedEnd);
+      if (missingPageError != null) {
+        return new ResponseEntity<>(Map.of("error", missingPageError), HttpStatus.BAD_REQUEST);
+      }
+      ShortestPaths result =
+          bfs.getAllShortestPaths(new PageNode(normalizedStart), new PageNode(normalizedEnd));
+      if (result.getDistance() < 0) {
+        return new ResponseEntity<>(
+            Map.of(
+                "message",
+                "No path found or query took too long",
+                "nodesExplored",
+                result.getNodesExplored(),
+                "metrics",
+                result.getMetrics()),
+            HttpStatus.OK);
+      }
+      Map<String, Object> body = new LinkedHashMap<>();
+      body.put("paths", result.paths(maxPaths));
+      body.put("pathCount", result.countPaths());
+      body.put("distance", result.getDistance());
+      body.put("complete", result.isComplete());
+      body.put("nodesExplored", result.getNodesExplored());
+      body.put("metrics", result.getMetrics());
+      return new ResponseEntity<>(body, HttpStatus.OK);
     } catch (IllegalArgumentException e) {
       return new ResponseEntity<>(Map.of("error", e.getMessage()), HttpStatus.BAD_REQUEST);
     }
@@ -96,13 +343,19 @@ public class MyController {
    * <ul>
    *   <li>{@code progress} – {@code {"nodesExplored": N}} emitted after each node is explored
    *   <li>{@code result} – final path payload (same shape as {@code /getResults})
-   *   <li>{@code error} – {@code {"error": "message"}} on bad input
+   *   <li>{@code error} – {@code {"error": "message"}} on bad input or a page that does not exist
    * </ul>
+   *
+   * <p>The default search runs on the non-blocking {@link BFS#searchAsync} engine, so no request
+   * thread is held while it waits for Wikipedia, and a disconnecting client cancels its in-flight
+   * requests. {@code pruned} selects the pruned search mode, as for {@code /getResults}.
    */
   @CrossOrigin(origins = {"http://localhost:5173", "https://wikipedia-path-finder.vercel.app"})
   @GetMapping(value = "/getResultsStream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
   public SseEmitter getResultsStream(
-      @RequestParam String startinglink, @RequestParam String endinglink) {
+      @RequestParam String startinglink,
+      @RequestParam String endinglink,
+      @RequestParam(defaultValue = "false") boolean pruned) {
     SseEmitter emitter = new SseEmitter(120_000L);
 
     executor.execute(
@@ -112,48 +365,69 @@ public class MyController {
             String normalizedStart = normalizeWikipediaUrl(startinglink);
             String normalizedEnd = normalizeWikipediaUrl(endinglink);
             Cache cache = cacheManager.getCache("pathStatsCache");
-            if (cache != null) {
-              String cacheKey = buildCacheKey(normalizedStart, normalizedEnd);
-              BFSResult cachedResult = cache.get(cacheKey, BFSResult.class);
-              if (cachedResult != null) {
-                emitter.send(
-                    SseEmitter.event()
-                        .name("progress")
-                        .data(Map.of("nodesExplored", cachedResult.getNodesExplored())));
-                sendResult(emitter, cachedResult);
-                emitter.complete();
-                return;
-              }
+            String cacheKey = buildCacheKey(normalizedStart, normalizedEnd, pruned);
+            String mode = pruned ? "pruned" : "default";
+            CachedResult cachedResult =
+                lookup(
+                    cache,
+                    cacheKey,
+                    mode,
+                    () ->
+                        search(
+                            new PageNode(normalizedStart),
+                            new PageNode(normalizedEnd),
+                            pruned,
+                            false,
+                            0,
+                            false,
+                            false,
+                            false));
+            if (cachedResult != null) {
+              emitter.send(
+                  SseEmitter.event()
+                      .name("progress")
+                      .data(Map.of("nodesExplored", cachedResult.getResult().getNodesExplored())));
+              sendResult(emitter, fromCache(cachedResult));
+              emitter.complete();
+              return;
+            }
+            String missingPageError = checkPagesExist(normalizedStart, normalizedEnd);
+            if (missingPageError != null) {
+              emitter.send(
+                  SseEmitter.event().name("error").data(Map.of("error", missingPageError)));
+              emitter.complete();
+              return;
             }
 
             PageNode start = new PageNode(normalizedStart);
             PageNode end = new PageNode(normalizedEnd);
+            if (!pruned) {
+              // Hand the search over to the asynchronous engine; this thread is released now
+              streamAsync(emitter, bfs.searchAsync(start, end), cache, cacheKey);
+              return;
+            }
 
+            Consumer<Integer> progressCallback =
+                nodeCount -> {
+                  if (clientDisconnected.get()) {
+                    // Signal BFS to stop by throwing an unchecked exception that
+                    // propagates out of the lambda and terminates the BFS loop.
+                    throw new ClientDisconnectedException();
+                  }
+                  try {
+                    emitter.send(
+                        SseEmitter.event()
+                            .name("progress")
+                            .data(Map.of("nodesExplored", nodeCount)));
+                  } catch (IOException ignored) {
+                    // Client disconnected; mark flag so next callback iteration stops BFS.
+                    clientDisconnected.set(true);
+                  }
+                };
             BFSResult result =
-                bfs.getPathWithStats(
-                    start,
-                    end,
-                    PageNode::new,
-                    nodeCount -> {
-                      if (clientDisconnected.get()) {
-                        // Signal BFS to stop by throwing an unchecked exception that
-                        // propagates out of the lambda and terminates the BFS loop.
-                        throw new ClientDisconnectedException();
-                      }
-                      try {
-                        emitter.send(
-                            SseEmitter.event()
-                                .name("progress")
-                                .data(Map.of("nodesExplored", nodeCount)));
-                      } catch (IOException ignored) {
-                        // Client disconnected; mark flag so next callback iteration stops BFS.
-                        clientDisconnected.set(true);
-                      }
-                    });
-
-            if (cache != null) {
-              cache.put(buildCacheKey(normalizedStart, normalizedEnd), result);
-            }
+                bfs.getPathWithStatsPruned(start, end, LinkFilter.defaults(), progressCallback);
+
+            store(cache, cacheKey, mode, result);
             sendResult(emitter, result);
             emitter.complete();
           } catch (ClientDisconnectedException e) {
@@ -174,6 +448,165 @@ public class MyController {
     return emitter;
   }
 
+  /**
+   * Relays the progress and result of an asynchronous search to {@code emitter}. The result is
+   * sent when the progress publisher completes, so it always follows the last progress event. The
+   * search, including its in-flight requests, is cancelled if the client disconnects.
+   */
+  private void streamAsync(SseEmitter emitter, AsyncSearch search, Cache cache, String cacheKey) {
+    emitter.onCompletion(() -> search.cancel(true));
+    emitter.onTimeout(() -> search.cancel(true));
+    emitter.onError(error -> search.cancel(true));
+    search
+        .getProgress()
+        .subscribe(
+            new Flow.Subscriber<>() {
+              @Override
+              public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+              }
+
+              @Override
+              public void onNext(Integer nodeCount) {
+                try {
+                  emitter.send(
+                      SseEmitter.event()
+                          .name("progress")
+                          .data(Map.of("nodesExplored", nodeCount)));
+                } catch (IOException e) {
+                  // Client disconnected: stop the search and its requests
+                  search.cancel(true);
+                }
+              }
+
+              @Override
+              public void onError(Throwable error) {
+                emitter.completeWithError(error);
+              }
+
+              @Override
+              public void onComplete() {
+                if (search.isCancelled()) {
+                  emitter.complete();
+                  return;
+                }
+                try {
+                  BFSResult result = search.join();
+                  store(cache, cacheKey, "default", result);
+                  sendResult(emitter, result);
+                  emitter.complete();
+                } catch (IOException | RuntimeException e) {
+                  emitter.completeWithError(e);
+                }
+              }
+            });
+  }
+
+  /**
+   * Runs the search selected by the {@code /getResults} parameters. The default search resumes the
+   * cached BFS trees only with {@code useTrees}; refreshes of stale results do without them, since
+   * a tree may well hold the very path being refreshed.
+   */
+  private BFSResult search(
+      PageNode start,
+      PageNode end,
+      boolean pruned,
+      boolean heuristic,
+      int beamWidth,
+      boolean snapshot,
+      boolean levelAware,
+      boolean useTrees) {
+    if (heuristic) {
+      return bfs.getPathWithStatsHeuristic(start, end, beamWidth, null);
+    } else if (pruned) {
+      return bfs.getPathWithStatsPruned(start, end, LinkFilter.defaults(), null);
+    } else if (snapshot) {
+      return bfs.getPathWithStatsSnapshot(start, end, null);
+    } else if (levelAware) {
+      return bfs.getPathWithStatsLevelAware(start, end, null);
+    }
+    return bfs.getPathWithStats(start, end, BFS.DEFAULT_FACTORY, null, useTrees);
+  }
+
+  /**
+   * Returns the result cached under {@code key} if it may answer a search of {@code mode}, or
+   * {@code null}: a path, or a recent result without one from a search of the same mode and
+   * budget. A path older than the fresh TTL is returned as well, and {@code search} is started in
+   * the background to replace it.
+   */
+  private CachedResult lookup(Cache cache, String key, String mode, Supplier<BFSResult> search) {
+    if (cache == null) {
+      return null;
+    }
+    Cache.ValueWrapper wrapper = cache.get(key);
+    Object value = wrapper == null ? null : wrapper.get();
+    long now = System.currentTimeMillis();
+    CachedResult cached;
+    if (value instanceof CachedResult) {
+      cached = (CachedResult) value;
+    } else if (value instanceof BFSResult && ((BFSResult) value).getPath() != null) {
+      // Put by BFS's own @Cacheable search, which records no time; taken as fresh
+      cached = new CachedResult((BFSResult) value, now, "default", BFS.NODE_CAP);
+    } else {
+      return null;
+    }
+    long age = now - cached.getComputedAt();
+    if (cached.isNegative()) {
+      return cached.answers(mode, BFS.NODE_CAP) && age < negativeTtl.toMillis() ? cached : null;
+    }
+    if (age >= freshTtl.toMillis()) {
+      refresh(cache, key, mode, search);
+    }
+    return cached;
+  }
+
+  /**
+   * Returns the result of {@code cached} as served for a new request, without the metrics of the
+   * search that computed it: no search ran for this one.
+   */
+  private static BFSResult fromCache(CachedResult cached) {
+    return cached.getResult().withMetrics(SearchMetrics.empty());
+  }
+
+  /**
+   * Recomputes the stale result under {@code key} in the background unless that is already
+   * happening, or the refresh pool is saturated. The stale result is kept if the new search finds
+   * no path or fails.
+   */
+  private void refresh(Cache cache, String key, String mode, Supplier<BFSResult> search) {
+    if (!refreshing.add(key)) {
+      return;
+    }
+    try {
+      refreshExecutor.execute(
+          () -> {
+            try {
+              BFSResult result = search.get();
+              if (result.getPath() != null) {
+                store(cache, key, mode, result);
+              }
+            } catch (RuntimeException e) {
+              System.err.println("Refreshing cached result " + key + " failed: " + e.getMessage());
+            } finally {
+              refreshing.remove(key);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      // Saturated or shutting down; a later request tries again
+      refreshing.remove(key);
+    }
+  }
+
+  /**
+   * Caches {@code result} of a search of {@code mode}. Every mode's budget is {@link BFS#NODE_CAP}:
+   * pages expanded, or live requests for the snapshot search.
+   */
+  private void store(Cache cache, String key, String mode, BFSResult result) {
+    if (cache != null) {
+      cache.put(key, new CachedResult(result, System.currentTimeMillis(), mode, BFS.NODE_CAP));
+    }
+  }
+
   private void sendResult(SseEmitter emitter, BFSResult result) throws IOException {
     if (result.getPath() == null) {
       emitter.send(
@@ -184,7 +617,9 @@ public class MyController {
                       "message",
                       "No path found or query took too long",
                       "nodesExplored",
-                      result.getNodesExplored())));
+                      result.getNodesExplored(),
+                      "metrics",
+                      result.getMetrics())));
     } else {
       emitter.send(SseEmitter.event().name("result").data(objectMapper.writeValueAsString(result)));
     }
@@ -193,16 +628,35 @@ public class MyController {
   private ResponseEntity<Object> buildResultsResponse(BFSResult result) {
     if (result.getPath() == null) {
       return new ResponseEntity<>(
-          Map.of("message", "No path found or query took too long"), HttpStatus.OK);
+          Map.of(
+              "message",
+              "No path found or query took too long",
+              "metrics",
+              result.getMetrics()),
+          HttpStatus.OK);
     }
     return new ResponseEntity<>(result, HttpStatus.OK);
   }
 
-  private String buildCacheKey(String normalizedStart, String normalizedEnd) {
-    return normalizedStart + "->" + normalizedEnd;
+  /**
+   * Runs the existence pre-flight for the given pages and returns an error message naming the first
+   * page that does not exist, or {@code null} if all of them exist.
+   */
+  private String checkPagesExist(String... urls) {
+    List<String> missing = pageExistenceChecker.findMissingPages(urls);
+    if (missing == null || missing.isEmpty()) {
+      return null;
+    }
+    return "Wikipedia page does not exist: " + missing.get(0);
+  }
+
+  private String buildCacheKey(String normalizedStart, String normalizedEnd, boolean pruned) {
+    String key = normalizedStart + "->" + normalizedEnd;
+    return pruned ? key + "|pruned" : key;
   }
 
-  private String normalizeWikipediaUrl(String input) {
+  /** Turns a title, {@code /wiki/} path or URL into an https Wikipedia URL (also for jobs). */
+  static String normalizeWikipediaUrl(String input) {
     if (input == null) {
       return null;
     }
@@ -0,0 +1,67 @@
+package com.wikipediafinder.backend.controller;
+
+import com.wikipediafinder.backend.CompressedAdjacency;
+import com.wikipediafinder.backend.LinkFetcher;
+import com.wikipediafinder.backend.PageMissingException;
+import com.wikipediafinder.backend.PeerLinkClient;
+import com.wikipediafinder.backend.TitleRegistry;
+import com.wikipediafinder.backend.WikipediaApiClient;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Internal endpoint through which backend replicas share link lists. A replica asks the owner of a
+ * title (see {@link LinkFetcher}) for its links; the owner answers from its cache or fetches the
+ * page from Wikipedia itself, but never forwards the request to another peer.
+ *
+ * <p>Every request must carry the {@code wikipediafinder.peer-secret} property in an {@code
+ * X-Peer-Secret} header. When the property is empty (the default) the endpoint answers 404, as if
+ * it did not exist.
+ */
+@RestController
+public class PeerController {
+  private final LinkFetcher fetcher;
+  private final byte[] secret;
+
+  public PeerController(
+      LinkFetcher fetcher, @Value("${wikipediafinder.peer-secret:}") String secret) {
+    this.fetcher = fetcher;
+    this.secret = secret.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @GetMapping(
+      value = PeerLinkClient.LINKS_PATH,
+      produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<byte[]> getLinks(
+      @RequestHeader(value = PeerLinkClient.SECRET_HEADER, required = false) String token,
+      @RequestParam String title) {
+    if (secret.length == 0) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+    if (token == null || !MessageDigest.isEqual(secret, token.getBytes(StandardCharsets.UTF_8))) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+    try {
+      CompressedAdjacency links = fetcher.fetchLocally(title);
+      TitleRegistry registry = fetcher.getRegistry();
+      List<String> titles = new ArrayList<>(links.size());
+      links.forEach(id -> titles.add(WikipediaApiClient.urlToTitle(registry.urlOf(id))));
+      return ResponseEntity.ok(PeerLinkClient.encode(titles));
+    } catch (PageMissingException e) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    } catch (IOException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+  }
+}
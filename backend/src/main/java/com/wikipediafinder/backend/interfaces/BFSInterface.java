@@ -1,10 +1,22 @@
 package com.wikipediafinder.backend.interfaces;
 
+import com.wikipediafinder.backend.AsyncSearch;
 import com.wikipediafinder.backend.BFSResult;
+import com.wikipediafinder.backend.CompressedAdjacency;
+import com.wikipediafinder.backend.GraphSnapshot;
+import com.wikipediafinder.backend.HeuristicResult;
+import com.wikipediafinder.backend.LinkFilter;
 import com.wikipediafinder.backend.PageNode;
+import com.wikipediafinder.backend.ReachabilityResult;
+import com.wikipediafinder.backend.ShortestPaths;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Contract for BFS search utilities.
@@ -37,4 +49,146 @@ public interface BFSInterface {
       PageNode end,
       Function<String, PageNode> nodeFactory,
       Consumer<Integer> progressCallback);
+
+  /**
+   * Find a path and return a {@link BFSResult}, resuming the BFS trees cached by earlier searches
+   * if {@code useTrees} is set. Trees are shared by all searches, so only searches over the real
+   * link graph may use them. This overload does NOT use the Spring cache.
+   */
+  BFSResult getPathWithStats(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      Consumer<Integer> progressCallback,
+      boolean useTrees);
+
+  /**
+   * Find a path with the frontier, visited set and parent pointers kept in files under {@code
+   * workDir}, for node budgets far larger than the heap allows. {@code stop} is checked before each
+   * expansion; once it returns true the search ends without a path. This overload does NOT use the
+   * Spring cache.
+   */
+  BFSResult getPathWithStatsOnDisk(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      int nodeCap,
+      Path workDir,
+      Consumer<Integer> progressCallback,
+      BooleanSupplier stop);
+
+  /**
+   * Start a non-blocking shortest-path search using the default link source. The returned future
+   * publishes progress and can be cancelled. This overload does NOT use the Spring cache.
+   */
+  AsyncSearch searchAsync(PageNode start, PageNode end);
+
+  /**
+   * Start a non-blocking shortest-path search that obtains links from {@code linkLoader}. This
+   * overload does NOT use the Spring cache.
+   */
+  AsyncSearch searchAsync(
+      PageNode start,
+      PageNode end,
+      Function<String, CompletableFuture<CompressedAdjacency>> linkLoader);
+
+  /**
+   * Find a path without expanding the pages pruned by {@code filter}. The result may be longer than
+   * the true shortest path and reports the filters applied. This overload does NOT use the Spring
+   * cache.
+   */
+  BFSResult getPathWithStatsPruned(
+      PageNode start, PageNode end, LinkFilter filter, Consumer<Integer> progressCallback);
+
+  /**
+   * Find a short path with a beam search of width {@code beamWidth} using the default factory. The
+   * path may be longer than the shortest one; the result reports the gap. This overload does NOT
+   * use the Spring cache.
+   */
+  HeuristicResult getPathWithStatsHeuristic(
+      PageNode start, PageNode end, int beamWidth, Consumer<Integer> progressCallback);
+
+  /**
+   * Find a short path expanding only the {@code beamWidth} pages per level that look closest to
+   * the target. The result reports a lower bound on the shortest path and the gap to it. This
+   * overload does NOT use the Spring cache.
+   */
+  HeuristicResult getPathWithStatsHeuristic(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      int beamWidth,
+      Consumer<Integer> progressCallback);
+
+  /**
+   * Find a shortest path expanding cache-resident nodes of each level before the others, whose
+   * links are fetched concurrently. Uses the default factory. This overload does NOT use the
+   * Spring cache.
+   */
+  BFSResult getPathWithStatsLevelAware(
+      PageNode start, PageNode end, Consumer<Integer> progressCallback);
+
+  /**
+   * Find a shortest path expanding the nodes of each level for which {@code isCached} holds first,
+   * while the links of the remaining nodes are fetched concurrently. This overload does NOT use the
+   * Spring cache.
+   */
+  BFSResult getPathWithStatsLevelAware(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      Predicate<String> isCached,
+      Consumer<Integer> progressCallback);
+
+  /**
+   * Find a shortest path with a parallel BFS over the shared {@link GraphSnapshot}, fetching only
+   * the pages it does not know. This overload does NOT use the Spring cache.
+   */
+  BFSResult getPathWithStatsSnapshot(
+      PageNode start, PageNode end, Consumer<Integer> progressCallback);
+
+  /**
+   * Find a shortest path with a parallel, direction-optimizing BFS over {@code snapshot}, loading
+   * the links of pages it does not know with {@code linkLoader}. This overload does NOT use the
+   * Spring cache.
+   */
+  BFSResult getPathWithStatsSnapshot(
+      PageNode start,
+      PageNode end,
+      GraphSnapshot snapshot,
+      Function<String, CompletableFuture<CompressedAdjacency>> linkLoader,
+      Consumer<Integer> progressCallback);
+
+  /** Find every shortest path using the default factory. This does NOT use the Spring cache. */
+  ShortestPaths getAllShortestPaths(PageNode start, PageNode end);
+
+  /**
+   * Find every shortest path in one traversal: the search finishes the target's level and keeps
+   * all predecessors of each page, from which the paths are streamed lazily. This overload does
+   * NOT use the Spring cache.
+   */
+  ShortestPaths getAllShortestPaths(
+      PageNode start,
+      PageNode end,
+      Function<String, PageNode> nodeFactory,
+      Consumer<Integer> progressCallback);
+
+  /** Compute distances from {@code start} to many targets using the default factory. */
+  ReachabilityResult getDistances(
+      PageNode start, Collection<String> targetUrls, int maxDepth, boolean includePaths);
+
+  /**
+   * Compute distances (and optionally paths) from {@code start} to many pages in one traversal.
+   *
+   * <p>When {@code targetUrls} is null or empty, every page within {@code maxDepth} hops is
+   * reported. Otherwise the search stops as soon as all targets have been reached. When {@code
+   * includePaths} is false no parent pointers are kept, so the search only holds the current
+   * frontier and the visited set.
+   */
+  ReachabilityResult getDistances(
+      PageNode start,
+      Collection<String> targetUrls,
+      int maxDepth,
+      boolean includePaths,
+      Function<String, PageNode> nodeFactory);
 }
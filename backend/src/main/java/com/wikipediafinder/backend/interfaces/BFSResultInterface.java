@@ -1,5 +1,6 @@
 package com.wikipediafinder.backend.interfaces;
 
+import com.wikipediafinder.backend.SearchMetrics;
 import java.util.List;
 
 /** Interface for BFS search result. */
@@ -9,4 +10,10 @@ public interface BFSResultInterface {
 
   /** Returns how many nodes were explored during the search. */
   int getNodesExplored();
+
+  /** Returns the link filters applied by the search (empty if none). */
+  List<String> getFiltersApplied();
+
+  /** Returns the timing breakdown of the search. */
+  SearchMetrics getMetrics();
 }
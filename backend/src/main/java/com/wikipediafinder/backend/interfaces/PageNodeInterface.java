@@ -1,8 +1,10 @@
 package com.wikipediafinder.backend.interfaces;
 
+import com.wikipediafinder.backend.CompressedAdjacency;
 import com.wikipediafinder.backend.PageNode;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntConsumer;
 
 /** Interface representing a page node in the Wikipedia graph. */
 public interface PageNodeInterface {
@@ -19,4 +21,16 @@ public interface PageNodeInterface {
   Set<PageNode> getOutNodes();
 
   boolean hasLink(String link);
+
+  /**
+   * Returns a read-only view of the outgoing links as {@code TitleRegistry} IDs. The returned
+   * object is the node's own immutable link list, not a copy.
+   */
+  CompressedAdjacency getOutLinkIds();
+
+  /**
+   * Calls {@code action} with the {@code TitleRegistry} ID of every outgoing link, without creating
+   * any {@link PageNode} or URL string.
+   */
+  void forEachNeighbor(IntConsumer action);
 }
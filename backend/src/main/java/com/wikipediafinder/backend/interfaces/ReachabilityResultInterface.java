@@ -0,0 +1,20 @@
+package com.wikipediafinder.backend.interfaces;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Interface for the result of a one-to-many reachability search. */
+public interface ReachabilityResultInterface {
+  /** Returns the hop distance from the start page for every reached page of interest. */
+  Map<String, Integer> getDistances();
+
+  /** Returns the path to every reached page of interest, or null if paths were not requested. */
+  Map<String, List<String>> getPaths();
+
+  /** Returns the requested targets that were not reached within the depth or node budget. */
+  Set<String> getUnreachedTargets();
+
+  /** Returns how many nodes were explored during the search. */
+  int getNodesExplored();
+}
@@ -0,0 +1,29 @@
+package com.wikipediafinder.backend.interfaces;
+
+import com.wikipediafinder.backend.SearchMetrics;
+import java.util.List;
+import java.util.stream.Stream;
+
+/** Interface for the result of an all-shortest-paths search. */
+public interface ShortestPathsInterface {
+  /** Returns the number of hops of every shortest path, or -1 if none was found. */
+  int getDistance();
+
+  /** Returns whether every shortest path is known. */
+  boolean isComplete();
+
+  /** Returns how many nodes were explored during the search. */
+  int getNodesExplored();
+
+  /** Returns the timing breakdown of the search. */
+  SearchMetrics getMetrics();
+
+  /** Returns the number of known shortest paths. */
+  long countPaths();
+
+  /** Returns the shortest paths, computed lazily. */
+  Stream<List<String>> paths();
+
+  /** Returns at most {@code maxPaths} shortest paths. */
+  List<List<String>> paths(int maxPaths);
+}
@@ -0,0 +1,253 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AdjacencyStoreTest {
+  private static final String WIKI = "https://en.wikipedia.org/wiki/";
+  private static final TitleRegistry REGISTRY = TitleRegistry.shared();
+
+  @TempDir Path tempDir;
+
+  private AdjacencyStore open(int segmentBytes, long maxBytes) throws Exception {
+    return new AdjacencyStore(tempDir, REGISTRY, Duration.ofHours(1), segmentBytes, maxBytes);
+  }
+
+  private static CompressedAdjacency links(String... titles) {
+    List<String> urls = new ArrayList<>();
+    for (String title : titles) {
+      urls.add(WIKI + title);
+    }
+    return CompressedAdjacency.fromUrls(urls, REGISTRY);
+  }
+
+  private static Set<String> urls(CompressedAdjacency adjacency) {
+    Set<String> urls = new HashSet<>();
+    adjacency.forEach(id -> urls.add(REGISTRY.urlOf(id)));
+    return urls;
+  }
+
+  @Test
+  public void testLinksSurviveReopening() throws Exception {
+    try (AdjacencyStore store = open(1 << 16, 1 << 20)) {
+      store.put(WIKI + "Alpha", links("Beta", "Beta_(band)", "Gamma", "Ω"));
+      store.put(WIKI + "Beta", links());
+      store.put(WIKI + "Alpha", links("Delta", "https://example.org/x"));
+      assertNull(store.get(WIKI + "Gamma"));
+    }
+    try (AdjacencyStore store = open(1 << 16, 1 << 20)) {
+      assertEquals(2, store.size());
+      assertEquals(
+          Set.of(WIKI + "Delta", "https://example.org/x"), urls(store.get(WIKI + "Alpha")));
+      assertTrue(store.get(WIKI + "Beta").isEmpty());
+    }
+  }
+
+  @Test
+  public void testRemovedLinksStayRemoved() throws Exception {
+    try (AdjacencyStore store = open(1 << 16, 1 << 20)) {
+      store.put(WIKI + "Edited", links("A"));
+      store.put(WIKI + "Kept", links("B"));
+      store.remove(WIKI + "Edited");
+      store.remove(WIKI + "Never_stored");
+      assertNull(store.get(WIKI + "Edited"));
+      assertEquals(1, store.size());
+    }
+    try (AdjacencyStore store = open(1 << 16, 1 << 20)) {
+      assertNull(store.get(WIKI + "Edited"));
+      assertEquals(Set.of(WIKI + "B"), urls(store.get(WIKI + "Kept")));
+      store.put(WIKI + "Edited", links("C"));
+      assertEquals(Set.of(WIKI + "C"), urls(store.get(WIKI + "Edited")));
+    }
+  }
+
+  @Test
+  public void testExpiredLinksAreMisses() throws Exception {
+    try (AdjacencyStore store = open(1 << 16, 1 << 20)) {
+      long twoHoursAgo = System.currentTimeMillis() - Duration.ofHours(2).toMillis();
+      store.put(WIKI + "Old", links("A"), twoHoursAgo);
+      store.put(WIKI + "New", links("A"));
+      assertNull(store.get(WIKI + "Old"));
+      assertEquals(Set.of(WIKI + "A"), urls(store.get(WIKI + "New")));
+    }
+  }
+
+  @Test
+  public void testExpiredLinksKeepTheirRevision() throws Exception {
+    long twoHoursAgo = System.currentTimeMillis() - Duration.ofHours(2).toMillis();
+    try (AdjacencyStore store = open(1 << 16, 1 << 20)) {
+      store.put(WIKI + "Revised", links("A", "B").withRevision(1L << 40), twoHoursAgo);
+      store.put(WIKI + "Unrevised", links("A"), twoHoursAgo);
+    }
+    try (AdjacencyStore store = open(1 << 16, 1 << 20)) {
+      assertNull(store.get(WIKI + "Revised"));
+      CompressedAdjacency stale = store.getStale(WIKI + "Revised");
+      assertEquals(Set.of(WIKI + "A", WIKI + "B"), urls(stale));
+      assertEquals(1L << 40, stale.getRevision());
+      assertEquals(0, store.getStale(WIKI + "Unrevised").getRevision());
+      assertNull(store.getStale(WIKI + "Never_stored"));
+    }
+  }
+
+  @Test
+  public void testRecordsAfterCheckpointAreRecovered() throws Exception {
+    Path index = tempDir.resolve("links.idx");
+    Path saved = tempDir.resolve("saved.idx");
+    try (AdjacencyStore store = open(1 << 16, 1 << 20)) {
+      store.put(WIKI + "First", links("A"));
+    }
+    Files.copy(index, saved);
+    try (AdjacencyStore store = open(1 << 16, 1 << 20)) {
+      store.put(WIKI + "Second", links("B"));
+    }
+    // A crash before the index recorded the second page
+    Files.copy(saved, index, StandardCopyOption.REPLACE_EXISTING);
+    try (AdjacencyStore store = open(1 << 16, 1 << 20)) {
+      assertEquals(Set.of(WIKI + "A"), urls(store.get(WIKI + "First")));
+      assertEquals(Set.of(WIKI + "B"), urls(store.get(WIKI + "Second")));
+    }
+  }
+
+  @Test
+  public void testTornRecordIsDiscarded() throws Exception {
+    try (AdjacencyStore store = open(1 << 16, 1 << 20)) {
+      store.put(WIKI + "Intact", links("A", "B"));
+    }
+    Path segment;
+    try (var files = Files.list(tempDir)) {
+      segment = files.filter(f -> f.toString().endsWith(".seg")).findFirst().orElseThrow();
+    }
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      int end = 0;
+      file.seek(end);
+      for (int length = file.readInt(); length > 0; length = file.readInt()) {
+        end += 8 + length;
+        file.seek(end);
+      }
+      // Half-written record: a length and checksum without its payload
+      file.seek(end);
+      file.writeInt(40);
+      file.writeInt(12345);
+    }
+    try (AdjacencyStore store = open(1 << 16, 1 << 20)) {
+      assertEquals(Set.of(WIKI + "A", WIKI + "B"), urls(store.get(WIKI + "Intact")));
+      store.put(WIKI + "Later", links("C"));
+    }
+    try (AdjacencyStore store = open(1 << 16, 1 << 20)) {
+      assertEquals(2, store.size());
+      assertEquals(Set.of(WIKI + "C"), urls(store.get(WIKI + "Later")));
+    }
+  }
+
+  @Test
+  public void testDamagedIndexIsRebuilt() throws Exception {
+    try (AdjacencyStore store = open(4096, 1 << 20)) {
+      for (int i = 0; i < 300; i++) {
+        store.put(WIKI + "Page_" + i, links("Link_" + i, "Link_" + (i + 1)));
+      }
+    }
+    Files.write(tempDir.resolve("links.idx"), new byte[100]);
+    try (AdjacencyStore store = open(4096, 1 << 20)) {
+      assertEquals(300, store.size());
+      assertEquals(Set.of(WIKI + "Link_7", WIKI + "Link_8"), urls(store.get(WIKI + "Page_7")));
+    }
+  }
+
+  @Test
+  public void testCompactionReclaimsDeadSegments() throws Exception {
+    try (AdjacencyStore store = open(4096, 1 << 20)) {
+      store.put(WIKI + "Stable", links("S"));
+      for (int i = 0; i < 500; i++) {
+        store.put(WIKI + "Churn", links("Version_" + i, "Other"));
+      }
+      long before = store.totalBytes();
+      assertTrue(store.compact() > 0);
+      assertTrue(store.totalBytes() < before);
+      assertEquals(Set.of(WIKI + "S"), urls(store.get(WIKI + "Stable")));
+      assertEquals(Set.of(WIKI + "Version_499", WIKI + "Other"), urls(store.get(WIKI + "Churn")));
+    }
+    try (AdjacencyStore store = open(4096, 1 << 20)) {
+      assertEquals(2, store.size());
+      assertEquals(Set.of(WIKI + "S"), urls(store.get(WIKI + "Stable")));
+    }
+  }
+
+  @Test
+  public void testCompactionEnforcesDiskBudget() throws Exception {
+    try (AdjacencyStore store = open(4096, 3 * 4096)) {
+      for (int i = 0; i < 500; i++) {
+        store.put(WIKI + "Page_" + i, links("Link_" + i));
+      }
+      store.compact();
+      assertTrue(store.totalBytes() <= 3 * 4096);
+      assertTrue(store.size() < 500);
+      assertNull(store.get(WIKI + "Page_0"));
+      assertEquals(Set.of(WIKI + "Link_499"), urls(store.get(WIKI + "Page_499")));
+    }
+  }
+
+  @Test
+  public void testStoresDuringCompactionAreKept() throws Exception {
+    try (AdjacencyStore store = open(4096, 1 << 22)) {
+      for (int i = 0; i < 500; i++) {
+        store.put(WIKI + "Churn", links("Version_" + i));
+      }
+      Thread writer =
+          new Thread(
+              () -> {
+                for (int i = 0; i < 300; i++) {
+                  store.put(WIKI + "Live_" + i, links("Old"));
+                  store.put(WIKI + "Live_" + i, links("New_" + i));
+                }
+              });
+      writer.start();
+      while (writer.isAlive()) {
+        store.compact();
+      }
+      writer.join();
+      store.compact();
+      for (int i = 0; i < 300; i++) {
+        assertEquals(Set.of(WIKI + "New_" + i), urls(store.get(WIKI + "Live_" + i)));
+      }
+      assertEquals(Set.of(WIKI + "Version_499"), urls(store.get(WIKI + "Churn")));
+    }
+  }
+
+  @Test
+  public void testForeignSegmentFilesAreIgnored() throws Exception {
+    Files.write(tempDir.resolve("links-copy.seg"), new byte[4096]);
+    try (AdjacencyStore store = open(4096, 1 << 20)) {
+      store.put(WIKI + "Page", links("Link"));
+      assertEquals(Set.of(WIKI + "Link"), urls(store.get(WIKI + "Page")));
+    }
+    assertTrue(Files.exists(tempDir.resolve("links-copy.seg")));
+  }
+
+  @Test
+  public void testIndexGrowsPastInitialCapacity() throws Exception {
+    try (AdjacencyStore store = open(1 << 20, 1 << 26)) {
+      CompressedAdjacency empty = links();
+      for (int i = 0; i < 40_000; i++) {
+        store.put(WIKI + "Page_" + i, empty);
+      }
+      assertEquals(40_000, store.size());
+    }
+    try (AdjacencyStore store = open(1 << 20, 1 << 26)) {
+      assertEquals(40_000, store.size());
+      for (int i = 0; i < 40_000; i += 997) {
+        assertNotNull(store.get(WIKI + "Page_" + i));
+      }
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class AsyncSearchTest {
+  private static final String PREFIX = "https://en.wikipedia.org/wiki/Async_";
+
+  /** Graph given as adjacency lists of page names, served as completed futures. */
+  private static Map<String, CompressedAdjacency> graph(String... edges) {
+    Map<String, List<String>> links = new HashMap<>();
+    for (String edge : edges) {
+      String[] parts = edge.split("->");
+      links.computeIfAbsent(PREFIX + parts[0], k -> new ArrayList<>()).add(PREFIX + parts[1]);
+    }
+    Map<String, CompressedAdjacency> adjacency = new HashMap<>();
+    links.forEach(
+        (url, targets) ->
+            adjacency.put(url, CompressedAdjacency.fromUrls(targets, TitleRegistry.shared())));
+    return adjacency;
+  }
+
+  private static PageNode node(String name) {
+    return new PageNode(PREFIX + name);
+  }
+
+  @Test
+  public void testFindsShortestPath() throws Exception {
+    Map<String, CompressedAdjacency> graph = graph("A->B", "A->C", "B->D", "C->E", "D->E");
+    AsyncSearch search =
+        new BFS()
+            .searchAsync(
+                node("A"),
+                node("E"),
+                url ->
+                    CompletableFuture.supplyAsync(
+                        () -> graph.getOrDefault(url, CompressedAdjacency.EMPTY)));
+    BFSResult result = search.get(5, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList(PREFIX + "A", PREFIX + "C", PREFIX + "E"), result.getPath());
+  }
+
+  @Test
+  public void testReportsNoPathAndSurvivesFailedRequests() throws Exception {
+    Map<String, CompressedAdjacency> graph = graph("A->B", "A->C");
+    AsyncSearch search =
+        new BFS()
+            .searchAsync(
+                node("A"),
+                node("Z"),
+                url ->
+                    url.endsWith("B")
+                        ? CompletableFuture.failedFuture(new PageMissingException("B"))
+                        : CompletableFuture.completedFuture(
+                            graph.getOrDefault(url, CompressedAdjacency.EMPTY)));
+    BFSResult result = search.get(5, TimeUnit.SECONDS);
+    assertNull(result.getPath());
+    assertEquals(3, result.getNodesExplored());
+  }
+
+  @Test
+  public void testPublishesProgress() throws Exception {
+    Map<String, CompressedAdjacency> graph = graph("A->B", "B->C");
+    List<Integer> counts = new CopyOnWriteArrayList<>();
+    CompletableFuture<Void> progressDone = new CompletableFuture<>();
+    CompletableFuture<CompressedAdjacency> gate = new CompletableFuture<>();
+    AsyncSearch search =
+        new BFS()
+            .searchAsync(
+                node("A"),
+                node("C"),
+                url ->
+                    gate.thenApply(ignored -> graph.getOrDefault(url, CompressedAdjacency.EMPTY)));
+    search
+        .getProgress()
+        .subscribe(
+            new Flow.Subscriber<>() {
+              @Override
+              public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+              }
+
+              @Override
+              public void onNext(Integer item) {
+                counts.add(item);
+              }
+
+              @Override
+              public void onError(Throwable throwable) {
+                progressDone.completeExceptionally(throwable);
+              }
+
+              @Override
+              public void onComplete() {
+                progressDone.complete(null);
+              }
+            });
+    gate.complete(null);
+    assertEquals(3, search.get(5, TimeUnit.SECONDS).getPath().size());
+    progressDone.get(5, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList(1, 2), counts);
+  }
+
+  @Test
+  public void testCancelAbortsInFlightRequests() throws Exception {
+    List<CompletableFuture<CompressedAdjacency>> requests = new CopyOnWriteArrayList<>();
+    AsyncSearch search =
+        new BFS()
+            .searchAsync(
+                node("A"),
+                node("Z"),
+                url -> {
+                  CompletableFuture<CompressedAdjacency> request = new CompletableFuture<>();
+                  requests.add(request);
+                  return request;
+                });
+    assertEquals(1, requests.size());
+    assertTrue(search.cancel(true));
+    assertTrue(search.isCancelled());
+    assertTrue(requests.get(0).isCancelled());
+  }
+
+  @Test
+  public void testStartEqualsEnd() throws Exception {
+    BFSResult result =
+        new BFS().searchAsync(node("A"), node("A"), url -> new CompletableFuture<>()).get();
+    assertEquals(Collections.singletonList(PREFIX + "A"), result.getPath());
+  }
+}
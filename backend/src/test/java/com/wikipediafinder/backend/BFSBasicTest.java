@@ -2,8 +2,15 @@ package com.wikipediafinder.backend;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class BFSBasicTest {
   // Helper: Minimal PageNode mock for testing
@@ -31,8 +38,13 @@ public class BFSBasicTest {
     public void findOutgoingLinks() {}
 
     @Override
-    public Set<PageNode> getOutNodes() {
-      return outNodes;
+    public CompressedAdjacency getOutLinkIds() {
+      int[] ids = new int[outNodes.size()];
+      int i = 0;
+      for (PageNode n : outNodes) {
+        ids[i++] = TitleRegistry.shared().idOf(n.getURL());
+      }
+      return CompressedAdjacency.of(ids);
     }
 
     @Override
@@ -161,4 +173,607 @@ public class BFSBasicTest {
     assertNotNull(result);
     assertEquals(CHAIN_LENGTH, result.getNodesExplored());
   }
+
+  /** Builds a small diamond-shaped graph: A -> {B, C}, B -> D, C -> D, D -> E. */
+  private static Map<String, MockPageNode> buildDiamond() {
+    MockPageNode e = new MockPageNode("E", Collections.emptySet());
+    MockPageNode d = new MockPageNode("D", Collections.singleton(e));
+    MockPageNode c = new MockPageNode("C", Collections.singleton(d));
+    MockPageNode b = new MockPageNode("B", Collections.singleton(d));
+    MockPageNode a = new MockPageNode("A", new HashSet<>(Arrays.asList(b, c)));
+    Map<String, MockPageNode> nodeMap = new HashMap<>();
+    for (MockPageNode node : Arrays.asList(a, b, c, d, e)) {
+      nodeMap.put(node.getURL(), node);
+    }
+    return nodeMap;
+  }
+
+  @Test
+  public void testSearchPrefetchesQueuedNodes() {
+    Map<String, MockPageNode> nodeMap = buildDiamond();
+    Set<String> prefetched = Collections.synchronizedSet(new HashSet<>());
+    BFS bfs = new BFS() {
+      @Override
+      protected LookaheadPrefetcher createPrefetcher(Function<String, PageNode> nodeFactory) {
+        return new LookaheadPrefetcher(
+            Runnable::run, id -> prefetched.add(TitleRegistry.shared().urlOf(id)), 4, 4);
+      }
+    };
+    BFSResult result =
+        bfs.getPathWithStats(
+            nodeMap.get("https://en.wikipedia.org/wiki/A"),
+            nodeMap.get("https://en.wikipedia.org/wiki/E"),
+            nodeMap::get);
+    assertEquals(4, result.getPath().size());
+    assertTrue(prefetched.contains("https://en.wikipedia.org/wiki/A"));
+    assertTrue(prefetched.contains("https://en.wikipedia.org/wiki/B"));
+    assertTrue(prefetched.contains("https://en.wikipedia.org/wiki/C"));
+  }
+
+  @Test
+  public void testPrefetchingIsEnabledByTheConstructorForAnyFactory() {
+    Map<String, MockPageNode> nodeMap = buildDiamond();
+    // The prefetcher loads a node through the factory before the search does, on a pool thread or,
+    // if none has started the load yet, on the search thread
+    AtomicInteger startLoads = new AtomicInteger();
+    Function<String, PageNode> factory =
+        url -> {
+          if (url.equals("https://en.wikipedia.org/wiki/A")) {
+            startLoads.incrementAndGet();
+          }
+          return nodeMap.get(url);
+        };
+    PageNode start = nodeMap.get("https://en.wikipedia.org/wiki/A");
+    PageNode end = nodeMap.get("https://en.wikipedia.org/wiki/E");
+    BFS disabled = new BFS();
+    BFS enabled = new BFS(true);
+    try {
+      assertEquals(4, disabled.getPathWithStats(start, end, factory).getPath().size());
+      assertEquals(1, startLoads.get());
+      assertEquals(4, enabled.getPathWithStats(start, end, factory).getPath().size());
+      assertEquals(3, startLoads.get());
+    } finally {
+      disabled.shutdown();
+      enabled.shutdown();
+    }
+  }
+
+  @Test
+  public void testLevelAwareSearchPrefersWarmNodes() {
+    MockPageNode t = new MockPageNode("T", Collections.emptySet());
+    MockPageNode b = new MockPageNode("B", Collections.singleton(t));
+    MockPageNode c = new MockPageNode("C", Collections.singleton(t));
+    MockPageNode a = new MockPageNode("A", new LinkedHashSet<>(Arrays.asList(b, c)));
+    Map<String, MockPageNode> nodeMap = new HashMap<>();
+    for (MockPageNode node : Arrays.asList(a, b, c, t)) {
+      nodeMap.put(node.getURL(), node);
+    }
+    BFSResult result =
+        new BFS()
+            .getPathWithStatsLevelAware(a, t, nodeMap::get, url -> !url.equals(b.getURL()), null);
+    assertEquals(Arrays.asList(a.getURL(), c.getURL(), t.getURL()), result.getPath());
+  }
+
+  @Test
+  public void testLevelAwareSearchStaysShortest() {
+    MockPageNode t = new MockPageNode("T", Collections.emptySet());
+    MockPageNode w2 = new MockPageNode("W2", Collections.singleton(t));
+    MockPageNode w = new MockPageNode("W", Collections.singleton(w2));
+    MockPageNode x = new MockPageNode("X", Collections.singleton(t));
+    MockPageNode a = new MockPageNode("A", new LinkedHashSet<>(Arrays.asList(w, x)));
+    Map<String, MockPageNode> nodeMap = new HashMap<>();
+    for (MockPageNode node : Arrays.asList(a, w, w2, x, t)) {
+      nodeMap.put(node.getURL(), node);
+    }
+    BFSResult result =
+        new BFS()
+            .getPathWithStatsLevelAware(a, t, nodeMap::get, url -> !url.equals(x.getURL()), null);
+    assertEquals(Arrays.asList(a.getURL(), x.getURL(), t.getURL()), result.getPath());
+  }
+
+  @Test
+  public void testLevelAwareSearchLimitsColdFetches() {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger mostRunning = new AtomicInteger();
+    Map<String, PageNode> nodeMap = new HashMap<>();
+    Set<PageNode> level = new LinkedHashSet<>();
+    for (int i = 0; i < 20; i++) {
+      MockPageNode cold =
+          new MockPageNode("Cold" + i, Collections.emptySet()) {
+            @Override
+            public void findOutgoingLinks() {
+              mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+              try {
+                Thread.sleep(5);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              running.decrementAndGet();
+            }
+          };
+      level.add(cold);
+      nodeMap.put(cold.getURL(), cold);
+    }
+    MockPageNode start = new MockPageNode("Wide", level);
+    MockPageNode target = new MockPageNode("Unreachable", Collections.emptySet());
+    nodeMap.put(start.getURL(), start);
+    BFSResult result =
+        new BFS()
+            .getPathWithStatsLevelAware(
+                start, target, nodeMap::get, url -> url.equals(start.getURL()), null);
+    assertNull(result.getPath());
+    assertEquals(21, result.getNodesExplored());
+    assertTrue(mostRunning.get() <= 4);
+  }
+
+  @Test
+  public void testLevelAwareSearchWithoutPath() {
+    Map<String, MockPageNode> nodeMap = buildDiamond();
+    MockPageNode unreachable = new MockPageNode("Unreachable", Collections.emptySet());
+    BFSResult result =
+        new BFS()
+            .getPathWithStatsLevelAware(
+                nodeMap.get("https://en.wikipedia.org/wiki/A"),
+                unreachable,
+                nodeMap::get,
+                url -> false,
+                null);
+    assertNull(result.getPath());
+    assertEquals(5, result.getNodesExplored());
+  }
+
+  @Test
+  public void testGetDistancesToTargets() {
+    Map<String, MockPageNode> nodeMap = buildDiamond();
+    MockPageNode start = nodeMap.get("https://en.wikipedia.org/wiki/A");
+    ReachabilityResult result =
+        new BFS()
+            .getDistances(
+                start,
+                Arrays.asList(
+                    "https://en.wikipedia.org/wiki/C",
+                    "https://en.wikipedia.org/wiki/E",
+                    "https://en.wikipedia.org/wiki/Missing"),
+                -1,
+                true,
+                nodeMap::get);
+    assertEquals(1, result.getDistances().get("https://en.wikipedia.org/wiki/C"));
+    assertEquals(3, result.getDistances().get("https://en.wikipedia.org/wiki/E"));
+    assertEquals(4, result.getPaths().get("https://en.wikipedia.org/wiki/E").size());
+    assertEquals(
+        Collections.singleton("https://en.wikipedia.org/wiki/Missing"),
+        result.getUnreachedTargets());
+  }
+
+  @Test
+  public void testGetDistancesWithinDepthWithoutPaths() {
+    Map<String, MockPageNode> nodeMap = buildDiamond();
+    MockPageNode start = nodeMap.get("https://en.wikipedia.org/wiki/A");
+    ReachabilityResult result = new BFS().getDistances(start, null, 2, false, nodeMap::get);
+    assertNull(result.getPaths());
+    assertEquals(4, result.getDistances().size());
+    assertEquals(0, result.getDistances().get("https://en.wikipedia.org/wiki/A"));
+    assertEquals(2, result.getDistances().get("https://en.wikipedia.org/wiki/D"));
+    assertFalse(result.getDistances().containsKey("https://en.wikipedia.org/wiki/E"));
+    // Nodes at the depth limit are never expanded
+    assertEquals(3, result.getNodesExplored());
+  }
+
+  @Test
+  public void testGetDistancesStopsWhenAllTargetsReached() {
+    Map<String, MockPageNode> nodeMap = buildDiamond();
+    MockPageNode start = nodeMap.get("https://en.wikipedia.org/wiki/A");
+    ReachabilityResult result =
+        new BFS()
+            .getDistances(
+                start,
+                Collections.singletonList("https://en.wikipedia.org/wiki/B"),
+                -1,
+                false,
+                nodeMap::get);
+    assertEquals(1, result.getNodesExplored());
+    assertTrue(result.getUnreachedTargets().isEmpty());
+  }
+
+  @Test
+  public void testGetDistancesRequiresDepthOrTargets() {
+    MockPageNode node = new MockPageNode("A", Collections.emptySet());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new BFS().getDistances(node, Collections.emptyList(), -1, false, url -> node));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new BFS().getDistances(null, null, 1, false, url -> node));
+  }
+
+  @Test
+  public void testAllShortestPathsInDiamond() {
+    Map<String, MockPageNode> nodeMap = buildDiamond();
+    MockPageNode start = nodeMap.get("https://en.wikipedia.org/wiki/A");
+    MockPageNode end = nodeMap.get("https://en.wikipedia.org/wiki/E");
+    ShortestPaths result = new BFS().getAllShortestPaths(start, end, nodeMap::get, null);
+    assertEquals(3, result.getDistance());
+    assertTrue(result.isComplete());
+    assertEquals(2, result.countPaths());
+    Set<List<String>> paths = new HashSet<>(result.paths(10));
+    assertEquals(
+        Set.of(
+            List.of(
+                "https://en.wikipedia.org/wiki/A",
+                "https://en.wikipedia.org/wiki/B",
+                "https://en.wikipedia.org/wiki/D",
+                "https://en.wikipedia.org/wiki/E"),
+            List.of(
+                "https://en.wikipedia.org/wiki/A",
+                "https://en.wikipedia.org/wiki/C",
+                "https://en.wikipedia.org/wiki/D",
+                "https://en.wikipedia.org/wiki/E")),
+        paths);
+    assertEquals(1, result.paths(1).size());
+    // D's level is finished, but E itself is never expanded
+    assertEquals(4, result.getNodesExplored());
+  }
+
+  @Test
+  public void testAllShortestPathsIgnoreLongerRoutes() {
+    // A -> {B, C, X}, B -> T, C -> T, X -> Y -> T: only the two 2-hop paths are shortest
+    Map<String, MockPageNode> nodes = new HashMap<>();
+    for (String name : List.of("SA", "SB", "SC", "SX", "SY", "ST")) {
+      nodes.put(name, new MockPageNode(name, Collections.emptySet()));
+    }
+    nodes.get("SA").setOutNodes(Set.of(nodes.get("SB"), nodes.get("SC"), nodes.get("SX")));
+    nodes.get("SB").setOutNodes(Set.of(nodes.get("ST")));
+    nodes.get("SC").setOutNodes(Set.of(nodes.get("ST")));
+    nodes.get("SX").setOutNodes(Set.of(nodes.get("SY")));
+    nodes.get("SY").setOutNodes(Set.of(nodes.get("ST")));
+    Function<String, PageNode> factory =
+        url -> nodes.get(url.substring("https://en.wikipedia.org/wiki/".length()));
+    ShortestPaths result =
+        new BFS().getAllShortestPaths(nodes.get("SA"), nodes.get("ST"), factory, null);
+    assertEquals(2, result.getDistance());
+    assertEquals(2, result.countPaths());
+    for (List<String> path : result.paths(10)) {
+      assertEquals(3, path.size());
+      assertFalse(path.contains(nodes.get("SX").getURL()));
+    }
+  }
+
+  @Test
+  public void testAllShortestPathsWithoutPath() {
+    Map<String, MockPageNode> nodeMap = buildDiamond();
+    MockPageNode unreachable = new MockPageNode("Unreachable", Collections.emptySet());
+    ShortestPaths result =
+        new BFS()
+            .getAllShortestPaths(
+                nodeMap.get("https://en.wikipedia.org/wiki/A"), unreachable, nodeMap::get, null);
+    assertEquals(-1, result.getDistance());
+    assertEquals(0, result.countPaths());
+    assertTrue(result.paths(5).isEmpty());
+    assertTrue(result.isComplete());
+    assertEquals(5, result.getNodesExplored());
+  }
+
+  /** Start page with 30 unrelated links and one leading towards Kevin Bacon via a backlink. */
+  private static Map<String, MockPageNode> buildBaconGraph() {
+    Map<String, MockPageNode> nodes = new HashMap<>();
+    MockPageNode target = new MockPageNode("Heur_Kevin_Bacon", Collections.emptySet());
+    MockPageNode footloose = new MockPageNode("Heur_Footloose", Set.of(target));
+    MockPageNode fanClub = new MockPageNode("Heur_Bacon_Fan_Club", Set.of(footloose));
+    Set<PageNode> startLinks = new LinkedHashSet<>();
+    for (int i = 0; i < 30; i++) {
+      MockPageNode child = new MockPageNode("Heur_Noise_Child_" + i, Set.of(footloose));
+      MockPageNode noise = new MockPageNode("Heur_Noise_" + i, Set.of(child));
+      nodes.put(child.getURL(), child);
+      nodes.put(noise.getURL(), noise);
+      startLinks.add(noise);
+    }
+    startLinks.add(fanClub);
+    MockPageNode start = new MockPageNode("Heur_Start", startLinks);
+    for (MockPageNode node : List.of(target, footloose, fanClub, start)) {
+      nodes.put(node.getURL(), node);
+    }
+    return nodes;
+  }
+
+  /** Returns a BFS whose target backlinks come from {@code backlinks} (unknown if absent). */
+  private static BFS withBacklinks(Map<Integer, CompressedAdjacency> backlinks) {
+    return new BFS() {
+      @Override
+      protected CompressedAdjacency loadBacklinks(int id) {
+        return backlinks.get(id);
+      }
+    };
+  }
+
+  @Test
+  public void testHeuristicSearchFollowsBeamToBacklink() {
+    Map<String, MockPageNode> nodes = buildBaconGraph();
+    TitleRegistry registry = TitleRegistry.shared();
+    String prefix = "https://en.wikipedia.org/wiki/";
+    int targetId = registry.idOf(prefix + "Heur_Kevin_Bacon");
+    BFS bfs =
+        withBacklinks(
+            Map.of(
+                targetId,
+                CompressedAdjacency.of(new int[] {registry.idOf(prefix + "Heur_Footloose")})));
+    MockPageNode start = nodes.get(prefix + "Heur_Start");
+    MockPageNode end = nodes.get(prefix + "Heur_Kevin_Bacon");
+
+    HeuristicResult result = bfs.getPathWithStatsHeuristic(start, end, nodes::get, 2, null);
+    assertEquals(
+        List.of(
+            prefix + "Heur_Start",
+            prefix + "Heur_Bacon_Fan_Club",
+            prefix + "Heur_Footloose",
+            prefix + "Heur_Kevin_Bacon"),
+        result.getPath());
+    assertEquals(3, result.getNodesExplored());
+    // Level 1 was seen in full and holds no backlink, so no path is shorter than 3 hops
+    assertEquals(3, result.getLowerBound());
+    assertTrue(result.isProvenOptimal());
+    BFSResult exhaustive = new BFS().getPathWithStats(start, end, nodes::get);
+    assertEquals(4, exhaustive.getPath().size());
+    assertTrue(exhaustive.getNodesExplored() > 10 * result.getNodesExplored());
+  }
+
+  @Test
+  public void testHeuristicSearchBoundsGapWithoutBacklinks() {
+    // A -> {Z, Y}, Y -> T, Z -> W -> V -> T; with a beam of 1 and unknown backlinks the search
+    // may walk the long way round, and only level 1 (seen in full) bounds the shortest path
+    Map<String, MockPageNode> nodes = new HashMap<>();
+    for (String name : List.of("GA", "GY", "GZ", "GW", "GV", "GT")) {
+      nodes.put(name, new MockPageNode(name, Collections.emptySet()));
+    }
+    nodes.get("GA").setOutNodes(new LinkedHashSet<>(List.of(nodes.get("GZ"), nodes.get("GY"))));
+    nodes.get("GY").setOutNodes(Set.of(nodes.get("GT")));
+    nodes.get("GZ").setOutNodes(Set.of(nodes.get("GW")));
+    nodes.get("GW").setOutNodes(Set.of(nodes.get("GV")));
+    nodes.get("GV").setOutNodes(Set.of(nodes.get("GT")));
+    Function<String, PageNode> factory =
+        url -> nodes.get(url.substring("https://en.wikipedia.org/wiki/".length()));
+
+    HeuristicResult result =
+        withBacklinks(Map.of())
+            .getPathWithStatsHeuristic(nodes.get("GA"), nodes.get("GT"), factory, 1, null);
+    assertNotNull(result.getPath());
+    assertEquals(2, result.getLowerBound());
+    assertEquals(result.getPath().size() - 3, result.getOptimalityGap());
+  }
+
+  @Test
+  public void testHeuristicSearchRejectsInvalidBeamWidth() {
+    Map<String, MockPageNode> nodeMap = buildDiamond();
+    MockPageNode start = nodeMap.get("https://en.wikipedia.org/wiki/A");
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new BFS().getPathWithStatsHeuristic(start, start, nodeMap::get, 0, null));
+  }
+
+  @Test
+  public void testResultCarriesSearchMetrics() {
+    // A -> {B, C}, B -> D, C -> E, E -> F: F is found while expanding E at depth 2
+    Map<String, MockPageNode> nodes = new HashMap<>();
+    for (String name : List.of("MA", "MB", "MC", "MD", "ME", "MF")) {
+      nodes.put(name, new MockPageNode(name, Collections.emptySet()));
+    }
+    nodes.get("MA").setOutNodes(Set.of(nodes.get("MB"), nodes.get("MC")));
+    nodes.get("MB").setOutNodes(Set.of(nodes.get("MD")));
+    nodes.get("MC").setOutNodes(Set.of(nodes.get("ME")));
+    nodes.get("ME").setOutNodes(Set.of(nodes.get("MF")));
+    Function<String, PageNode> factory =
+        url -> nodes.get(url.substring("https://en.wikipedia.org/wiki/".length()));
+
+    BFSResult result = new BFS().getPathWithStats(nodes.get("MA"), nodes.get("MF"), factory);
+    assertEquals(4, result.getPath().size());
+    SearchMetrics metrics = result.getMetrics();
+    assertEquals(2, metrics.getDepthReached());
+    assertEquals(2, metrics.getMaxFrontierSize());
+    assertEquals(0, metrics.getHttpRequests());
+    assertTrue(metrics.getTotalMillis() >= metrics.getFetchWaitMillis());
+  }
+
+  @Test
+  public void testCachedTreesAnswerRepeatedQueries() {
+    // TA -> {TB, TC}, TB -> TD, TC -> TE; backlinks: TE <- TC <- TA
+    Map<String, MockPageNode> nodes = new HashMap<>();
+    for (String name : List.of("TA", "TB", "TC", "TD", "TE")) {
+      nodes.put(name, new MockPageNode(name, Collections.emptySet()));
+    }
+    nodes.get("TA").setOutNodes(Set.of(nodes.get("TB"), nodes.get("TC")));
+    nodes.get("TB").setOutNodes(Set.of(nodes.get("TD")));
+    nodes.get("TC").setOutNodes(Set.of(nodes.get("TE")));
+    Function<String, PageNode> factory =
+        url -> nodes.get(url.substring("https://en.wikipedia.org/wiki/".length()));
+    TitleRegistry registry = TitleRegistry.shared();
+    Map<Integer, CompressedAdjacency> backlinks =
+        Map.of(
+            registry.idOf(nodes.get("TE").getURL()),
+            CompressedAdjacency.of(new int[] {registry.idOf(nodes.get("TC").getURL())}),
+            registry.idOf(nodes.get("TC").getURL()),
+            CompressedAdjacency.of(new int[] {registry.idOf(nodes.get("TA").getURL())}));
+    SourceTreeCache cache = new SourceTreeCache(1 << 20, java.time.Duration.ofMinutes(1), 2);
+    BFS bfs =
+        new BFS() {
+          @Override
+          protected SourceTreeCache sourceTrees() {
+            return cache;
+          }
+
+          @Override
+          protected CompressedAdjacency loadBacklinks(int id) {
+            return backlinks.getOrDefault(id, CompressedAdjacency.EMPTY);
+          }
+        };
+
+    BFSResult first = bfs.getPathWithStats(nodes.get("TA"), nodes.get("TD"), factory, null, true);
+    assertEquals(3, first.getPath().size());
+    assertTrue(first.getNodesExplored() > 0);
+    // TE was discovered by the first search, so the cached tree answers without expanding
+    BFSResult second = bfs.getPathWithStats(nodes.get("TA"), nodes.get("TE"), factory, null, true);
+    assertEquals(
+        List.of(
+            "https://en.wikipedia.org/wiki/TA",
+            "https://en.wikipedia.org/wiki/TC",
+            "https://en.wikipedia.org/wiki/TE"),
+        second.getPath());
+    assertEquals(0, second.getNodesExplored());
+
+    // Dropping the trees keeps the query counts: TE's second query makes it popular, so it is
+    // answered by a reverse tree, which the next search from another start resumes
+    cache.invalidateAll();
+    BFSResult third = bfs.getPathWithStats(nodes.get("TC"), nodes.get("TE"), factory, null, true);
+    assertEquals(2, third.getPath().size());
+    assertNotNull(cache.getReverse(registry.idOf(nodes.get("TE").getURL())));
+    assertNull(cache.getForward(registry.idOf(nodes.get("TC").getURL())));
+    BFSResult fourth = bfs.getPathWithStats(nodes.get("TA"), nodes.get("TE"), factory, null, true);
+    assertEquals(3, fourth.getPath().size());
+    assertEquals("https://en.wikipedia.org/wiki/TA", fourth.getPath().get(0));
+    assertEquals(1, fourth.getNodesExplored());
+  }
+
+  @Test
+  public void testReverseTreeMissFallsBackToForwardSearch() {
+    // RA -> RB -> RC, but RC's backlinks were cut off before RB
+    Map<String, MockPageNode> nodes = new HashMap<>();
+    for (String name : List.of("RA", "RB", "RC")) {
+      nodes.put(name, new MockPageNode(name, Collections.emptySet()));
+    }
+    nodes.get("RA").setOutNodes(Set.of(nodes.get("RB")));
+    nodes.get("RB").setOutNodes(Set.of(nodes.get("RC")));
+    Function<String, PageNode> factory =
+        url -> nodes.get(url.substring("https://en.wikipedia.org/wiki/".length()));
+    SourceTreeCache cache = new SourceTreeCache(1 << 20, java.time.Duration.ofMinutes(1), 1);
+    BFS bfs =
+        new BFS() {
+          @Override
+          protected SourceTreeCache sourceTrees() {
+            return cache;
+          }
+
+          @Override
+          protected CompressedAdjacency loadBacklinks(int id) {
+            return CompressedAdjacency.EMPTY;
+          }
+        };
+
+    BFSResult result = bfs.getPathWithStats(nodes.get("RA"), nodes.get("RC"), factory, null, true);
+    assertEquals(3, result.getPath().size());
+    // One page of the reverse tree, then RA and RB of the forward tree
+    assertEquals(3, result.getNodesExplored());
+    TitleRegistry registry = TitleRegistry.shared();
+    assertNotNull(cache.getReverse(registry.idOf(nodes.get("RC").getURL())));
+    assertNotNull(cache.getForward(registry.idOf(nodes.get("RA").getURL())));
+  }
+
+  @Test
+  public void testInexactReverseTreePathIsCheckedByForwardSearch() {
+    // HS -> HX directly, but HX's backlinks are a full page of others, one of them linked from HS
+    MockPageNode target = new MockPageNode("HX", Collections.emptySet());
+    MockPageNode start = new MockPageNode("HS", Set.of(target));
+    TitleRegistry registry = TitleRegistry.shared();
+    int[] fillers = new int[LinkFetcher.LINK_LIMIT];
+    for (int i = 0; i < fillers.length; i++) {
+      fillers[i] = registry.idOf("https://en.wikipedia.org/wiki/HFiller" + i);
+    }
+    Map<Integer, CompressedAdjacency> backlinks =
+        Map.of(
+            registry.idOf(target.getURL()),
+            CompressedAdjacency.of(fillers),
+            fillers[0],
+            CompressedAdjacency.of(new int[] {registry.idOf(start.getURL())}));
+    Function<String, PageNode> factory = url -> url.equals(start.getURL()) ? start : target;
+    SourceTreeCache cache = new SourceTreeCache(1 << 20, java.time.Duration.ofMinutes(1), 1);
+    BFS bfs =
+        new BFS() {
+          @Override
+          protected SourceTreeCache sourceTrees() {
+            return cache;
+          }
+
+          @Override
+          protected CompressedAdjacency loadBacklinks(int id) {
+            return backlinks.getOrDefault(id, CompressedAdjacency.EMPTY);
+          }
+        };
+
+    BFSResult result = bfs.getPathWithStats(start, target, factory, null, true);
+    assertEquals(List.of(start.getURL(), target.getURL()), result.getPath());
+    // HX and HFiller0 of the reverse tree, then HS of the forward tree
+    assertEquals(3, result.getNodesExplored());
+    // The cached reverse tree's path is again only a hint; the forward tree now answers directly
+    BFSResult again = bfs.getPathWithStats(start, target, factory, null, true);
+    assertEquals(List.of(start.getURL(), target.getURL()), again.getPath());
+    assertEquals(0, again.getNodesExplored());
+  }
+
+  @Test
+  public void testSnapshotSearchFetchesUnknownPagesLive() {
+    MockPageNode end = new MockPageNode("SnapEnd", Collections.emptySet());
+    MockPageNode middle = new MockPageNode("SnapMiddle", Set.of(end));
+    MockPageNode start = new MockPageNode("SnapStart", Set.of(middle));
+    Map<String, MockPageNode> nodes = new HashMap<>();
+    for (MockPageNode node : List.of(start, middle, end)) {
+      nodes.put(node.getURL(), node);
+    }
+    TitleRegistry registry = TitleRegistry.shared();
+    AdjacencyCache cache = new AdjacencyCache(1 << 20, Duration.ofMinutes(1));
+    cache.put(registry.idOf(start.getURL()), start.getOutLinkIds());
+    GraphSnapshot snapshot = GraphSnapshot.of(cache);
+    List<String> loaded = new ArrayList<>();
+
+    BFSResult result =
+        new BFS()
+            .getPathWithStatsSnapshot(
+                start,
+                end,
+                snapshot,
+                url -> {
+                  loaded.add(url);
+                  return CompletableFuture.completedFuture(nodes.get(url).getOutLinkIds());
+                },
+                null);
+
+    assertEquals(List.of(start.getURL(), middle.getURL(), end.getURL()), result.getPath());
+    assertEquals(List.of(middle.getURL()), loaded);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new BFS().getPathWithStatsSnapshot(null, end, snapshot, url -> null, null));
+  }
+
+  @Test
+  public void testGetPathWithStatsOnDiskMatchesInMemorySearch(@TempDir Path tempDir)
+      throws Exception {
+    Map<String, MockPageNode> nodeMap = buildDiamond();
+    MockPageNode start = nodeMap.get("https://en.wikipedia.org/wiki/A");
+    MockPageNode end = nodeMap.get("https://en.wikipedia.org/wiki/E");
+    BFSResult inMemory = new BFS().getPathWithStats(start, end, nodeMap::get);
+    List<Integer> progress = new ArrayList<>();
+    BFSResult onDisk =
+        new BFS(true)
+            .getPathWithStatsOnDisk(start, end, nodeMap::get, 100, tempDir, progress::add, null);
+    assertEquals(inMemory.getPath(), onDisk.getPath());
+    assertEquals(inMemory.getNodesExplored(), onDisk.getNodesExplored());
+    assertEquals(onDisk.getNodesExplored(), progress.size());
+    try (var files = Files.list(tempDir)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  public void testGetPathWithStatsOnDiskRespectsNodeCapAndStop(@TempDir Path tempDir) {
+    Map<String, MockPageNode> nodeMap = buildDiamond();
+    MockPageNode start = nodeMap.get("https://en.wikipedia.org/wiki/A");
+    MockPageNode end = nodeMap.get("https://en.wikipedia.org/wiki/E");
+    BFS bfs = new BFS();
+    BFSResult capped = bfs.getPathWithStatsOnDisk(start, end, nodeMap::get, 2, tempDir, null, null);
+    assertNull(capped.getPath());
+    assertEquals(2, capped.getNodesExplored());
+    BFSResult stopped =
+        bfs.getPathWithStatsOnDisk(start, end, nodeMap::get, 100, tempDir, null, () -> true);
+    assertNull(stopped.getPath());
+    assertEquals(0, stopped.getNodesExplored());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> bfs.getPathWithStatsOnDisk(start, end, nodeMap::get, 0, tempDir, null, null));
+  }
 }
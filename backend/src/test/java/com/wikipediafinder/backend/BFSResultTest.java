@@ -51,4 +51,14 @@ public class BFSResultTest {
     BFSResult result = new BFSResult(path, -1);
     assertEquals(-1, result.getNodesExplored());
   }
+
+  @Test
+  public void testMetricsDefaultToEmpty() {
+    BFSResult result = new BFSResult(Arrays.asList("A"), 1);
+    assertSame(SearchMetrics.empty(), result.getMetrics());
+
+    SearchMetrics metrics = new SearchMetrics();
+    BFSResult measured = new BFSResult(Arrays.asList("A"), 1, Collections.emptyList(), metrics);
+    assertSame(metrics, measured.getMetrics());
+  }
 }
@@ -1,5 +1,6 @@
 package com.wikipediafinder.backend;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.*;
@@ -33,6 +34,11 @@ public class BFSTest {
       return new HashSet<>(outLinks.values());
     }
 
+    @Override
+    public CompressedAdjacency getOutLinkIds() {
+      return CompressedAdjacency.fromUrls(outLinks.keySet(), TitleRegistry.shared());
+    }
+
     @Override
     public String getURL() {
       return url;
@@ -59,4 +65,21 @@ public class BFSTest {
     }
     assertTrue(links.contains("https://en.wikipedia.org/wiki/Sanrio"));
   }
+
+  @Test
+  public void testBfsFollowsMockLinkIds() {
+    MockPageNode start = new MockPageNode("Albert_Einstein");
+    MockPageNode sanrio = new MockPageNode("Sanrio");
+    MockPageNode helloKitty = new MockPageNode("Hello_Kitty");
+    start.setMockOutLinks(sanrio);
+    sanrio.setMockOutLinks(helloKitty);
+    Map<String, PageNode> nodes = new HashMap<>();
+    for (MockPageNode node : Arrays.asList(start, sanrio, helloKitty)) {
+      nodes.put(node.getURL(), node);
+    }
+    BFSResult result = new BFS().getPathWithStats(start, helloKitty, nodes::get);
+    assertEquals(
+        Arrays.asList(start.getURL(), sanrio.getURL(), helloKitty.getURL()), result.getPath());
+    assertEquals(2, result.getNodesExplored());
+  }
 }
@@ -0,0 +1,151 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class BackgroundCrawlerTest {
+  private static final String WIKI = "https://en.wikipedia.org/wiki/";
+
+  // Seed -> {A, B}, A -> {C}, Popular -> {B, D}
+  private final Map<String, List<String>> graph =
+      Map.of(
+          WIKI + "Crawl_Seed", List.of(WIKI + "Crawl_A", WIKI + "Crawl_B"),
+          WIKI + "Crawl_A", List.of(WIKI + "Crawl_C"),
+          WIKI + "Crawl_Popular", List.of(WIKI + "Crawl_B", WIKI + "Crawl_D"));
+  private final List<String> expanded = Collections.synchronizedList(new ArrayList<>());
+  private final SearchActivity activity = new SearchActivity(100);
+
+  private BackgroundCrawler crawler(int budget) {
+    return new BackgroundCrawler(
+        activity,
+        List.of(WIKI + "Crawl_Seed"),
+        budget,
+        Duration.ofMillis(50),
+        5,
+        Duration.ZERO,
+        Duration.ofHours(1)) {
+      @Override
+      protected PageNode createNode(String url) {
+        return new FakePageNode(url);
+      }
+    };
+  }
+
+  @Test
+  public void testExpandsSeedsPopularPagesThenTheirLinks() {
+    activity.recordPages(List.of(WIKI + "Crawl_Popular"));
+    BackgroundCrawler crawler = crawler(100);
+    assertEquals(5, crawler.crawl());
+    // Links of level-0 pages are crawled, but not the links of those links (Crawl_C)
+    assertEquals(
+        List.of(
+            WIKI + "Crawl_Seed",
+            WIKI + "Crawl_Popular",
+            WIKI + "Crawl_A",
+            WIKI + "Crawl_B",
+            WIKI + "Crawl_D"),
+        expanded);
+    Map<String, Object> progress = crawler.getProgress();
+    assertEquals("idle", progress.get("state"));
+    assertEquals(1L, progress.get("runs"));
+    assertEquals(5L, progress.get("pagesExpanded"));
+    assertEquals(5L, progress.get("upstreamRequests"));
+    assertEquals(500L, progress.get("bytesDownloaded"));
+  }
+
+  @Test
+  public void testStopsWhenBudgetIsSpent() {
+    BackgroundCrawler crawler = crawler(2);
+    assertEquals(2, crawler.crawl());
+    assertEquals(List.of(WIKI + "Crawl_Seed", WIKI + "Crawl_A"), expanded);
+    assertEquals(2L, crawler.getProgress().get("lastRunRequests"));
+  }
+
+  @Test
+  public void testPausesWhileSearchesRun() throws Exception {
+    BackgroundCrawler crawler = crawler(100);
+    Thread run;
+    try (SearchActivity.Scope search = activity.begin()) {
+      run = new Thread(crawler::crawl);
+      run.start();
+      long deadline = System.currentTimeMillis() + 5000;
+      while (!"paused".equals(crawler.getProgress().get("state"))) {
+        assertTrue(System.currentTimeMillis() < deadline, "crawler never paused");
+        Thread.sleep(5);
+      }
+      Thread.sleep(20);
+      assertTrue(expanded.isEmpty());
+    }
+    run.join(5000);
+    assertFalse(run.isAlive());
+    assertEquals(3, expanded.size());
+    assertEquals(1L, crawler.getProgress().get("pauses"));
+    assertTrue((Long) crawler.getProgress().get("pausedMillis") >= 20);
+  }
+
+  @Test
+  public void testStoppedCrawlerDoesNothing() {
+    BackgroundCrawler crawler = crawler(100);
+    crawler.stop();
+    assertEquals(0, crawler.crawl());
+    assertTrue(expanded.isEmpty());
+  }
+
+  @Test
+  public void testScheduledRunsUseTheCrawlerThread() throws Exception {
+    List<String> threads = Collections.synchronizedList(new ArrayList<>());
+    BackgroundCrawler crawler =
+        new BackgroundCrawler(
+            activity,
+            List.of(WIKI + "Crawl_Seed"),
+            100,
+            Duration.ofMillis(50),
+            5,
+            Duration.ZERO,
+            Duration.ofHours(1)) {
+          @Override
+          protected PageNode createNode(String url) {
+            threads.add(Thread.currentThread().getName());
+            return new FakePageNode(url);
+          }
+        };
+    crawler.start();
+    try {
+      long deadline = System.currentTimeMillis() + 5000;
+      while (crawler.getProgress().get("runs").equals(0L)) {
+        assertTrue(System.currentTimeMillis() < deadline);
+        Thread.sleep(5);
+      }
+    } finally {
+      crawler.stop();
+    }
+    assertFalse(threads.isEmpty());
+    assertTrue(threads.stream().allMatch("background-crawler"::equals));
+  }
+
+  /** A page whose links come from {@link #graph}, reporting one 100-byte request per load. */
+  private class FakePageNode extends PageNode {
+    FakePageNode(String url) {
+      super(url);
+    }
+
+    @Override
+    public void findOutgoingLinks() {
+      expanded.add(getURL());
+      SearchMetrics.current().recordHttpRequest(100);
+    }
+
+    @Override
+    public CompressedAdjacency getOutLinkIds() {
+      return CompressedAdjacency.fromUrls(
+          graph.getOrDefault(getURL(), List.of()), TitleRegistry.shared());
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class CacheInvalidatorTest {
+  private static final String PREFIX = "https://en.wikipedia.org/wiki/";
+
+  private final TitleRegistry registry = TitleRegistry.shared();
+  private final AdjacencyCache cache = new AdjacencyCache(1 << 20, Duration.ofMinutes(1));
+  private final AtomicInteger backlinkRequests = new AtomicInteger();
+  private final LinkFetcher fetcher =
+      new LinkFetcher(cache, registry, new PeerLinkClient(Duration.ofSeconds(2))) {
+        @Override
+        protected Set<String> fetchBacklinksFromApi(String pageTitle) {
+          backlinkRequests.incrementAndGet();
+          return Set.of(url("Invalidation_Edited"));
+        }
+      };
+  private final SourceTreeCache trees = new SourceTreeCache(1 << 20, Duration.ofMinutes(1), 3);
+  private final PageExistenceCache existence =
+      new PageExistenceCache(1000, 1000, Duration.ofMinutes(1));
+  private final Map<Object, Object> paths = new ConcurrentHashMap<>();
+  private final CacheInvalidator invalidator =
+      new CacheInvalidator(fetcher, trees, existence, registry, List.of(paths));
+
+  private static String url(String title) {
+    return PREFIX + title;
+  }
+
+  private static CachedResult cached(BFSResult result) {
+    return new CachedResult(result, 0, "default", BFS.NODE_CAP);
+  }
+
+  private int id(String title) {
+    return registry.idOf(url(title));
+  }
+
+  private static List<RecentChanges.Change> edited(String title) {
+    return List.of(new RecentChanges.Change(url(title), false));
+  }
+
+  @Test
+  public void testLinksOfEditedPageAreDropped() throws Exception {
+    CompressedAdjacency toTarget = CompressedAdjacency.of(new int[] {id("Invalidation_Target")});
+    cache.put(id("Invalidation_Edited"), toTarget);
+    cache.put(id("Invalidation_Other"), toTarget);
+    fetcher.fetchBacklinks("Invalidation_Target");
+
+    invalidator.apply(edited("Invalidation_Edited"));
+
+    assertNull(cache.get(id("Invalidation_Edited")));
+    assertNotNull(cache.get(id("Invalidation_Other")));
+    // The target's backlinks may have lost the edited page
+    fetcher.fetchBacklinks("Invalidation_Target");
+    assertEquals(2, backlinkRequests.get());
+  }
+
+  @Test
+  public void testOnlyPathsThroughEditedPageAreDropped() {
+    List<String> through = List.of(url("P_Start"), url("P_Edited"), url("P_End"));
+    List<String> endingThere = List.of(url("P_Start"), url("P_Edited"));
+    List<String> elsewhere = List.of(url("P_Start"), url("P_Other"), url("P_End"));
+    paths.put("through", new BFSResult(through, 3));
+    paths.put("ending", endingThere);
+    paths.put("elsewhere", new BFSResult(elsewhere, 3));
+    paths.put("none", new BFSResult(null, 50));
+    paths.put("cachedThrough", cached(new BFSResult(through, 3)));
+    paths.put("cachedElsewhere", cached(new BFSResult(elsewhere, 3)));
+    // Wrapped misses are only served for their own TTL, so batches leave them alone
+    paths.put("cachedNone", cached(new BFSResult(null, 50)));
+
+    invalidator.apply(edited("P_Edited"));
+
+    assertEquals(Set.of("ending", "elsewhere", "cachedElsewhere", "cachedNone"), paths.keySet());
+    assertEquals(3, invalidator.getPathsDropped());
+  }
+
+  @Test
+  public void testTreesThatDiscoveredEditedPageAreDropped() {
+    CompressedAdjacency rootLinks = CompressedAdjacency.of(new int[] {id("T_Edited")});
+    SourceTree touched = new SourceTree(id("T_Root"), false);
+    touched.expand(
+        id("T_Missing"),
+        10,
+        page -> page == id("T_Root") ? rootLinks : CompressedAdjacency.EMPTY,
+        null,
+        null);
+    SourceTree untouched = new SourceTree(id("T_Elsewhere"), false);
+    trees.put(touched);
+    trees.put(untouched);
+
+    invalidator.apply(edited("T_Edited"));
+
+    assertNull(trees.getForward(id("T_Root")));
+    assertSame(untouched, trees.getForward(id("T_Elsewhere")));
+  }
+
+  @Test
+  public void testCreatedAndDeletedPagesUpdateExistence() {
+    existence.markMissing("Existence Created");
+    existence.markExisting("Existence Deleted");
+
+    invalidator.apply(
+        List.of(
+            new RecentChanges.Change(url("Existence_Created"), false),
+            new RecentChanges.Change(url("Existence_Deleted"), true)));
+
+    assertEquals(Boolean.TRUE, existence.lookup("Existence Created"));
+    assertEquals(Boolean.FALSE, existence.lookup("Existence Deleted"));
+  }
+}
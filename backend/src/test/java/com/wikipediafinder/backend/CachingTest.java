@@ -11,7 +11,8 @@ import org.springframework.cache.CacheManager;
  * Integration test to verify that caching is working correctly for BFS operations. Verifies that
  * the cache manager is properly configured with the expected caches.
  */
-@SpringBootTest
+@SpringBootTest(
+    properties = "wikipediafinder.changes.url=file:src/test/resources/recentchange.txt")
 public class CachingTest {
 
   @Autowired private BFS bfs;
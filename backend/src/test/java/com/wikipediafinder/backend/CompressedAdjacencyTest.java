@@ -0,0 +1,63 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class CompressedAdjacencyTest {
+  @Test
+  public void testRoundTripSortsAndDeduplicates() {
+    CompressedAdjacency adjacency = CompressedAdjacency.of(new int[] {300, 5, 70000, 5, 0, 128});
+    assertEquals(5, adjacency.size());
+    assertArrayEquals(new int[] {0, 5, 128, 300, 70000}, adjacency.toArray());
+  }
+
+  @Test
+  public void testSmallGapsUseOneByteEach() {
+    int[] ids = new int[500];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = 1000 + i * 3;
+    }
+    CompressedAdjacency adjacency = CompressedAdjacency.of(ids);
+    // Two bytes for the first ID, one byte for every following gap
+    assertEquals(2 + 499, adjacency.byteSize());
+  }
+
+  @Test
+  public void testContainsAndCursor() {
+    CompressedAdjacency adjacency = CompressedAdjacency.of(new int[] {9, 3, 1_000_000});
+    assertTrue(adjacency.contains(3));
+    assertTrue(adjacency.contains(1_000_000));
+    assertFalse(adjacency.contains(4));
+    CompressedAdjacency.Cursor cursor = new CompressedAdjacency.Cursor().reset(adjacency);
+    List<Integer> seen = new ArrayList<>();
+    while (cursor.hasNext()) {
+      seen.add(cursor.nextInt());
+    }
+    assertEquals(Arrays.asList(3, 9, 1_000_000), seen);
+    assertThrows(IllegalStateException.class, cursor::nextInt);
+  }
+
+  @Test
+  public void testUnionAndEmpty() {
+    CompressedAdjacency a = CompressedAdjacency.of(new int[] {1, 2});
+    CompressedAdjacency b = CompressedAdjacency.of(new int[] {2, 3});
+    assertArrayEquals(new int[] {1, 2, 3}, a.union(b).toArray());
+    assertSame(a, a.union(CompressedAdjacency.EMPTY));
+    assertTrue(CompressedAdjacency.of(new int[0]).isEmpty());
+    assertThrows(IllegalArgumentException.class, () -> CompressedAdjacency.of(new int[] {-1}));
+  }
+
+  @Test
+  public void testFromUrlsUsesRegistryIds() {
+    TitleRegistry registry = new TitleRegistry();
+    CompressedAdjacency adjacency =
+        CompressedAdjacency.fromUrls(
+            Arrays.asList("https://en.wikipedia.org/wiki/B", "https://en.wikipedia.org/wiki/A"),
+            registry);
+    assertEquals(2, registry.size());
+    assertEquals("https://en.wikipedia.org/wiki/B", registry.urlOf(adjacency.toArray()[0]));
+    assertEquals(-1, registry.find("https://en.wikipedia.org/wiki/C"));
+  }
+}
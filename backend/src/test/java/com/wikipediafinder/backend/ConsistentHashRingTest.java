@@ -0,0 +1,52 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class ConsistentHashRingTest {
+  private static final List<String> PEERS =
+      List.of("http://a:8080", "http://b:8080", "http://c:8080");
+
+  @Test
+  public void testOwnerIsStableAndKnown() {
+    ConsistentHashRing ring = new ConsistentHashRing(PEERS);
+    for (int i = 0; i < 100; i++) {
+      String owner = ring.ownerOf("Page_" + i);
+      assertTrue(PEERS.contains(owner));
+      assertEquals(owner, new ConsistentHashRing(PEERS).ownerOf("Page_" + i));
+    }
+  }
+
+  @Test
+  public void testKeysAreSpreadAcrossPeers() {
+    ConsistentHashRing ring = new ConsistentHashRing(PEERS);
+    Map<String, Integer> counts = new HashMap<>();
+    for (int i = 0; i < 3000; i++) {
+      counts.merge(ring.ownerOf("Page_" + i), 1, Integer::sum);
+    }
+    for (String peer : PEERS) {
+      assertTrue(counts.getOrDefault(peer, 0) > 500, "Keys owned by " + peer + ": " + counts);
+    }
+  }
+
+  @Test
+  public void testRemovingPeerOnlyMovesItsKeys() {
+    ConsistentHashRing full = new ConsistentHashRing(PEERS);
+    ConsistentHashRing reduced = new ConsistentHashRing(PEERS.subList(0, 2));
+    for (int i = 0; i < 1000; i++) {
+      String owner = full.ownerOf("Page_" + i);
+      if (!owner.equals("http://c:8080")) {
+        assertEquals(owner, reduced.ownerOf("Page_" + i));
+      }
+    }
+  }
+
+  @Test
+  public void testRejectsEmptyPeerList() {
+    assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of()));
+  }
+}
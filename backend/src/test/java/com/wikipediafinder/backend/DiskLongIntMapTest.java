@@ -0,0 +1,60 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DiskLongIntMapTest {
+  @TempDir Path tempDir;
+
+  @Test
+  public void testEntriesSpillToDiskAndRemainReadable() throws Exception {
+    try (DiskLongIntMap map = new DiskLongIntMap(tempDir, 100)) {
+      for (int i = 0; i < 5000; i++) {
+        assertTrue(map.putIfAbsent(i * 0x1_0000_0007L, i));
+      }
+      assertEquals(5000, map.size());
+      assertTrue(map.hotSize() < 100);
+      for (int i = 0; i < 5000; i++) {
+        assertEquals(i, map.get(i * 0x1_0000_0007L, -1));
+      }
+      assertFalse(map.containsKey(1));
+      assertEquals(-1, map.get(1, -1));
+    }
+  }
+
+  @Test
+  public void testPutIfAbsentKeepsFirstValue() throws Exception {
+    try (DiskLongIntMap map = new DiskLongIntMap(tempDir, 2)) {
+      assertTrue(map.putIfAbsent(0, 10));
+      assertTrue(map.putIfAbsent(-1, 0));
+      assertFalse(map.putIfAbsent(0, 99));
+      assertFalse(map.putIfAbsent(-1, 99));
+      assertEquals(10, map.get(0, -1));
+      assertEquals(0, map.get(-1, -1));
+      assertThrows(IllegalArgumentException.class, () -> map.putIfAbsent(5, -1));
+    }
+    try (var files = Files.list(tempDir)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  public void testRehashesWhenTableFillsUp() throws Exception {
+    try (DiskLongIntMap map = new DiskLongIntMap(tempDir, 1 << 16)) {
+      // Enough entries to exceed half of the initial 2^20-slot table
+      for (int i = 0; i < 600_000; i++) {
+        map.putIfAbsent(Hashing.hash64("Page_" + i), i);
+      }
+      assertEquals(600_000, map.size());
+      assertEquals(0, map.get(Hashing.hash64("Page_0"), -1));
+      assertEquals(599_999, map.get(Hashing.hash64("Page_599999"), -1));
+      try (var files = Files.list(tempDir)) {
+        assertEquals(1, files.count());
+      }
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DiskPageLogTest {
+  private static final String WIKI = "https://en.wikipedia.org/wiki/";
+
+  @TempDir Path tempDir;
+
+  @Test
+  public void testPagesAndParentsAreReadBackAcrossSegments() throws Exception {
+    try (DiskPageLog log = new DiskPageLog(tempDir, 1 << 17)) {
+      assertEquals(0, log.append(-1, WIKI + "Start"));
+      // About 40 bytes per record, so the pages span several segments
+      for (int i = 1; i < 10_000; i++) {
+        assertEquals(i, log.append(i / 2, WIKI + "Page_" + i));
+      }
+      assertEquals(10_000, log.size());
+      assertEquals(WIKI + "Page_9999", log.urlOf(9999));
+      assertEquals(4999, log.parentOf(9999));
+      assertEquals(-1, log.parentOf(0));
+      assertEquals(
+          List.of(WIKI + "Start", WIKI + "Page_1", WIKI + "Page_2", WIKI + "Page_5"),
+          log.pathTo(5));
+      assertThrows(IndexOutOfBoundsException.class, () -> log.urlOf(10_000));
+    }
+    try (var files = Files.list(tempDir)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  public void testNonAsciiAndOverlongUrls() throws Exception {
+    try (DiskPageLog log = new DiskPageLog(tempDir)) {
+      log.append(-1, WIKI + "Zürich");
+      assertEquals(WIKI + "Zürich", log.urlOf(0));
+      assertThrows(IllegalArgumentException.class, () -> log.append(0, "x".repeat(70_000)));
+      assertEquals(1, log.size());
+    }
+    assertThrows(IllegalArgumentException.class, () -> new DiskPageLog(tempDir, 1024));
+  }
+}
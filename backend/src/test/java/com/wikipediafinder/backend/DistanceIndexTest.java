@@ -0,0 +1,136 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DistanceIndexTest {
+  @TempDir Path tempDir;
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @AfterEach
+  public void shutdownPool() {
+    pool.shutdown();
+  }
+
+  private static LinkGraph randomGraph(int pages, int links, long seed) throws IOException {
+    Random random = new Random(seed);
+    StringBuilder edges = new StringBuilder();
+    for (int i = 0; i < links; i++) {
+      // Skewed towards low page numbers, so that some pages are hubs, as on Wikipedia
+      int from = random.nextInt(pages);
+      int to = (int) (pages * Math.pow(random.nextDouble(), 2));
+      edges.append("Page ").append(from).append('\t').append("Page ").append(to).append('\n');
+    }
+    return LinkGraph.read(new BufferedReader(new StringReader(edges.toString())));
+  }
+
+  /** Distances from {@code start} by a plain BFS over the graph, -1 where unreachable. */
+  private static int[] distances(LinkGraph graph, int start) {
+    int[] distance = new int[graph.size()];
+    Arrays.fill(distance, -1);
+    distance[start] = 0;
+    ArrayDeque<Integer> queue = new ArrayDeque<>(List.of(start));
+    while (!queue.isEmpty()) {
+      int page = queue.poll();
+      for (int e = graph.offsets()[page]; e < graph.offsets()[page + 1]; e++) {
+        int target = graph.targets()[e];
+        if (distance[target] < 0) {
+          distance[target] = distance[page] + 1;
+          queue.add(target);
+        }
+      }
+    }
+    return distance;
+  }
+
+  private static boolean linked(LinkGraph graph, String from, String to) {
+    int source = graph.find(from);
+    int target = graph.find(to);
+    for (int e = graph.offsets()[source]; e < graph.offsets()[source + 1]; e++) {
+      if (graph.targets()[e] == target) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void testDistancesAndPathsMatchBfs() throws Exception {
+    // More pages than are labeled one at a time, so that the parallel batches run too
+    LinkGraph graph = randomGraph(700, 2_500, 11);
+    Path file = tempDir.resolve("distance.idx");
+    DistanceIndex.build(graph, file, pool);
+
+    try (DistanceIndex index = DistanceIndex.open(file)) {
+      assertEquals(graph.size(), index.size());
+      for (int from = 0; from < graph.size(); from++) {
+        int[] expected = distances(graph, from);
+        for (int to = 0; to < graph.size(); to++) {
+          assertEquals(expected[to], index.distance(from, to), from + " -> " + to);
+          if ((from * 31 + to) % 17 != 0) {
+            continue;
+          }
+          List<String> path = index.path(from, to);
+          if (expected[to] < 0) {
+            assertNull(path);
+            continue;
+          }
+          assertEquals(expected[to] + 1, path.size());
+          assertEquals(graph.title(from), path.get(0));
+          assertEquals(graph.title(to), path.get(path.size() - 1));
+          for (int i = 0; i + 1 < path.size(); i++) {
+            assertTrue(linked(graph, path.get(i), path.get(i + 1)));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFindsPagesByTitle() throws Exception {
+    LinkGraph graph =
+        LinkGraph.read(new BufferedReader(new StringReader("Ünïcode\tAlpha\nAlpha\tBeta gamma\n")));
+    Path file = tempDir.resolve("distance.idx");
+    DistanceIndex.build(graph, file, pool);
+
+    try (DistanceIndex index = DistanceIndex.open(file)) {
+      int alpha = index.find("Alpha");
+      int beta = index.find("Beta_gamma");
+      int unicode = index.find("Ünïcode");
+      assertEquals(beta, index.find("Beta gamma"));
+      assertEquals(-1, index.find("Alph"));
+      assertEquals(-1, index.find("Zeta"));
+      assertEquals("Ünïcode", index.title(unicode));
+      assertEquals(2, index.distance(unicode, beta));
+      assertEquals(-1, index.distance(beta, alpha));
+      assertEquals(List.of("Ünïcode", "Alpha", "Beta_gamma"), index.path(unicode, beta));
+      assertEquals(List.of("Alpha"), index.path(alpha, alpha));
+    }
+  }
+
+  @Test
+  public void testRejectsTruncatedFile() throws Exception {
+    Path file = tempDir.resolve("distance.idx");
+    DistanceIndex.build(randomGraph(50, 100, 3), file, pool);
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+    assertThrows(IOException.class, () -> DistanceIndex.open(file));
+    Files.write(file, new byte[] {1, 2, 3});
+    assertThrows(IOException.class, () -> DistanceIndex.open(file));
+  }
+}
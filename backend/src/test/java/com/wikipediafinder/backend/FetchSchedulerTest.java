@@ -0,0 +1,128 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+public class FetchSchedulerTest {
+
+  private static CompletableFuture<FetchScheduler.Permit> request(
+      FetchScheduler scheduler, SearchMetrics search) {
+    try (SearchMetrics.Scope ignored = search.enter()) {
+      return scheduler.acquireAsync();
+    }
+  }
+
+  private static SearchMetrics search(FetchScheduler.Priority priority) {
+    SearchMetrics search = new SearchMetrics();
+    search.setFetchPriority(priority);
+    return search;
+  }
+
+  /**
+   * Queues {@code count} requests per search behind a held permit on a scheduler allowing one
+   * request at a time, then releases permits one by one and returns which search each went to.
+   */
+  private static List<String> grantOrder(Map<String, SearchMetrics> searches, int count) {
+    FetchScheduler scheduler = new FetchScheduler(1);
+    FetchScheduler.Permit held = scheduler.acquireAsync().join();
+    Map<CompletableFuture<FetchScheduler.Permit>, String> waiting = new LinkedHashMap<>();
+    searches.forEach(
+        (name, search) -> {
+          for (int i = 0; i < count; i++) {
+            waiting.put(request(scheduler, search), name);
+          }
+        });
+    List<String> order = new ArrayList<>();
+    while (!waiting.isEmpty()) {
+      held.close();
+      CompletableFuture<FetchScheduler.Permit> next =
+          waiting.keySet().stream().filter(CompletableFuture::isDone).findFirst().orElseThrow();
+      order.add(waiting.remove(next));
+      held = next.join();
+      assertEquals(1, scheduler.getInFlight());
+    }
+    return order;
+  }
+
+  @Test
+  public void testConcurrencyIsCapped() {
+    FetchScheduler scheduler = new FetchScheduler(2);
+    CompletableFuture<FetchScheduler.Permit> first = scheduler.acquireAsync();
+    CompletableFuture<FetchScheduler.Permit> second = scheduler.acquireAsync();
+    CompletableFuture<FetchScheduler.Permit> third = scheduler.acquireAsync();
+    assertTrue(first.isDone() && second.isDone());
+    assertFalse(third.isDone());
+    assertEquals(1, scheduler.getQueued());
+    first.join().close();
+    first.join().close();
+    assertTrue(third.isDone());
+    assertEquals(2, scheduler.getInFlight());
+    second.join().close();
+    third.join().close();
+    assertEquals(0, scheduler.getInFlight());
+  }
+
+  @Test
+  public void testSmallSearchIsNotStuckBehindCrawl() {
+    Map<String, SearchMetrics> searches = new LinkedHashMap<>();
+    searches.put("crawl", search(FetchScheduler.Priority.BACKGROUND));
+    searches.put("user", search(FetchScheduler.Priority.INTERACTIVE));
+    List<String> order = grantOrder(searches, 20);
+    // Eight of the user's requests for each of the crawl's, rather than all after the crawl's 20
+    assertEquals(List.of("crawl", "user", "user"), order.subList(0, 3));
+    assertEquals(22, order.lastIndexOf("user"));
+  }
+
+  @Test
+  public void testTurnsFollowPriorityWeights() {
+    Map<String, SearchMetrics> searches = new LinkedHashMap<>();
+    searches.put("job", search(FetchScheduler.Priority.BATCH));
+    searches.put("user", search(FetchScheduler.Priority.INTERACTIVE));
+    List<String> first = grantOrder(searches, 40).subList(0, 20);
+    assertEquals(16, Collections.frequency(first, "user"));
+    assertEquals(4, Collections.frequency(first, "job"));
+  }
+
+  @Test
+  public void testHeavySearchDropsToBatchWeight() {
+    SearchMetrics heavy = search(FetchScheduler.Priority.INTERACTIVE);
+    for (long i = 0; i <= FetchScheduler.HEAVY_REQUESTS; i++) {
+      heavy.recordHttpRequest(0);
+    }
+    Map<String, SearchMetrics> searches = new LinkedHashMap<>();
+    searches.put("heavy", heavy);
+    searches.put("light", search(FetchScheduler.Priority.INTERACTIVE));
+    List<String> first = grantOrder(searches, 20).subList(0, 10);
+    assertEquals(8, Collections.frequency(first, "light"));
+  }
+
+  @Test
+  public void testWithdrawnRequestsReleaseTheirTurn() throws Exception {
+    FetchScheduler scheduler = new FetchScheduler(1);
+    FetchScheduler.Permit held = scheduler.acquireAsync().join();
+    CompletableFuture<FetchScheduler.Permit> withdrawn = scheduler.acquireAsync();
+    withdrawn.cancel(false);
+    held.close();
+    assertEquals(0, scheduler.getInFlight());
+
+    held = scheduler.acquireAsync().join();
+    Thread.currentThread().interrupt();
+    assertThrows(InterruptedException.class, scheduler::acquire);
+    held.close();
+    assertEquals(0, scheduler.getInFlight());
+    scheduler.acquire().close();
+    assertEquals(0, scheduler.getInFlight());
+  }
+
+  @Test
+  public void testInvalidLimitIsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new FetchScheduler(0));
+  }
+}
@@ -0,0 +1,130 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FlightRecorderServiceTest {
+  private static final String WIKI = "https://en.wikipedia.org/wiki/";
+
+  private final FlightRecorderService recorder = new FlightRecorderService();
+
+  @TempDir Path tempDir;
+
+  @AfterEach
+  public void tearDown() {
+    recorder.close();
+  }
+
+  @Test
+  public void testStartStopLifecycle() throws IOException {
+    assertFalse(recorder.isRecording());
+    assertNull(recorder.dump());
+    assertNull(recorder.stop());
+
+    assertTrue(recorder.start("default"));
+    assertTrue(recorder.isRecording());
+    assertFalse(recorder.start("default"));
+    assertTrue(recorder.dump().length > 0);
+    assertTrue(recorder.isRecording());
+
+    assertTrue(recorder.stop().length > 0);
+    assertFalse(recorder.isRecording());
+  }
+
+  @Test
+  public void testUnknownSettingsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> recorder.start("no-such-settings"));
+    assertFalse(recorder.isRecording());
+  }
+
+  @Test
+  public void testRecordingContainsSearchAndLevelEvents() throws IOException {
+    // A -> B -> C: two levels are expanded before C is discovered
+    Map<String, String[]> graph = new HashMap<>();
+    graph.put(WIKI + "Rec_A", new String[] {WIKI + "Rec_B"});
+    graph.put(WIKI + "Rec_B", new String[] {WIKI + "Rec_C"});
+    assertTrue(recorder.start("default"));
+    BFSResult result =
+        new BFS()
+            .getPathWithStats(
+                new PageNode(WIKI + "Rec_A"),
+                new PageNode(WIKI + "Rec_C"),
+                url -> new StaticPageNode(url, graph.getOrDefault(url, new String[0])));
+    assertEquals(3, result.getPath().size());
+
+    List<RecordedEvent> events = readEvents(recorder.stop());
+    RecordedEvent search = only(events, "wikipediafinder.Search");
+    assertEquals("bfs", search.getString("mode"));
+    assertEquals(WIKI + "Rec_A", search.getString("startUrl"));
+    assertEquals(WIKI + "Rec_C", search.getString("endUrl"));
+    assertEquals(2, search.getInt("nodesExplored"));
+    assertEquals(3, search.getInt("pathLength"));
+
+    List<RecordedEvent> levels = named(events, "wikipediafinder.Level");
+    assertEquals(2, levels.size());
+    Set<Integer> depths = levels.stream().map(e -> e.getInt("depth")).collect(Collectors.toSet());
+    assertEquals(Set.of(0, 1), depths);
+    for (RecordedEvent level : levels) {
+      assertEquals(1, level.getInt("nodesExpanded"));
+      assertEquals(1, level.getLong("nextFrontierSize"));
+    }
+  }
+
+  @Test
+  public void testEventsDisabledWithoutRecording() {
+    FlightEvents.SearchEvent event = new FlightEvents.SearchEvent();
+    event.begin();
+    assertFalse(event.shouldCommit());
+    event.end("bfs", WIKI + "A", WIKI + "B", 1, 1, 0);
+    assertNull(event.mode);
+  }
+
+  private List<RecordedEvent> readEvents(byte[] data) throws IOException {
+    Path file = tempDir.resolve("recording.jfr");
+    Files.write(file, data);
+    return RecordingFile.readAllEvents(file);
+  }
+
+  private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+    return events.stream()
+        .filter(e -> e.getEventType().getName().equals(name))
+        .collect(Collectors.toList());
+  }
+
+  private static RecordedEvent only(List<RecordedEvent> events, String name) {
+    List<RecordedEvent> matching = named(events, name);
+    assertEquals(1, matching.size(), name);
+    return matching.get(0);
+  }
+
+  /** A page with fixed links that never touches the network. */
+  private static class StaticPageNode extends PageNode {
+    private final String[] links;
+
+    StaticPageNode(String url, String[] links) {
+      super(url);
+      this.links = links;
+    }
+
+    @Override
+    public void findOutgoingLinks() {}
+
+    @Override
+    public CompressedAdjacency getOutLinkIds() {
+      return CompressedAdjacency.fromUrls(List.of(links), TitleRegistry.shared());
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.BitSet;
+import org.junit.jupiter.api.Test;
+
+public class GraphSnapshotTest {
+  @Test
+  public void testSnapshotHoldsCachedLinksBothWays() {
+    TitleRegistry registry = new TitleRegistry();
+    int a = registry.idOf("A");
+    int b = registry.idOf("B");
+    int c = registry.idOf("C");
+    int d = registry.idOf("D");
+    AdjacencyCache cache = new AdjacencyCache(1 << 20, Duration.ofMinutes(1));
+    cache.put(a, CompressedAdjacency.of(new int[] {b, c}));
+    cache.put(b, CompressedAdjacency.of(new int[] {c}));
+    cache.put(d, CompressedAdjacency.EMPTY);
+
+    GraphSnapshot snapshot = GraphSnapshot.of(cache);
+
+    assertEquals(4, snapshot.nodeCount());
+    assertEquals(3, snapshot.knownPages());
+    assertEquals(3, snapshot.edgeCount());
+    assertEquals(2, snapshot.outDegree(a));
+    assertEquals(1, snapshot.outDegree(b));
+    assertTrue(snapshot.isKnown(d));
+    assertFalse(snapshot.isKnown(c));
+    assertEquals(0, snapshot.outDegree(c));
+    int[] inOffsets = snapshot.inOffsets();
+    assertEquals(2, inOffsets[c + 1] - inOffsets[c]);
+    assertEquals(0, inOffsets[a + 1] - inOffsets[a]);
+  }
+
+  @Test
+  public void testSnapshotIsSizedToItsPages() {
+    TitleRegistry registry = new TitleRegistry();
+    int a = registry.idOf("A");
+    int b = registry.idOf("B");
+    for (int i = 0; i < 1000; i++) {
+      registry.idOf("Registered later " + i);
+    }
+    AdjacencyCache cache = new AdjacencyCache(1 << 20, Duration.ofMinutes(1));
+    cache.put(b, CompressedAdjacency.of(new int[] {a}));
+
+    GraphSnapshot snapshot = GraphSnapshot.of(cache);
+
+    assertEquals(2, snapshot.nodeCount());
+    assertEquals(3, snapshot.offsets().length);
+    assertFalse(snapshot.isKnown(500));
+    assertEquals(0, snapshot.outDegree(500));
+  }
+
+  @Test
+  public void testWithoutForgetsPagesAndSharesArrays() {
+    TitleRegistry registry = new TitleRegistry();
+    int a = registry.idOf("A");
+    int b = registry.idOf("B");
+    AdjacencyCache cache = new AdjacencyCache(1 << 20, Duration.ofMinutes(1));
+    cache.put(a, CompressedAdjacency.of(new int[] {b}));
+    GraphSnapshot snapshot = GraphSnapshot.of(cache);
+    BitSet changed = new BitSet();
+    changed.set(a);
+
+    GraphSnapshot forgotten = snapshot.without(changed);
+
+    assertTrue(snapshot.isKnown(a));
+    assertFalse(forgotten.isKnown(a));
+    assertEquals(0, forgotten.outDegree(a));
+    assertSame(snapshot.targets(), forgotten.targets());
+    BitSet unrelated = new BitSet();
+    unrelated.set(b);
+    assertSame(forgotten, forgotten.without(unrelated));
+  }
+
+  @Test
+  public void testEmptySnapshotKnowsNothing() {
+    assertEquals(0, GraphSnapshot.EMPTY.nodeCount());
+    assertEquals(0, GraphSnapshot.EMPTY.edgeCount());
+    assertFalse(GraphSnapshot.EMPTY.isKnown(5));
+  }
+}
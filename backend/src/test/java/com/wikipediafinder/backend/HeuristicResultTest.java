@@ -0,0 +1,33 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class HeuristicResultTest {
+  @Test
+  public void testGapToLowerBound() {
+    HeuristicResult result =
+        new HeuristicResult(List.of("A", "B", "C", "D"), 4, 2, 16, SearchMetrics.empty());
+    assertEquals(2, result.getLowerBound());
+    assertEquals(16, result.getBeamWidth());
+    assertEquals(1, result.getOptimalityGap());
+    assertFalse(result.isProvenOptimal());
+    assertTrue(result.getFiltersApplied().isEmpty());
+  }
+
+  @Test
+  public void testPathAtLowerBoundIsOptimal() {
+    HeuristicResult result = new HeuristicResult(List.of("A", "B"), 1, 1, 8, SearchMetrics.empty());
+    assertEquals(0, result.getOptimalityGap());
+    assertTrue(result.isProvenOptimal());
+  }
+
+  @Test
+  public void testNoPath() {
+    HeuristicResult result = new HeuristicResult(null, 9, 3, 8, SearchMetrics.empty());
+    assertEquals(-1, result.getOptimalityGap());
+    assertFalse(result.isProvenOptimal());
+  }
+}
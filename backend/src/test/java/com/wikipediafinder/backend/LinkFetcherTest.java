@@ -0,0 +1,358 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LinkFetcherTest {
+  private static final String SELF = "http://self.invalid";
+  private static final String SECRET = "peer-secret";
+  private static final String PREFIX = "https://en.wikipedia.org/wiki/";
+
+  @TempDir Path tempDir;
+
+  private HttpServer peer;
+  private String peerUrl;
+  private final AtomicInteger peerRequests = new AtomicInteger();
+  private final AtomicInteger apiRequests = new AtomicInteger();
+  private final AtomicInteger revisionRequests = new AtomicInteger();
+  private final Map<String, Long> latestRevisions = new ConcurrentHashMap<>();
+  private TitleRegistry registry;
+  private AdjacencyCache cache;
+  private LinkFetcher fetcher;
+  private DisambiguationIndex disambiguation;
+  private final Map<String, Boolean> annotatedLinks = new LinkedHashMap<>();
+  private final CompletableFuture<WikipediaApiClient.PageLinks> asyncResponse =
+      new CompletableFuture<>();
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    peer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    peer.createContext(
+        PeerLinkClient.LINKS_PATH,
+        exchange -> {
+          peerRequests.incrementAndGet();
+          String query = exchange.getRequestURI().getQuery();
+          if (!SECRET.equals(exchange.getRequestHeaders().getFirst(PeerLinkClient.SECRET_HEADER))) {
+            exchange.sendResponseHeaders(403, -1);
+          } else if (query.contains("Missing")) {
+            exchange.sendResponseHeaders(404, -1);
+          } else {
+            byte[] body = PeerLinkClient.encode(List.of("Linked A", "Linked_B"));
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+              out.write(body);
+            }
+          }
+          exchange.close();
+        });
+    peer.start();
+    peerUrl = "http://127.0.0.1:" + peer.getAddress().getPort();
+    registry = new TitleRegistry();
+    cache = new AdjacencyCache(1 << 20, Duration.ofMinutes(1));
+    disambiguation = new DisambiguationIndex();
+    fetcher =
+        new LinkFetcher(
+            cache, registry, new PeerLinkClient(Duration.ofSeconds(2)), disambiguation) {
+          @Override
+          protected CompressedAdjacency fetchFromApi(String pageTitle) {
+            apiRequests.incrementAndGet();
+            return CompressedAdjacency.fromUrls(List.of(PREFIX + "Local_Link"), registry)
+                .withRevision(latestRevisions.getOrDefault(pageTitle, 0L));
+          }
+
+          @Override
+          protected Map<String, Long> fetchRevisionsFromApi(List<String> titles) {
+            revisionRequests.incrementAndGet();
+            Map<String, Long> revisions = new LinkedHashMap<>();
+            for (String title : titles) {
+              if (latestRevisions.containsKey(title)) {
+                revisions.put(title, latestRevisions.get(title));
+              }
+            }
+            return revisions;
+          }
+
+          @Override
+          protected Set<String> fetchBacklinksFromApi(String pageTitle) {
+            apiRequests.incrementAndGet();
+            return Set.of(PREFIX + "Linking_Page");
+          }
+
+          @Override
+          protected CompletableFuture<WikipediaApiClient.PageLinks> fetchFromApiAsync(
+              String pageTitle) {
+            apiRequests.incrementAndGet();
+            return asyncResponse;
+          }
+
+          @Override
+          protected Map<String, Boolean> fetchAnnotatedFromApi(String pageTitle, int limit) {
+            apiRequests.incrementAndGet();
+            Map<String, Boolean> limited = new LinkedHashMap<>();
+            for (Map.Entry<String, Boolean> link : annotatedLinks.entrySet()) {
+              if (limited.size() < limit) {
+                limited.put(link.getKey(), link.getValue());
+              }
+            }
+            return limited;
+          }
+        };
+  }
+
+  @AfterEach
+  public void tearDown() {
+    peer.stop(0);
+  }
+
+  @Test
+  public void testCacheHitsAndMissesReachSearchMetrics() throws IOException {
+    SearchMetrics metrics = new SearchMetrics();
+    try (SearchMetrics.Scope ignored = metrics.enter()) {
+      fetcher.fetch("Counted Page");
+      fetcher.fetch("Counted Page");
+      fetcher.fetchLocally("Counted Page");
+    }
+    assertEquals(1, metrics.getCacheMisses());
+    assertEquals(2, metrics.getCacheHits());
+  }
+
+  @Test
+  public void testStoreAnswersAfterCacheEviction() throws IOException {
+    try (AdjacencyStore store =
+        new AdjacencyStore(tempDir, registry, Duration.ofHours(1), 1 << 16, 1 << 20)) {
+      fetcher.useStore(store);
+      CompressedAdjacency fetched = fetcher.fetch("Stored Page");
+      cache.invalidate(registry.idOf(PREFIX + "Stored_Page"));
+      SearchMetrics metrics = new SearchMetrics();
+      try (SearchMetrics.Scope ignored = metrics.enter()) {
+        assertArrayEquals(fetched.toArray(), fetcher.fetch("Stored Page").toArray());
+      }
+      assertEquals(1, apiRequests.get());
+      assertEquals(1, metrics.getCacheHits());
+    }
+  }
+
+  @Test
+  public void testFetchBacklinksCachesResult() throws IOException {
+    CompressedAdjacency backlinks = fetcher.fetchBacklinks("Target Page");
+    assertEquals(1, backlinks.size());
+    assertTrue(backlinks.contains(registry.idOf(PREFIX + "Linking_Page")));
+    assertSame(backlinks, fetcher.fetchBacklinks("Target_Page"));
+    assertEquals(1, apiRequests.get());
+  }
+
+  @Test
+  public void testFetchesFromOwningPeerAndCaches() throws IOException {
+    fetcher.configurePeers(SELF, List.of(peerUrl), SECRET);
+
+    CompressedAdjacency links = fetcher.fetch("Some Page");
+    CompressedAdjacency again = fetcher.fetch("Some_Page");
+
+    assertEquals(2, links.size());
+    assertTrue(links.contains(registry.find(PREFIX + "Linked_A")));
+    assertTrue(links.contains(registry.find(PREFIX + "Linked_B")));
+    assertSame(links, again);
+    assertEquals(1, peerRequests.get());
+    assertEquals(0, apiRequests.get());
+  }
+
+  @Test
+  public void testPeersRequireSecret() {
+    assertThrows(
+        IllegalArgumentException.class, () -> fetcher.configurePeers(SELF, List.of(peerUrl), ""));
+    fetcher.configurePeers(SELF, List.of(), "");
+  }
+
+  @Test
+  public void testPeerReportsMissingPage() {
+    fetcher.configurePeers(SELF, List.of(peerUrl), SECRET);
+
+    assertThrows(PageMissingException.class, () -> fetcher.fetch("Missing Page"));
+    assertEquals(0, apiRequests.get());
+  }
+
+  @Test
+  public void testLocallyOwnedTitlesUseTheApi() throws IOException {
+    fetcher.configurePeers(SELF, List.of(SELF), SECRET);
+
+    CompressedAdjacency links = fetcher.fetch("Some Page");
+
+    assertTrue(links.contains(registry.find(PREFIX + "Local_Link")));
+    assertEquals(0, peerRequests.get());
+    assertEquals(1, apiRequests.get());
+  }
+
+  @Test
+  public void testFallsBackToApiWhenPeerIsDown() throws IOException {
+    peer.stop(0);
+    fetcher.configurePeers(SELF, List.of(peerUrl), SECRET);
+
+    CompressedAdjacency links = fetcher.fetch("Some Page");
+
+    assertTrue(links.contains(registry.find(PREFIX + "Local_Link")));
+    assertEquals(1, apiRequests.get());
+  }
+
+  @Test
+  public void testFetchPrunedRecordsDisambiguationPages() throws IOException {
+    annotatedLinks.put(PREFIX + "Mercury", true);
+    annotatedLinks.put(PREFIX + "Venus", false);
+
+    CompressedAdjacency links = fetcher.fetchPruned("Planets", new LinkFilter(List.of(), true, 10));
+
+    assertEquals(2, links.size());
+    assertTrue(disambiguation.contains(registry.find(PREFIX + "Mercury")));
+    assertFalse(disambiguation.contains(registry.find(PREFIX + "Venus")));
+    assertSame(links, fetcher.fetch("Planets"));
+  }
+
+  @Test
+  public void testFetchPrunedSkipsHubs() throws IOException {
+    for (int i = 0; i < 5; i++) {
+      annotatedLinks.put(PREFIX + "Link_" + i, false);
+    }
+
+    assertNull(fetcher.fetchPruned("Hub", new LinkFilter(List.of(), false, 3)));
+    assertEquals(5, fetcher.fetchPruned("Hub", new LinkFilter(List.of(), false, 0)).size());
+    assertNull(fetcher.fetchPruned("Hub", new LinkFilter(List.of(), false, 3)));
+    assertEquals(2, apiRequests.get());
+  }
+
+  @Test
+  public void testFetchAsyncCachesResult() throws Exception {
+    CompletableFuture<CompressedAdjacency> links = fetcher.fetchAsync("Async Page");
+    assertFalse(links.isDone());
+    asyncResponse.complete(new WikipediaApiClient.PageLinks(Set.of(PREFIX + "Async_Link"), 3));
+
+    assertTrue(links.get().contains(registry.find(PREFIX + "Async_Link")));
+    assertEquals(3, links.get().getRevision());
+    assertTrue(fetcher.fetchAsync("Async_Page").isDone());
+    assertEquals(1, apiRequests.get());
+  }
+
+  @Test
+  public void testFetchAsyncCancelReachesRequest() {
+    fetcher.fetchAsync("Cancelled Page").cancel(true);
+    assertTrue(asyncResponse.isCancelled());
+  }
+
+  @Test
+  public void testFetchAsyncAsksOwningPeer() throws Exception {
+    fetcher.configurePeers(SELF, List.of(peerUrl), SECRET);
+
+    CompressedAdjacency links = fetcher.fetchAsync("Async Peer Page").get(5, TimeUnit.SECONDS);
+
+    assertEquals(2, links.size());
+    assertTrue(links.contains(registry.find(PREFIX + "Linked_A")));
+    assertSame(links, fetcher.fetchAsync("Async_Peer_Page").get());
+    assertEquals(1, peerRequests.get());
+    assertEquals(0, apiRequests.get());
+
+    ExecutionException missing =
+        assertThrows(
+            ExecutionException.class,
+            () -> fetcher.fetchAsync("Missing Async Page").get(5, TimeUnit.SECONDS));
+    assertTrue(missing.getCause() instanceof PageMissingException);
+    assertEquals(0, apiRequests.get());
+  }
+
+  @Test
+  public void testFetchAsyncFallsBackToApiWhenPeerIsDown() throws Exception {
+    peer.stop(0);
+    fetcher.configurePeers(SELF, List.of(peerUrl), SECRET);
+
+    CompletableFuture<CompressedAdjacency> links = fetcher.fetchAsync("Async Down Page");
+    asyncResponse.complete(new WikipediaApiClient.PageLinks(Set.of(PREFIX + "Async_Link"), 3));
+
+    assertTrue(links.get(5, TimeUnit.SECONDS).contains(registry.find(PREFIX + "Async_Link")));
+    assertEquals(1, apiRequests.get());
+  }
+
+  /** Caches the links of {@code url} as fetched two hours ago from revision {@code revision}. */
+  private void cacheExpired(String url, CompressedAdjacency links, long revision) {
+    long twoHoursAgo = System.currentTimeMillis() - Duration.ofHours(2).toMillis();
+    cache.put(registry.idOf(url), links.withRevision(revision), twoHoursAgo);
+  }
+
+  @Test
+  public void testUnchangedPageIsRevalidatedNotDownloaded() throws Exception {
+    CompressedAdjacency old = CompressedAdjacency.fromUrls(List.of(PREFIX + "Old_Link"), registry);
+    cacheExpired(PREFIX + "Stable_Page", old, 7);
+    latestRevisions.put("Stable Page", 7L);
+    SearchMetrics metrics = new SearchMetrics();
+    try (SearchMetrics.Scope ignored = metrics.enter()) {
+      assertArrayEquals(old.toArray(), fetcher.fetch("Stable_Page").toArray());
+      assertArrayEquals(old.toArray(), fetcher.fetch("Stable Page").toArray());
+    }
+    assertEquals(0, apiRequests.get());
+    assertEquals(1, revisionRequests.get());
+    assertEquals(1, metrics.getRevalidations());
+
+    cacheExpired(PREFIX + "Async_Stable", old, 8);
+    latestRevisions.put("Async Stable", 8L);
+    assertArrayEquals(old.toArray(), fetcher.fetchAsync("Async Stable").get().toArray());
+    assertEquals(0, apiRequests.get());
+  }
+
+  @Test
+  public void testChangedPageIsDownloadedAgain() throws Exception {
+    CompressedAdjacency old = CompressedAdjacency.fromUrls(List.of(PREFIX + "Old_Link"), registry);
+    cacheExpired(PREFIX + "Edited_Page", old, 7);
+    latestRevisions.put("Edited Page", 9L);
+
+    CompressedAdjacency links = fetcher.fetch("Edited Page");
+
+    assertTrue(links.contains(registry.find(PREFIX + "Local_Link")));
+    assertEquals(9, links.getRevision());
+    assertEquals(1, apiRequests.get());
+    assertEquals(1, revisionRequests.get());
+
+    // Links of unknown revision are downloaded without asking
+    cacheExpired(PREFIX + "Unknown_Page", old, 0);
+    fetcher.fetch("Unknown Page");
+    assertEquals(2, apiRequests.get());
+    assertEquals(1, revisionRequests.get());
+  }
+
+  @Test
+  public void testStoreKeepsExpiredLinksForRevalidation() throws Exception {
+    try (AdjacencyStore store =
+        new AdjacencyStore(tempDir, registry, Duration.ofHours(1), 1 << 16, 1 << 20)) {
+      fetcher.useStore(store);
+      CompressedAdjacency old =
+          CompressedAdjacency.fromUrls(List.of(PREFIX + "Old_Link"), registry).withRevision(5);
+      long twoHoursAgo = System.currentTimeMillis() - Duration.ofHours(2).toMillis();
+      store.put(PREFIX + "Stored_Page", old, twoHoursAgo);
+      latestRevisions.put("Stored Page", 5L);
+
+      assertArrayEquals(old.toArray(), fetcher.fetch("Stored Page").toArray());
+      assertEquals(0, apiRequests.get());
+      assertEquals(5, store.get(PREFIX + "Stored_Page").getRevision());
+    }
+  }
+
+  @Test
+  public void testEncodeDecodeRoundTrip() throws IOException {
+    List<String> titles = List.of("Café", "A_B", "");
+    assertEquals(titles, PeerLinkClient.decode(PeerLinkClient.encode(titles)));
+  }
+}
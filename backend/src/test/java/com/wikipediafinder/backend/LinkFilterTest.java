@@ -0,0 +1,42 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class LinkFilterTest {
+  @Test
+  public void testDefaultTitlePatterns() {
+    LinkFilter filter = LinkFilter.defaults();
+    assertTrue(filter.excludesTitle("List of sovereign states"));
+    assertTrue(filter.excludesTitle("1999"));
+    assertTrue(filter.excludesTitle("44 BC"));
+    assertTrue(filter.excludesTitle("1990s"));
+    assertTrue(filter.excludesTitle("20th century"));
+    assertTrue(filter.excludesTitle("July 4"));
+    assertFalse(filter.excludesTitle("Albert Einstein"));
+    assertFalse(filter.excludesTitle("Apollo 11"));
+    assertFalse(filter.excludesTitle("Playlist of the year"));
+  }
+
+  @Test
+  public void testOutDegreeCapAndApiLimit() {
+    LinkFilter capped = new LinkFilter(List.of(), false, 100);
+    assertTrue(capped.exceedsOutDegree(101));
+    assertFalse(capped.exceedsOutDegree(100));
+    assertEquals(101, capped.apiLinkLimit(500));
+
+    LinkFilter uncapped = new LinkFilter(List.of(), false, 0);
+    assertFalse(uncapped.exceedsOutDegree(10_000));
+    assertEquals(500, uncapped.apiLinkLimit(500));
+  }
+
+  @Test
+  public void testDescribeListsActiveRules() {
+    LinkFilter filter = new LinkFilter(List.of("^List of "), true, 50);
+    assertEquals(
+        List.of("title:^List of ", "disambiguation", "maxOutDegree:50"), filter.describe());
+    assertTrue(new LinkFilter(List.of(), false, 0).describe().isEmpty());
+  }
+}
@@ -0,0 +1,70 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LinkGraphTest {
+  @TempDir Path tempDir;
+
+  private static LinkGraph read(String edges) throws Exception {
+    return LinkGraph.read(new BufferedReader(new StringReader(edges)));
+  }
+
+  @Test
+  public void testReadsLinksSortedByTitleWithoutDuplicates() throws Exception {
+    LinkGraph graph =
+        read(
+            "# source\ttarget\n"
+                + "Zebra\tApple pie\n"
+                + "\n"
+                + "Zebra\tApple_pie\n"
+                + "Zebra\tZebra\n"
+                + "Apple_pie\tÉclair\n"
+                + "Apple pie\tZebra\n");
+
+    assertEquals(3, graph.size());
+    assertEquals(3, graph.linkCount());
+    assertEquals("Apple_pie", graph.title(0));
+    assertEquals("Zebra", graph.title(1));
+    assertEquals("Éclair", graph.title(2));
+    assertEquals(1, graph.find("Zebra"));
+    assertEquals(0, graph.find("Apple pie"));
+    assertEquals(-1, graph.find("Banana"));
+    int[] offsets = graph.offsets();
+    assertEquals(2, offsets[1] - offsets[0]);
+    assertEquals(1, offsets[2] - offsets[1]);
+    assertEquals(0, graph.targets()[offsets[1]]);
+    int[] inOffsets = graph.inOffsets();
+    assertEquals(1, inOffsets[1] - inOffsets[0]);
+    assertEquals(1, graph.sources()[inOffsets[0]]);
+  }
+
+  @Test
+  public void testRejectsLineWithoutTarget() {
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> read("A\tB\nC\n"));
+    assertEquals("Line 2 does not hold two titles.", e.getMessage());
+  }
+
+  @Test
+  public void testReadsCompressedFile() throws Exception {
+    Path file = tempDir.resolve("edges.tsv.gz");
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+      out.write("A\tB\nB\tC\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    LinkGraph graph = LinkGraph.read(file);
+
+    assertEquals(3, graph.size());
+    assertEquals(2, graph.linkCount());
+  }
+}
@@ -0,0 +1,145 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class LookaheadPrefetcherTest {
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private static IntQueue queueOf(int... ids) {
+    IntQueue queue = new IntQueue();
+    for (int id : ids) {
+      queue.add(id);
+    }
+    return queue;
+  }
+
+  @Test
+  public void testLoadsQueuedIdsOnceWithinWindow() {
+    List<Integer> loaded = Collections.synchronizedList(new ArrayList<>());
+    LookaheadPrefetcher prefetcher = new LookaheadPrefetcher(Runnable::run, loaded::add, 2, 2);
+    IntQueue queue = queueOf(1, 2, 3, 4);
+
+    prefetcher.advance(queue);
+    prefetcher.advance(queue);
+    queue.poll();
+    prefetcher.advance(queue);
+
+    assertEquals(List.of(1, 2, 3), loaded);
+  }
+
+  @Test
+  public void testAwaitBlocksUntilLoadCompletes() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    List<Integer> loaded = Collections.synchronizedList(new ArrayList<>());
+    LookaheadPrefetcher prefetcher =
+        new LookaheadPrefetcher(
+            executor,
+            id -> {
+              started.countDown();
+              sleep(50);
+              loaded.add(id);
+            },
+            1,
+            1);
+
+    prefetcher.advance(queueOf(7));
+    assertTrue(started.await(1, TimeUnit.SECONDS));
+    prefetcher.await(7);
+
+    assertEquals(List.of(7), loaded);
+    assertEquals(0, prefetcher.getInFlight());
+  }
+
+  @Test
+  public void testAwaitRunsUnstartedLoadOnCallingThread() {
+    List<Runnable> pending = new ArrayList<>();
+    List<Thread> loadedOn = new ArrayList<>();
+    LookaheadPrefetcher prefetcher =
+        new LookaheadPrefetcher(pending::add, id -> loadedOn.add(Thread.currentThread()), 1, 1);
+
+    prefetcher.advance(queueOf(7));
+    assertEquals(1, pending.size());
+    prefetcher.await(7);
+    assertEquals(List.of(Thread.currentThread()), loadedOn);
+
+    // The pool picking the task up later does not load the page again
+    pending.get(0).run();
+    assertEquals(1, loadedOn.size());
+  }
+
+  @Test
+  public void testWindowGrowsWithSlowLoads() {
+    LookaheadPrefetcher prefetcher = new LookaheadPrefetcher(executor, id -> sleep(20), 1, 8);
+    IntQueue queue = new IntQueue();
+    for (int i = 0; i < 50; i++) {
+      queue.add(i);
+    }
+    for (int i = 0; i < 20; i++) {
+      prefetcher.advance(queue);
+      prefetcher.await(queue.poll());
+    }
+    assertEquals(8, prefetcher.getWindow());
+    prefetcher.cancel();
+  }
+
+  @Test
+  public void testWindowStaysSmallForFastLoads() {
+    LookaheadPrefetcher prefetcher = new LookaheadPrefetcher(Runnable::run, id -> {}, 1, 8);
+    IntQueue queue = new IntQueue();
+    for (int i = 0; i < 50; i++) {
+      queue.add(i);
+    }
+    for (int i = 0; i < 20; i++) {
+      prefetcher.advance(queue);
+      prefetcher.await(queue.poll());
+      sleep(2);
+    }
+    assertEquals(1, prefetcher.getWindow());
+  }
+
+  @Test
+  public void testCancelDropsPendingLoads() {
+    List<Runnable> pending = new ArrayList<>();
+    List<Integer> loaded = new ArrayList<>();
+    LookaheadPrefetcher prefetcher = new LookaheadPrefetcher(pending::add, loaded::add, 3, 3);
+
+    prefetcher.advance(queueOf(1, 2, 3));
+    assertEquals(3, prefetcher.getInFlight());
+    prefetcher.cancel();
+    pending.forEach(Runnable::run);
+
+    assertTrue(loaded.isEmpty());
+    assertEquals(0, prefetcher.getInFlight());
+  }
+
+  @Test
+  public void testRejectsInvalidWindow() {
+    assertThrows(
+        IllegalArgumentException.class, () -> new LookaheadPrefetcher(executor, id -> {}, 0, 4));
+    assertThrows(
+        IllegalArgumentException.class, () -> new LookaheadPrefetcher(executor, id -> {}, 4, 2));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class PageExistenceCheckerTest {
+  // Checker that answers from a fixed set of existing titles and counts batched lookups
+  static class FakeChecker extends PageExistenceChecker {
+    private final Set<String> existingTitles;
+    private final List<List<String>> requests = new ArrayList<>();
+    private boolean failing;
+
+    FakeChecker(PageExistenceCache cache, String... existingTitles) {
+      super(cache);
+      this.existingTitles = new HashSet<>(Arrays.asList(existingTitles));
+    }
+
+    @Override
+    protected Map<String, Boolean> fetchExistence(List<String> titles) throws IOException {
+      if (failing) {
+        throw new IOException("API unavailable");
+      }
+      requests.add(titles);
+      Map<String, Boolean> result = new HashMap<>();
+      for (String title : titles) {
+        result.put(title, existingTitles.contains(title));
+      }
+      return result;
+    }
+  }
+
+  private static PageExistenceCache newCache() {
+    return new PageExistenceCache(1000, 1000, Duration.ofHours(1));
+  }
+
+  @Test
+  public void testMissingPagesAreReportedInOneBatch() {
+    FakeChecker checker = new FakeChecker(newCache(), "Albert Einstein");
+    List<String> missing =
+        checker.findMissingPages(
+            "https://en.wikipedia.org/wiki/Albert_Einstein",
+            "https://en.wikipedia.org/wiki/Albert_Einstien");
+    assertEquals(List.of("https://en.wikipedia.org/wiki/Albert_Einstien"), missing);
+    assertEquals(1, checker.requests.size());
+    assertEquals(2, checker.requests.get(0).size());
+  }
+
+  @Test
+  public void testKnownPagesSkipTheApi() {
+    PageExistenceCache cache = newCache();
+    FakeChecker checker = new FakeChecker(cache, "Albert Einstein");
+    checker.findMissingPages(
+        "https://en.wikipedia.org/wiki/Albert_Einstein",
+        "https://en.wikipedia.org/wiki/Albert_Einstien");
+    List<String> missing =
+        checker.findMissingPages(
+            "https://en.wikipedia.org/wiki/Albert_Einstein",
+            "https://en.wikipedia.org/wiki/Albert_Einstien");
+    assertEquals(1, missing.size());
+    assertEquals(1, checker.requests.size());
+    assertTrue(cache.isKnownMissing("Albert Einstien"));
+    assertEquals(Boolean.TRUE, cache.lookup("Albert Einstein"));
+  }
+
+  @Test
+  public void testApiFailureAssumesPagesExist() {
+    FakeChecker checker = new FakeChecker(newCache());
+    checker.failing = true;
+    assertTrue(checker.findMissingPages("https://en.wikipedia.org/wiki/Anything").isEmpty());
+  }
+
+  @Test
+  public void testExistingVerdictOverridesMissing() {
+    PageExistenceCache cache = newCache();
+    cache.markMissing("New page");
+    assertTrue(cache.isKnownMissing("New page"));
+    cache.markExisting("New page");
+    assertFalse(cache.isKnownMissing("New page"));
+    assertNull(cache.lookup("Never seen"));
+  }
+
+  @Test
+  public void testOnlyConfirmedMissingPagesAreRejected() {
+    PageExistenceCache cache = newCache();
+    for (int i = 0; i < 5000; i++) {
+      cache.markMissing("Missing " + i);
+    }
+    FakeChecker checker = new FakeChecker(cache, "Existing 0", "Existing 1");
+    List<String> urls = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      assertNull(cache.lookup("Existing " + i));
+      urls.add("https://en.wikipedia.org/wiki/Existing_" + i);
+    }
+    assertTrue(checker.findMissingPages(urls.toArray(new String[0])).isEmpty());
+    assertEquals(1, checker.requests.size());
+  }
+}
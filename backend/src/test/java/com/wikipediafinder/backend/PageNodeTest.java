@@ -2,6 +2,7 @@ package com.wikipediafinder.backend;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.*;
 import org.junit.jupiter.api.Test;
 
 public class PageNodeTest {
@@ -15,4 +16,35 @@ public class PageNodeTest {
   public void testInvalidUrlThrowsException() {
     assertThrows(IllegalArgumentException.class, () -> new PageNode("invalid-url"));
   }
+
+  @Test
+  public void testSetOutLinksKeepsCompactLinkList() {
+    PageNode node = new PageNode("https://en.wikipedia.org/wiki/Example");
+    Map<String, PageNode> links = new HashMap<>();
+    links.put("https://en.wikipedia.org/wiki/Link_1", null);
+    links.put("https://en.wikipedia.org/wiki/Link_2", null);
+    node.setOutLinks(links);
+    assertEquals(links.keySet(), node.getOutLinks());
+    assertEquals(2, node.getOutLinkIds().size());
+    assertTrue(node.hasLink("https://en.wikipedia.org/wiki/Link_1"));
+    assertFalse(node.hasLink("https://en.wikipedia.org/wiki/Not_a_link"));
+    assertEquals(2, node.getOutNodes().size());
+    assertThrows(IllegalArgumentException.class, () -> node.setOutLinks(null));
+  }
+
+  @Test
+  public void testFilteredNodeIsNotExpandedWhenPruned() {
+    LinkFilter filter = LinkFilter.defaults();
+    PageNode year = new PageNode("https://en.wikipedia.org/wiki/1999", filter);
+    year.findOutgoingLinks();
+    assertTrue(year.isValidPage());
+    assertTrue(year.getOutLinkIds().isEmpty());
+
+    String url = "https://en.wikipedia.org/wiki/Mercury_disambiguation_test";
+    DisambiguationIndex.shared().mark(TitleRegistry.shared().idOf(url));
+    PageNode disambiguation = new PageNode(url, filter);
+    disambiguation.findOutgoingLinks();
+    assertTrue(disambiguation.isValidPage());
+    assertTrue(disambiguation.getOutLinkIds().isEmpty());
+  }
 }
@@ -0,0 +1,40 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class PathHeuristicTest {
+  private static final String WIKI = "https://en.wikipedia.org/wiki/";
+  private static final TitleRegistry REGISTRY = TitleRegistry.shared();
+
+  private static int id(String title) {
+    return REGISTRY.idOf(WIKI + title);
+  }
+
+  @Test
+  public void testWordsAreLowerCaseDistinctAndLongEnough() {
+    assertEquals(
+        List.of("the", "lord", "rings", "film"),
+        PathHeuristic.words(WIKI + "The_Lord_of_the_Rings_(film)"));
+    assertTrue(PathHeuristic.words("not a wiki url").isEmpty());
+  }
+
+  @Test
+  public void testRanksPagesSharingWordsWithTarget() {
+    PathHeuristic heuristic = new PathHeuristic(WIKI + "Kevin_Bacon", null, REGISTRY);
+    assertTrue(heuristic.score(id("Bacon_Brothers")) > heuristic.score(id("Mathematics")));
+    assertEquals(0, heuristic.score(id("Mathematics")));
+    assertFalse(heuristic.linksToTarget(id("Bacon_Brothers")));
+  }
+
+  @Test
+  public void testUsesWordsOfTargetBacklinks() {
+    CompressedAdjacency backlinks =
+        CompressedAdjacency.of(new int[] {id("Footloose_(1984_film)"), id("Mystic_River_(film)")});
+    PathHeuristic heuristic = new PathHeuristic(WIKI + "Kevin_Bacon", backlinks, REGISTRY);
+    assertTrue(heuristic.linksToTarget(id("Mystic_River_(film)")));
+    assertTrue(heuristic.score(id("Film_director")) > heuristic.score(id("Mathematics")));
+  }
+}
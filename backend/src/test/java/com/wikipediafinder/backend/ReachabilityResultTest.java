@@ -0,0 +1,39 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class ReachabilityResultTest {
+  @Test
+  public void testConstructorAndGetters() {
+    Map<String, Integer> distances = Map.of("A", 0, "B", 1);
+    Map<String, List<String>> paths = Map.of("A", List.of("A"), "B", List.of("A", "B"));
+    ReachabilityResult result = new ReachabilityResult(distances, paths, Set.of("C"), 2);
+    assertEquals(distances, result.getDistances());
+    assertEquals(List.of("A", "B"), result.getPaths().get("B"));
+    assertEquals(Set.of("C"), result.getUnreachedTargets());
+    assertEquals(2, result.getNodesExplored());
+  }
+
+  @Test
+  public void testNullPaths() {
+    ReachabilityResult result =
+        new ReachabilityResult(Map.of("A", 0), null, Collections.emptySet(), 1);
+    assertNull(result.getPaths());
+  }
+
+  @Test
+  public void testImmutability() {
+    Map<String, Integer> distances = new HashMap<>(Map.of("A", 0));
+    List<String> path = new ArrayList<>(List.of("A"));
+    ReachabilityResult result =
+        new ReachabilityResult(distances, Map.of("A", path), new HashSet<>(), 1);
+    distances.put("B", 1);
+    path.add("B");
+    assertEquals(1, result.getDistances().size());
+    assertEquals(List.of("A"), result.getPaths().get("A"));
+    assertThrows(UnsupportedOperationException.class, () -> result.getDistances().put("C", 2));
+  }
+}
@@ -0,0 +1,137 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RecentChangesTest {
+  private static final String PREFIX = "https://en.wikipedia.org/wiki/";
+
+  @TempDir Path tempDir;
+
+  private final List<List<RecentChanges.Change>> batches = new ArrayList<>();
+  private final RecentChanges changes = new RecentChanges("enwiki", batches::add);
+
+  private static String event(String type, int namespace, String title, String extra) {
+    return String.format(
+        "{\"wiki\":\"enwiki\",\"type\":\"%s\",\"namespace\":%d,\"title\":\"%s\"%s}",
+        type, namespace, title, extra);
+  }
+
+  private List<String> parse(String json) {
+    List<RecentChanges.Change> parsed = new ArrayList<>();
+    changes.parse(json, parsed);
+    List<String> urls = new ArrayList<>();
+    for (RecentChanges.Change change : parsed) {
+      urls.add((change.isDeleted() ? "deleted " : "") + change.getUrl());
+    }
+    return urls;
+  }
+
+  @Test
+  public void testArticleEventsBecomeChanges() {
+    assertEquals(List.of(PREFIX + "Kevin_Bacon"), parse(event("edit", 0, "Kevin Bacon", "")));
+    assertEquals(List.of(PREFIX + "New_page"), parse(event("new", 0, "New page", "")));
+    assertEquals(
+        List.of("deleted " + PREFIX + "Gone"),
+        parse(event("log", 0, "Gone", ",\"log_type\":\"delete\",\"log_action\":\"delete\"")));
+    assertEquals(
+        List.of(PREFIX + "Back"),
+        parse(event("log", 0, "Back", ",\"log_type\":\"delete\",\"log_action\":\"restore\"")));
+    assertEquals(
+        List.of(PREFIX + "Old_name", PREFIX + "New_name"),
+        parse(
+            event(
+                "log",
+                0,
+                "Old name",
+                ",\"log_type\":\"move\",\"log_action\":\"move\","
+                    + "\"log_params\":{\"target\":\"New name\",\"noredir\":\"0\"}")));
+  }
+
+  @Test
+  public void testIrrelevantEventsAreIgnored() {
+    assertEquals(List.of(), parse(event("edit", 1, "Talk:Kevin Bacon", "")));
+    assertEquals(List.of(), parse(event("categorize", 0, "Kevin Bacon", "")));
+    assertEquals(List.of(), parse(event("edit", 0, "Kevin Bacon", "").replace("enwiki", "dewiki")));
+    assertEquals(
+        List.of(), parse(event("log", 0, "X", ",\"log_type\":\"block\",\"log_action\":\"block\"")));
+    assertEquals(List.of(), parse("{not json"));
+  }
+
+  @Test
+  public void testEventStreamFileIsReadWithEventIds() throws Exception {
+    Path feed = tempDir.resolve("recentchange.txt");
+    Files.writeString(
+        feed,
+        ":ok\n\n"
+            + "event: message\nid: [{\"offset\":1}]\ndata: "
+            + event("edit", 0, "First", "")
+            + "\n\n"
+            + "event: message\nid: [{\"offset\":2}]\ndata: "
+            + event("edit", 1, "Talk:Second", "")
+            + "\n\n",
+        StandardCharsets.UTF_8);
+    AtomicBoolean opened = new AtomicBoolean();
+
+    changes.consume(feed.toUri(), () -> opened.set(true));
+
+    assertTrue(opened.get());
+    assertEquals(1, batches.size());
+    assertEquals(PREFIX + "First", batches.get(0).get(0).getUrl());
+    assertEquals(2, changes.getEvents());
+    assertEquals(1, changes.getChanges());
+    assertEquals("[{\"offset\":2}]", changes.getLastEventId());
+  }
+
+  @Test
+  public void testRelativeFileUrlIsRead() throws Exception {
+    // The stand-in the application tests use, relative to the working directory
+    changes.consume(URI.create("file:src/test/resources/recentchange.txt"), () -> {});
+
+    assertEquals(1, batches.size());
+    assertEquals(PREFIX + "Recent_changes_fixture", batches.get(0).get(0).getUrl());
+  }
+
+  @Test
+  public void testSocketStandInIsRead() throws Exception {
+    try (ServerSocket server = new ServerSocket(0)) {
+      Thread writer =
+          new Thread(
+              () -> {
+                try (Socket client = server.accept();
+                    OutputStream out = client.getOutputStream()) {
+                  String lines =
+                      event("edit", 0, "One", "") + "\n" + event("new", 0, "Two", "") + "\n";
+                  out.write(lines.getBytes(StandardCharsets.UTF_8));
+                } catch (Exception e) {
+                  throw new RuntimeException(e);
+                }
+              });
+      writer.start();
+      changes.consume(URI.create("tcp://127.0.0.1:" + server.getLocalPort()), () -> {});
+      writer.join();
+    }
+    List<String> urls = new ArrayList<>();
+    batches.forEach(batch -> batch.forEach(change -> urls.add(change.getUrl())));
+    assertEquals(List.of(PREFIX + "One", PREFIX + "Two"), urls);
+  }
+
+  @Test
+  public void testUnsupportedSourceIsRejected() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> changes.consume(URI.create("ftp://example.org/feed"), () -> {}));
+  }
+}
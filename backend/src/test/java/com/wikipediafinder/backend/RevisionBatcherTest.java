@@ -0,0 +1,116 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+public class RevisionBatcherTest {
+  private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+  private final List<List<String>> requests = new ArrayList<>();
+  private final List<FetchScheduler.Priority> priorities = new ArrayList<>();
+
+  private RevisionBatcher batcher(boolean failing) {
+    return new RevisionBatcher(
+        titles -> {
+          requests.add(titles);
+          priorities.add(SearchMetrics.current().fetchPriority());
+          if (failing) {
+            throw new IOException("down");
+          }
+          Map<String, Long> revisions = new HashMap<>();
+          for (String title : titles) {
+            if (!title.startsWith("Missing")) {
+              revisions.put(title, (long) title.length());
+            }
+          }
+          return revisions;
+        },
+        tasks::add);
+  }
+
+  @Test
+  public void testConcurrentLookupsShareOneRequest() throws Exception {
+    RevisionBatcher batcher = batcher(false);
+    CompletableFuture<Long> first = batcher.latestRevision("Alpha");
+    CompletableFuture<Long> second = batcher.latestRevision("Beta Gamma");
+    CompletableFuture<Long> again = batcher.latestRevision("Alpha");
+    CompletableFuture<Long> missing = batcher.latestRevision("Missing page");
+    assertEquals(1, tasks.size());
+    tasks.poll().run();
+
+    assertEquals(List.of(List.of("Alpha", "Beta Gamma", "Missing page")), requests);
+    assertSame(first, again);
+    assertEquals(5L, first.get());
+    assertEquals(10L, second.get());
+    assertEquals(0L, missing.get());
+  }
+
+  @Test
+  public void testLargeBacklogIsSplitIntoBatches() {
+    RevisionBatcher batcher = batcher(false);
+    for (int i = 0; i < RevisionBatcher.MAX_BATCH + 10; i++) {
+      batcher.latestRevision("Page " + i);
+    }
+    // More lookups wait than the first request will take, so a second one is started
+    assertEquals(2, tasks.size());
+    tasks.poll().run();
+    tasks.poll().run();
+    assertEquals(2, requests.size());
+    assertEquals(RevisionBatcher.MAX_BATCH, requests.get(0).size());
+    assertEquals(10, requests.get(1).size());
+
+    batcher.latestRevision("Later");
+    assertEquals(1, tasks.size());
+  }
+
+  @Test
+  public void testPriorityClassesAreBatchedSeparately() throws Exception {
+    RevisionBatcher batcher = batcher(false);
+    SearchMetrics job = new SearchMetrics();
+    job.setFetchPriority(FetchScheduler.Priority.BATCH);
+    CompletableFuture<Long> jobPage;
+    CompletableFuture<Long> shared;
+    try (SearchMetrics.Scope ignored = job.enter()) {
+      jobPage = batcher.latestRevision("Job page");
+      shared = batcher.latestRevision("Shared");
+    }
+    // An interactive lookup of a page the job is waiting for takes it over
+    assertSame(shared, batcher.latestRevision("Shared"));
+    CompletableFuture<Long> user = batcher.latestRevision("User page");
+    // ...and the job joins an interactive lookup instead of sending its own
+    try (SearchMetrics.Scope ignored = job.enter()) {
+      assertSame(user, batcher.latestRevision("User page"));
+    }
+    assertEquals(2, tasks.size());
+
+    Runnable jobRequest = tasks.poll();
+    tasks.poll().run();
+    assertEquals(List.of(List.of("Shared", "User page")), requests);
+    assertEquals(List.of(FetchScheduler.Priority.INTERACTIVE), priorities);
+    assertEquals(9L, user.get());
+    assertEquals(6L, shared.get());
+    assertFalse(jobPage.isDone());
+
+    jobRequest.run();
+    assertEquals(List.of("Job page"), requests.get(1));
+    assertEquals(FetchScheduler.Priority.BATCH, priorities.get(1));
+    assertEquals(8L, jobPage.get());
+  }
+
+  @Test
+  public void testFailedRequestFailsItsLookups() {
+    RevisionBatcher batcher = batcher(true);
+    CompletableFuture<Long> revision = batcher.latestRevision("Alpha");
+    tasks.poll().run();
+    ExecutionException e = assertThrows(ExecutionException.class, revision::get);
+    assertTrue(e.getCause() instanceof IOException);
+  }
+}
@@ -0,0 +1,48 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class SearchActivityTest {
+  private static final String WIKI = "https://en.wikipedia.org/wiki/";
+
+  @Test
+  public void testBusyWhileSearchRunsAndDuringQuietPeriod() {
+    SearchActivity activity = new SearchActivity(100);
+    assertFalse(activity.isBusy(1_000_000_000L));
+    SearchActivity.Scope search = activity.begin();
+    assertTrue(activity.isBusy(0));
+    assertEquals(1, activity.getActiveSearches());
+    search.close();
+    assertEquals(0, activity.getActiveSearches());
+    assertTrue(activity.isBusy(60_000_000_000L));
+    assertFalse(activity.isBusy(0));
+  }
+
+  @Test
+  public void testTopPagesOrderedByCountAndDecayed() {
+    SearchActivity activity = new SearchActivity(100);
+    TitleRegistry registry = TitleRegistry.shared();
+    activity.recordPages(List.of(WIKI + "Act_A", WIKI + "Act_B", WIKI + "Act_C"));
+    activity.recordPages(List.of(WIKI + "Act_B", WIKI + "Act_C"));
+    activity.recordPages(List.of(WIKI + "Act_C"));
+    assertEquals(
+        List.of(registry.idOf(WIKI + "Act_C"), registry.idOf(WIKI + "Act_B")),
+        activity.topPages(2));
+
+    // Counts 3, 2, 1 become 1, 1, 0: the page seen once is forgotten
+    activity.decay();
+    assertEquals(2, activity.topPages(10).size());
+    assertFalse(activity.topPages(10).contains(registry.idOf(WIKI + "Act_A")));
+  }
+
+  @Test
+  public void testTrackedPagesBounded() {
+    SearchActivity activity = new SearchActivity(2);
+    activity.recordPages(List.of(WIKI + "Act_D", WIKI + "Act_E", WIKI + "Act_F"));
+    assertTrue(activity.topPages(10).size() <= 2);
+    assertThrows(IllegalArgumentException.class, () -> new SearchActivity(0));
+  }
+}
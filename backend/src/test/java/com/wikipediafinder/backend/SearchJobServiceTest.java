@@ -0,0 +1,236 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SearchJobServiceTest {
+  private static final String WIKI = "https://en.wikipedia.org/wiki/";
+  private static final String CLIENT = "192.0.2.1";
+
+  @TempDir Path tempDir;
+
+  private final Map<String, List<String>> graph = new HashMap<>();
+  private final AtomicInteger loads = new AtomicInteger();
+  private final List<SearchJobService> services = new ArrayList<>();
+  private volatile long loadDelayMillis;
+
+  private final Function<String, PageNode> factory = url -> new FakePageNode(url);
+
+  @AfterEach
+  public void tearDown() {
+    services.forEach(SearchJobService::shutdown);
+  }
+
+  private SearchJobService service(int nodeBudget) throws Exception {
+    return service(nodeBudget, 20, 2);
+  }
+
+  private SearchJobService service(int nodeBudget, int maxQueued, int maxPerClient)
+      throws Exception {
+    return service(nodeBudget, maxQueued, maxPerClient, null);
+  }
+
+  private SearchJobService service(
+      int nodeBudget, int maxQueued, int maxPerClient, Path spillDirectory) throws Exception {
+    SearchJobService service =
+        new SearchJobService(
+            new BFS(),
+            factory,
+            tempDir,
+            spillDirectory,
+            nodeBudget,
+            Duration.ofHours(1),
+            Duration.ofDays(1),
+            1,
+            maxQueued,
+            maxPerClient);
+    services.add(service);
+    service.recover();
+    return service;
+  }
+
+  /** Links page i of a chain to page i + 1, for pages 0 .. length - 1. */
+  private void chain(String prefix, int length) {
+    for (int i = 0; i + 1 < length; i++) {
+      graph.put(WIKI + prefix + i, List.of(WIKI + prefix + (i + 1)));
+    }
+  }
+
+  private static SearchJob await(SearchJob job, SearchJob.Status status) throws Exception {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (job.getStatus() != status) {
+      assertTrue(System.currentTimeMillis() < deadline, "job is " + job.getStatus());
+      Thread.sleep(5);
+    }
+    return job;
+  }
+
+  @Test
+  public void testJobFindsPathAndSurvivesRestart() throws Exception {
+    chain("Job_A", 5);
+    SearchJobService first = service(1000);
+    SearchJob job = first.submit(WIKI + "Job_A0", WIKI + "Job_A4", CLIENT);
+    await(job, SearchJob.Status.FOUND);
+    first.shutdown();
+    assertEquals(5, job.getPath().size());
+    assertEquals(4, job.getNodesExplored());
+    assertTrue(job.getFinishedAt() > 0);
+    assertTrue(Files.exists(tempDir.resolve(job.getId() + ".job")));
+
+    SearchJob restored = service(1000).get(job.getId());
+    assertEquals(SearchJob.Status.FOUND, restored.getStatus());
+    assertEquals(job.getPath(), restored.getPath());
+    assertEquals(4, restored.getNodesExplored());
+  }
+
+  @Test
+  public void testStoppedJobResumesFromCheckpoint() throws Exception {
+    chain("Job_B", 300);
+    loadDelayMillis = 2;
+    SearchJobService first = service(1000);
+    SearchJob job = first.submit(WIKI + "Job_B0", WIKI + "Job_B299", CLIENT);
+    while (job.getNodesExplored() < 5) {
+      Thread.sleep(1);
+    }
+    first.shutdown();
+    assertEquals(SearchJob.Status.RUNNING, job.getStatus());
+    int loadsBeforeRestart = loads.get();
+    assertTrue(loadsBeforeRestart < 299);
+
+    loadDelayMillis = 0;
+    SearchJob resumed = await(service(1000).get(job.getId()), SearchJob.Status.FOUND);
+    assertEquals(300, resumed.getPath().size());
+    assertEquals(299, resumed.getNodesExplored());
+    // Only the pages not expanded before the restart were loaded again
+    assertEquals(299, loads.get());
+  }
+
+  @Test
+  public void testDiskJobFindsPathAndStartsOverAfterRestart() throws Exception {
+    chain("Job_E", 300);
+    Path spill = tempDir.resolve("spill");
+    loadDelayMillis = 2;
+    SearchJobService first = service(1000, 20, 2, spill);
+    SearchJob job = first.submit(WIKI + "Job_E0", WIKI + "Job_E299", CLIENT);
+    assertNull(job.getTree());
+    while (job.getNodesExplored() < 5) {
+      Thread.sleep(1);
+    }
+    first.shutdown();
+    assertEquals(SearchJob.Status.RUNNING, job.getStatus());
+
+    loadDelayMillis = 0;
+    SearchJob resumed =
+        await(service(1000, 20, 2, spill).get(job.getId()), SearchJob.Status.FOUND);
+    assertEquals(300, resumed.getPath().size());
+    assertEquals(WIKI + "Job_E299", resumed.getPath().get(299));
+    assertEquals(299, resumed.getNodesExplored());
+    try (var files = Files.list(spill)) {
+      assertEquals(0, files.count());
+    }
+
+    SearchJob capped = service(10, 20, 2, spill).submit(WIKI + "Job_E0", WIKI + "Job_E299", CLIENT);
+    await(capped, SearchJob.Status.NOT_FOUND);
+    assertEquals(10, capped.getNodesExplored());
+  }
+
+  @Test
+  public void testCancelAndBudget() throws Exception {
+    chain("Job_C", 300);
+    loadDelayMillis = 2;
+    SearchJobService service = service(1000);
+    SearchJob cancelled = service.submit(WIKI + "Job_C0", WIKI + "Job_C299", CLIENT);
+    assertSame(cancelled, service.cancel(cancelled.getId()));
+    await(cancelled, SearchJob.Status.CANCELLED);
+    assertNull(service.cancel("no-such-job"));
+
+    loadDelayMillis = 0;
+    SearchJob capped = service(10).submit(WIKI + "Job_C0", WIKI + "Job_C299", CLIENT);
+    await(capped, SearchJob.Status.NOT_FOUND);
+    assertEquals(10, capped.getNodesExplored());
+    assertNull(capped.getPath());
+  }
+
+  @Test
+  public void testInvalidInputAndUnreadableCheckpoints() throws Exception {
+    Files.write(tempDir.resolve("broken.job"), new byte[] {1, 2, 3});
+    SearchJobService service = service(1000);
+    assertNull(service.get("broken"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> service.submit("https://example.com/", WIKI + "X", CLIENT));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new SearchJobService(
+                new BFS(),
+                factory,
+                tempDir,
+                null,
+                0,
+                Duration.ofHours(1),
+                Duration.ofDays(1),
+                1,
+                1,
+                1));
+  }
+
+  @Test
+  public void testPendingJobsAreLimited() throws Exception {
+    chain("Job_D", 300);
+    loadDelayMillis = 2;
+    SearchJobService service = service(1000, 3, 2);
+    SearchJob first = service.submit(WIKI + "Job_D0", WIKI + "Job_D299", CLIENT);
+    service.submit(WIKI + "Job_D0", WIKI + "Job_D299", CLIENT);
+    assertThrows(
+        RejectedExecutionException.class,
+        () -> service.submit(WIKI + "Job_D0", WIKI + "Job_D299", CLIENT));
+    service.submit(WIKI + "Job_D0", WIKI + "Job_D299", "192.0.2.2");
+    assertThrows(
+        RejectedExecutionException.class,
+        () -> service.submit(WIKI + "Job_D0", WIKI + "Job_D299", "192.0.2.3"));
+
+    // A finished job no longer counts
+    service.cancel(first.getId());
+    await(first, SearchJob.Status.CANCELLED);
+    assertNotNull(service.submit(WIKI + "Job_D0", WIKI + "Job_D299", CLIENT));
+  }
+
+  /** A page whose links come from {@link #graph}, counting every load. */
+  private class FakePageNode extends PageNode {
+    FakePageNode(String url) {
+      super(url);
+    }
+
+    @Override
+    public void findOutgoingLinks() {
+      loads.incrementAndGet();
+      if (loadDelayMillis > 0) {
+        try {
+          Thread.sleep(loadDelayMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    @Override
+    public CompressedAdjacency getOutLinkIds() {
+      return CompressedAdjacency.fromUrls(
+          graph.getOrDefault(getURL(), List.of()), TitleRegistry.shared());
+    }
+  }
+}
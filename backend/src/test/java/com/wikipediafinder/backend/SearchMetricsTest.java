@@ -0,0 +1,99 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class SearchMetricsTest {
+  @Test
+  public void testReportsOutsideSearchAreIgnored() {
+    assertSame(SearchMetrics.empty(), SearchMetrics.current());
+    SearchMetrics.current().recordCacheHit();
+    SearchMetrics.current().recordHttpRequest(100);
+    assertEquals(0, SearchMetrics.empty().getCacheHits());
+    assertEquals(0, SearchMetrics.empty().getBytesDownloaded());
+    assertEquals(0.0, SearchMetrics.empty().getTotalMillis());
+  }
+
+  @Test
+  public void testScopesNestAndRestore() {
+    SearchMetrics outer = new SearchMetrics();
+    SearchMetrics inner = new SearchMetrics();
+    try (SearchMetrics.Scope a = outer.enter()) {
+      try (SearchMetrics.Scope b = inner.enter()) {
+        SearchMetrics.current().recordCacheMiss();
+      }
+      SearchMetrics.current().recordCacheHit();
+    }
+    assertSame(SearchMetrics.empty(), SearchMetrics.current());
+    assertEquals(1, inner.getCacheMisses());
+    assertEquals(0, inner.getCacheHits());
+    assertEquals(1, outer.getCacheHits());
+    assertEquals(0, outer.getCacheMisses());
+  }
+
+  @Test
+  public void testCountersAndMaxima() {
+    SearchMetrics metrics = new SearchMetrics();
+    metrics.recordHttpRequest(10);
+    metrics.recordHttpRequest(32);
+    metrics.recordParse(2_000_000);
+    metrics.recordFetchWait(500_000);
+    metrics.recordFrontier(7);
+    metrics.recordFrontier(3);
+    metrics.recordDepth(2);
+    metrics.recordDepth(1);
+    assertEquals(2, metrics.getHttpRequests());
+    assertEquals(42, metrics.getBytesDownloaded());
+    assertEquals(2.0, metrics.getParseMillis());
+    assertEquals(0.5, metrics.getFetchWaitMillis());
+    assertEquals(7, metrics.getMaxFrontierSize());
+    assertEquals(2, metrics.getDepthReached());
+  }
+
+  @Test
+  public void testPrefetchLookupsAreNotCounted() throws Exception {
+    SearchMetrics metrics = new SearchMetrics();
+    Thread prefetch =
+        new Thread(
+            () -> {
+              try (SearchMetrics.Scope ignored = metrics.enterPrefetch()) {
+                SearchMetrics.current().recordCacheMiss();
+                SearchMetrics.current().recordHttpRequest(10);
+              }
+              // Outside the prefetch scope, lookups count again
+              try (SearchMetrics.Scope ignored = metrics.enter()) {
+                SearchMetrics.current().recordCacheHit();
+              }
+            });
+    prefetch.start();
+    prefetch.join();
+    assertEquals(0, metrics.getCacheMisses());
+    assertEquals(1, metrics.getCacheHits());
+    assertEquals(1, metrics.getHttpRequests());
+  }
+
+  @Test
+  public void testFetchWaitExcludesParsingOnTheWaitingThread() throws Exception {
+    SearchMetrics metrics = new SearchMetrics();
+    long begin = System.nanoTime();
+    long start = SearchMetrics.startWait();
+    Thread.sleep(20);
+    metrics.recordParse(15_000_000);
+    metrics.recordFetchWaitSince(start);
+    double elapsedMillis = (System.nanoTime() - begin) / 1_000_000.0;
+    assertEquals(15.0, metrics.getParseMillis());
+    assertTrue(metrics.getFetchWaitMillis() >= 5);
+    assertTrue(metrics.getFetchWaitMillis() <= elapsedMillis - 15);
+  }
+
+  @Test
+  public void testFinishFreezesTotal() throws InterruptedException {
+    SearchMetrics metrics = new SearchMetrics();
+    metrics.finish();
+    double total = metrics.getTotalMillis();
+    Thread.sleep(5);
+    metrics.finish();
+    assertEquals(total, metrics.getTotalMillis());
+  }
+}
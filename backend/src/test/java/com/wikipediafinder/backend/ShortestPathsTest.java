@@ -0,0 +1,76 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class ShortestPathsTest {
+  private static final TitleRegistry REGISTRY = TitleRegistry.shared();
+
+  private static int id(String title) {
+    return REGISTRY.idOf("https://en.wikipedia.org/wiki/" + title);
+  }
+
+  /** Start, then two fully connected levels of three pages each, then the target. */
+  private static ShortestPaths layered() {
+    ShortestPaths.Predecessors predecessors = new ShortestPaths.Predecessors();
+    for (int i = 0; i < 3; i++) {
+      predecessors.add(id("L1_" + i), id("Layered_Start"));
+      for (int j = 0; j < 3; j++) {
+        predecessors.add(id("L2_" + j), id("L1_" + i));
+      }
+    }
+    for (int j = 0; j < 3; j++) {
+      predecessors.add(id("Layered_End"), id("L2_" + j));
+    }
+    return new ShortestPaths(
+        id("Layered_Start"), id("Layered_End"), 3, predecessors, true, 7, SearchMetrics.empty());
+  }
+
+  @Test
+  public void testEnumeratesEveryPathOnce() {
+    ShortestPaths result = layered();
+    assertEquals(9, result.countPaths());
+    List<List<String>> paths = result.paths().collect(Collectors.toList());
+    assertEquals(9, paths.size());
+    assertEquals(9, new HashSet<>(paths).size());
+    for (List<String> path : paths) {
+      assertEquals(4, path.size());
+      assertEquals(REGISTRY.urlOf(id("Layered_Start")), path.get(0));
+      assertEquals(REGISTRY.urlOf(id("Layered_End")), path.get(3));
+    }
+  }
+
+  @Test
+  public void testPathsAreLimited() {
+    ShortestPaths result = layered();
+    assertEquals(4, result.paths(4).size());
+    assertTrue(result.paths(0).isEmpty());
+    assertThrows(IllegalArgumentException.class, () -> result.paths(-1));
+    assertThrows(UnsupportedOperationException.class, () -> result.paths(1).get(0).add("X"));
+  }
+
+  @Test
+  public void testIdenticalStartAndEnd() {
+    int page = id("Same_Page");
+    ShortestPaths result =
+        new ShortestPaths(
+            page, page, 0, new ShortestPaths.Predecessors(), true, 1, SearchMetrics.empty());
+    assertEquals(1, result.countPaths());
+    assertEquals(Set.of(List.of(REGISTRY.urlOf(page))), Set.copyOf(result.paths(5)));
+  }
+
+  @Test
+  public void testNoPath() {
+    ShortestPaths.Predecessors none = new ShortestPaths.Predecessors();
+    ShortestPaths result =
+        new ShortestPaths(id("A"), id("B"), -1, none, false, 10, SearchMetrics.empty());
+    assertEquals(0, result.countPaths());
+    assertEquals(0, result.paths().count());
+    assertFalse(result.isComplete());
+  }
+}
@@ -0,0 +1,165 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class SnapshotSearchTest {
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+  private final List<Integer> liveRequests = new ArrayList<>();
+
+  @AfterEach
+  public void shutdownPool() {
+    pool.shutdown();
+  }
+
+  /** Caches {@code links[id]} as the links of each page and returns the snapshot of them. */
+  private static GraphSnapshot snapshot(int[][] links) {
+    TitleRegistry registry = new TitleRegistry();
+    for (int id = 0; id < links.length; id++) {
+      registry.idOf("Page" + id);
+    }
+    AdjacencyCache cache = new AdjacencyCache(1 << 24, Duration.ofMinutes(1));
+    for (int id = 0; id < links.length; id++) {
+      if (links[id] != null) {
+        cache.put(id, CompressedAdjacency.of(links[id]));
+      }
+    }
+    return GraphSnapshot.of(cache);
+  }
+
+  private static int[][] randomGraph(int pages, int linksPerPage, long seed) {
+    Random random = new Random(seed);
+    int[][] links = new int[pages][linksPerPage];
+    for (int[] pageLinks : links) {
+      for (int i = 0; i < linksPerPage; i++) {
+        pageLinks[i] = random.nextInt(pages);
+      }
+    }
+    return links;
+  }
+
+  /** Distances from {@code start} by a plain sequential BFS, -1 where unreachable. */
+  private static int[] distances(int[][] links, int start) {
+    int[] distance = new int[links.length];
+    Arrays.fill(distance, -1);
+    distance[start] = 0;
+    ArrayDeque<Integer> queue = new ArrayDeque<>(List.of(start));
+    while (!queue.isEmpty()) {
+      int page = queue.poll();
+      for (int target : links[page]) {
+        if (distance[target] < 0) {
+          distance[target] = distance[page] + 1;
+          queue.add(target);
+        }
+      }
+    }
+    return distance;
+  }
+
+  /** Returns the length of the path found, checking that each step follows a link. */
+  private static int pathLength(SnapshotSearch search, int[][] links, int start, int end) {
+    int length = 0;
+    for (int page = end; page != start; length++) {
+      int parent = search.parentOf(page);
+      int target = page;
+      assertTrue(Arrays.stream(links[parent]).anyMatch(id -> id == target));
+      page = parent;
+    }
+    return length;
+  }
+
+  private SnapshotSearch search(GraphSnapshot snapshot, int[][] liveLinks, int liveCap) {
+    return new SnapshotSearch(
+        snapshot,
+        id -> {
+          synchronized (liveRequests) {
+            liveRequests.add(id);
+          }
+          return CompletableFuture.completedFuture(CompressedAdjacency.of(liveLinks[id]));
+        },
+        pool,
+        liveCap);
+  }
+
+  @Test
+  public void testFindsShortestPathsOnRandomGraph() {
+    int[][] links = randomGraph(5_000, 3, 42);
+    GraphSnapshot snapshot = snapshot(links);
+    int[] expected = distances(links, 0);
+    for (int end = 1; end < links.length; end += 97) {
+      SnapshotSearch search = search(snapshot, links, 0);
+      boolean found = search.run(0, end, null);
+      assertEquals(expected[end] >= 0, found);
+      if (found) {
+        assertEquals(expected[end], pathLength(search, links, 0, end));
+      }
+    }
+    assertTrue(liveRequests.isEmpty());
+  }
+
+  @Test
+  public void testGoesBottomUpOnDenseGraph() {
+    int[][] links = randomGraph(20_000, 30, 7);
+    GraphSnapshot snapshot = snapshot(links);
+    int[] expected = distances(links, 0);
+    int end = 0;
+    for (int id = 0; id < links.length; id++) {
+      if (expected[id] > expected[end]) {
+        end = id;
+      }
+    }
+    SnapshotSearch search = search(snapshot, links, 0);
+    List<Integer> progress = new ArrayList<>();
+
+    assertTrue(search.run(0, end, progress::add));
+
+    assertEquals(expected[end], pathLength(search, links, 0, end));
+    assertTrue(search.getBottomUpLevels() > 0);
+    assertEquals(expected[end], progress.size());
+  }
+
+  @Test
+  public void testRequestsLinksOfUnknownPagesLive() {
+    int[][] links = {{1}, {2, 3}, {0}, {4}, {}};
+    int[][] known = {{1}, null, {0}, null, {}};
+    SnapshotSearch search = search(snapshot(known), links, 10);
+
+    assertTrue(search.run(0, 4, null));
+
+    assertEquals(3, pathLength(search, links, 0, 4));
+    assertEquals(List.of(1, 3), liveRequests);
+    assertEquals(2, search.getLiveRequests());
+  }
+
+  @Test
+  public void testLiveLinksMayNameNewPages() {
+    int[][] links = {{1}, {5}, {}, {}, {}, {}};
+    int[][] known = {{1}, null};
+    SnapshotSearch search = search(snapshot(known), links, 10);
+
+    assertTrue(search.run(0, 5, null));
+
+    assertEquals(1, search.parentOf(5));
+    assertEquals(-1, search.parentOf(2));
+  }
+
+  @Test
+  public void testGivesUpBeyondLiveCap() {
+    int[][] links = {{1, 2}, {3}, {3}, {}};
+    int[][] known = {{1, 2}, null, null, {}};
+    SnapshotSearch search = search(snapshot(known), links, 1);
+
+    assertFalse(search.run(0, 3, null));
+    assertTrue(liveRequests.isEmpty());
+  }
+}
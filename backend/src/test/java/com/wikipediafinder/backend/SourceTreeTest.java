@@ -0,0 +1,254 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import org.junit.jupiter.api.Test;
+
+public class SourceTreeTest {
+  private static final String PREFIX = "https://en.wikipedia.org/wiki/";
+
+  private final TitleRegistry registry = TitleRegistry.shared();
+  private final Map<Integer, CompressedAdjacency> graph = new HashMap<>();
+  private final List<Integer> loaded = new ArrayList<>();
+  private final IntFunction<CompressedAdjacency> loader =
+      id -> {
+        loaded.add(id);
+        return graph.getOrDefault(id, CompressedAdjacency.EMPTY);
+      };
+
+  private int id(String name) {
+    return registry.idOf(PREFIX + "Tree_" + name);
+  }
+
+  private void link(String from, String... to) {
+    int[] ids = new int[to.length];
+    for (int i = 0; i < to.length; i++) {
+      ids[i] = id(to[i]);
+    }
+    graph.put(id(from), CompressedAdjacency.of(ids));
+  }
+
+  @Test
+  public void testResumesWhereThePreviousSearchStopped() {
+    // A -> {B, C}, B -> D, C -> E, D -> F
+    link("A", "B", "C");
+    link("B", "D");
+    link("C", "E");
+    link("D", "F");
+    SourceTree tree = new SourceTree(id("A"), false);
+
+    assertEquals(1, tree.expand(id("C"), 100, loader, null, null));
+    assertEquals(List.of(PREFIX + "Tree_A", PREFIX + "Tree_C"), tree.pathTo(id("C")));
+    assertNull(tree.pathTo(id("F")));
+
+    // Resuming continues with B, C and D rather than starting over from A
+    loaded.clear();
+    assertEquals(3, tree.expand(id("F"), 100, loader, null, null));
+    assertEquals(List.of(id("B"), id("C"), id("D")), loaded);
+    assertEquals(
+        List.of(PREFIX + "Tree_A", PREFIX + "Tree_B", PREFIX + "Tree_D", PREFIX + "Tree_F"),
+        tree.pathTo(id("F")));
+    assertEquals(4, tree.getNodesExpanded());
+
+    // Already discovered: answered without expanding anything
+    loaded.clear();
+    assertEquals(0, tree.expand(id("E"), 100, loader, null, null));
+    assertTrue(loaded.isEmpty());
+  }
+
+  @Test
+  public void testBudgetLimitsExpansions() {
+    link("A", "B");
+    link("B", "C");
+    link("C", "D");
+    SourceTree tree = new SourceTree(id("A"), false);
+    assertEquals(2, tree.expand(id("D"), 2, loader, null, null));
+    assertNull(tree.pathTo(id("D")));
+    assertFalse(tree.isExhausted());
+    assertEquals(1, tree.expand(id("D"), 2, loader, null, null));
+    assertNotNull(tree.pathTo(id("D")));
+  }
+
+  @Test
+  public void testLinksLoadWithoutHoldingTheTree() throws Exception {
+    link("A", "B");
+    SourceTree tree = new SourceTree(id("A"), false);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    IntFunction<CompressedAdjacency> slowLoader =
+        id -> {
+          loading.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return loader.apply(id);
+        };
+    Thread search = new Thread(() -> tree.expand(id("B"), 100, slowLoader, null, null));
+    search.start();
+    assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+    // The tree answers other callers while the search waits for links
+    BitSet ids = new BitSet();
+    ids.set(id("B"));
+    assertFalse(tree.containsAny(ids));
+    assertNull(tree.pathTo(id("B")));
+    release.countDown();
+    search.join(5000);
+    assertTrue(tree.containsAny(ids));
+  }
+
+  @Test
+  public void testFailingProgressCallbackKeepsTheFrontier() {
+    link("A", "B");
+    link("B", "C");
+    SourceTree tree = new SourceTree(id("A"), false);
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            tree.expand(
+                id("C"),
+                100,
+                loader,
+                null,
+                count -> {
+                  throw new IllegalStateException("disconnected");
+                }));
+
+    // A was fully expanded before the callback threw, so the next search continues with B
+    loaded.clear();
+    assertEquals(1, tree.expand(id("C"), 100, loader, null, null));
+    assertEquals(List.of(id("B")), loaded);
+    assertEquals(3, tree.pathTo(id("C")).size());
+  }
+
+  @Test
+  public void testReverseTreePathEndsAtRoot() {
+    // Backlinks: Z is linked from Y, which is linked from X
+    link("Z", "Y");
+    link("Y", "X");
+    SourceTree tree = new SourceTree(id("Z"), true);
+    tree.expand(id("X"), 100, loader, null, null);
+    assertEquals(
+        List.of(PREFIX + "Tree_X", PREFIX + "Tree_Y", PREFIX + "Tree_Z"), tree.pathTo(id("X")));
+  }
+
+  @Test
+  public void testTruncatedBacklinksMakeDeeperPathsInexact() throws IOException {
+    // Z has a full page of backlinks, so pages behind them may have been left out
+    String[] fillers = new String[LinkFetcher.LINK_LIMIT];
+    for (int i = 0; i < fillers.length; i++) {
+      fillers[i] = "Filler" + i;
+    }
+    link("Z", fillers);
+    link("Filler0", "X");
+    SourceTree tree = new SourceTree(id("Z"), true);
+    tree.expand(id("X"), 100, loader, null, null);
+    assertEquals(3, tree.pathTo(id("X")).size());
+    assertTrue(tree.isExact(id("Z")));
+    assertTrue(tree.isExact(id("Filler1")));
+    assertFalse(tree.isExact(id("X")));
+    assertFalse(tree.isExact(id("Unknown")));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    tree.writeTo(new DataOutputStream(bytes));
+    SourceTree copy =
+        SourceTree.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertFalse(copy.isExact(id("X")));
+
+    // Forward trees follow the same truncated lists as every search, so their paths are exact
+    link("A", fillers);
+    SourceTree forward = new SourceTree(id("A"), false);
+    forward.expand(id("X"), 100, loader, null, null);
+    assertTrue(forward.isExact(id("X")));
+  }
+
+  @Test
+  public void testFailedLoadMarksTree() {
+    SourceTree tree = new SourceTree(id("A"), false);
+    assertFalse(tree.hasFailed());
+    tree.expand(id("B"), 100, id -> null, null, null);
+    assertTrue(tree.hasFailed());
+    assertTrue(tree.isExhausted());
+  }
+
+  @Test
+  public void testCacheDropsFailedTreesAndCountsTargets() {
+    SourceTreeCache cache = new SourceTreeCache(1 << 20, java.time.Duration.ofMinutes(1), 2);
+    SourceTree forward = new SourceTree(id("A"), false);
+    SourceTree reverse = new SourceTree(id("A"), true);
+    cache.put(forward);
+    cache.put(reverse);
+    assertSame(forward, cache.getForward(id("A")));
+    assertSame(reverse, cache.getReverse(id("A")));
+
+    forward.expand(id("B"), 100, id -> null, null, null);
+    cache.put(forward);
+    assertNull(cache.getForward(id("A")));
+    assertSame(reverse, cache.getReverse(id("A")));
+
+    assertFalse(cache.recordTargetQuery(id("T")));
+    assertTrue(cache.recordTargetQuery(id("T")));
+  }
+
+  @Test
+  public void testCacheKeepsFirstTreeAndDoesNotRestoreDroppedOnes() {
+    SourceTreeCache cache = new SourceTreeCache(1 << 20, java.time.Duration.ofMinutes(1), 2);
+    SourceTree first = new SourceTree(id("A"), false);
+    cache.put(first);
+    cache.put(new SourceTree(id("A"), false));
+    assertSame(first, cache.getForward(id("A")));
+
+    // A tree dropped while a search resumed it is not put back by that search
+    cache.invalidateAll();
+    cache.update(first);
+    assertNull(cache.getForward(id("A")));
+  }
+
+  @Test
+  public void testWrittenTreeResumesAfterReading() throws IOException {
+    link("A", "B", "C");
+    link("B", "D");
+    link("C", "E");
+    link("D", "F");
+    SourceTree tree = new SourceTree(id("A"), false);
+    tree.expand(id("D"), 100, loader, null, null);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    tree.writeTo(new DataOutputStream(bytes));
+    SourceTree copy =
+        SourceTree.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(id("A"), copy.getRootId());
+    assertFalse(copy.isReverse());
+    assertEquals(tree.getNodesExpanded(), copy.getNodesExpanded());
+    assertEquals(tree.pathTo(id("D")), copy.pathTo(id("D")));
+
+    // The copy continues with the original's queue: C and D, not A again
+    loaded.clear();
+    assertEquals(2, copy.expand(id("F"), 100, loader, null, null));
+    assertEquals(List.of(id("C"), id("D")), loaded);
+    assertEquals(4, copy.pathTo(id("F")).size());
+  }
+
+  @Test
+  public void testReadRejectsInvalidData() {
+    byte[] truncated = {0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, -1, -1, -1};
+    assertThrows(
+        IOException.class,
+        () -> SourceTree.readFrom(new DataInputStream(new ByteArrayInputStream(truncated))));
+  }
+}
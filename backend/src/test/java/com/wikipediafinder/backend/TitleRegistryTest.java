@@ -0,0 +1,61 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.BitSet;
+import org.junit.jupiter.api.Test;
+
+public class TitleRegistryTest {
+  @Test
+  public void testTrimFreesUnreferencedIdsAfterAFullEpoch() {
+    TitleRegistry registry = new TitleRegistry();
+    int cached = registry.idOf("Cached");
+    int linked = registry.idOf("Linked");
+    int orphan = registry.idOf("Orphan");
+    AdjacencyCache cache = new AdjacencyCache(1 << 20, Duration.ofMinutes(1));
+    cache.put(cached, CompressedAdjacency.of(new int[] {linked}));
+    BitSet referenced = new BitSet();
+    cache.forEachId(referenced::set);
+
+    // Every ID was used since the (nonexistent) previous trim
+    assertEquals(0, registry.trim(referenced));
+    assertEquals(1, registry.trim(referenced));
+    assertEquals(-1, registry.find("Orphan"));
+    assertThrows(IndexOutOfBoundsException.class, () -> registry.urlOf(orphan));
+    assertEquals("Linked", registry.urlOf(linked));
+    assertEquals(2, registry.urlCount());
+
+    // The freed ID is handed out again
+    assertEquals(orphan, registry.idOf("Newcomer"));
+    assertEquals(3, registry.size());
+  }
+
+  @Test
+  public void testIdsUsedSinceThePreviousTrimAreKept() {
+    TitleRegistry registry = new TitleRegistry();
+    int looked = registry.idOf("LookedUp");
+    int idle = registry.idOf("Idle");
+    registry.trim(new BitSet());
+    // Used during the epoch, so it survives the next trim although no cache refers to it
+    assertEquals("LookedUp", registry.urlOf(looked));
+    assertEquals(1, registry.trim(new BitSet()));
+    assertEquals(looked, registry.find("LookedUp"));
+    assertEquals(-1, registry.find("Idle"));
+    // Registering a freed URL again assigns it a fresh ID
+    assertEquals(idle, registry.idOf("Idle"));
+    assertEquals(2, registry.trim(new BitSet()) + registry.trim(new BitSet()));
+    assertEquals(0, registry.urlCount());
+  }
+
+  @Test
+  public void testRegistryGrowsAcrossChunks() {
+    TitleRegistry registry = new TitleRegistry();
+    for (int i = 0; i < 40_000; i++) {
+      assertEquals(i, registry.idOf("Page" + i));
+    }
+    assertEquals("Page39999", registry.urlOf(39_999));
+    assertEquals(17_000, registry.find("Page17000"));
+    assertEquals(40_000, registry.size());
+  }
+}
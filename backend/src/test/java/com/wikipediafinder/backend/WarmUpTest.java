@@ -0,0 +1,34 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class WarmUpTest {
+  @Test
+  public void testFixturesParse() throws Exception {
+    Map<String, String> responses = WarmUp.loadFixtures();
+    assertEquals(60, responses.size());
+    for (Map.Entry<String, String> response : responses.entrySet()) {
+      WikipediaApiClient.PageLinks links =
+          WikipediaApiClient.parseLinks(
+              response.getKey(), response.getValue(), SearchMetrics.current());
+      assertFalse(links.getLinks().isEmpty());
+      assertTrue(links.getRevision() > 0);
+    }
+  }
+
+  @Test
+  public void testWarmUpLeavesNoTraceOfFixtures() {
+    new WarmUp(new BFS(), new ObjectMapper(), 3).run(null);
+
+    TitleRegistry registry = TitleRegistry.shared();
+    for (int id : SearchActivity.shared().topPages(Integer.MAX_VALUE)) {
+      assertFalse(registry.urlOf(id).contains("Warm-up_page"), registry.urlOf(id));
+    }
+    int fixture = registry.idOf(WikipediaApiClient.titleToUrl("Warm-up page 00"));
+    assertNull(AdjacencyCache.shared().get(fixture));
+  }
+}
@@ -0,0 +1,98 @@
+package com.wikipediafinder.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class WikipediaApiClientTest {
+  @Test
+  public void testUrlToTitle() {
+    assertEquals(
+        "Albert Einstein",
+        WikipediaApiClient.urlToTitle("https://en.wikipedia.org/wiki/Albert_Einstein#Life"));
+    assertNull(WikipediaApiClient.urlToTitle("https://example.com/"));
+  }
+
+  @Test
+  public void testParseExistenceFollowsNormalizationAndRedirects() throws Exception {
+    String body =
+        "{\"query\":{"
+            + "\"normalized\":[{\"from\":\"albert Einstein\",\"to\":\"Albert Einstein\"}],"
+            + "\"redirects\":[{\"from\":\"Einstein\",\"to\":\"Albert Einstein\"}],"
+            + "\"pages\":{"
+            + "\"736\":{\"pageid\":736,\"ns\":0,\"title\":\"Albert Einstein\"},"
+            + "\"-1\":{\"ns\":0,\"title\":\"Albert Einstien\",\"missing\":\"\"}}}}";
+    Map<String, Boolean> result =
+        WikipediaApiClient.parseExistence(
+            new ObjectMapper().readTree(body),
+            Arrays.asList("albert Einstein", "Einstein", "Albert Einstien"));
+    assertEquals(Boolean.TRUE, result.get("albert Einstein"));
+    assertEquals(Boolean.TRUE, result.get("Einstein"));
+    assertEquals(Boolean.FALSE, result.get("Albert Einstien"));
+  }
+
+  @Test
+  public void testParseLinksReadsLinksAndRevision() throws Exception {
+    String body =
+        "{\"query\":{\"pages\":{\"736\":{\"pageid\":736,\"ns\":0,"
+            + "\"title\":\"Albert Einstein\",\"lastrevid\":1234567,"
+            + "\"links\":[{\"ns\":0,\"title\":\"Physics\"},{\"ns\":0,\"title\":\"Ulm\"}]}}}}";
+    WikipediaApiClient.PageLinks links =
+        WikipediaApiClient.parseLinks("Albert Einstein", body, SearchMetrics.current());
+    assertEquals(
+        Set.of("https://en.wikipedia.org/wiki/Physics", "https://en.wikipedia.org/wiki/Ulm"),
+        links.getLinks());
+    assertEquals(1234567L, links.getRevision());
+    assertThrows(
+        PageMissingException.class,
+        () ->
+            WikipediaApiClient.parseLinks(
+                "Nope",
+                "{\"query\":{\"pages\":{\"-1\":{\"title\":\"Nope\",\"missing\":\"\"}}}}",
+                SearchMetrics.current()));
+  }
+
+  @Test
+  public void testParseRevisionsFollowsNormalizationOnly() throws Exception {
+    String body =
+        "{\"query\":{"
+            + "\"normalized\":[{\"from\":\"albert Einstein\",\"to\":\"Albert Einstein\"}],"
+            + "\"pages\":{"
+            + "\"736\":{\"pageid\":736,\"ns\":0,\"title\":\"Albert Einstein\","
+            + "\"lastrevid\":1234567},"
+            + "\"-1\":{\"ns\":0,\"title\":\"Albert Einstien\",\"missing\":\"\"}}}}";
+    Map<String, Long> result =
+        WikipediaApiClient.parseRevisions(
+            new ObjectMapper().readTree(body), Arrays.asList("albert Einstein", "Albert Einstien"));
+    assertEquals(Map.of("albert Einstein", 1234567L), result);
+  }
+
+  @Test
+  public void testParseLinkedPagesReadsDisambiguationProperty() throws Exception {
+    String body =
+        "{\"query\":{\"pages\":{"
+            + "\"1\":{\"pageid\":1,\"ns\":0,\"title\":\"Mercury (planet)\"},"
+            + "\"2\":{\"pageid\":2,\"ns\":0,\"title\":\"Mercury\","
+            + "\"pageprops\":{\"disambiguation\":\"\"}}}}}";
+    Map<String, Boolean> linked =
+        WikipediaApiClient.parseLinkedPages(new ObjectMapper().readTree(body));
+    assertEquals(Boolean.FALSE, linked.get("https://en.wikipedia.org/wiki/Mercury_(planet)"));
+    assertEquals(Boolean.TRUE, linked.get("https://en.wikipedia.org/wiki/Mercury"));
+    assertEquals(2, linked.size());
+  }
+
+  @Test
+  public void testParseBacklinks() throws Exception {
+    String body =
+        "{\"query\":{\"backlinks\":["
+            + "{\"pageid\":1,\"ns\":0,\"title\":\"Solar System\"},"
+            + "{\"pageid\":2,\"ns\":0,\"title\":\"Venus\"}]}}";
+    Set<String> backlinks = WikipediaApiClient.parseBacklinks(new ObjectMapper().readTree(body));
+    assertEquals(
+        Set.of(
+            "https://en.wikipedia.org/wiki/Solar_System", "https://en.wikipedia.org/wiki/Venus"),
+        backlinks);
+  }
+}
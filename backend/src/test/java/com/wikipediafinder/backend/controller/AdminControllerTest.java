@@ -0,0 +1,72 @@
+package com.wikipediafinder.backend.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.wikipediafinder.backend.BackgroundCrawler;
+import com.wikipediafinder.backend.FlightRecorderService;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+public class AdminControllerTest {
+  private final FlightRecorderService recorder = new FlightRecorderService();
+  private final BackgroundCrawler crawler =
+      new BackgroundCrawler(0, "", Duration.ZERO, Duration.ZERO, Duration.ofMinutes(10));
+
+  @AfterEach
+  public void tearDown() {
+    recorder.close();
+  }
+
+  @Test
+  public void endpointsHiddenWithoutConfiguredToken() {
+    AdminController controller = new AdminController(recorder, crawler, "");
+    assertEquals(HttpStatus.NOT_FOUND, controller.startRecording("", "default").getStatusCode());
+    assertEquals(HttpStatus.NOT_FOUND, controller.dumpRecording(null).getStatusCode());
+    assertFalse(recorder.isRecording());
+  }
+
+  @Test
+  public void wrongTokenForbidden() {
+    AdminController controller = new AdminController(recorder, crawler, "secret");
+    assertEquals(HttpStatus.FORBIDDEN, controller.startRecording(null, "default").getStatusCode());
+    assertEquals(
+        HttpStatus.FORBIDDEN, controller.startRecording("wrong", "default").getStatusCode());
+    assertEquals(HttpStatus.FORBIDDEN, controller.stopRecording("wrong").getStatusCode());
+    assertEquals(HttpStatus.FORBIDDEN, controller.crawlerProgress("wrong").getStatusCode());
+    assertFalse(recorder.isRecording());
+  }
+
+  @Test
+  public void recordingRoundTrip() {
+    AdminController controller = new AdminController(recorder, crawler, "secret");
+    assertEquals(HttpStatus.NOT_FOUND, controller.stopRecording("secret").getStatusCode());
+    assertEquals(
+        HttpStatus.BAD_REQUEST, controller.startRecording("secret", "nonexistent").getStatusCode());
+
+    ResponseEntity<String> started = controller.startRecording("secret", "default");
+    assertEquals(HttpStatus.CREATED, started.getStatusCode());
+    ResponseEntity<String> again = controller.startRecording("secret", "default");
+    assertEquals(HttpStatus.CONFLICT, again.getStatusCode());
+    ResponseEntity<byte[]> dump = controller.dumpRecording("secret");
+    assertEquals(HttpStatus.OK, dump.getStatusCode());
+    assertTrue(dump.getBody().length > 0);
+
+    ResponseEntity<byte[]> stopped = controller.stopRecording("secret");
+    assertEquals(HttpStatus.OK, stopped.getStatusCode());
+    assertTrue(stopped.getBody().length > 0);
+    assertFalse(recorder.isRecording());
+  }
+
+  @Test
+  public void crawlerProgressReported() {
+    AdminController controller = new AdminController(recorder, crawler, "secret");
+    ResponseEntity<Map<String, Object>> progress = controller.crawlerProgress("secret");
+    assertEquals(HttpStatus.OK, progress.getStatusCode());
+    assertEquals("idle", progress.getBody().get("state"));
+    assertEquals(0L, progress.getBody().get("runs"));
+  }
+}
@@ -0,0 +1,77 @@
+package com.wikipediafinder.backend.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.wikipediafinder.backend.DistanceIndexService;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+public class DistanceControllerTest {
+  @TempDir Path tempDir;
+
+  private DistanceIndexService service;
+  private DistanceController controller;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    Path edges = tempDir.resolve("edges.tsv");
+    Files.writeString(edges, "Start\tMiddle_page\nMiddle page\tEnd\nIsland\tStart\n");
+    service =
+        new DistanceIndexService(tempDir.resolve("distance.idx").toString(), edges.toString());
+    controller = new DistanceController(service);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    service.close();
+  }
+
+  @Test
+  public void unavailableUntilLoaded() {
+    ResponseEntity<Object> response = controller.getDistance("Start", "End", true);
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+  }
+
+  @Test
+  public void returnsDistanceAndPath() {
+    service.load();
+
+    ResponseEntity<Object> response =
+        controller.getDistance("https://en.wikipedia.org/wiki/Start", "End", true);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    Map<?, ?> body = (Map<?, ?>) response.getBody();
+    assertEquals(2, body.get("distance"));
+    assertEquals(
+        List.of(
+            "https://en.wikipedia.org/wiki/Start",
+            "https://en.wikipedia.org/wiki/Middle_page",
+            "https://en.wikipedia.org/wiki/End"),
+        body.get("path"));
+    Map<?, ?> withoutPath = (Map<?, ?>) controller.getDistance("Start", "End", false).getBody();
+    assertFalse(withoutPath.containsKey("path"));
+  }
+
+  @Test
+  public void reportsUnreachableAndUnknownPages() {
+    service.load();
+
+    ResponseEntity<Object> unreachable = controller.getDistance("End", "Island", true);
+    assertEquals(HttpStatus.OK, unreachable.getStatusCode());
+    assertEquals(-1, ((Map<?, ?>) unreachable.getBody()).get("distance"));
+
+    ResponseEntity<Object> unknown = controller.getDistance("Start", "Nowhere", true);
+    assertEquals(HttpStatus.NOT_FOUND, unknown.getStatusCode());
+    assertEquals(
+        "Page not in the distance index: https://en.wikipedia.org/wiki/Nowhere",
+        ((Map<?, ?>) unknown.getBody()).get("error"));
+  }
+}
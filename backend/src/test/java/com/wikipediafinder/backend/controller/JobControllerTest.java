@@ -0,0 +1,99 @@
+package com.wikipediafinder.backend.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.wikipediafinder.backend.BFS;
+import com.wikipediafinder.backend.PageExistenceCache;
+import com.wikipediafinder.backend.PageExistenceChecker;
+import com.wikipediafinder.backend.SearchJob;
+import com.wikipediafinder.backend.SearchJobService;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+public class JobControllerTest {
+  @TempDir Path tempDir;
+
+  private SearchJobService jobs;
+  private JobController controller;
+  private PageExistenceCache existence;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    jobs =
+        new SearchJobService(
+            new BFS(),
+            tempDir.toString(),
+            "",
+            1000,
+            Duration.ofMinutes(1),
+            Duration.ofDays(1),
+            1,
+            1,
+            1);
+    jobs.recover();
+    existence = new PageExistenceCache(100, 100, Duration.ofMinutes(1));
+    existence.markExisting("Existing Page");
+    existence.markMissing("No Such Page");
+    controller = new JobController(jobs, new PageExistenceChecker(existence));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    jobs.shutdown();
+  }
+
+  @Test
+  public void unknownJobNotFound() {
+    assertEquals(HttpStatus.NOT_FOUND, controller.getJob("nope").getStatusCode());
+    assertEquals(HttpStatus.NOT_FOUND, controller.cancelJob("nope").getStatusCode());
+  }
+
+  @Test
+  public void missingPageRejected() {
+    ResponseEntity<Object> response =
+        controller.submitJob("Existing_Page", "No_Such_Page", new MockHttpServletRequest());
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    assertEquals(
+        "Wikipedia page does not exist: https://en.wikipedia.org/wiki/No_Such_Page",
+        ((Map<?, ?>) response.getBody()).get("error"));
+  }
+
+  @Test
+  public void jobsBeyondTheLimitRejected() {
+    SearchJobService full =
+        new SearchJobService(
+            new BFS(),
+            tempDir.toString(),
+            "",
+            1000,
+            Duration.ofMinutes(1),
+            Duration.ofDays(1),
+            1,
+            1,
+            1) {
+          @Override
+          public SearchJob submit(String startUrl, String endUrl, String client) {
+            throw new RejectedExecutionException("Too many search jobs are pending.");
+          }
+        };
+    try {
+      ResponseEntity<Object> response =
+          new JobController(full, new PageExistenceChecker(existence))
+              .submitJob("Existing_Page", "Existing_Page", new MockHttpServletRequest());
+      assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+      assertEquals(
+          "Too many search jobs are pending.", ((Map<?, ?>) response.getBody()).get("error"));
+    } finally {
+      full.shutdown();
+    }
+  }
+}
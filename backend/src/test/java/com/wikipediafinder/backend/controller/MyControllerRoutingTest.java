@@ -0,0 +1,172 @@
+package com.wikipediafinder.backend.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.wikipediafinder.backend.BFS;
+import com.wikipediafinder.backend.BFSResult;
+import com.wikipediafinder.backend.PageExistenceCache;
+import com.wikipediafinder.backend.PageExistenceChecker;
+import com.wikipediafinder.backend.PageNode;
+import com.wikipediafinder.backend.ReachabilityResult;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * Routing of {@code /getResults} to the search modes, and the bounds of {@code /getDistances},
+ * against a recording {@link BFS}.
+ */
+public class MyControllerRoutingTest {
+  private static final String WIKI = "https://en.wikipedia.org/wiki/";
+
+  private final List<String> calls = new ArrayList<>();
+  // Pages every distances search reports as reached
+  private Map<String, Integer> reached = Map.of();
+  private MyController controller;
+
+  @BeforeEach
+  public void setUp() {
+    PageExistenceCache existence = new PageExistenceCache(100, 100, Duration.ofMinutes(1));
+    existence.markExisting("A");
+    existence.markExisting("B");
+    existence.markExisting("Washington, D.C.");
+    existence.markMissing("Misspeled");
+    controller =
+        new MyController(
+            new RecordingBfs(),
+            new ConcurrentMapCacheManager(),
+            new PageExistenceChecker(existence),
+            null,
+            Duration.ofMinutes(45),
+            Duration.ofMinutes(5));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    controller.shutdown();
+  }
+
+  @Test
+  public void getResultsUsesLevelAwareSearchWhenRequested() {
+    ResponseEntity<Object> response =
+        controller.getResults("A", "B", false, false, 64, false, true);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of("levelAware"), calls);
+  }
+
+  @Test
+  public void getResultsRunsTheDefaultSearchOverCachedTrees() {
+    ResponseEntity<Object> response =
+        controller.getResults("A", "B", false, false, 64, false, false);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of("default, trees: true"), calls);
+  }
+
+  @Test
+  public void getResultsRejectsLevelAwareCombinedWithOtherModes() {
+    ResponseEntity<Object> response = controller.getResults("A", "B", false, false, 64, true, true);
+
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    assertTrue(calls.isEmpty());
+  }
+
+  @Test
+  public void getDistancesTakesRepeatedTargetsWithCommas() {
+    MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+    params.add("target", "B");
+    params.add("target", "Washington,_D.C.");
+
+    ResponseEntity<Object> response = controller.getDistances("A", null, false, params);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(
+        List.of("distances to [" + WIKI + "B, " + WIKI + "Washington,_D.C.] within 6"), calls);
+  }
+
+  @Test
+  public void getDistancesRejectsUnboundedRequestsAndMissingPages() {
+    MultiValueMap<String, String> tooMany = new LinkedMultiValueMap<>();
+    for (int i = 0; i <= 100; i++) {
+      tooMany.add("target", "B");
+    }
+    MultiValueMap<String, String> missing = new LinkedMultiValueMap<>();
+    missing.add("target", "Misspeled");
+
+    assertEquals(
+        HttpStatus.BAD_REQUEST,
+        controller.getDistances("A", null, false, tooMany).getStatusCode());
+    assertEquals(
+        HttpStatus.BAD_REQUEST,
+        controller.getDistances("A", 7, false, new LinkedMultiValueMap<>()).getStatusCode());
+    assertEquals(
+        HttpStatus.BAD_REQUEST,
+        controller.getDistances("A", null, false, missing).getStatusCode());
+    assertTrue(calls.isEmpty());
+  }
+
+  @Test
+  public void getDistancesReportsAtMostAThousandPages() {
+    Map<String, Integer> many = new LinkedHashMap<>();
+    for (int i = 0; i < 1500; i++) {
+      many.put(WIKI + "P" + i, 1);
+    }
+    reached = many;
+
+    ResponseEntity<Object> response =
+        controller.getDistances("A", 1, false, new LinkedMultiValueMap<>());
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    Map<?, ?> body = (Map<?, ?>) response.getBody();
+    assertEquals(1000, ((Map<?, ?>) body.get("distances")).size());
+    assertTrue(((Map<?, ?>) body.get("distances")).containsKey(WIKI + "P999"));
+    assertEquals(true, body.get("truncated"));
+  }
+
+  /** Records which search the controller runs, each finding the direct path. */
+  private class RecordingBfs extends BFS {
+    @Override
+    public BFSResult getPathWithStatsLevelAware(
+        PageNode start, PageNode end, Consumer<Integer> progressCallback) {
+      calls.add("levelAware");
+      return new BFSResult(List.of(start.getURL(), end.getURL()), 1);
+    }
+
+    @Override
+    public BFSResult getPathWithStats(
+        PageNode start,
+        PageNode end,
+        Function<String, PageNode> nodeFactory,
+        Consumer<Integer> progressCallback,
+        boolean useTrees) {
+      calls.add("default, trees: " + useTrees);
+      return new BFSResult(List.of(start.getURL(), end.getURL()), 1);
+    }
+
+    @Override
+    public ReachabilityResult getDistances(
+        PageNode start,
+        Collection<String> targetUrls,
+        int maxDepth,
+        boolean includePaths,
+        Function<String, PageNode> nodeFactory) {
+      calls.add("distances to " + targetUrls + " within " + maxDepth);
+      return new ReachabilityResult(reached, null, Set.of(), 1);
+    }
+  }
+}
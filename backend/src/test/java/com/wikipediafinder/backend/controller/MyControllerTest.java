@@ -1,7 +1,15 @@
 package com.wikipediafinder.backend.controller;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -11,14 +19,28 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import com.wikipediafinder.backend.BFS;
 import com.wikipediafinder.backend.BFSResult;
+import com.wikipediafinder.backend.CachedResult;
+import com.wikipediafinder.backend.HeuristicResult;
+import com.wikipediafinder.backend.LinkFilter;
+import com.wikipediafinder.backend.PageExistenceChecker;
 import com.wikipediafinder.backend.PageNode;
+import com.wikipediafinder.backend.ReachabilityResult;
+import com.wikipediafinder.backend.SearchMetrics;
+import com.wikipediafinder.backend.ShortestPaths;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleValueWrapper;
 import org.springframework.test.web.servlet.MockMvc;
 
 /**
@@ -34,6 +56,15 @@ public class MyControllerTest {
 
   @MockBean private CacheManager cacheManager;
 
+  @MockBean private PageExistenceChecker pageExistenceChecker;
+
+  @MockBean private ApplicationAvailability availability;
+
+  @BeforeEach
+  public void acceptTraffic() {
+    when(availability.getReadinessState()).thenReturn(ReadinessState.ACCEPTING_TRAFFIC);
+  }
+
   @Test
   public void healthEndpointReturnsOk() throws Exception {
     mockMvc
@@ -42,9 +73,17 @@ public class MyControllerTest {
         .andExpect(content().string("[Health check] - This app is running!"));
   }
 
+  @Test
+  public void healthEndpointUnavailableWhileWarmingUp() throws Exception {
+    when(availability.getReadinessState()).thenReturn(ReadinessState.REFUSING_TRAFFIC);
+
+    mockMvc.perform(get("/api/health")).andExpect(status().isServiceUnavailable());
+  }
+
   @Test
   public void getResultsReturnsPathWhenFound() throws Exception {
-    when(bfs.getPathWithStats(any(PageNode.class), any(PageNode.class), any()))
+    when(bfs.getPathWithStats(
+            any(PageNode.class), any(PageNode.class), any(), any(), anyBoolean()))
         .thenReturn(
             new BFSResult(
                 Arrays.asList("https://en.wikipedia.org/wiki/A", "https://en.wikipedia.org/wiki/B"),
@@ -58,19 +97,158 @@ public class MyControllerTest {
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.path[0]").value("https://en.wikipedia.org/wiki/A"))
         .andExpect(jsonPath("$.path[1]").value("https://en.wikipedia.org/wiki/B"))
-        .andExpect(jsonPath("$.nodesExplored").value(2));
+        .andExpect(jsonPath("$.nodesExplored").value(2))
+        .andExpect(jsonPath("$.metrics.httpRequests").value(0))
+        .andExpect(jsonPath("$.metrics.totalMillis").value(0.0));
   }
 
   @Test
-  public void getResultsShortCircuitsBfsWhenCacheHit() throws Exception {
+  public void getResultsUsesPrunedSearchWhenRequested() throws Exception {
+    when(bfs.getPathWithStatsPruned(
+            any(PageNode.class), any(PageNode.class), any(LinkFilter.class), any()))
+        .thenReturn(
+            new BFSResult(
+                Arrays.asList("https://en.wikipedia.org/wiki/A", "https://en.wikipedia.org/wiki/B"),
+                2,
+                Collections.singletonList("disambiguation")));
+
+    mockMvc
+        .perform(
+            get("/api/getResults")
+                .param("startinglink", "https://en.wikipedia.org/wiki/A")
+                .param("endinglink", "https://en.wikipedia.org/wiki/B")
+                .param("pruned", "true"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.path[1]").value("https://en.wikipedia.org/wiki/B"))
+        .andExpect(jsonPath("$.filtersApplied[0]").value("disambiguation"));
+
+    verify(bfs, never())
+        .getPathWithStats(any(PageNode.class), any(PageNode.class), any(), any(), anyBoolean());
+  }
+
+  @Test
+  public void getResultsUsesHeuristicSearchWhenRequested() throws Exception {
+    when(bfs.getPathWithStatsHeuristic(any(PageNode.class), any(PageNode.class), anyInt(), any()))
+        .thenReturn(
+            new HeuristicResult(
+                Arrays.asList("https://en.wikipedia.org/wiki/A", "https://en.wikipedia.org/wiki/B"),
+                2,
+                1,
+                16,
+                SearchMetrics.empty()));
+
+    mockMvc
+        .perform(
+            get("/api/getResults")
+                .param("startinglink", "A")
+                .param("endinglink", "B")
+                .param("heuristic", "true")
+                .param("beamWidth", "16"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.optimalityGap").value(0))
+        .andExpect(jsonPath("$.beamWidth").value(16));
+
+    verify(bfs, never())
+        .getPathWithStats(any(PageNode.class), any(PageNode.class), any(), any(), anyBoolean());
+  }
+
+  @Test
+  public void getResultsRejectsPrunedHeuristicSearch() throws Exception {
+    mockMvc
+        .perform(
+            get("/api/getResults")
+                .param("startinglink", "A")
+                .param("endinglink", "B")
+                .param("pruned", "true")
+                .param("heuristic", "true"))
+        .andExpect(status().isBadRequest());
+
+    verifyNoInteractions(bfs);
+  }
+
+  @Test
+  public void getResultsUsesSnapshotSearchWhenRequested() throws Exception {
+    when(bfs.getPathWithStatsSnapshot(any(PageNode.class), any(PageNode.class), any()))
+        .thenReturn(
+            new BFSResult(
+                Arrays.asList("https://en.wikipedia.org/wiki/A", "https://en.wikipedia.org/wiki/B"),
+                2));
+
+    mockMvc
+        .perform(
+            get("/api/getResults")
+                .param("startinglink", "A")
+                .param("endinglink", "B")
+                .param("snapshot", "true"))
+        .andExpect(status().isOk());
+
+    verify(bfs).getPathWithStatsSnapshot(any(PageNode.class), any(PageNode.class), any());
+    verify(bfs, never())
+        .getPathWithStats(any(PageNode.class), any(PageNode.class), any(), any(), anyBoolean());
+  }
+
+  @Test
+  public void getResultsUsesLevelAwareSearchWhenRequested() throws Exception {
+    when(bfs.getPathWithStatsLevelAware(any(PageNode.class), any(PageNode.class), any()))
+        .thenReturn(
+            new BFSResult(
+                Arrays.asList("https://en.wikipedia.org/wiki/A", "https://en.wikipedia.org/wiki/B"),
+                2));
+
+    mockMvc
+        .perform(
+            get("/api/getResults")
+                .param("startinglink", "A")
+                .param("endinglink", "B")
+                .param("levelAware", "true"))
+        .andExpect(status().isOk());
+
+    verify(bfs).getPathWithStatsLevelAware(any(PageNode.class), any(PageNode.class), any());
+    verify(bfs, never())
+        .getPathWithStats(any(PageNode.class), any(PageNode.class), any(), any(), anyBoolean());
+  }
+
+  @Test
+  public void getResultsRejectsSnapshotCombinedWithOtherModes() throws Exception {
+    mockMvc
+        .perform(
+            get("/api/getResults")
+                .param("startinglink", "A")
+                .param("endinglink", "B")
+                .param("snapshot", "true")
+                .param("pruned", "true"))
+        .andExpect(status().isBadRequest());
+
+    verifyNoInteractions(bfs);
+  }
+
+  private static final String CACHE_KEY =
+      "https://en.wikipedia.org/wiki/A->https://en.wikipedia.org/wiki/B";
+
+  private Cache cacheHolding(BFSResult result, long ageMillis, String mode, int budget) {
     Cache cache = mock(Cache.class);
-    BFSResult cachedResult =
-        new BFSResult(
-            Arrays.asList("https://en.wikipedia.org/wiki/A", "https://en.wikipedia.org/wiki/B"), 2);
     when(cacheManager.getCache("pathStatsCache")).thenReturn(cache);
-    when(cache.get(
-            "https://en.wikipedia.org/wiki/A->https://en.wikipedia.org/wiki/B", BFSResult.class))
-        .thenReturn(cachedResult);
+    when(cache.get(CACHE_KEY))
+        .thenReturn(
+            new SimpleValueWrapper(
+                new CachedResult(result, System.currentTimeMillis() - ageMillis, mode, budget)));
+    return cache;
+  }
+
+  @Test
+  public void getResultsShortCircuitsBfsWhenCacheHit() throws Exception {
+    SearchMetrics original = new SearchMetrics();
+    original.recordHttpRequest(100);
+    original.finish();
+    cacheHolding(
+        new BFSResult(
+            Arrays.asList("https://en.wikipedia.org/wiki/A", "https://en.wikipedia.org/wiki/B"),
+            2,
+            Collections.emptyList(),
+            original),
+        0,
+        "default",
+        BFS.NODE_CAP);
 
     mockMvc
         .perform(
@@ -80,14 +258,94 @@ public class MyControllerTest {
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.path[0]").value("https://en.wikipedia.org/wiki/A"))
         .andExpect(jsonPath("$.path[1]").value("https://en.wikipedia.org/wiki/B"))
-        .andExpect(jsonPath("$.nodesExplored").value(2));
+        .andExpect(jsonPath("$.nodesExplored").value(2))
+        // The metrics of the search that computed the path are not reported again
+        .andExpect(jsonPath("$.metrics.httpRequests").value(0));
+
+    verifyNoInteractions(bfs);
+  }
+
+  @Test
+  public void getResultsServesRecentMissFromCache() throws Exception {
+    cacheHolding(new BFSResult(null, BFS.NODE_CAP), 60_000, "default", BFS.NODE_CAP);
+
+    mockMvc
+        .perform(
+            get("/api/getResults")
+                .param("startinglink", "https://en.wikipedia.org/wiki/A")
+                .param("endinglink", "https://en.wikipedia.org/wiki/B"))
+        .andExpect(status().isOk())
+        .andExpect(content().json("{\"message\":\"No path found or query took too long\"}"));
 
     verifyNoInteractions(bfs);
   }
 
+  @Test
+  public void getResultsSearchesAgainAfterExpiredOrNonMatchingMiss() throws Exception {
+    when(bfs.getPathWithStats(
+            any(PageNode.class), any(PageNode.class), any(), any(), anyBoolean()))
+        .thenReturn(new BFSResult(null, BFS.NODE_CAP));
+    Cache expired =
+        cacheHolding(new BFSResult(null, BFS.NODE_CAP), 600_000, "default", BFS.NODE_CAP);
+
+    mockMvc
+        .perform(
+            get("/api/getResults")
+                .param("startinglink", "https://en.wikipedia.org/wiki/A")
+                .param("endinglink", "https://en.wikipedia.org/wiki/B"))
+        .andExpect(status().isOk());
+
+    verify(expired).put(eq(CACHE_KEY), any(CachedResult.class));
+
+    cacheHolding(new BFSResult(null, 100), 0, "default", 100);
+    mockMvc
+        .perform(
+            get("/api/getResults")
+                .param("startinglink", "https://en.wikipedia.org/wiki/A")
+                .param("endinglink", "https://en.wikipedia.org/wiki/B"))
+        .andExpect(status().isOk());
+
+    // The snapshot search shares the key but gives up after live requests, not expansions
+    cacheHolding(new BFSResult(null, 0), 0, "snapshot", BFS.NODE_CAP);
+    mockMvc
+        .perform(
+            get("/api/getResults")
+                .param("startinglink", "https://en.wikipedia.org/wiki/A")
+                .param("endinglink", "https://en.wikipedia.org/wiki/B"))
+        .andExpect(status().isOk());
+
+    verify(bfs, times(3))
+        .getPathWithStats(any(PageNode.class), any(PageNode.class), any(), any(), anyBoolean());
+  }
+
+  @Test
+  public void getResultsServesStalePathAndRefreshesInBackground() throws Exception {
+    List<String> path =
+        Arrays.asList("https://en.wikipedia.org/wiki/A", "https://en.wikipedia.org/wiki/B");
+    when(bfs.getPathWithStats(
+            any(PageNode.class), any(PageNode.class), any(), any(), anyBoolean()))
+        .thenReturn(new BFSResult(path, 3));
+    Cache cache = cacheHolding(new BFSResult(path, 2), 3_600_000, "default", BFS.NODE_CAP);
+
+    mockMvc
+        .perform(
+            get("/api/getResults")
+                .param("startinglink", "https://en.wikipedia.org/wiki/A")
+                .param("endinglink", "https://en.wikipedia.org/wiki/B"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.nodesExplored").value(2));
+
+    verify(cache, timeout(5000))
+        .put(eq(CACHE_KEY), any(CachedResult.class));
+    // The refresh does not resume the cached BFS trees, which may hold the stale path
+    verify(bfs)
+        .getPathWithStats(any(PageNode.class), any(PageNode.class), any(), any(), eq(false));
+  }
+
   @Test
   public void getResultsReturnsMessageWhenNoPath() throws Exception {
-    when(bfs.getPathWithStats(any(PageNode.class), any(PageNode.class), any()))
+    when(bfs.getPathWithStats(
+            any(PageNode.class), any(PageNode.class), any(), any(), anyBoolean()))
         .thenReturn(new BFSResult(null, 1000));
 
     mockMvc
@@ -101,7 +359,8 @@ public class MyControllerTest {
 
   @Test
   public void getResultsReturnsBadRequestWhenBfsThrows() throws Exception {
-    when(bfs.getPathWithStats(any(PageNode.class), any(PageNode.class), any()))
+    when(bfs.getPathWithStats(
+            any(PageNode.class), any(PageNode.class), any(), any(), anyBoolean()))
         .thenThrow(new IllegalArgumentException("invalid input"));
 
     mockMvc
@@ -112,4 +371,147 @@ public class MyControllerTest {
         .andExpect(status().isBadRequest())
         .andExpect(content().json("{\"error\":\"invalid input\"}"));
   }
+
+  @Test
+  public void getResultsReturnsBadRequestForMissingPage() throws Exception {
+    when(pageExistenceChecker.findMissingPages(any(String[].class)))
+        .thenReturn(Collections.singletonList("https://en.wikipedia.org/wiki/Misspeled"));
+
+    mockMvc
+        .perform(
+            get("/api/getResults")
+                .param("startinglink", "https://en.wikipedia.org/wiki/A")
+                .param("endinglink", "https://en.wikipedia.org/wiki/Misspeled"))
+        .andExpect(status().isBadRequest())
+        .andExpect(
+            content()
+                .json(
+                    "{\"error\":\"Wikipedia page does not exist: "
+                        + "https://en.wikipedia.org/wiki/Misspeled\"}"));
+
+    verify(bfs, never())
+        .getPathWithStats(any(PageNode.class), any(PageNode.class), any(), any(), anyBoolean());
+  }
+
+  @Test
+  public void getDistancesReturnsDistancesForTargets() throws Exception {
+    when(bfs.getDistances(any(PageNode.class), anyList(), anyInt(), anyBoolean(), any()))
+        .thenReturn(
+            new ReachabilityResult(
+                Map.of("https://en.wikipedia.org/wiki/B", 2),
+                null,
+                Collections.singleton("https://en.wikipedia.org/wiki/C"),
+                7));
+
+    mockMvc
+        .perform(
+            get("/api/getDistances")
+                .param("startinglink", "A")
+                .param("target", "B")
+                .param("target", "C"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.distances['https://en.wikipedia.org/wiki/B']").value(2))
+        .andExpect(jsonPath("$.unreachedTargets[0]").value("https://en.wikipedia.org/wiki/C"))
+        .andExpect(jsonPath("$.nodesExplored").value(7))
+        .andExpect(jsonPath("$.truncated").value(false));
+
+    verify(bfs)
+        .getDistances(
+            any(PageNode.class),
+            eq(List.of("https://en.wikipedia.org/wiki/B", "https://en.wikipedia.org/wiki/C")),
+            eq(6),
+            eq(false),
+            any());
+  }
+
+  @Test
+  public void getDistancesKeepsCommasInTargetTitles() throws Exception {
+    when(bfs.getDistances(any(PageNode.class), anyList(), anyInt(), anyBoolean(), any()))
+        .thenReturn(new ReachabilityResult(Map.of(), null, Collections.emptySet(), 1));
+
+    mockMvc
+        .perform(
+            get("/api/getDistances")
+                .param("startinglink", "A")
+                .param("target", "Washington,_D.C.")
+                .param("maxDepth", "3"))
+        .andExpect(status().isOk());
+
+    verify(bfs)
+        .getDistances(
+            any(PageNode.class),
+            eq(List.of("https://en.wikipedia.org/wiki/Washington,_D.C.")),
+            eq(3),
+            eq(false),
+            any());
+  }
+
+  @Test
+  public void getDistancesRejectsUnboundedRequestsAndMissingPages() throws Exception {
+    mockMvc
+        .perform(get("/api/getDistances").param("startinglink", "A").param("maxDepth", "7"))
+        .andExpect(status().isBadRequest());
+    var tooManyTargets = get("/api/getDistances").param("startinglink", "A");
+    for (int i = 0; i <= 100; i++) {
+      tooManyTargets = tooManyTargets.param("target", "T" + i);
+    }
+    mockMvc.perform(tooManyTargets).andExpect(status().isBadRequest());
+
+    when(pageExistenceChecker.findMissingPages(any(String[].class)))
+        .thenReturn(Collections.singletonList("https://en.wikipedia.org/wiki/Misspeled"));
+    mockMvc
+        .perform(get("/api/getDistances").param("startinglink", "A").param("target", "Misspeled"))
+        .andExpect(status().isBadRequest());
+
+    verify(bfs, never())
+        .getDistances(any(PageNode.class), anyList(), anyInt(), anyBoolean(), any());
+  }
+
+  @Test
+  public void getDistancesReturnsBadRequestWithoutTargetsOrDepth() throws Exception {
+    when(bfs.getDistances(any(PageNode.class), anyList(), anyInt(), anyBoolean(), any()))
+        .thenThrow(new IllegalArgumentException("A maximum depth is required"));
+
+    mockMvc
+        .perform(get("/api/getDistances").param("startinglink", "A"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void getAllPathsReturnsLimitedPaths() throws Exception {
+    ShortestPaths paths = mock(ShortestPaths.class);
+    when(paths.getDistance()).thenReturn(1);
+    when(paths.paths(2))
+        .thenReturn(
+            List.of(List.of("https://en.wikipedia.org/wiki/A", "https://en.wikipedia.org/wiki/B")));
+    when(paths.countPaths()).thenReturn(1L);
+    when(paths.isComplete()).thenReturn(true);
+    when(paths.getNodesExplored()).thenReturn(3);
+    when(paths.getMetrics()).thenReturn(SearchMetrics.empty());
+    when(bfs.getAllShortestPaths(any(PageNode.class), any(PageNode.class))).thenReturn(paths);
+
+    mockMvc
+        .perform(
+            get("/api/getAllPaths")
+                .param("startinglink", "A")
+                .param("endinglink", "B")
+                .param("maxPaths", "2"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.paths[0][1]").value("https://en.wikipedia.org/wiki/B"))
+        .andExpect(jsonPath("$.pathCount").value(1))
+        .andExpect(jsonPath("$.complete").value(true));
+  }
+
+  @Test
+  public void getAllPathsRejectsTooManyPaths() throws Exception {
+    mockMvc
+        .perform(
+            get("/api/getAllPaths")
+                .param("startinglink", "A")
+                .param("endinglink", "B")
+                .param("maxPaths", "1000"))
+        .andExpect(status().isBadRequest());
+
+    verifyNoInteractions(bfs);
+  }
 }
@@ -0,0 +1,147 @@
+package com.wikipediafinder.backend.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import com.wikipediafinder.backend.AdjacencyCache;
+import com.wikipediafinder.backend.CompressedAdjacency;
+import com.wikipediafinder.backend.ConsistentHashRing;
+import com.wikipediafinder.backend.LinkFetcher;
+import com.wikipediafinder.backend.PeerLinkClient;
+import com.wikipediafinder.backend.TitleRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+public class PeerControllerTest {
+  private static final String SECRET = "peer-secret";
+  private static final String PREFIX = "https://en.wikipedia.org/wiki/";
+
+  // One backend replica: its own registry, cache and fetcher, served over HTTP by a PeerController
+  static class Replica {
+    final TitleRegistry registry = new TitleRegistry();
+    final AtomicInteger apiRequests = new AtomicInteger();
+    final LinkFetcher fetcher;
+    final HttpServer server;
+    final String url;
+
+    Replica(String secret) throws IOException {
+      fetcher =
+          new LinkFetcher(
+              new AdjacencyCache(1 << 20, Duration.ofMinutes(1)),
+              registry,
+              new PeerLinkClient(Duration.ofSeconds(2))) {
+            @Override
+            protected CompressedAdjacency fetchFromApi(String pageTitle) {
+              apiRequests.incrementAndGet();
+              return CompressedAdjacency.fromUrls(List.of(PREFIX + "Linked_From_Api"), registry);
+            }
+          };
+      PeerController controller = new PeerController(fetcher, secret);
+      server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+      server.createContext(
+          PeerLinkClient.LINKS_PATH,
+          exchange -> {
+            String title =
+                URLDecoder.decode(
+                    exchange.getRequestURI().getRawQuery().substring("title=".length()),
+                    StandardCharsets.UTF_8);
+            ResponseEntity<byte[]> response =
+                controller.getLinks(
+                    exchange.getRequestHeaders().getFirst(PeerLinkClient.SECRET_HEADER), title);
+            byte[] body = response.getBody();
+            exchange.sendResponseHeaders(
+                response.getStatusCode().value(), body == null ? -1 : body.length);
+            if (body != null) {
+              try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+              }
+            }
+            exchange.close();
+          });
+      server.start();
+      url = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+  }
+
+  private Replica first;
+  private Replica second;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    first = new Replica(SECRET);
+    second = new Replica(SECRET);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    first.server.stop(0);
+    second.server.stop(0);
+  }
+
+  /** Returns a title that {@code owner} owns on the ring of both replicas. */
+  private String titleOwnedBy(Replica owner) {
+    ConsistentHashRing ring = new ConsistentHashRing(List.of(first.url, second.url));
+    for (int i = 0; ; i++) {
+      String title = "Page_" + i;
+      if (ring.ownerOf(title).equals(owner.url)) {
+        return title;
+      }
+    }
+  }
+
+  private void configure(String firstSecret, String secondSecret) {
+    List<String> peers = List.of(first.url, second.url);
+    first.fetcher.configurePeers(first.url, peers, firstSecret);
+    second.fetcher.configurePeers(second.url, peers, secondSecret);
+  }
+
+  @Test
+  public void endpointHiddenWithoutConfiguredSecret() {
+    PeerController controller = new PeerController(first.fetcher, "");
+    assertEquals(HttpStatus.NOT_FOUND, controller.getLinks(SECRET, "Some Page").getStatusCode());
+    assertEquals(0, first.apiRequests.get());
+  }
+
+  @Test
+  public void wrongSecretForbidden() {
+    PeerController controller = new PeerController(first.fetcher, SECRET);
+    assertEquals(HttpStatus.FORBIDDEN, controller.getLinks(null, "Some Page").getStatusCode());
+    assertEquals(HttpStatus.FORBIDDEN, controller.getLinks("wrong", "Some Page").getStatusCode());
+    assertEquals(0, first.apiRequests.get());
+  }
+
+  @Test
+  public void replicasShareLinksOfTheirTitles() throws IOException {
+    configure(SECRET, SECRET);
+    String title = titleOwnedBy(second);
+
+    CompressedAdjacency links = first.fetcher.fetch(title);
+    CompressedAdjacency owned = second.fetcher.fetch(title);
+
+    assertTrue(links.contains(first.registry.find(PREFIX + "Linked_From_Api")));
+    assertTrue(owned.contains(second.registry.find(PREFIX + "Linked_From_Api")));
+    assertEquals(0, first.apiRequests.get());
+    assertEquals(1, second.apiRequests.get());
+  }
+
+  @Test
+  public void replicaWithWrongSecretFallsBackToApi() throws IOException {
+    configure("wrong", SECRET);
+    String title = titleOwnedBy(second);
+
+    assertEquals(1, first.fetcher.fetch(title).size());
+    assertEquals(1, first.apiRequests.get());
+    assertEquals(0, second.apiRequests.get());
+  }
+}